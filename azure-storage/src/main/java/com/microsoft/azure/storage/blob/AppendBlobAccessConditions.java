@@ -21,9 +21,9 @@ public final class AppendBlobAccessConditions {
 
     private static AppendBlobAccessConditions defaultAppendBlobAccessConditions;
 
-    private final Integer ifAppendPositionEquals;
+    private final Long ifAppendPositionEquals;
 
-    private final Integer ifMaxSizeLessThanOrEqual;
+    private final Long ifMaxSizeLessThanOrEqual;
 
     /**
      * Creates a {@link AppendBlobAccessConditions} object
@@ -34,7 +34,7 @@ public final class AppendBlobAccessConditions {
      *      Ensures that the AppendBlock operation succeeds only if the append blob's size is less than or
      *      equal to a value.
      */
-    public AppendBlobAccessConditions(Integer ifAppendPositionEquals, Integer ifMaxSizeLessThanOrEqual) {
+    public AppendBlobAccessConditions(Long ifAppendPositionEquals, Long ifMaxSizeLessThanOrEqual) {
         if ((ifAppendPositionEquals != null && ifAppendPositionEquals < -1) ||
                 (ifMaxSizeLessThanOrEqual != null && ifMaxSizeLessThanOrEqual < -1)) {
             throw new IllegalArgumentException("Append blob access conditions can't be less than -1.");
@@ -45,19 +45,19 @@ public final class AppendBlobAccessConditions {
 
     /**
      * @return
-     *      An {@code Integer} for ensuring that the AppendBlock operation succeeds only if the append position
+     *      A {@code Long} for ensuring that the AppendBlock operation succeeds only if the append position
      *      is equal to a value.
      */
-    public Integer getIfAppendPositionEquals() {
+    public Long getIfAppendPositionEquals() {
         return ifAppendPositionEquals;
     }
 
     /**
      * @return
-     *      An {@code Integer} for ensuring that the AppendBlock operation succeeds only if the append blob's size
+     *      A {@code Long} for ensuring that the AppendBlock operation succeeds only if the append blob's size
      *      is less than or equal to a value.
      */
-    public Integer getIfMaxSizeLessThanOrEqual() {
+    public Long getIfMaxSizeLessThanOrEqual() {
         return ifMaxSizeLessThanOrEqual;
     }
 
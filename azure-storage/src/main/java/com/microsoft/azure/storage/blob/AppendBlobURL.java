@@ -54,7 +54,7 @@ public final class AppendBlobURL extends BlobURL {
      */
     public AppendBlobURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new AppendBlobURL(new URL(this.storageClient.url()), pipeline);
+            return new AppendBlobURL(new URL(this.url), pipeline);
         }
         catch (MalformedURLException e) {
             //TODO: remove
@@ -71,9 +71,9 @@ public final class AppendBlobURL extends BlobURL {
      *      A {@link BlobURL} object with the given pipeline.
      */
     public AppendBlobURL withSnapshot(String snapshot) throws MalformedURLException, UnsupportedEncodingException {
-        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.storageClient.url()));
+        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.url));
         blobURLParts.setSnapshot(snapshot);
-        return new AppendBlobURL(blobURLParts.toURL(), super.storageClient.httpPipeline());
+        return new AppendBlobURL(blobURLParts.toURL(), super.pipeline);
     }
 
     /**
@@ -101,7 +101,7 @@ public final class AppendBlobURL extends BlobURL {
         if(accessConditions == null) {
             accessConditions = BlobAccessConditions.getDefault();
         }
-        return this.storageClient.blobs().putWithRestResponseAsync(BlobType.APPEND_BLOB, null,
+        return this.storageClient().blobs().putWithRestResponseAsync(BlobType.APPEND_BLOB, null,
                 null, headers.getCacheControl(), headers.getContentType(), headers.getContentEncoding(),
                 headers.getContentLanguage(), headers.getContentMD5(), headers.getCacheControl(), metadata.toString(),
                 accessConditions.getLeaseAccessConditions().toString(),
@@ -114,7 +114,8 @@ public final class AppendBlobURL extends BlobURL {
     }
 
     /**
-     * AppendBlock commits a new block of data to the end of the existing append blob.
+     * AppendBlock commits a new block of data to the end of the existing append blob. To append many small writes,
+     * use an {@link AppendBlobWriter}, which groups them into fewer, larger blocks.
      * For more information, see https://docs.microsoft.com/rest/api/storageservices/append-block.
      *
      * @param data
@@ -131,7 +132,7 @@ public final class AppendBlobURL extends BlobURL {
             accessConditions = BlobAccessConditions.getDefault();
         }
 
-        return this.storageClient.appendBlobs().appendBlockWithRestResponseAsync(data, null,
+        return this.storageClient().appendBlobs().appendBlockWithRestResponseAsync(data, null,
                 accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getAppendBlobAccessConditions().getIfMaxSizeLessThanOrEqual(),
                 accessConditions.getAppendBlobAccessConditions().getIfAppendPositionEquals(),
@@ -0,0 +1,408 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsGetHeaders;
+import com.microsoft.azure.storage.models.BlobsGetPropertiesHeaders;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.CompletableSource;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends many small writes to an append blob as few large blocks. Writes are buffered until they fill a block of
+ * the maximum block size or the oldest has waited the maximum delay, and are then appended with a single AppendBlock.
+ * While one block is in flight, further writes gather for the next, so under load each round trip commits everything
+ * written during the previous one. Besides saving requests, this keeps a blob well below the service's limit of
+ * 50,000 blocks.
+ * <p>
+ * Each write completes once the block holding its last byte has been committed, and writes are appended in the order
+ * in which they are subscribed to. A write larger than a block is split across consecutive blocks. Every block is
+ * appended on the condition that the blob ends where the previous block ended, so data is never duplicated or
+ * reordered; if the blob has been appended to by anyone else, the append fails. Once an append fails, the writer
+ * fails every pending and later write with the same error.
+ * <p>
+ * The writer holds on to each write until it is committed, so at most the options' maximum of pending bytes may be
+ * written and not yet committed at once. A write which would go over it waits, without blocking a thread, until
+ * enough earlier writes have been committed; a single write larger than the maximum waits for every earlier write and
+ * is then queued alone.
+ */
+public final class AppendBlobWriter {
+
+    private final AppendBlobURL appendBlobURL;
+
+    private final AppendBlobWriterOptions options;
+
+    /**
+     * Bounds the bytes which have been written but not yet committed. Writes reserve their length from it before
+     * they are queued and give it back once they complete or fail.
+     */
+    private final TransferMemoryBudget pendingBudget;
+
+    private final ArrayDeque<Write> pending = new ArrayDeque<Write>();
+
+    private long pendingBytes;
+
+    private int pendingFlushes;
+
+    private boolean appending;
+
+    private boolean timerScheduled;
+
+    /**
+     * The offset in the blob at which the next block is appended, or -1 until it has been read from the blob.
+     */
+    private long appendPosition = -1;
+
+    private Throwable failure;
+
+    /**
+     * Creates an {@link AppendBlobWriter} which appends to an existing append blob.
+     *
+     * @param appendBlobURL
+     *      The {@link AppendBlobURL} to append to. The blob must already exist.
+     * @param options
+     *      An {@link AppendBlobWriterOptions} object that specifies the block size, the longest time a write waits
+     *      for others and the lease to append under.
+     */
+    public AppendBlobWriter(AppendBlobURL appendBlobURL, AppendBlobWriterOptions options) {
+        Utility.assertNotNull("appendBlobURL", appendBlobURL);
+        this.appendBlobURL = appendBlobURL;
+        this.options = options == null ? AppendBlobWriterOptions.getDefault() : options;
+        this.pendingBudget = new TransferMemoryBudget(this.options.getMaxPendingBytes());
+    }
+
+    private static final class Write {
+
+        final byte[] data;
+
+        final CompletableEmitter emitter;
+
+        final boolean flush;
+
+        final long arrivalNanos;
+
+        /**
+         * The number of bytes of the data that have been taken into blocks.
+         */
+        int offset;
+
+        Write(byte[] data, CompletableEmitter emitter, boolean flush) {
+            this.data = data;
+            this.emitter = emitter;
+            this.flush = flush;
+            this.arrivalNanos = System.nanoTime();
+        }
+    }
+
+    private static final class Block {
+
+        final ByteBuffer buffer;
+
+        /**
+         * The writes whose last byte is in this block, which complete when it is committed.
+         */
+        final List<Write> completedWrites;
+
+        Block(ByteBuffer buffer, List<Write> completedWrites) {
+            this.buffer = buffer;
+            this.completedWrites = completedWrites;
+        }
+    }
+
+    /**
+     * Queues data to be appended to the blob. The data is queued when the returned {@link Completable} is subscribed
+     * to, or once enough earlier writes have been committed if too many bytes are pending, and must not be modified
+     * until it completes.
+     *
+     * @param data
+     *      The bytes to append.
+     * @return
+     *      A {@link Completable} which completes once the data has been committed to the blob.
+     */
+    public Completable writeAsync(final byte[] data) {
+        Utility.assertNotNull("data", data);
+        return this.enqueueAsync(data, false);
+    }
+
+    /**
+     * Appends everything written so far without waiting for the block to fill or the delay to pass.
+     *
+     * @return
+     *      A {@link Completable} which completes once every write queued before it has been committed.
+     */
+    public Completable flushAsync() {
+        return this.enqueueAsync(new byte[0], true);
+    }
+
+    /**
+     * @return
+     *      The number of bytes written but not yet taken into a block.
+     */
+    public synchronized long getPendingBytes() {
+        return this.pendingBytes;
+    }
+
+    /**
+     * Queues a write once its length has been reserved. A flush reserves nothing, but still queues behind the writes
+     * which are waiting for the budget, so that it covers them.
+     */
+    private Completable enqueueAsync(final byte[] data, final boolean flush) {
+        return this.pendingBudget.reserveAsync(data.length, new Callable<Single<Boolean>>() {
+                    @Override
+                    public Single<Boolean> call() {
+                        return Completable.create(new CompletableOnSubscribe() {
+                                    @Override
+                                    public void subscribe(CompletableEmitter emitter) {
+                                        enqueue(new Write(data, emitter, flush));
+                                    }
+                                })
+                                .toSingleDefault(Boolean.TRUE);
+                    }
+                })
+                .toCompletable();
+    }
+
+    private void enqueue(Write write) {
+        Throwable error;
+        synchronized (this) {
+            error = this.failure;
+            if (error == null) {
+                this.pending.add(write);
+                this.pendingBytes += write.data.length;
+                if (write.flush) {
+                    this.pendingFlushes++;
+                }
+            }
+        }
+        if (error != null) {
+            write.emitter.onError(error);
+            return;
+        }
+        this.drain();
+    }
+
+    /**
+     * Starts appending a block if none is in flight and the pending writes are due; otherwise makes sure a timer will
+     * check again once the oldest pending write has waited the maximum delay.
+     */
+    private void drain() {
+        Block block = null;
+        long delayInMs = -1;
+        synchronized (this) {
+            if (this.appending || this.pending.isEmpty() || this.failure != null) {
+                return;
+            }
+            long waitedInMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.pending.peek().arrivalNanos);
+            if (this.pendingBytes >= this.options.getMaxBlockSize() || this.pendingFlushes > 0
+                    || waitedInMs >= this.options.getMaxDelayInMs()) {
+                this.appending = true;
+                block = this.takeBlock();
+            }
+            else if (!this.timerScheduled) {
+                this.timerScheduled = true;
+                delayInMs = this.options.getMaxDelayInMs() - waitedInMs;
+            }
+        }
+
+        if (block != null) {
+            this.appendAsync(block);
+        }
+        else if (delayInMs >= 0) {
+            Completable.timer(delayInMs, TimeUnit.MILLISECONDS).subscribe(new Action() {
+                @Override
+                public void run() {
+                    synchronized (AppendBlobWriter.this) {
+                        timerScheduled = false;
+                    }
+                    drain();
+                }
+            });
+        }
+    }
+
+    /**
+     * Moves up to a block of pending data into a pooled buffer. Must be called while holding the lock.
+     */
+    private Block takeBlock() {
+        int size = (int) Math.min(this.pendingBytes, this.options.getMaxBlockSize());
+        ByteBuffer buffer = TransferBufferPool.getDefault().acquire(size);
+        List<Write> completedWrites = new ArrayList<Write>();
+        while (!this.pending.isEmpty()) {
+            Write write = this.pending.peek();
+            int length = Math.min(buffer.remaining(), write.data.length - write.offset);
+            buffer.put(write.data, write.offset, length);
+            write.offset += length;
+            this.pendingBytes -= length;
+            if (write.offset < write.data.length) {
+                // The block is full; the rest of this write goes in the next one.
+                break;
+            }
+            this.pending.poll();
+            completedWrites.add(write);
+            if (write.flush) {
+                this.pendingFlushes--;
+            }
+        }
+        return new Block(buffer, completedWrites);
+    }
+
+    private void appendAsync(final Block block) {
+        Completable append = block.buffer.capacity() == 0
+                ? Completable.complete()
+                : this.appendPositionAsync().flatMapCompletable(new Function<Long, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(Long position) {
+                        return appendBlockAsync(block, position);
+                    }
+                });
+
+        append.subscribe(
+                new Action() {
+                    @Override
+                    public void run() {
+                        onAppended(block, null);
+                    }
+                },
+                new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable t) {
+                        onAppended(block, t);
+                    }
+                });
+    }
+
+    private Single<Long> appendPositionAsync() {
+        synchronized (this) {
+            if (this.appendPosition >= 0) {
+                return Single.just(this.appendPosition);
+            }
+        }
+        return this.appendBlobURL.getPropertiesAndMetadataAsync(this.leaseConditions())
+                .map(new Function<RestResponse<BlobsGetPropertiesHeaders, Void>, Long>() {
+                    @Override
+                    public Long apply(RestResponse<BlobsGetPropertiesHeaders, Void> response) {
+                        long position = response.headers().contentLength();
+                        synchronized (AppendBlobWriter.this) {
+                            appendPosition = position;
+                        }
+                        return position;
+                    }
+                });
+    }
+
+    private Completable appendBlockAsync(final Block block, final long position) {
+        BlobAccessConditions conditions = new BlobAccessConditions(null,
+                this.options.getLeaseAccessConditions(), new AppendBlobAccessConditions(position, null), null);
+        return this.appendBlobURL.appendBlockAsync(AsyncInputStream.create(block.buffer.array()), conditions)
+                .toCompletable()
+                .onErrorResumeNext(new Function<Throwable, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(Throwable t) {
+                        if (t instanceof RestException && ((RestException) t).response().statusCode() == 412) {
+                            return verifyAppendedAsync(block, position, t);
+                        }
+                        return Completable.error(t);
+                    }
+                });
+    }
+
+    /**
+     * A failed append position condition may be a retry of an append which reached the service the first time.
+     * That is the case if the blob now ends exactly where the block would have ended, and the range the block would
+     * have filled has the block's MD5. The service hashes ranges of up to 4MB, which no block exceeds.
+     */
+    private Completable verifyAppendedAsync(final Block block, final long position, final Throwable error) {
+        final long expectedLength = position + block.buffer.capacity();
+        return this.appendBlobURL.getPropertiesAndMetadataAsync(this.leaseConditions())
+                .flatMapCompletable(new Function<RestResponse<BlobsGetPropertiesHeaders, Void>, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(RestResponse<BlobsGetPropertiesHeaders, Void> response) {
+                        if (response.headers().contentLength() != expectedLength) {
+                            return Completable.error(error);
+                        }
+                        return appendBlobURL.getBlobAsync(new BlobRange(position, (long) block.buffer.capacity()),
+                                leaseConditions(), true)
+                                .flatMapCompletable(new Function<RestResponse<BlobsGetHeaders, AsyncInputStream>,
+                                        CompletableSource>() {
+                                    @Override
+                                    public CompletableSource apply(
+                                            RestResponse<BlobsGetHeaders, AsyncInputStream> range)
+                                            throws NoSuchAlgorithmException {
+                                        // Only the MD5 is needed, but the body is read so the connection is reused.
+                                        Completable drain = range.body().content().ignoreElements();
+                                        String blockMD5 = BlockBlobFileUploader.md5(
+                                                ByteBuffer.wrap(block.buffer.array()));
+                                        return blockMD5.equals(range.headers().contentMD5())
+                                                ? drain
+                                                : drain.andThen(Completable.error(error));
+                                    }
+                                });
+                    }
+                });
+    }
+
+    private void onAppended(Block block, Throwable error) {
+        TransferBufferPool.getDefault().release(block.buffer);
+        List<Write> failedWrites = new ArrayList<Write>();
+        synchronized (this) {
+            this.appending = false;
+            if (error == null) {
+                if (this.appendPosition >= 0) {
+                    this.appendPosition += block.buffer.capacity();
+                }
+            }
+            else {
+                this.failure = error;
+                failedWrites.addAll(this.pending);
+                this.pending.clear();
+                this.pendingBytes = 0;
+                this.pendingFlushes = 0;
+            }
+        }
+
+        for (Write write : block.completedWrites) {
+            if (error == null) {
+                write.emitter.onComplete();
+            }
+            else {
+                write.emitter.onError(error);
+            }
+        }
+        for (Write write : failedWrites) {
+            write.emitter.onError(error);
+        }
+        this.drain();
+    }
+
+    private BlobAccessConditions leaseConditions() {
+        return new BlobAccessConditions(null, this.options.getLeaseAccessConditions(), null, null);
+    }
+}
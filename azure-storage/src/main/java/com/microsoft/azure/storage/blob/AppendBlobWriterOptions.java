@@ -0,0 +1,113 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when creating an {@link AppendBlobWriter}.
+ */
+public final class AppendBlobWriterOptions {
+
+    private static AppendBlobWriterOptions defaultAppendBlobWriterOptions;
+
+    /**
+     * The default longest time, in milliseconds, that a write waits for others to join its block.
+     */
+    public static final long DEFAULT_MAX_DELAY_IN_MS = 100;
+
+    /**
+     * The default most bytes that may be written and not yet committed at once.
+     */
+    public static final long DEFAULT_MAX_PENDING_BYTES = 4L * Constants.MAX_APPEND_BLOCK_SIZE;
+
+    private final int maxBlockSize;
+
+    private final long maxDelayInMs;
+
+    private final long maxPendingBytes;
+
+    private final LeaseAccessConditions leaseAccessConditions;
+
+    /**
+     * A {@link AppendBlobWriterOptions} object.
+     *
+     * @param maxBlockSize
+     *      An {@code Integer} specifying the size at which the buffered writes are appended as a block without
+     *      waiting any longer. It must be between 1 byte and 4MB. If {@code null}, 4MB is used.
+     * @param maxDelayInMs
+     *      A {@code Long} specifying the longest time, in milliseconds, that a write is held back for others to join
+     *      its block while no append is in flight. If {@code null}, {@link #DEFAULT_MAX_DELAY_IN_MS} is used.
+     * @param maxPendingBytes
+     *      A {@code Long} specifying the most bytes that may be written and not yet committed at once. Further writes
+     *      wait until enough has been committed. If {@code null}, {@link #DEFAULT_MAX_PENDING_BYTES} is used.
+     * @param leaseAccessConditions
+     *      A {@link LeaseAccessConditions} object that specifies the lease to append under, if the blob is leased.
+     */
+    public AppendBlobWriterOptions(Integer maxBlockSize, Long maxDelayInMs, Long maxPendingBytes,
+                                   LeaseAccessConditions leaseAccessConditions) {
+        if (maxBlockSize != null) {
+            Utility.assertInBounds("maxBlockSize", maxBlockSize, 1, Constants.MAX_APPEND_BLOCK_SIZE);
+        }
+        if (maxDelayInMs != null) {
+            Utility.assertInBounds("maxDelayInMs", maxDelayInMs, 0, Long.MAX_VALUE);
+        }
+        if (maxPendingBytes != null) {
+            Utility.assertInBounds("maxPendingBytes", maxPendingBytes, 1, Long.MAX_VALUE);
+        }
+        this.maxBlockSize = maxBlockSize == null ? Constants.MAX_APPEND_BLOCK_SIZE : maxBlockSize;
+        this.maxDelayInMs = maxDelayInMs == null ? DEFAULT_MAX_DELAY_IN_MS : maxDelayInMs;
+        this.maxPendingBytes = maxPendingBytes == null ? DEFAULT_MAX_PENDING_BYTES : maxPendingBytes;
+        this.leaseAccessConditions = leaseAccessConditions == null
+                ? LeaseAccessConditions.getDefault() : leaseAccessConditions;
+    }
+
+    /**
+     * @return
+     *      The size at which the buffered writes are appended as a block.
+     */
+    public int getMaxBlockSize() {
+        return maxBlockSize;
+    }
+
+    /**
+     * @return
+     *      The longest time, in milliseconds, that a write is held back for others to join its block.
+     */
+    public long getMaxDelayInMs() {
+        return maxDelayInMs;
+    }
+
+    /**
+     * @return
+     *      The most bytes that may be written and not yet committed at once.
+     */
+    public long getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    /**
+     * @return
+     *      A {@link LeaseAccessConditions} object that specifies the lease to append under.
+     */
+    public LeaseAccessConditions getLeaseAccessConditions() {
+        return leaseAccessConditions;
+    }
+
+    public static AppendBlobWriterOptions getDefault() {
+        if (defaultAppendBlobWriterOptions == null) {
+            defaultAppendBlobWriterOptions = new AppendBlobWriterOptions(null, null, null, null);
+        }
+        return defaultAppendBlobWriterOptions;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when calling {@link PageBlobURL#backupAsync} and {@link PageBlobURL#backupToFileAsync}.
+ */
+public final class BackupPageBlobOptions {
+
+    private static BackupPageBlobOptions defaultBackupPageBlobOptions;
+
+    /**
+     * The default number of ranges that are transferred at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 5;
+
+    private final int parallelism;
+
+    private final Metadata snapshotMetadata;
+
+    private final BlobAccessConditions sourceAccessConditions;
+
+    private final BlobAccessConditions targetAccessConditions;
+
+    /**
+     * A {@link BackupPageBlobOptions} object.
+     *
+     * @param parallelism
+     *      An {@code Integer} specifying the maximum number of ranges of up to 4MB to transfer at the same time. If
+     *      {@code null}, {@link #DEFAULT_PARALLELISM} is used.
+     * @param snapshotMetadata
+     *      A {@link Metadata} object that specifies key value pairs to set on the snapshot taken for the backup. If
+     *      {@code null}, the snapshot keeps the metadata of the blob.
+     * @param sourceAccessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the snapshot may be taken.
+     * @param targetAccessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions a target page blob may be
+     *      created or resized. The lease and page blob conditions also apply to every page written or cleared.
+     */
+    public BackupPageBlobOptions(Integer parallelism, Metadata snapshotMetadata,
+                                 BlobAccessConditions sourceAccessConditions,
+                                 BlobAccessConditions targetAccessConditions) {
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+        }
+        this.parallelism = parallelism == null ? DEFAULT_PARALLELISM : parallelism;
+        this.snapshotMetadata = snapshotMetadata == null ? Metadata.getDefault() : snapshotMetadata;
+        this.sourceAccessConditions = sourceAccessConditions == null
+                ? BlobAccessConditions.getDefault() : sourceAccessConditions;
+        this.targetAccessConditions = targetAccessConditions == null
+                ? BlobAccessConditions.getDefault() : targetAccessConditions;
+    }
+
+    /**
+     * @return
+     *      The maximum number of ranges to transfer at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return
+     *      A {@link Metadata} object that specifies key value pairs to set on the snapshot.
+     */
+    public Metadata getSnapshotMetadata() {
+        return snapshotMetadata;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the snapshot may be taken.
+     */
+    public BlobAccessConditions getSourceAccessConditions() {
+        return sourceAccessConditions;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the target may be written.
+     */
+    public BlobAccessConditions getTargetAccessConditions() {
+        return targetAccessConditions;
+    }
+
+    public static BackupPageBlobOptions getDefault() {
+        if (defaultBackupPageBlobOptions == null) {
+            defaultBackupPageBlobOptions = new BackupPageBlobOptions(null, null, null, null);
+        }
+        return defaultBackupPageBlobOptions;
+    }
+}
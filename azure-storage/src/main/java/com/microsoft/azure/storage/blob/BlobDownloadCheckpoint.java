@@ -0,0 +1,219 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * RESERVED FOR INTERNAL USE. The local record of a blob download, which lets an interrupted download resume. It holds
+ * a header identifying the version of the blob being downloaded, followed by a bitmap with a bit per chunk which is
+ * set once the chunk has been written to the file:
+ * <pre>
+ *     int magic, int version, long blobSize, long chunkSize, short eTagLength, eTag bytes, then the bitmap
+ * </pre>
+ * A 1TB blob in 4MB chunks needs a 32KB bitmap.
+ * <p>
+ * Completed chunks are recorded in memory, and written out with the file in batches: every {@link #FLUSH_CHUNKS}
+ * chunks, or once {@link #FLUSH_INTERVAL_MS} has passed since the last flush, whichever comes first. A crash loses at
+ * most the chunks completed since the last flush, which are downloaded again on resume.
+ */
+final class BlobDownloadCheckpoint implements Closeable {
+
+    private static final int MAGIC = 0x42444350;
+
+    private static final int VERSION = 1;
+
+    private static final int FIXED_HEADER_SIZE = 26;
+
+    /**
+     * The number of completed chunks after which the checkpoint is flushed.
+     */
+    static final int FLUSH_CHUNKS = 16;
+
+    /**
+     * The time after the last flush at which the next completed chunk flushes the checkpoint.
+     */
+    static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final long bitmapOffset;
+
+    /**
+     * Every chunk recorded, including those not flushed yet.
+     */
+    private final byte[] bitmap;
+
+    /**
+     * Serializes flushes, so that a later flush never writes an older bitmap over a newer one.
+     */
+    private final Object flushLock = new Object();
+
+    private int unflushedChunks;
+
+    private long lastFlush;
+
+    private BlobDownloadCheckpoint(Path path, FileChannel channel, long bitmapOffset, byte[] bitmap) {
+        this.path = path;
+        this.channel = channel;
+        this.bitmapOffset = bitmapOffset;
+        this.bitmap = bitmap;
+        this.lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Opens the checkpoint at the given path for a download of the given version of a blob. The chunks recorded by an
+     * existing checkpoint are kept only if it describes the same ETag, blob size and chunk size; otherwise the
+     * checkpoint is started over.
+     *
+     * @param path
+     *      The {@code java.nio.file.Path} of the checkpoint.
+     * @param eTag
+     *      The ETag of the blob being downloaded.
+     * @param blobSize
+     *      The size of the blob.
+     * @param chunkSize
+     *      The size of each chunk of the download.
+     * @return
+     *      The checkpoint.
+     */
+    static BlobDownloadCheckpoint open(Path path, String eTag, long blobSize, long chunkSize) throws IOException {
+        byte[] eTagBytes = eTag.getBytes(Charset.forName(Constants.UTF8_CHARSET));
+        long chunkCount = (blobSize + chunkSize - 1) / chunkSize;
+        if (eTagBytes.length > Short.MAX_VALUE || (chunkCount + 7) / 8 > Integer.MAX_VALUE - FIXED_HEADER_SIZE) {
+            throw new IOException("The download is too large to checkpoint.");
+        }
+
+        int headerSize = FIXED_HEADER_SIZE + eTagBytes.length;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(VERSION).putLong(blobSize).putLong(chunkSize)
+                .putShort((short) eTagBytes.length).put(eTagBytes);
+        header.flip();
+        byte[] bitmap = new byte[(int) ((chunkCount + 7) / 8)];
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == headerSize + bitmap.length) {
+                ByteBuffer existing = ByteBuffer.allocate(headerSize + bitmap.length);
+                readFully(channel, existing);
+                existing.flip();
+                existing.limit(headerSize);
+                if (existing.equals(header)) {
+                    existing.limit(existing.capacity());
+                    existing.position(headerSize);
+                    existing.get(bitmap);
+                    return new BlobDownloadCheckpoint(path, channel, headerSize, bitmap);
+                }
+            }
+
+            // The blob has changed or the checkpoint is from some other download, so start over.
+            channel.truncate(0);
+            ByteBuffer contents = ByteBuffer.allocate(headerSize + bitmap.length);
+            contents.put(header).put(bitmap).flip();
+            long position = 0;
+            while (contents.hasRemaining()) {
+                position += channel.write(contents, position);
+            }
+            channel.force(true);
+            return new BlobDownloadCheckpoint(path, channel, headerSize, bitmap);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    synchronized boolean isComplete(int chunkIndex) {
+        return (this.bitmap[chunkIndex >> 3] & (1 << (chunkIndex & 7))) != 0;
+    }
+
+    /**
+     * Records in memory that a chunk has been written to the file. Nothing is written to the device; that is left to
+     * {@link #flush}, which the caller should run when this returns {@code true}.
+     *
+     * @return
+     *      Whether a flush is due. Only the call which makes it due returns {@code true}.
+     */
+    synchronized boolean recordComplete(int chunkIndex) {
+        this.bitmap[chunkIndex >> 3] |= (byte) (1 << (chunkIndex & 7));
+        this.unflushedChunks++;
+        long now = System.currentTimeMillis();
+        if (this.unflushedChunks < FLUSH_CHUNKS && now - this.lastFlush < FLUSH_INTERVAL_MS) {
+            return false;
+        }
+        this.unflushedChunks = 0;
+        this.lastFlush = now;
+        return true;
+    }
+
+    /**
+     * Writes every chunk recorded so far to the device. The file is forced first, so that the checkpoint never
+     * claims a chunk which a crash could still lose. This blocks on the disk, so it must not be called on the threads
+     * which run the HTTP pipeline.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to which the chunks were written.
+     */
+    void flush(AsynchronousFileChannel file) throws IOException {
+        synchronized (this.flushLock) {
+            // Chunks are only recorded once written, so the copy holds nothing that the force below does not cover.
+            ByteBuffer update;
+            synchronized (this) {
+                update = ByteBuffer.wrap(this.bitmap.clone());
+            }
+            file.force(false);
+            long position = this.bitmapOffset;
+            while (update.hasRemaining()) {
+                position += this.channel.write(update, position);
+            }
+            this.channel.force(false);
+        }
+    }
+
+    /**
+     * Closes and deletes the checkpoint once the download is complete.
+     */
+    synchronized void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("The download checkpoint ended unexpectedly.");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsGetHeaders;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.BiPredicate;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+
+/**
+ * RESERVED FOR INTERNAL USE. Downloads a blob into a file with concurrent ranged GETs, writing each range at its own
+ * offset in the file. With a {@link BlobDownloadCheckpoint}, an interrupted download picks up where it left off.
+ * When range MD5s are validated, each buffer of a body is hashed on the computation scheduler while it is written,
+ * so the network threads never hash, and a range which does not match its hash is downloaded again on its own.
+ */
+final class BlobFileDownloader {
+
+    /**
+     * The size of the buffer through which each response body is written to the file.
+     */
+    static final int WRITE_BUFFER_SIZE = Constants.MB;
+
+    /**
+     * The number of times a range whose content does not match its MD5 is downloaded again before giving up.
+     */
+    static final int MAX_CORRUPT_RANGE_RETRIES = 3;
+
+    private static final BiPredicate<Integer, Throwable> RETRY_CORRUPT_RANGE = new BiPredicate<Integer, Throwable>() {
+        @Override
+        public boolean test(Integer retries, Throwable t) {
+            return retries <= MAX_CORRUPT_RANGE_RETRIES && t instanceof CorruptRangeException;
+        }
+    };
+
+    private final BlobURL blobURL;
+
+    private final AsynchronousFileChannel file;
+
+    private final DownloadFromBlobOptions options;
+
+    BlobFileDownloader(BlobURL blobURL, AsynchronousFileChannel file, DownloadFromBlobOptions options) {
+        this.blobURL = blobURL;
+        this.file = file;
+        this.options = options;
+    }
+
+    /**
+     * Returns the total size of a blob given the headers of a GET. A ranged GET reports the total size after the
+     * slash in its Content-Range, e.g. "bytes 0-4194303/10485760". A GET of the whole blob has no Content-Range, in
+     * which case the Content-Length is the total size.
+     *
+     * @param headers
+     *      The {@link BlobsGetHeaders} of the response.
+     * @return
+     *      The size of the blob in bytes.
+     */
+    static long blobSize(BlobsGetHeaders headers) {
+        String contentRange = headers.contentRange();
+        if (contentRange == null) {
+            return headers.contentLength();
+        }
+        return Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
+    }
+
+    /**
+     * @param eTag
+     *      The ETag returned by the first GET of the download.
+     * @param leaseAccessConditions
+     *      The {@link LeaseAccessConditions} given by the caller.
+     * @return
+     *      A {@link BlobAccessConditions} that fails a request if the blob has changed since the download started.
+     */
+    static BlobAccessConditions pinnedAccessConditions(String eTag, LeaseAccessConditions leaseAccessConditions) {
+        return new BlobAccessConditions(new HttpAccessConditions(null, null, new ETag(eTag), null),
+                leaseAccessConditions, null, null);
+    }
+
+    /**
+     * Thrown when the bytes received for a range do not match the MD5 the service returned for it.
+     */
+    static final class CorruptRangeException extends IOException {
+
+        CorruptRangeException(long fileOffset, String expectedMD5, String actualMD5) {
+            super(String.format(Utility.LOCALE_US,
+                    "The range at offset %d has MD5 %s, but the service returned %s for it.", fileOffset, actualMD5,
+                    expectedMD5));
+        }
+    }
+
+    /**
+     * Returns the MD5 to check a body against, or {@code null} if ranges are not validated or the body is empty.
+     */
+    private String rangeMD5(BlobsGetHeaders headers) throws IOException {
+        if (!this.options.isValidateRangeMD5() || headers.contentLength() == 0) {
+            return null;
+        }
+        if (headers.contentMD5() == null) {
+            throw new IOException("The service did not return an MD5 for the range.");
+        }
+        return headers.contentMD5();
+    }
+
+    Single<BlobsGetHeaders> downloadAsync() {
+        final long chunkSize = this.options.getChunkSize();
+        return this.downloadFirstChunkAsync()
+                .flatMap(new Function<BlobsGetHeaders, Single<BlobsGetHeaders>>() {
+                    @Override
+                    public Single<BlobsGetHeaders> apply(final BlobsGetHeaders headers) throws IOException {
+                        final long blobSize = blobSize(headers);
+                        final BlobAccessConditions pinned = pinnedAccessConditions(headers.eTag(),
+                                options.getAccessConditions().getLeaseAccessConditions());
+
+                        // Drop anything left over from a larger file at the same path.
+                        file.truncate(blobSize);
+
+                        if (options.getCheckpointPath() == null) {
+                            return downloadChunksAsync(headers, blobSize, pinned, null);
+                        }
+                        return Single.using(
+                                new Callable<BlobDownloadCheckpoint>() {
+                                    @Override
+                                    public BlobDownloadCheckpoint call() throws IOException {
+                                        return BlobDownloadCheckpoint.open(options.getCheckpointPath(),
+                                                headers.eTag(), blobSize, chunkSize);
+                                    }
+                                },
+                                new Function<BlobDownloadCheckpoint, Single<BlobsGetHeaders>>() {
+                                    @Override
+                                    public Single<BlobsGetHeaders> apply(BlobDownloadCheckpoint checkpoint) {
+                                        return downloadChunksAsync(headers, blobSize, pinned, checkpoint);
+                                    }
+                                },
+                                new Consumer<BlobDownloadCheckpoint>() {
+                                    @Override
+                                    public void accept(BlobDownloadCheckpoint checkpoint) throws IOException {
+                                        checkpoint.close();
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Downloads the blob with every GET admitted through a gate shared with other transfers, one unit per request,
+     * held until the response body has been written. The first chunk is written before the rest are requested, so a
+     * blob no larger than a chunk takes a single request. The file should be empty; no checkpoint is kept.
+     *
+     * @param requestGate
+     *      The {@link TransferMemoryBudget} which admits requests.
+     * @return
+     *      A {@link Single} which emits the size of the blob once it is all in the file.
+     */
+    Single<Long> downloadThroughGateAsync(final TransferMemoryBudget requestGate) {
+        final long chunkSize = this.options.getChunkSize();
+        return requestGate.reserveAsync(1, new Callable<Single<BlobsGetHeaders>>() {
+                    @Override
+                    public Single<BlobsGetHeaders> call() {
+                        return downloadFirstChunkAsync();
+                    }
+                })
+                .flatMap(new Function<BlobsGetHeaders, Single<Long>>() {
+                    @Override
+                    public Single<Long> apply(BlobsGetHeaders headers) {
+                        final long blobSize = blobSize(headers);
+                        final BlobAccessConditions pinned = pinnedAccessConditions(headers.eTag(),
+                                options.getAccessConditions().getLeaseAccessConditions());
+                        int chunkCount = (int) ((blobSize + chunkSize - 1) / chunkSize);
+
+                        return Flowable.range(1, Math.max(chunkCount - 1, 0))
+                                .flatMap(new Function<Integer, Publisher<Boolean>>() {
+                                    @Override
+                                    public Publisher<Boolean> apply(Integer chunkIndex) {
+                                        final long offset = chunkIndex * chunkSize;
+                                        final BlobRange range =
+                                                new BlobRange(offset, Math.min(chunkSize, blobSize - offset));
+                                        return requestGate.reserveAsync(1, new Callable<Single<Boolean>>() {
+                                            @Override
+                                            public Single<Boolean> call() {
+                                                return downloadRangeAsync(range, pinned, offset)
+                                                        .toSingleDefault(Boolean.TRUE);
+                                            }
+                                        }).toFlowable();
+                                    }
+                                }, options.getParallelism())
+                                .ignoreElements()
+                                .toSingleDefault(blobSize);
+                    }
+                });
+    }
+
+    /**
+     * The outcome of the first GET: its headers, and whether its body failed to match its MD5.
+     */
+    private static final class FirstChunk {
+
+        private final BlobsGetHeaders headers;
+
+        private final boolean corrupt;
+
+        private FirstChunk(BlobsGetHeaders headers, boolean corrupt) {
+            this.headers = headers;
+            this.corrupt = corrupt;
+        }
+    }
+
+    /**
+     * Requests the first chunk of the blob, whose headers also give the blob's size and ETag, and writes it to the
+     * file. Like every range, the memory for its write buffer is reserved before the GET is sent. If the body does
+     * not match its MD5, the first chunk is downloaded again as a range pinned to the ETag the first GET returned,
+     * once the first reservation has been given back.
+     *
+     * @return
+     *      A {@link Single} which emits the headers of the first GET once the first chunk is in the file.
+     */
+    private Single<BlobsGetHeaders> downloadFirstChunkAsync() {
+        return TransferMemoryBudget.getDefault().reserveAsync(WRITE_BUFFER_SIZE, new Callable<Single<FirstChunk>>() {
+                    @Override
+                    public Single<FirstChunk> call() {
+                        return firstChunkAsync().flatMap(
+                                new Function<RestResponse<BlobsGetHeaders, AsyncInputStream>, Single<FirstChunk>>() {
+                                    @Override
+                                    public Single<FirstChunk> apply(
+                                            RestResponse<BlobsGetHeaders, AsyncInputStream> response)
+                                            throws IOException {
+                                        final BlobsGetHeaders headers = response.headers();
+                                        return writeBodyAsync(response.body(), 0, rangeMD5(headers))
+                                                .toSingleDefault(new FirstChunk(headers, false))
+                                                .onErrorResumeNext(new Function<Throwable, Single<FirstChunk>>() {
+                                                    @Override
+                                                    public Single<FirstChunk> apply(Throwable t) {
+                                                        if (t instanceof CorruptRangeException) {
+                                                            return Single.just(new FirstChunk(headers, true));
+                                                        }
+                                                        return Single.error(t);
+                                                    }
+                                                });
+                                    }
+                                });
+                    }
+                })
+                .flatMap(new Function<FirstChunk, Single<BlobsGetHeaders>>() {
+                    @Override
+                    public Single<BlobsGetHeaders> apply(FirstChunk firstChunk) {
+                        BlobsGetHeaders headers = firstChunk.headers;
+                        if (!firstChunk.corrupt) {
+                            return Single.just(headers);
+                        }
+                        BlobRange range = new BlobRange(0L, Math.min(options.getChunkSize(), blobSize(headers)));
+                        return downloadRangeAsync(range, pinnedAccessConditions(headers.eTag(),
+                                options.getAccessConditions().getLeaseAccessConditions()), 0)
+                                .toSingleDefault(headers);
+                    }
+                });
+    }
+
+    /**
+     * Sends the first GET of the blob.
+     */
+    private Single<RestResponse<BlobsGetHeaders, AsyncInputStream>> firstChunkAsync() {
+        return this.blobURL.getBlobAsync(new BlobRange(0L, this.options.getChunkSize()),
+                this.options.getAccessConditions(), this.options.isValidateRangeMD5())
+                .onErrorResumeNext(
+                        new Function<Throwable, Single<RestResponse<BlobsGetHeaders, AsyncInputStream>>>() {
+                            @Override
+                            public Single<RestResponse<BlobsGetHeaders, AsyncInputStream>> apply(Throwable t) {
+                                // The service rejects any range on an empty blob, so fall back to a plain GET.
+                                if (t instanceof RestException
+                                        && ((RestException) t).response().statusCode() == 416) {
+                                    return blobURL.getBlobAsync(null, options.getAccessConditions(), false);
+                                }
+                                return Single.error(t);
+                            }
+                        });
+    }
+
+    /**
+     * Downloads the chunks after the first, which is already in the file. With a checkpoint, chunks it records as
+     * complete are skipped, each chunk is recorded as it completes, and the checkpoint is deleted once the whole blob
+     * is in the file.
+     */
+    private Single<BlobsGetHeaders> downloadChunksAsync(
+            final BlobsGetHeaders firstHeaders, final long blobSize,
+            final BlobAccessConditions pinned, final BlobDownloadCheckpoint checkpoint) {
+        final long chunkSize = this.options.getChunkSize();
+        int chunkCount = (int) ((blobSize + chunkSize - 1) / chunkSize);
+
+        Completable firstChunk = chunkCount > 0 ? this.recordCompleteAsync(checkpoint, 0) : Completable.complete();
+
+        Completable remainingChunks;
+        if (checkpoint == null && this.options.getTuner() != null) {
+            remainingChunks = this.downloadTunedAsync(Math.min(chunkSize, blobSize), blobSize, pinned);
+        }
+        else {
+            remainingChunks = Flowable.range(1, Math.max(chunkCount - 1, 0))
+                    .filter(new Predicate<Integer>() {
+                        @Override
+                        public boolean test(Integer chunkIndex) {
+                            return checkpoint == null || !checkpoint.isComplete(chunkIndex);
+                        }
+                    })
+                    .flatMap(new Function<Integer, Publisher<Object>>() {
+                        @Override
+                        public Publisher<Object> apply(Integer chunkIndex) {
+                            long offset = chunkIndex * chunkSize;
+                            BlobRange range = new BlobRange(offset, Math.min(chunkSize, blobSize - offset));
+                            return downloadRangeAsync(range, pinned, offset)
+                                    .andThen(recordCompleteAsync(checkpoint, chunkIndex))
+                                    .toFlowable();
+                        }
+                    }, this.options.getParallelism())
+                    .ignoreElements();
+        }
+
+        Completable chunks = Completable.mergeArray(firstChunk, remainingChunks);
+        if (checkpoint != null) {
+            // Keep the chunks which did complete, so that resuming does not download them again.
+            chunks = chunks.onErrorResumeNext(new Function<Throwable, CompletableSource>() {
+                @Override
+                public CompletableSource apply(Throwable t) {
+                    return flushAsync(checkpoint).onErrorComplete().andThen(Completable.error(t));
+                }
+            });
+        }
+        return chunks
+                .andThen(Completable.fromAction(new Action() {
+                    @Override
+                    public void run() throws IOException {
+                        if (checkpoint != null) {
+                            checkpoint.delete();
+                        }
+                    }
+                }))
+                .andThen(Single.just(firstHeaders));
+    }
+
+    /**
+     * Downloads the rest of the blob, from the given offset, with the chunk size and number of ranged GETs in flight
+     * chosen by the tuner as the download runs.
+     */
+    private Completable downloadTunedAsync(long start, long blobSize, final BlobAccessConditions pinned) {
+        final TransferTuner tuner = this.options.getTuner();
+        // The service only returns an MD5 for ranges of up to 4MB.
+        tuner.start(this.options.getParallelism(), this.options.getChunkSize(), TransferTuner.MIN_BLOCK_SIZE,
+                this.options.isValidateRangeMD5() ? Constants.MAX_RANGE_CONTENT_MD5 : Constants.MAX_BLOCK_SIZE);
+        final TransferTuner.ChunkPlanner planner = new TransferTuner.ChunkPlanner(start, blobSize);
+
+        // Each slot takes its range only once the tuner admits it, so every range has the size tuned at that moment.
+        // Slots that find the blob already handed out do nothing.
+        return Flowable.range(0, Integer.MAX_VALUE)
+                .takeWhile(new Predicate<Integer>() {
+                    @Override
+                    public boolean test(Integer slot) {
+                        return planner.hasRemaining();
+                    }
+                })
+                .flatMap(new Function<Integer, Publisher<Long>>() {
+                    @Override
+                    public Publisher<Long> apply(Integer slot) {
+                        return tuner.runAsync(new Callable<Single<Long>>() {
+                            @Override
+                            public Single<Long> call() {
+                                TransferTuner.Chunk chunk = planner.next(tuner.getBlockSize());
+                                if (chunk == null) {
+                                    return Single.just(0L);
+                                }
+                                return downloadRangeAsync(new BlobRange(chunk.offset, (long) chunk.length), pinned,
+                                        chunk.offset)
+                                        .toSingleDefault((long) chunk.length);
+                            }
+                        }).toFlowable();
+                    }
+                }, tuner.getMaxParallelism())
+                .ignoreElements()
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        tuner.finish();
+                    }
+                });
+    }
+
+    /**
+     * Records a chunk in the checkpoint, if there is one. The chunk is only recorded in memory, unless that makes a
+     * flush of the checkpoint due, in which case the flush runs on {@link Schedulers#io()}.
+     */
+    private Completable recordCompleteAsync(final BlobDownloadCheckpoint checkpoint, final int chunkIndex) {
+        if (checkpoint == null) {
+            return Completable.complete();
+        }
+        return Completable.defer(new Callable<CompletableSource>() {
+            @Override
+            public CompletableSource call() {
+                return checkpoint.recordComplete(chunkIndex) ? flushAsync(checkpoint) : Completable.complete();
+            }
+        });
+    }
+
+    /**
+     * Forces the file and then writes out the checkpoint, on {@link Schedulers#io()} since both block on the disk.
+     */
+    private Completable flushAsync(final BlobDownloadCheckpoint checkpoint) {
+        return Completable.fromAction(new Action() {
+            @Override
+            public void run() throws IOException {
+                checkpoint.flush(file);
+            }
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Downloads one range of the blob and writes it to the file.
+     *
+     * @param range
+     *      The {@link BlobRange} to download.
+     * @param accessConditions
+     *      The {@link BlobAccessConditions} for the GET, which should pin the ETag of the blob.
+     * @param fileOffset
+     *      The position in the file at which to write the range.
+     * @return
+     *      A {@link Completable} which completes once the range has been written to the file and, if ranges are
+     *      validated, found to match its MD5.
+     */
+    Completable downloadRangeAsync(final BlobRange range, final BlobAccessConditions accessConditions,
+                                   final long fileOffset) {
+        // The memory for the write buffer is reserved before the GET is sent, as uploads reserve it before sending a
+        // block. A GET waiting for memory after its response arrived would hold a pooled connection, which uploads
+        // holding the memory might be waiting for.
+        Completable download = TransferMemoryBudget.getDefault().reserveAsync(WRITE_BUFFER_SIZE,
+                new Callable<Single<Boolean>>() {
+                    @Override
+                    public Single<Boolean> call() {
+                        return blobURL.getBlobAsync(range, accessConditions, options.isValidateRangeMD5())
+                                .flatMapCompletable(new Function<RestResponse<BlobsGetHeaders, AsyncInputStream>,
+                                        CompletableSource>() {
+                                    @Override
+                                    public CompletableSource apply(
+                                            RestResponse<BlobsGetHeaders, AsyncInputStream> response)
+                                            throws IOException {
+                                        return writeBodyAsync(response.body(), fileOffset,
+                                                rangeMD5(response.headers()));
+                                    }
+                                })
+                                .toSingleDefault(Boolean.TRUE);
+                    }
+                })
+                .toCompletable();
+        // Only this range is requested again; the bytes it wrote are overwritten.
+        return this.options.isValidateRangeMD5() ? download.retry(RETRY_CORRUPT_RANGE) : download;
+    }
+
+    /**
+     * Writes a response body to the file as it arrives, so that a range never has to be held in memory in full. The
+     * body is gathered into a pooled buffer and written a buffer at a time, rather than once for each network read.
+     * The caller must already hold a reservation of {@link #WRITE_BUFFER_SIZE} from the process-wide
+     * {@link TransferMemoryBudget}, taken before the GET was sent.
+     *
+     * @param expectedMD5
+     *      The Base64 encoded MD5 the body must match, or {@code null} to not check it.
+     */
+    private Completable writeBodyAsync(final AsyncInputStream body, final long fileOffset, final String expectedMD5) {
+        final TransferBufferPool pool = TransferBufferPool.getDefault();
+        return Completable.using(
+                new Callable<ByteBuffer>() {
+                    @Override
+                    public ByteBuffer call() {
+                        return pool.acquire(WRITE_BUFFER_SIZE);
+                    }
+                },
+                new Function<ByteBuffer, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(ByteBuffer buffer) throws NoSuchAlgorithmException {
+                        MessageDigest digest = expectedMD5 == null ? null : MessageDigest.getInstance("MD5");
+                        return new BodyWriter(buffer, fileOffset, digest).writeAsync(body, expectedMD5);
+                    }
+                },
+                new Consumer<ByteBuffer>() {
+                    @Override
+                    public void accept(ByteBuffer buffer) {
+                        pool.release(buffer);
+                    }
+                });
+    }
+
+    /**
+     * Copies a response body into a buffer, writing the buffer to the file each time it fills. With a digest, each
+     * buffer is also hashed while it is written.
+     */
+    private final class BodyWriter {
+
+        private final ByteBuffer buffer;
+
+        private final long start;
+
+        private long position;
+
+        private final MessageDigest digest;
+
+        private BodyWriter(ByteBuffer buffer, long position, MessageDigest digest) {
+            this.buffer = buffer;
+            this.start = position;
+            this.position = position;
+            this.digest = digest;
+        }
+
+        private Completable writeAsync(AsyncInputStream body, final String expectedMD5) {
+            return body.content()
+                    .concatMap(new Function<byte[], Publisher<Object>>() {
+                        @Override
+                        public Publisher<Object> apply(byte[] data) {
+                            return append(data, 0).toFlowable();
+                        }
+                    })
+                    .ignoreElements()
+                    .andThen(Completable.defer(new Callable<CompletableSource>() {
+                        @Override
+                        public CompletableSource call() {
+                            return flush();
+                        }
+                    }))
+                    .andThen(Completable.defer(new Callable<CompletableSource>() {
+                        @Override
+                        public CompletableSource call() {
+                            if (digest == null) {
+                                return Completable.complete();
+                            }
+                            String actualMD5 = Base64.encode(digest.digest());
+                            if (!actualMD5.equals(expectedMD5)) {
+                                return Completable.error(new CorruptRangeException(start, expectedMD5, actualMD5));
+                            }
+                            return Completable.complete();
+                        }
+                    }));
+        }
+
+        /**
+         * Copies data into the buffer from the given offset, flushing the buffer whenever it fills. Each step runs
+         * only after the previous write has completed, since the buffer is reused.
+         */
+        private Completable append(final byte[] data, final int offset) {
+            return Completable.defer(new Callable<CompletableSource>() {
+                @Override
+                public CompletableSource call() {
+                    int length = Math.min(buffer.remaining(), data.length - offset);
+                    buffer.put(data, offset, length);
+                    if (buffer.hasRemaining()) {
+                        return Completable.complete();
+                    }
+
+                    Completable flush = flush();
+                    final int nextOffset = offset + length;
+                    return nextOffset < data.length ? flush.andThen(append(data, nextOffset)) : flush;
+                }
+            });
+        }
+
+        private Completable flush() {
+            if (this.buffer.position() == 0) {
+                return Completable.complete();
+            }
+            this.buffer.flip();
+            long writePosition = this.position;
+            this.position += this.buffer.remaining();
+            Completable write = Utility.writeAsync(file, this.buffer, writePosition);
+            if (this.digest != null) {
+                // Buffers are hashed one at a time, in order, since the next flush waits for this one.
+                final ByteBuffer data = this.buffer.duplicate();
+                write = Completable.mergeArray(write, Completable.fromAction(new Action() {
+                            @Override
+                            public void run() {
+                                digest.update(data);
+                            }
+                        })
+                        .subscribeOn(Schedulers.computation()));
+            }
+            return write
+                    .doOnComplete(new Action() {
+                        @Override
+                        public void run() {
+                            buffer.clear();
+                        }
+                    });
+        }
+    }
+}
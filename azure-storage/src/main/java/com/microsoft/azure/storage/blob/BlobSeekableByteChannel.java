@@ -0,0 +1,283 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsGetHeaders;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Single;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A read-only {@link SeekableByteChannel} over a blob, for readers which expect random access to a file. Reads are
+ * served from fixed size chunks of the blob, each fetched with one ranged GET and kept in a cache of the most recently
+ * used chunks, so that many small reads near each other cost a single request. Once reads are found to be
+ * sequential, the chunks ahead of the position are fetched in the background before they are asked for.
+ * <p>
+ * Every GET is bound to the ETag the blob had when the channel was opened, so a read fails rather than mixing content
+ * if the blob is overwritten. Reads block until their chunks have arrived, so they must not be made on the threads
+ * which run the HTTP pipeline. Create one with {@link BlobURL#openSeekableByteChannelAsync}.
+ */
+public final class BlobSeekableByteChannel implements SeekableByteChannel {
+
+    /**
+     * The number of sequential reads in a row after which chunks are prefetched.
+     */
+    static final int SEQUENTIAL_READS_BEFORE_PREFETCH = 2;
+
+    /**
+     * Subscribes to a prefetch. Errors are left for the read which needs the chunk.
+     */
+    private static final BiConsumer<ByteBuffer, Throwable> IGNORE_PREFETCH = new BiConsumer<ByteBuffer, Throwable>() {
+        @Override
+        public void accept(ByteBuffer chunk, Throwable t) {
+        }
+    };
+
+    private final BlobURL blobURL;
+
+    private final long size;
+
+    private final String eTag;
+
+    private final BlobAccessConditions pinned;
+
+    private final BlobSeekableByteChannelOptions options;
+
+    /**
+     * Chunks by index, in order of last use. A chunk's fetch is cached along with it, so a read of a chunk which is
+     * still being prefetched waits for that fetch rather than starting another. Guarded by its own monitor.
+     */
+    private final LinkedHashMap<Long, Single<ByteBuffer>> chunks;
+
+    private long position;
+
+    private long lastReadEnd = -1;
+
+    private int sequentialReads;
+
+    private boolean open = true;
+
+    BlobSeekableByteChannel(BlobURL blobURL, long size, String eTag, final BlobSeekableByteChannelOptions options) {
+        this.blobURL = blobURL;
+        this.size = size;
+        this.eTag = eTag;
+        this.pinned = BlobFileDownloader.pinnedAccessConditions(eTag,
+                options.getAccessConditions().getLeaseAccessConditions());
+        this.options = options;
+        this.chunks = new LinkedHashMap<Long, Single<ByteBuffer>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Single<ByteBuffer>> eldest) {
+                return this.size() > options.getCachedChunks();
+            }
+        };
+    }
+
+    /**
+     * @return
+     *      The ETag of the blob when the channel was opened, which every read is bound to.
+     */
+    public String getETag() {
+        return this.eTag;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        this.ensureOpen();
+        if (this.position >= this.size) {
+            return -1;
+        }
+
+        this.sequentialReads = this.position == this.lastReadEnd ? this.sequentialReads + 1 : 0;
+        int read = 0;
+        while (dst.hasRemaining() && this.position < this.size) {
+            long chunkIndex = this.position / this.options.getChunkSize();
+            ByteBuffer chunk = this.awaitChunk(chunkIndex);
+
+            ByteBuffer data = chunk.duplicate();
+            data.position((int) (this.position - chunkIndex * this.options.getChunkSize()));
+            if (data.remaining() > dst.remaining()) {
+                data.limit(data.position() + dst.remaining());
+            }
+            read += data.remaining();
+            this.position += data.remaining();
+            dst.put(data);
+        }
+        this.lastReadEnd = this.position;
+        return read;
+    }
+
+    /**
+     * Returns a chunk, fetching it if it is not cached, and starts prefetching the chunks after it if reads are
+     * sequential.
+     */
+    private ByteBuffer awaitChunk(long chunkIndex) throws IOException {
+        Single<ByteBuffer> chunk = this.chunk(chunkIndex);
+        if (this.sequentialReads >= SEQUENTIAL_READS_BEFORE_PREFETCH) {
+            long chunkCount = (this.size + this.options.getChunkSize() - 1) / this.options.getChunkSize();
+            long last = Math.min(chunkCount - 1, chunkIndex + this.options.getPrefetchChunks());
+            for (long i = chunkIndex + 1; i <= last; i++) {
+                // The fetch is cached, so subscribing here starts it and a later read shares it.
+                this.chunk(i).subscribe(IGNORE_PREFETCH);
+            }
+        }
+
+        try {
+            return chunk.blockingGet();
+        }
+        catch (RuntimeException e) {
+            Throwable cause = e instanceof RestException || e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RestException && ((RestException) cause).response().statusCode() == 412) {
+                throw new IOException("The blob was modified after the channel was opened.", cause);
+            }
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private Single<ByteBuffer> chunk(final long chunkIndex) {
+        synchronized (this.chunks) {
+            Single<ByteBuffer> chunk = this.chunks.get(chunkIndex);
+            if (chunk == null) {
+                chunk = this.fetchChunk(chunkIndex).cache();
+                this.chunks.put(chunkIndex, chunk);
+            }
+            return chunk;
+        }
+    }
+
+    private Single<ByteBuffer> fetchChunk(final long chunkIndex) {
+        final long offset = chunkIndex * this.options.getChunkSize();
+        final int length = (int) Math.min(this.options.getChunkSize(), this.size - offset);
+        return this.blobURL.getBlobAsync(new BlobRange(offset, (long) length), this.pinned, false)
+                .flatMap(new Function<RestResponse<BlobsGetHeaders, AsyncInputStream>, Single<ByteBuffer>>() {
+                    @Override
+                    public Single<ByteBuffer> apply(RestResponse<BlobsGetHeaders, AsyncInputStream> response) {
+                        return response.body().content()
+                                .collect(new Callable<ByteBuffer>() {
+                                    @Override
+                                    public ByteBuffer call() {
+                                        return ByteBuffer.allocate(length);
+                                    }
+                                }, new BiConsumer<ByteBuffer, byte[]>() {
+                                    @Override
+                                    public void accept(ByteBuffer chunk, byte[] data) throws IOException {
+                                        if (data.length > chunk.remaining()) {
+                                            throw new IOException("The service returned more bytes than the range "
+                                                    + "requested.");
+                                        }
+                                        chunk.put(data);
+                                    }
+                                });
+                    }
+                })
+                .map(new Function<ByteBuffer, ByteBuffer>() {
+                    @Override
+                    public ByteBuffer apply(ByteBuffer chunk) throws IOException {
+                        if (chunk.hasRemaining()) {
+                            throw new IOException("The service returned fewer bytes than the range requested.");
+                        }
+                        chunk.flip();
+                        return chunk;
+                    }
+                })
+                .doOnError(new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable t) {
+                        // A failed fetch is forgotten, so that the next read of the chunk tries again.
+                        synchronized (chunks) {
+                            chunks.remove(chunkIndex);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Always throws {@link NonWritableChannelException}; the channel is read-only.
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        this.ensureOpen();
+        return this.position;
+    }
+
+    /**
+     * Sets the position from which the next read starts. A position past the end of the blob is allowed; reads from
+     * it return -1.
+     */
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        this.ensureOpen();
+        Utility.assertInBounds("newPosition", newPosition, 0, Long.MAX_VALUE);
+        this.position = newPosition;
+        return this;
+    }
+
+    /**
+     * @return
+     *      The size of the blob when the channel was opened.
+     */
+    @Override
+    public long size() throws IOException {
+        this.ensureOpen();
+        return this.size;
+    }
+
+    /**
+     * Always throws {@link NonWritableChannelException}; the channel is read-only.
+     */
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * Closes the channel and drops the cached chunks. Prefetches which are in flight are left to finish.
+     */
+    @Override
+    public synchronized void close() {
+        this.open = false;
+        synchronized (this.chunks) {
+            this.chunks.clear();
+        }
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
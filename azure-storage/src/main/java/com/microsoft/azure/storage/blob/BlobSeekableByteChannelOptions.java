@@ -0,0 +1,121 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when calling {@link BlobURL#openSeekableByteChannelAsync}.
+ */
+public final class BlobSeekableByteChannelOptions {
+
+    private static BlobSeekableByteChannelOptions defaultBlobSeekableByteChannelOptions;
+
+    /**
+     * The default size of each chunk requested from the blob.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = Constants.MB;
+
+    /**
+     * The default number of chunks kept in the cache.
+     */
+    public static final int DEFAULT_CACHED_CHUNKS = 32;
+
+    /**
+     * The default number of chunks fetched ahead of a sequential reader.
+     */
+    public static final int DEFAULT_PREFETCH_CHUNKS = 4;
+
+    private final int chunkSize;
+
+    private final int cachedChunks;
+
+    private final int prefetchChunks;
+
+    private final BlobAccessConditions accessConditions;
+
+    /**
+     * A {@link BlobSeekableByteChannelOptions} object.
+     *
+     * @param chunkSize
+     *      An {@code Integer} specifying the number of bytes requested by each ranged GET. Every read is served from
+     *      whole chunks, so small scattered reads within a chunk share one request. It must be between 1 byte and
+     *      100MB. If {@code null}, {@link #DEFAULT_CHUNK_SIZE} is used.
+     * @param cachedChunks
+     *      An {@code Integer} specifying how many of the most recently used chunks to keep in memory. It must be at
+     *      least one more than the number of chunks prefetched. If {@code null}, {@link #DEFAULT_CACHED_CHUNKS} is
+     *      used.
+     * @param prefetchChunks
+     *      An {@code Integer} specifying how many chunks to fetch ahead of the position once reads are found to be
+     *      sequential. If 0, nothing is prefetched. If {@code null}, {@link #DEFAULT_PREFETCH_CHUNKS} is used.
+     * @param accessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the channel may be opened.
+     *      Every read is additionally bound to the ETag the blob had when the channel was opened.
+     */
+    public BlobSeekableByteChannelOptions(Integer chunkSize, Integer cachedChunks, Integer prefetchChunks,
+                                          BlobAccessConditions accessConditions) {
+        if (chunkSize != null) {
+            Utility.assertInBounds("chunkSize", chunkSize, 1, Constants.MAX_BLOCK_SIZE);
+        }
+        if (prefetchChunks != null) {
+            Utility.assertInBounds("prefetchChunks", prefetchChunks, 0, Integer.MAX_VALUE - 1);
+        }
+        this.chunkSize = chunkSize == null ? DEFAULT_CHUNK_SIZE : chunkSize;
+        this.prefetchChunks = prefetchChunks == null ? DEFAULT_PREFETCH_CHUNKS : prefetchChunks;
+        if (cachedChunks != null) {
+            Utility.assertInBounds("cachedChunks", cachedChunks, this.prefetchChunks + 1, Integer.MAX_VALUE);
+        }
+        this.cachedChunks = cachedChunks == null
+                ? Math.max(DEFAULT_CACHED_CHUNKS, this.prefetchChunks + 1) : cachedChunks;
+        this.accessConditions = accessConditions == null ? BlobAccessConditions.getDefault() : accessConditions;
+    }
+
+    /**
+     * @return
+     *      The number of bytes requested by each ranged GET.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return
+     *      How many of the most recently used chunks are kept in memory.
+     */
+    public int getCachedChunks() {
+        return cachedChunks;
+    }
+
+    /**
+     * @return
+     *      How many chunks are fetched ahead of a sequential reader.
+     */
+    public int getPrefetchChunks() {
+        return prefetchChunks;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the channel may be opened.
+     */
+    public BlobAccessConditions getAccessConditions() {
+        return accessConditions;
+    }
+
+    public static BlobSeekableByteChannelOptions getDefault() {
+        if (defaultBlobSeekableByteChannelOptions == null) {
+            defaultBlobSeekableByteChannelOptions = new BlobSeekableByteChannelOptions(null, null, null, null);
+        }
+        return defaultBlobSeekableByteChannelOptions;
+    }
+}
@@ -0,0 +1,347 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.implementation.ListBlobsSegment;
+import com.microsoft.azure.storage.models.Blob;
+import com.microsoft.azure.storage.models.BlobProperties;
+import com.microsoft.azure.storage.models.BlobsGetPropertiesHeaders;
+import com.microsoft.azure.storage.models.ListBlobsResponse;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+/**
+ * RESERVED FOR INTERNAL USE. Looks up the properties of many blobs in a container by listing the parts of the
+ * container which hold them, rather than by requesting the properties of each blob.
+ * <p>
+ * The names are grouped by the virtual directory, delimited by "/", which holds them. A directory with enough names
+ * in it is listed; the names of a sparse directory are moved up into its parent, at most {@link #MAX_FOLD_LEVELS}
+ * times and never past the root of the container, and whatever is still too sparse is looked up one blob at a time.
+ * Each listing is limited to the longest prefix its names share and stops as soon as it passes the last of them.
+ * <p>
+ * How many blobs lie between a listing's prefix and its last name is not known in advance, and a prefix gathered from
+ * sparse directories may still span far more blobs than were asked for. So a listing may only read one page for every
+ * {@link #MIN_NAMES_PER_LISTING} names in its group; the names it has not reached by then are looked up one blob at a
+ * time instead.
+ */
+final class BlobStatusResolver {
+
+    /**
+     * The default number of listings and lookups which run at the same time.
+     */
+    static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * The fewest names under a prefix for which listing the prefix is expected to beat looking each blob up.
+     */
+    static final int MIN_NAMES_PER_LISTING = 16;
+
+    /**
+     * How many directories up sparse names are carried looking for a listing to join. Each level up may widen the
+     * listing to many more blobs than were asked for, so past this the names are looked up instead.
+     */
+    static final int MAX_FOLD_LEVELS = 2;
+
+    private static final String DELIMITER = "/";
+
+    private final ContainerURL containerURL;
+
+    private final BlobListingDetails details;
+
+    private final int parallelism;
+
+    BlobStatusResolver(ContainerURL containerURL, BlobListingDetails details, int parallelism) {
+        this.containerURL = containerURL;
+        this.details = details;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sorted names which are answered together, either by one listing or, when {@code prefix} is {@code null}, by
+     * looking up each blob.
+     */
+    static final class Group {
+
+        final String prefix;
+
+        final List<String> names;
+
+        Group(String prefix, List<String> names) {
+            this.prefix = prefix;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Groups the names into the listings which answer them and a final group of names to look up one at a time. A
+     * directory with too few names joins its parent, up to {@link #MAX_FOLD_LEVELS} levels above the names' own
+     * directories.
+     *
+     * @param blobNames
+     *      The names of the blobs.
+     * @param minNamesPerListing
+     *      The fewest names for which a prefix is listed.
+     * @return
+     *      The groups. Names in each group are sorted.
+     */
+    static List<Group> groups(Collection<String> blobNames, int minNamesPerListing) {
+        TreeMap<String, List<String>> byDirectory = new TreeMap<String, List<String>>();
+        for (String name : new TreeSet<String>(blobNames)) {
+            add(byDirectory, parent(name), Collections.singletonList(name));
+        }
+
+        List<Group> groups = new ArrayList<Group>();
+        List<String> lookups = new ArrayList<String>();
+        for (int level = 0; !byDirectory.isEmpty(); level++) {
+            TreeMap<String, List<String>> sparse = new TreeMap<String, List<String>>();
+            for (Map.Entry<String, List<String>> entry : byDirectory.entrySet()) {
+                List<String> names = entry.getValue();
+                if (names.size() >= minNamesPerListing) {
+                    Collections.sort(names);
+                    groups.add(new Group(commonPrefix(names.get(0), names.get(names.size() - 1)), names));
+                }
+                else if (entry.getKey().isEmpty() || level >= MAX_FOLD_LEVELS) {
+                    lookups.addAll(names);
+                }
+                else {
+                    add(sparse, parent(entry.getKey()), names);
+                }
+            }
+            byDirectory = sparse;
+        }
+        if (!lookups.isEmpty()) {
+            Collections.sort(lookups);
+            groups.add(new Group(null, lookups));
+        }
+        return groups;
+    }
+
+    private static void add(Map<String, List<String>> byDirectory, String directory, List<String> names) {
+        List<String> existing = byDirectory.get(directory);
+        if (existing == null) {
+            existing = new ArrayList<String>();
+            byDirectory.put(directory, existing);
+        }
+        existing.addAll(names);
+    }
+
+    /**
+     * Returns the directory holding a name or directory, including its trailing delimiter, or an empty string for the
+     * root of the container.
+     */
+    private static String parent(String path) {
+        int end = path.endsWith(DELIMITER) ? path.length() - DELIMITER.length() : path.length();
+        int slash = path.lastIndexOf(DELIMITER, end - 1);
+        return slash < 0 ? "" : path.substring(0, slash + DELIMITER.length());
+    }
+
+    /**
+     * The longest prefix shared by every name in a sorted range is the one shared by its first and last names.
+     */
+    private static String commonPrefix(String first, String last) {
+        int length = 0;
+        while (length < first.length() && length < last.length() && first.charAt(length) == last.charAt(length)) {
+            length++;
+        }
+        return first.substring(0, length);
+    }
+
+    Single<Map<String, Blob>> resolveAsync(Collection<String> blobNames) {
+        return Flowable.fromIterable(groups(blobNames, MIN_NAMES_PER_LISTING))
+                .flatMap(new Function<Group, Publisher<Blob>>() {
+                    @Override
+                    public Publisher<Blob> apply(Group group) {
+                        return group.prefix == null ? lookUpAsync(group.names) : listAsync(group);
+                    }
+                }, this.parallelism)
+                .collect(new Callable<Map<String, Blob>>() {
+                    @Override
+                    public Map<String, Blob> call() {
+                        return new HashMap<String, Blob>();
+                    }
+                }, new BiConsumer<Map<String, Blob>, Blob>() {
+                    @Override
+                    public void accept(Map<String, Blob> blobs, Blob blob) {
+                        blobs.put(blob.name(), blob);
+                    }
+                });
+    }
+
+    /**
+     * How far a listing has got, which decides whether any names are left to look up once it stops.
+     */
+    private static final class ListingProgress {
+
+        /**
+         * The name of the last blob listed, or {@code null} if none has been.
+         */
+        String lastListed;
+
+        boolean complete;
+    }
+
+    /**
+     * Lists the group's prefix up to its last name, keeping only the blobs which were asked for. The listing reads at
+     * most one page per {@link #MIN_NAMES_PER_LISTING} names; names beyond the last blob it read are then looked up.
+     */
+    private Flowable<Blob> listAsync(final Group group) {
+        final TreeSet<String> names = new TreeSet<String>(group.names);
+        final String lastName = names.last();
+        final long maxPages = (names.size() + MIN_NAMES_PER_LISTING - 1) / MIN_NAMES_PER_LISTING;
+        return Flowable.defer(new Callable<Publisher<Blob>>() {
+            @Override
+            public Publisher<Blob> call() {
+                final ListingProgress progress = new ListingProgress();
+                Flowable<Blob> listed = containerURL
+                        .listBlobsPages(null, new ListBlobsOptions(details, group.prefix, null, null))
+                        .take(maxPages)
+                        .concatMapIterable(new Function<ListBlobsResponse, Iterable<Blob>>() {
+                            @Override
+                            public Iterable<Blob> apply(ListBlobsResponse response) {
+                                progress.complete = response.nextMarker() == null
+                                        || response.nextMarker().isEmpty();
+                                if (response.blobs() == null || response.blobs().blob() == null
+                                        || response.blobs().blob().isEmpty()) {
+                                    return Collections.emptyList();
+                                }
+                                List<Blob> blobs = response.blobs().blob();
+                                progress.lastListed = blobs.get(blobs.size() - 1).name();
+                                return blobs;
+                            }
+                        })
+                        .takeWhile(new Predicate<Blob>() {
+                            @Override
+                            public boolean test(Blob blob) {
+                                return blob.name().compareTo(lastName) <= 0;
+                            }
+                        })
+                        .filter(new Predicate<Blob>() {
+                            @Override
+                            public boolean test(Blob blob) {
+                                return names.contains(blob.name());
+                            }
+                        });
+
+                Flowable<Blob> unreached = Flowable.defer(new Callable<Publisher<Blob>>() {
+                    @Override
+                    public Publisher<Blob> call() {
+                        if (progress.complete
+                                || (progress.lastListed != null && progress.lastListed.compareTo(lastName) >= 0)) {
+                            return Flowable.empty();
+                        }
+                        SortedSet<String> rest = progress.lastListed == null
+                                ? names : names.tailSet(progress.lastListed, false);
+                        return lookUpAsync(new ArrayList<String>(rest));
+                    }
+                });
+                return listed.concatWith(unreached);
+            }
+        });
+    }
+
+    /**
+     * Looks up each blob's properties. A blob which does not exist is left out.
+     */
+    private Flowable<Blob> lookUpAsync(List<String> names) {
+        return Flowable.fromIterable(names)
+                .flatMap(new Function<String, Publisher<Blob>>() {
+                    @Override
+                    public Publisher<Blob> apply(final String name) {
+                        return containerURL.createBlockBlobURL(name).getPropertiesAndMetadataAsync(null)
+                                .map(new Function<RestResponse<BlobsGetPropertiesHeaders, Void>, List<Blob>>() {
+                                    @Override
+                                    public List<Blob> apply(RestResponse<BlobsGetPropertiesHeaders, Void> response) {
+                                        return Collections.singletonList(toBlob(name, response.headers()));
+                                    }
+                                })
+                                .onErrorResumeNext(new Function<Throwable, Single<List<Blob>>>() {
+                                    @Override
+                                    public Single<List<Blob>> apply(Throwable t) {
+                                        if (t instanceof RestException
+                                                && ((RestException) t).response().statusCode() == 404) {
+                                            return Single.just(Collections.<Blob>emptyList());
+                                        }
+                                        return Single.error(t);
+                                    }
+                                })
+                                .flattenAsFlowable(new Function<List<Blob>, Iterable<Blob>>() {
+                                    @Override
+                                    public Iterable<Blob> apply(List<Blob> blobs) {
+                                        return blobs;
+                                    }
+                                });
+                    }
+                }, this.parallelism);
+    }
+
+    /**
+     * Describes a blob from its properties in the same shape as a listing would, including metadata and copy
+     * properties only if the listing details ask for them.
+     */
+    private Blob toBlob(String name, BlobsGetPropertiesHeaders headers) {
+        BlobProperties properties = new BlobProperties()
+                .withLastModified(headers.lastModified())
+                .withEtag(headers.eTag())
+                .withContentLength(headers.contentLength())
+                .withContentType(headers.contentType())
+                .withContentEncoding(headers.contentEncoding())
+                .withContentLanguage(headers.contentLanguage())
+                .withContentMD5(headers.contentMD5())
+                .withContentDisposition(headers.contentDisposition())
+                .withCacheControl(headers.cacheControl())
+                .withBlobType(headers.blobType())
+                .withLeaseStatus(headers.leaseStatus())
+                .withLeaseState(headers.leaseState())
+                .withLeaseDuration(headers.leaseDuration())
+                .withServerEncrypted(headers.isServerEncrypted())
+                .withIncrementalCopy(headers.isIncrementalCopy())
+                .withDestinationSnapshot(headers.destinationSnapshot())
+                .withAccessTierInferred(headers.accessTierInferred());
+        if (headers.blobSequenceNumber() != null) {
+            properties.withBlobSequenceNumber(ListBlobsSegment.parseSequenceNumber(headers.blobSequenceNumber()));
+        }
+        if (this.details.getCopy()) {
+            properties.withCopyId(headers.copyId())
+                    .withCopyStatus(headers.copyStatus())
+                    .withCopySource(headers.copySource())
+                    .withCopyProgress(headers.copyProgress())
+                    .withCopyCompletionTime(headers.copyCompletionTime())
+                    .withCopyStatusDescription(headers.copyStatusDescription());
+        }
+
+        Blob blob = new Blob().withName(name).withProperties(properties);
+        if (this.details.getMetadata()) {
+            blob.withMetadata(headers.metadata());
+        }
+        return blob;
+    }
+}
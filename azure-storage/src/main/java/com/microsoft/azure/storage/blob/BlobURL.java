@@ -19,10 +19,12 @@ import com.microsoft.rest.v2.RestResponse;
 import com.microsoft.rest.v2.http.AsyncInputStream;
 import com.microsoft.rest.v2.http.HttpPipeline;
 import io.reactivex.Single;
+import io.reactivex.functions.Function;
 
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.AsynchronousFileChannel;
 
 /**
  * Represents a URL to an Azure Storage blob; the blob may be a block blob, append blob, or page blob.
@@ -51,7 +53,7 @@ public class BlobURL extends StorageURL {
      */
     public BlobURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new BlobURL(new URL(this.storageClient.url()), pipeline);
+            return new BlobURL(new URL(this.url), pipeline);
         } catch (MalformedURLException e) {
             // TODO: Remove
         }
@@ -67,9 +69,9 @@ public class BlobURL extends StorageURL {
      *      A {@link BlobURL} object with the given pipeline.
      */
     public BlobURL withSnapshot(String snapshot) throws MalformedURLException, UnsupportedEncodingException {
-        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.storageClient.url()));
+        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.url));
         blobURLParts.setSnapshot(snapshot);
-        return new BlobURL(blobURLParts.toURL(), super.storageClient.httpPipeline());
+        return new BlobURL(blobURLParts.toURL(), super.pipeline);
     }
 
     /**
@@ -79,7 +81,7 @@ public class BlobURL extends StorageURL {
      */
     public BlockBlobURL toBlockBlobURL() {
         try {
-            return new BlockBlobURL(new URL(this.storageClient.url()), super.storageClient.httpPipeline());
+            return new BlockBlobURL(new URL(this.url), super.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove.
         }
@@ -94,7 +96,7 @@ public class BlobURL extends StorageURL {
      */
     public AppendBlobURL toAppendBlobURL() {
         try {
-            return new AppendBlobURL(new URL(this.storageClient.url()), super.storageClient.httpPipeline());
+            return new AppendBlobURL(new URL(this.url), super.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -109,7 +111,7 @@ public class BlobURL extends StorageURL {
      */
     public PageBlobURL toPageBlobURL() {
         try {
-            return new PageBlobURL(new URL(this.storageClient.url()), super.storageClient.httpPipeline());
+            return new PageBlobURL(new URL(this.url), super.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -119,6 +121,7 @@ public class BlobURL extends StorageURL {
     /**
      * StartCopy copies the data at the source URL to a blob.
      * For more information, see https://docs.microsoft.com/rest/api/storageservices/copy-blob.
+     * To start many copies and track them until they finish, see {@link CopyOrchestrator}.
      *
      * @param sourceURL
      *      A {@code String} representing the source URL to copy from.
@@ -145,7 +148,7 @@ public class BlobURL extends StorageURL {
             metadata = Metadata.getDefault();
         }
 
-        return this.storageClient.blobs().copyWithRestResponseAsync(sourceURL.toString(), null, null,
+        return this.storageClient().blobs().copyWithRestResponseAsync(sourceURL.toString(), null, null,
                 sourceAccessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 sourceAccessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
                 sourceAccessConditions.getHttpAccessConditions().getIfMatch().toString(),
@@ -177,7 +180,7 @@ public class BlobURL extends StorageURL {
             leaseAccessConditions = LeaseAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().abortCopyWithRestResponseAsync(
+        return this.storageClient().blobs().abortCopyWithRestResponseAsync(
                 copyId, null, leaseAccessConditions.toString(), null);
     }
 
@@ -197,9 +200,11 @@ public class BlobURL extends StorageURL {
         if (accessConditions == null) {
             accessConditions = BlobAccessConditions.getDefault();
         }
+        if (range == null) {
+            range = BlobRange.getDefault();
+        }
 
-
-        return this.storageClient.blobs().getWithRestResponseAsync(null, null,
+        return this.storageClient().blobs().getWithRestResponseAsync(null, null,
                 range.toString(), accessConditions.getLeaseAccessConditions().toString(),
                 rangeGetContentMD5, accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -208,6 +213,57 @@ public class BlobURL extends StorageURL {
                 null);
     }
 
+    /**
+     * DownloadToFile downloads the blob into a file using concurrent ranged GETs. The first GET determines the size
+     * and ETag of the blob, and every following GET is conditioned on that ETag, so the download fails rather than
+     * mixing content if the blob is overwritten while it is in progress. Each range is written at its own offset in
+     * the file, and the file is truncated to the size of the blob. If the options give a checkpoint path, a download
+     * which is interrupted can be resumed by calling this method again with the same file and checkpoint path.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to write to. The file is written but not closed.
+     * @param options
+     *      A {@link DownloadFromBlobOptions} object that specifies the range size, how many ranges to download at
+     *      once, and the access conditions under which the download may start.
+     * @return
+     *      A {@link Single&lt;BlobsGetHeaders&gt;} with the headers of the first GET if successful.
+     */
+    public Single<BlobsGetHeaders> downloadToFileAsync(AsynchronousFileChannel file, DownloadFromBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        if (options == null) {
+            options = DownloadFromBlobOptions.getDefault();
+        }
+        return new BlobFileDownloader(this, file, options).downloadAsync();
+    }
+
+    /**
+     * OpenSeekableByteChannel opens a read-only {@link BlobSeekableByteChannel} over the blob, for readers which need
+     * random access. The blob's properties are read first to learn its size and ETag; every read through the channel
+     * is bound to that ETag. Reads are served from a cache of chunks, and chunks ahead of a sequential reader are
+     * prefetched.
+     *
+     * @param options
+     *      A {@link BlobSeekableByteChannelOptions} object that specifies the chunk size, how many chunks to cache and
+     *      prefetch, and the access conditions under which the channel may be opened.
+     * @return
+     *      A {@link Single&lt;BlobSeekableByteChannel&gt;} which emits the channel once the blob's properties have been
+     *      read.
+     */
+    public Single<BlobSeekableByteChannel> openSeekableByteChannelAsync(BlobSeekableByteChannelOptions options) {
+        if (options == null) {
+            options = BlobSeekableByteChannelOptions.getDefault();
+        }
+        final BlobSeekableByteChannelOptions channelOptions = options;
+        return this.getPropertiesAndMetadataAsync(options.getAccessConditions())
+                .map(new Function<RestResponse<BlobsGetPropertiesHeaders, Void>, BlobSeekableByteChannel>() {
+                    @Override
+                    public BlobSeekableByteChannel apply(RestResponse<BlobsGetPropertiesHeaders, Void> response) {
+                        return new BlobSeekableByteChannel(BlobURL.this, response.headers().contentLength(),
+                                response.headers().eTag(), channelOptions);
+                    }
+                });
+    }
+
     /**
      * Deletes the specified blob or snapshot.
      * Note that deleting a blob also deletes all its snapshots.
@@ -226,7 +282,7 @@ public class BlobURL extends StorageURL {
             accessConditions = BlobAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().deleteWithRestResponseAsync(null, null,
+        return this.storageClient().blobs().deleteWithRestResponseAsync(null, null,
                 accessConditions.getLeaseAccessConditions().toString(),
                 deleteBlobSnapshotOptions,
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
@@ -250,7 +306,7 @@ public class BlobURL extends StorageURL {
             accessConditions = BlobAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().getPropertiesWithRestResponseAsync(null, null,
+        return this.storageClient().blobs().getPropertiesWithRestResponseAsync(null, null,
                 accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -276,7 +332,7 @@ public class BlobURL extends StorageURL {
             accessConditions = BlobAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().setPropertiesWithRestResponseAsync(null,
+        return this.storageClient().blobs().setPropertiesWithRestResponseAsync(null,
                 headers.getCacheControl(), headers.getContentType(), headers.getContentMD5(),
                 headers.getContentEncoding(),
                 headers.getContentLanguage(), accessConditions.getLeaseAccessConditions().toString(),
@@ -309,7 +365,7 @@ public class BlobURL extends StorageURL {
             metadata = Metadata.getDefault();
         }
 
-        return this.storageClient.blobs().setMetadataWithRestResponseAsync(null, metadata.toString(),
+        return this.storageClient().blobs().setMetadataWithRestResponseAsync(null, metadata.toString(),
                 accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -338,7 +394,7 @@ public class BlobURL extends StorageURL {
             metadata = Metadata.getDefault();
         }
 
-        return this.storageClient.blobs().takeSnapshotWithRestResponseAsync(null,
+        return this.storageClient().blobs().takeSnapshotWithRestResponseAsync(null,
                 metadata.toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -368,7 +424,7 @@ public class BlobURL extends StorageURL {
             httpAccessConditions = HttpAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().leaseWithRestResponseAsync(LeaseActionType.ACQUIRE, null,
+        return this.storageClient().blobs().leaseWithRestResponseAsync(LeaseActionType.ACQUIRE, null,
                 null, null, duration, proposedID,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -393,7 +449,7 @@ public class BlobURL extends StorageURL {
             httpAccessConditions = HttpAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
+        return this.storageClient().blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
                 leaseID, null, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -418,7 +474,7 @@ public class BlobURL extends StorageURL {
             httpAccessConditions = HttpAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().leaseWithRestResponseAsync(LeaseActionType.RELEASE, null,
+        return this.storageClient().blobs().leaseWithRestResponseAsync(LeaseActionType.RELEASE, null,
                 leaseID, null, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -449,7 +505,7 @@ public class BlobURL extends StorageURL {
             httpAccessConditions = HttpAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
+        return this.storageClient().blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
                 leaseID, breakPeriodInSeconds, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -476,7 +532,7 @@ public class BlobURL extends StorageURL {
             httpAccessConditions = HttpAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
+        return this.storageClient().blobs().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
                 leaseId, null, null, proposedID,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
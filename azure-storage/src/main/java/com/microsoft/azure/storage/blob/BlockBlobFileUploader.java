@@ -0,0 +1,571 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.Block;
+import com.microsoft.azure.storage.models.BlockBlobsGetBlockListHeaders;
+import com.microsoft.azure.storage.models.BlockBlobsPutBlockHeaders;
+import com.microsoft.azure.storage.models.BlockBlobsPutBlockListHeaders;
+import com.microsoft.azure.storage.models.BlockList;
+import com.microsoft.azure.storage.models.BlockListType;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * RESERVED FOR INTERNAL USE. Uploads a file to a block blob by staging fixed size blocks in parallel and then
+ * committing them, in file order, with a single PutBlockList. With a {@link BlockBlobUploadJournal}, an interrupted
+ * upload picks up where it left off; with a {@link TransferTuner}, the block size and parallelism change as it runs.
+ * MD5 hashes of the blocks and of the whole file are computed from the block buffers as they are sent, so a
+ * checksummed upload reads the file only once.
+ */
+final class BlockBlobFileUploader {
+
+    /**
+     * The smallest block size chosen when the caller does not specify one.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 4 * Constants.MB;
+
+    private final BlockBlobURL blockBlobURL;
+
+    private final AsynchronousFileChannel file;
+
+    private final UploadToBlockBlobOptions options;
+
+    /**
+     * Admits each PutBlock, one unit per request, when the upload shares connections with others; or {@code null}.
+     */
+    private final TransferMemoryBudget requestGate;
+
+    BlockBlobFileUploader(BlockBlobURL blockBlobURL, AsynchronousFileChannel file, UploadToBlockBlobOptions options) {
+        this(blockBlobURL, file, options, null);
+    }
+
+    BlockBlobFileUploader(BlockBlobURL blockBlobURL, AsynchronousFileChannel file, UploadToBlockBlobOptions options,
+                          TransferMemoryBudget requestGate) {
+        this.blockBlobURL = blockBlobURL;
+        this.file = file;
+        this.options = options;
+        this.requestGate = requestGate;
+    }
+
+    /**
+     * Chooses the block size for a file of the given size. A block size given by the caller is used as is, as long
+     * as it keeps the blob under the service's block count limit. Otherwise the default is grown just enough to fit.
+     *
+     * @param fileSize
+     *      The size of the file in bytes.
+     * @param requestedBlockSize
+     *      The block size specified by the caller, or {@code null}.
+     * @return
+     *      The block size to use.
+     */
+    static long calculateBlockSize(long fileSize, Integer requestedBlockSize) {
+        if (requestedBlockSize != null) {
+            if (blockCount(fileSize, requestedBlockSize) > Constants.MAX_BLOCK_NUMBER) {
+                throw new IllegalArgumentException(SR.BLOB_OVER_MAX_BLOCK_LIMIT);
+            }
+            return requestedBlockSize;
+        }
+
+        long blockSize = Math.max(DEFAULT_BLOCK_SIZE,
+                (fileSize + Constants.MAX_BLOCK_NUMBER - 1) / Constants.MAX_BLOCK_NUMBER);
+        if (blockSize > Constants.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(SR.BLOB_OVER_MAX_BLOCK_LIMIT);
+        }
+        return blockSize;
+    }
+
+    static long blockCount(long fileSize, long blockSize) {
+        return (fileSize + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * Derives the ID of a block from the ID of the upload and the index of the block, so that a resumed upload
+     * stages each block under the same ID as before. Every ID has the same length, as the service requires.
+     */
+    static String blockID(long uploadID, int blockIndex) {
+        return Base64.encode(String.format(Utility.LOCALE_US, "%016x-%08d", uploadID, blockIndex)
+                .getBytes(Charset.forName(Constants.UTF8_CHARSET)));
+    }
+
+    static String md5(ByteBuffer data) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        digest.update(data.duplicate());
+        return Base64.encode(digest.digest());
+    }
+
+    /**
+     * Computes the MD5 hash of the whole file from blocks which are read in parallel. The hash must be fed in file
+     * order, so a block read ahead of the ones before it is held until they arrive. A block's buffer may only be
+     * released once it has been hashed.
+     */
+    static final class BlobDigest {
+
+        private final MessageDigest digest;
+
+        private final Map<Integer, ByteBuffer> heldBlocks = new HashMap<Integer, ByteBuffer>();
+
+        private final Map<Integer, CompletableEmitter> waiting = new HashMap<Integer, CompletableEmitter>();
+
+        private int nextIndex;
+
+        BlobDigest() throws NoSuchAlgorithmException {
+            this.digest = MessageDigest.getInstance("MD5");
+        }
+
+        /**
+         * Hands over a block which has been read, and hashes it along with any held blocks which follow it.
+         */
+        void offer(int blockIndex, ByteBuffer data) {
+            List<CompletableEmitter> hashed = new ArrayList<CompletableEmitter>();
+            synchronized (this) {
+                this.heldBlocks.put(blockIndex, data.duplicate());
+                ByteBuffer next;
+                while ((next = this.heldBlocks.remove(this.nextIndex)) != null) {
+                    this.digest.update(next);
+                    CompletableEmitter emitter = this.waiting.remove(this.nextIndex);
+                    if (emitter != null) {
+                        hashed.add(emitter);
+                    }
+                    this.nextIndex++;
+                }
+            }
+            // Waiters are completed outside the lock since they go on to release buffers and take further blocks.
+            for (CompletableEmitter emitter : hashed) {
+                emitter.onComplete();
+            }
+        }
+
+        /**
+         * @return
+         *      A {@link Completable} which completes once the block has been hashed.
+         */
+        Completable hashedAsync(final int blockIndex) {
+            return Completable.create(new CompletableOnSubscribe() {
+                @Override
+                public void subscribe(CompletableEmitter emitter) {
+                    synchronized (BlobDigest.this) {
+                        if (blockIndex >= nextIndex) {
+                            waiting.put(blockIndex, emitter);
+                            return;
+                        }
+                    }
+                    emitter.onComplete();
+                }
+            });
+        }
+
+        /**
+         * @return
+         *      The Base64 encoded hash of every block offered so far.
+         */
+        synchronized String finish() {
+            return Base64.encode(this.digest.digest());
+        }
+    }
+
+    /**
+     * Returns the headers to commit the block list with, carrying the hash of the whole file if one was computed.
+     */
+    private BlobHttpHeaders commitHeaders(BlobDigest blobDigest) {
+        BlobHttpHeaders headers = this.options.getHttpHeaders();
+        if (blobDigest == null) {
+            return headers;
+        }
+        return new BlobHttpHeaders(headers.getCacheControl(), headers.getContentDisposition(),
+                headers.getContentEncoding(), headers.getContentLanguage(), blobDigest.finish(),
+                headers.getContentType());
+    }
+
+    private BlobDigest newBlobDigest() {
+        try {
+            return new BlobDigest();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> uploadAsync() {
+        final long fileSize;
+        try {
+            fileSize = this.file.size();
+        }
+        catch (IOException e) {
+            return Single.error(e);
+        }
+
+        if (this.options.getJournalPath() == null) {
+            final long blockSize;
+            try {
+                blockSize = calculateBlockSize(fileSize, this.options.getBlockSize());
+            }
+            catch (IllegalArgumentException e) {
+                return Single.error(e);
+            }
+            if (this.options.getTuner() != null) {
+                return this.uploadTunedAsync(UUID.randomUUID().getMostSignificantBits(), fileSize, blockSize);
+            }
+            return this.uploadBlocksAsync(UUID.randomUUID().getMostSignificantBits(), fileSize, blockSize,
+                    new BitSet(), null);
+        }
+
+        return Single.using(
+                new Callable<BlockBlobUploadJournal>() {
+                    @Override
+                    public BlockBlobUploadJournal call() throws IOException {
+                        return BlockBlobUploadJournal.open(options.getJournalPath(), fileSize, options.getBlockSize());
+                    }
+                },
+                new Function<BlockBlobUploadJournal, Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>>>() {
+                    @Override
+                    public Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> apply(
+                            BlockBlobUploadJournal journal) {
+                        return resumeAsync(journal);
+                    }
+                },
+                new Consumer<BlockBlobUploadJournal>() {
+                    @Override
+                    public void accept(BlockBlobUploadJournal journal) throws IOException {
+                        journal.close();
+                    }
+                });
+    }
+
+    /**
+     * Resumes the upload recorded in a journal. A block is skipped if the journal says it was acknowledged and the
+     * service still lists it, with the right size, among the blob's uncommitted blocks. Anything else, including
+     * blocks the service has since discarded, is uploaded again.
+     */
+    private Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> resumeAsync(
+            final BlockBlobUploadJournal journal) {
+        return this.uncommittedBlockSizesAsync()
+                .flatMap(new Function<Map<String, Integer>,
+                        Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>>>() {
+                    @Override
+                    public Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> apply(
+                            Map<String, Integer> uncommittedBlocks) {
+                        long fileSize = journal.fileSize();
+                        long blockSize = journal.blockSize();
+                        int blockCount = (int) blockCount(fileSize, blockSize);
+                        BitSet staged = new BitSet(blockCount);
+                        for (int i = 0; i < blockCount; i++) {
+                            Integer size = uncommittedBlocks.get(blockID(journal.uploadID(), i));
+                            long expectedSize = Math.min(blockSize, fileSize - i * blockSize);
+                            if (journal.isAcknowledged(i) && size != null && size == expectedSize) {
+                                staged.set(i);
+                            }
+                        }
+                        return uploadBlocksAsync(journal.uploadID(), fileSize, blockSize, staged, journal);
+                    }
+                });
+    }
+
+    /**
+     * @return
+     *      A {@link Single} which emits the size of each uncommitted block of the blob, by block ID. A blob which
+     *      does not exist has none.
+     */
+    private Single<Map<String, Integer>> uncommittedBlockSizesAsync() {
+        return this.blockBlobURL.getBlockListAsync(BlockListType.UNCOMMITTED,
+                this.options.getAccessConditions().getLeaseAccessConditions())
+                .map(new Function<RestResponse<BlockBlobsGetBlockListHeaders, BlockList>, Map<String, Integer>>() {
+                    @Override
+                    public Map<String, Integer> apply(RestResponse<BlockBlobsGetBlockListHeaders, BlockList> response) {
+                        Map<String, Integer> sizes = new HashMap<String, Integer>();
+                        if (response.body().uncommittedBlocks() != null) {
+                            for (Block block : response.body().uncommittedBlocks()) {
+                                sizes.put(block.name(), block.size());
+                            }
+                        }
+                        return sizes;
+                    }
+                })
+                .onErrorResumeNext(new Function<Throwable, Single<Map<String, Integer>>>() {
+                    @Override
+                    public Single<Map<String, Integer>> apply(Throwable t) {
+                        if (t instanceof RestException && ((RestException) t).response().statusCode() == 404) {
+                            return Single.just(Collections.<String, Integer>emptyMap());
+                        }
+                        return Single.error(t);
+                    }
+                });
+    }
+
+    /**
+     * Stages every block which is not already staged, then commits the whole block list in file order.
+     *
+     * @param journal
+     *      The journal in which to record each acknowledged block, or {@code null}. It is deleted once the block list
+     *      has been committed.
+     */
+    private Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> uploadBlocksAsync(
+            long uploadID, final long fileSize, final long blockSize, final BitSet staged,
+            final BlockBlobUploadJournal journal) {
+        // The IDs are generated up front so that the commit order is the file order regardless of the order in
+        // which the blocks finish uploading.
+        final String[] blockIDs = new String[(int) blockCount(fileSize, blockSize)];
+        for (int i = 0; i < blockIDs.length; i++) {
+            blockIDs[i] = blockID(uploadID, i);
+        }
+        // Blocks skipped on resume are not read, so the whole file can only be hashed if every block is sent.
+        final BlobDigest blobDigest = this.options.isComputeBlobMD5() && staged.isEmpty() ? newBlobDigest() : null;
+        final Queue<Integer> pending = new ConcurrentLinkedQueue<Integer>();
+        for (int i = 0; i < blockIDs.length; i++) {
+            if (!staged.get(i)) {
+                pending.add(i);
+            }
+        }
+        final int reservedLength = (int) Math.min(blockSize, fileSize);
+
+        // Each slot takes the next pending block only once its memory has been reserved; see reserveAsync.
+        return Flowable.range(0, pending.size())
+                .flatMap(new Function<Integer, Publisher<Integer>>() {
+                    @Override
+                    public Publisher<Integer> apply(Integer slot) {
+                        Single<Integer> putBlock = reserveAsync(reservedLength, new Callable<Single<Integer>>() {
+                            @Override
+                            public Single<Integer> call() {
+                                final int blockIndex = pending.remove();
+                                long offset = blockIndex * blockSize;
+                                int length = (int) Math.min(blockSize, fileSize - offset);
+                                return stageBlock(blockIDs[blockIndex], blockIndex, offset, length, blobDigest)
+                                        .map(new Function<RestResponse<BlockBlobsPutBlockHeaders, Void>, Integer>() {
+                                            @Override
+                                            public Integer apply(RestResponse<BlockBlobsPutBlockHeaders, Void> r) {
+                                                return blockIndex;
+                                            }
+                                        });
+                            }
+                        });
+                        if (journal != null) {
+                            putBlock = putBlock.flatMap(new Function<Integer, Single<Integer>>() {
+                                @Override
+                                public Single<Integer> apply(Integer blockIndex) {
+                                    return journal.recordAcknowledgedAsync(blockIndex).toSingleDefault(blockIndex);
+                                }
+                            });
+                        }
+                        return putBlock.toFlowable();
+                    }
+                }, this.options.getParallelism())
+                .ignoreElements()
+                .andThen(Single.defer(
+                        new Callable<SingleSource<RestResponse<BlockBlobsPutBlockListHeaders, Void>>>() {
+                            @Override
+                            public SingleSource<RestResponse<BlockBlobsPutBlockListHeaders, Void>> call() {
+                                return blockBlobURL.putBlockListAsync(Arrays.asList(blockIDs),
+                                        options.getMetadata(), commitHeaders(blobDigest),
+                                        options.getAccessConditions());
+                            }
+                        }))
+                .doOnSuccess(new Consumer<RestResponse<BlockBlobsPutBlockListHeaders, Void>>() {
+                    @Override
+                    public void accept(RestResponse<BlockBlobsPutBlockListHeaders, Void> response)
+                            throws IOException {
+                        if (journal != null) {
+                            journal.delete();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Uploads the file with the block size and number of blocks in flight chosen by the tuner as the upload runs.
+     * Blocks are numbered in file order as they are taken, so the commit order is still the file order. The tuner
+     * never goes below the starting block size's share of the block count limit, so the blob stays within it.
+     */
+    private Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> uploadTunedAsync(
+            final long uploadID, long fileSize, long blockSize) {
+        final TransferTuner tuner = this.options.getTuner();
+        tuner.start(this.options.getParallelism(), blockSize,
+                Math.max(TransferTuner.MIN_BLOCK_SIZE,
+                        (fileSize + Constants.MAX_BLOCK_NUMBER - 1) / Constants.MAX_BLOCK_NUMBER),
+                Constants.MAX_BLOCK_SIZE);
+        final TransferTuner.ChunkPlanner planner = new TransferTuner.ChunkPlanner(0, fileSize);
+        final BlobDigest blobDigest = this.options.isComputeBlobMD5() ? newBlobDigest() : null;
+
+        // Each slot takes its block only once the tuner has admitted it and its memory has been reserved, so every
+        // block has the size tuned at admission. Slots that find the file already handed out do nothing.
+        return Flowable.range(0, Integer.MAX_VALUE)
+                .takeWhile(new Predicate<Integer>() {
+                    @Override
+                    public boolean test(Integer slot) {
+                        return planner.hasRemaining();
+                    }
+                })
+                .flatMap(new Function<Integer, Publisher<Long>>() {
+                    @Override
+                    public Publisher<Long> apply(Integer slot) {
+                        return tuner.runAsync(new Callable<Single<Long>>() {
+                            @Override
+                            public Single<Long> call() {
+                                final long blockSize = tuner.getBlockSize();
+                                return reserveAsync(blockSize, new Callable<Single<Long>>() {
+                                    @Override
+                                    public Single<Long> call() {
+                                        final TransferTuner.Chunk block = planner.next(blockSize);
+                                        if (block == null) {
+                                            return Single.just(0L);
+                                        }
+                                        return stageBlock(blockID(uploadID, block.index), block.index,
+                                                block.offset, block.length, blobDigest)
+                                                .map(new Function<RestResponse<BlockBlobsPutBlockHeaders, Void>,
+                                                        Long>() {
+                                                    @Override
+                                                    public Long apply(RestResponse<BlockBlobsPutBlockHeaders, Void> r) {
+                                                        return (long) block.length;
+                                                    }
+                                                });
+                                    }
+                                });
+                            }
+                        }).toFlowable();
+                    }
+                }, tuner.getMaxParallelism())
+                .ignoreElements()
+                .andThen(Single.defer(
+                        new Callable<SingleSource<RestResponse<BlockBlobsPutBlockListHeaders, Void>>>() {
+                            @Override
+                            public SingleSource<RestResponse<BlockBlobsPutBlockListHeaders, Void>> call() {
+                                List<String> blockIDs = new ArrayList<String>(planner.chunkCount());
+                                for (int i = 0; i < planner.chunkCount(); i++) {
+                                    blockIDs.add(blockID(uploadID, i));
+                                }
+                                return blockBlobURL.putBlockListAsync(blockIDs, options.getMetadata(),
+                                        commitHeaders(blobDigest), options.getAccessConditions());
+                            }
+                        }))
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        tuner.finish();
+                    }
+                });
+    }
+
+    /**
+     * Reserves a request from the shared gate, if there is one, and then the memory for a block, and runs the
+     * operation once both are held. The memory is reserved before the block's buffer is taken and filled, so blocks
+     * beyond the process-wide budget wait without reading anything.
+     * <p>
+     * The operation picks which block to stage only once it runs. A block may hold its memory until the blocks before
+     * it have been hashed into the whole file, so if blocks were numbered before reserving, a later block could hold
+     * memory that an earlier one is still waiting for, and neither would finish. Numbered after reserving, every
+     * block a held block waits for already holds its own memory.
+     */
+    private <T> Single<T> reserveAsync(long bytes, Callable<Single<T>> operation) {
+        final Single<T> reserved = TransferMemoryBudget.getDefault().reserveAsync(bytes, operation);
+        if (this.requestGate == null) {
+            return reserved;
+        }
+        return this.requestGate.reserveAsync(1, new Callable<Single<T>>() {
+            @Override
+            public Single<T> call() {
+                return reserved;
+            }
+        });
+    }
+
+    private Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> stageBlock(
+            final String blockID, final int blockIndex, final long offset, final int length,
+            final BlobDigest blobDigest) {
+        final TransferBufferPool pool = TransferBufferPool.getDefault();
+
+        // The buffer goes back to the pool once the block has been staged or has failed for good, by which point the
+        // retry policy no longer needs the request body.
+        return Single.using(
+                new Callable<ByteBuffer>() {
+                    @Override
+                    public ByteBuffer call() {
+                        return pool.acquire(length);
+                    }
+                },
+                new Function<ByteBuffer, Single<RestResponse<BlockBlobsPutBlockHeaders, Void>>>() {
+                    @Override
+                    public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> apply(ByteBuffer buffer) {
+                        return Utility.readAsync(file, buffer, offset).flatMap(
+                                new Function<ByteBuffer, Single<RestResponse<BlockBlobsPutBlockHeaders, Void>>>() {
+                                    @Override
+                                    public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> apply(
+                                            ByteBuffer buffer) throws IOException, NoSuchAlgorithmException {
+                                        // A pooled buffer is not cleared, so a short read would send whatever an
+                                        // earlier block left behind it.
+                                        if (buffer.remaining() != length) {
+                                            throw new IOException("The file changed size while it was being "
+                                                    + "uploaded.");
+                                        }
+                                        String blockMD5 = options.isComputeBlockMD5() ? md5(buffer) : null;
+                                        if (blobDigest != null) {
+                                            blobDigest.offer(blockIndex, buffer);
+                                        }
+                                        Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlock =
+                                                blockBlobURL.putBlockAsync(blockID,
+                                                        AsyncInputStream.create(buffer.array()), blockMD5,
+                                                        options.getAccessConditions().getLeaseAccessConditions());
+                                        if (blobDigest == null) {
+                                            return putBlock;
+                                        }
+                                        // The buffer is held until the block has been hashed into the whole file.
+                                        return putBlock.flatMap(new Function<RestResponse<BlockBlobsPutBlockHeaders,
+                                                Void>, Single<RestResponse<BlockBlobsPutBlockHeaders, Void>>>() {
+                                            @Override
+                                            public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> apply(
+                                                    RestResponse<BlockBlobsPutBlockHeaders, Void> response) {
+                                                return blobDigest.hashedAsync(blockIndex).toSingleDefault(response);
+                                            }
+                                        });
+                                    }
+                                });
+                    }
+                },
+                new Consumer<ByteBuffer>() {
+                    @Override
+                    public void accept(ByteBuffer buffer) {
+                        pool.release(buffer);
+                    }
+                });
+    }
+}
@@ -23,6 +23,7 @@ import io.reactivex.Single;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.AsynchronousFileChannel;
 import java.util.List;
 
 /**
@@ -52,7 +53,7 @@ public final class BlockBlobURL extends BlobURL {
      */
     public BlockBlobURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new BlockBlobURL(new URL(this.storageClient.url()), pipeline);
+            return new BlockBlobURL(new URL(this.url), pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -68,9 +69,9 @@ public final class BlockBlobURL extends BlobURL {
      *      A {@link BlockBlobURL} object with the given pipeline.
      */
     public BlockBlobURL withSnapshot(String snapshot) throws MalformedURLException, UnsupportedEncodingException {
-        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.storageClient.url()));
+        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.url));
         blobURLParts.setSnapshot(snapshot);
-        return new BlockBlobURL(blobURLParts.toURL(), super.storageClient.httpPipeline());
+        return new BlockBlobURL(blobURLParts.toURL(), super.pipeline);
     }
 
     /**
@@ -104,7 +105,7 @@ public final class BlockBlobURL extends BlobURL {
         if(metadata == null) {
             metadata = Metadata.getDefault();
         }
-        return this.storageClient.blobs().putWithRestResponseAsync(BlobType.BLOCK_BLOB, data,
+        return this.storageClient().blobs().putWithRestResponseAsync(BlobType.BLOCK_BLOB, data,
                 null, null, headers.getContentType(), headers.getContentEncoding(),
                 headers.getContentLanguage(), headers.getContentMD5(), headers.getCacheControl(), metadata.toString(),
                 accessConditions.getLeaseAccessConditions().toString(),
@@ -131,10 +132,32 @@ public final class BlockBlobURL extends BlobURL {
      */
     public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlockAsync(
             String base64BlockID, AsyncInputStream data, LeaseAccessConditions leaseAccessConditions) {
+        return this.putBlockAsync(base64BlockID, data, null, leaseAccessConditions);
+    }
+
+    /**
+     * PutBlock uploads the specified block to the block blob's "staging area" to be later commited by a call to
+     * PutBlockList. For more information, see https://docs.microsoft.com/rest/api/storageservices/put-block.
+     *
+     * @param base64BlockID
+     *      A Base64 encoded {@code String} that specifies the ID for this block.
+     * @param data
+     *      An {@link AsyncInputStream} which contains the data to write to the block.
+     * @param contentMD5
+     *      A Base64 encoded {@code String} of the MD5 hash of the data, which the service checks the data it receives
+     *      against, or {@code null}.
+     * @param leaseAccessConditions
+     *      A {@link LeaseAccessConditions} object that specifies the lease on the blob if there is one.
+     * @return
+     *      The {@link Single&lt;RestResponse&lt;BlockBlobsPutBlockHeaders, Void&gt;&gt;} object if successful.
+     */
+    public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlockAsync(
+            String base64BlockID, AsyncInputStream data, String contentMD5,
+            LeaseAccessConditions leaseAccessConditions) {
         if(leaseAccessConditions == null) {
             leaseAccessConditions = LeaseAccessConditions.getDefault();
         }
-        return this.storageClient.blockBlobs().putBlockWithRestResponseAsync(base64BlockID, data,
+        return this.storageClient().blockBlobs().putBlockWithRestResponseAsync(base64BlockID, data, contentMD5,
                 null, leaseAccessConditions.toString(), null);
     }
 
@@ -153,7 +176,7 @@ public final class BlockBlobURL extends BlobURL {
         if(leaseAccessConditions == null) {
             leaseAccessConditions = LeaseAccessConditions.getDefault();
         }
-        return this.storageClient.blockBlobs().getBlockListWithRestResponseAsync(listType,
+        return this.storageClient().blockBlobs().getBlockListWithRestResponseAsync(listType,
                 null, null, leaseAccessConditions.toString(), null);
     }
 
@@ -189,7 +212,7 @@ public final class BlockBlobURL extends BlobURL {
         if(accessConditions == null) {
             accessConditions = BlobAccessConditions.getDefault();
         }
-        return this.storageClient.blockBlobs().putBlockListWithRestResponseAsync(
+        return this.storageClient().blockBlobs().putBlockListWithRestResponseAsync(
                 new BlockLookupList().withLatest(base64BlockIDs), null,
                 httpHeaders.getCacheControl(), httpHeaders.getContentType(),httpHeaders.getContentEncoding(),
                 httpHeaders.getContentLanguage(), httpHeaders.getContentMD5(), metadata.toString(),
@@ -199,4 +222,28 @@ public final class BlockBlobURL extends BlobURL {
                 accessConditions.getHttpAccessConditions().getIfMatch().toString(),
                 accessConditions.getHttpAccessConditions().getIfNoneMatch().toString(), null);
     }
+
+    /**
+     * UploadFile uploads the contents of a file to this block blob. The file is split into blocks which are staged
+     * in parallel with PutBlock and then committed, in order, with a single PutBlockList. Any existing content of
+     * the blob is replaced once the block list is committed. If the options give a journal path, an upload which is
+     * interrupted can be resumed by calling this method again with the same file and journal path.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to upload. The file is read but not closed.
+     * @param options
+     *      An {@link UploadToBlockBlobOptions} object that specifies the block size, how many blocks to upload at
+     *      once, and the properties, metadata and access conditions to apply to the blob.
+     * @return
+     *      The {@link Single&lt;RestResponse&lt;BlockBlobsPutBlockListHeaders, Void&gt;&gt;} object from the final
+     *      PutBlockList if successful.
+     */
+    public Single<RestResponse<BlockBlobsPutBlockListHeaders, Void>> uploadFileAsync(
+            AsynchronousFileChannel file, UploadToBlockBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        if(options == null) {
+            options = UploadToBlockBlobOptions.getDefault();
+        }
+        return new BlockBlobFileUploader(this, file, options).uploadAsync();
+    }
 }
@@ -0,0 +1,260 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Completable;
+import io.reactivex.functions.Action;
+import io.reactivex.schedulers.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * RESERVED FOR INTERNAL USE. The local record of a block blob upload, which lets an interrupted upload resume. The
+ * journal holds a header identifying the upload followed by the index of each block the service has acknowledged,
+ * appended as each PutBlock succeeds:
+ * <pre>
+ *     int magic, int version, long uploadID, long fileSize, long blockSize, then an int per acknowledged block
+ * </pre>
+ * The block IDs of an upload are derived from its upload ID and the block index, so a resumed upload stages its
+ * blocks under the same IDs as the attempt it continues.
+ * <p>
+ * Records are forced to the device in groups: a block whose record was written while another block's force was in
+ * progress waits for that force to end and then forces every record written so far with one call.
+ */
+final class BlockBlobUploadJournal implements Closeable {
+
+    private static final int MAGIC = 0x424A524E;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int RECORD_SIZE = 4;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final long uploadID;
+
+    private final long fileSize;
+
+    private final long blockSize;
+
+    private final BitSet acknowledged;
+
+    /**
+     * Serializes forces, so that records written during one force are all covered by the next.
+     */
+    private final Object forceLock = new Object();
+
+    private long end;
+
+    /**
+     * The end of the records known to be on the device. Guarded by {@link #forceLock}.
+     */
+    private long forcedEnd;
+
+    private BlockBlobUploadJournal(Path path, FileChannel channel, long uploadID, long fileSize, long blockSize,
+                                   BitSet acknowledged, long end) {
+        this.path = path;
+        this.channel = channel;
+        this.uploadID = uploadID;
+        this.fileSize = fileSize;
+        this.blockSize = blockSize;
+        this.acknowledged = acknowledged;
+        this.end = end;
+        this.forcedEnd = end;
+    }
+
+    /**
+     * Opens the journal at the given path. An existing journal is continued if it describes an upload of a file of
+     * the same size, with the requested block size if there is one. Otherwise the journal is started over for a new
+     * upload.
+     *
+     * @param path
+     *      The {@code java.nio.file.Path} of the journal.
+     * @param fileSize
+     *      The size of the file being uploaded.
+     * @param requestedBlockSize
+     *      The block size given by the caller, or {@code null}.
+     * @return
+     *      The journal.
+     */
+    static BlockBlobUploadJournal open(Path path, long fileSize, Integer requestedBlockSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            BlockBlobUploadJournal journal = resume(path, channel, fileSize, requestedBlockSize);
+            if (journal == null) {
+                journal = create(path, channel, fileSize,
+                        BlockBlobFileUploader.calculateBlockSize(fileSize, requestedBlockSize));
+            }
+            return journal;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static BlockBlobUploadJournal resume(Path path, FileChannel channel, long fileSize,
+                                                 Integer requestedBlockSize) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            return null;
+        }
+        long uploadID = header.getLong();
+        long journalFileSize = header.getLong();
+        long blockSize = header.getLong();
+        if (journalFileSize != fileSize || blockSize <= 0
+                || (requestedBlockSize != null && requestedBlockSize != blockSize)) {
+            return null;
+        }
+
+        // A record cut short by a crash is ignored, and overwritten by the next one.
+        long blockCount = BlockBlobFileUploader.blockCount(fileSize, blockSize);
+        long end = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        BitSet acknowledged = new BitSet();
+        ByteBuffer records = ByteBuffer.allocate((int) (end - HEADER_SIZE));
+        readFully(channel, records, HEADER_SIZE);
+        records.flip();
+        while (records.hasRemaining()) {
+            int blockIndex = records.getInt();
+            if (blockIndex >= 0 && blockIndex < blockCount) {
+                acknowledged.set(blockIndex);
+            }
+        }
+        return new BlockBlobUploadJournal(path, channel, uploadID, fileSize, blockSize, acknowledged, end);
+    }
+
+    private static BlockBlobUploadJournal create(Path path, FileChannel channel, long fileSize, long blockSize)
+            throws IOException {
+        long uploadID = UUID.randomUUID().getMostSignificantBits();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(uploadID).putLong(fileSize).putLong(blockSize);
+        header.flip();
+        writeFully(channel, header, 0);
+        channel.force(true);
+        return new BlockBlobUploadJournal(path, channel, uploadID, fileSize, blockSize, new BitSet(), HEADER_SIZE);
+    }
+
+    long uploadID() {
+        return this.uploadID;
+    }
+
+    long fileSize() {
+        return this.fileSize;
+    }
+
+    long blockSize() {
+        return this.blockSize;
+    }
+
+    synchronized boolean isAcknowledged(int blockIndex) {
+        return this.acknowledged.get(blockIndex);
+    }
+
+    /**
+     * Records that the service has acknowledged a block. The work is done on {@link Schedulers#io()}, since it blocks
+     * until the record is on the device, and the threads which complete PutBlocks must not wait on the disk.
+     *
+     * @return
+     *      A {@link Completable} which completes once the record would survive the machine going down.
+     */
+    Completable recordAcknowledgedAsync(final int blockIndex) {
+        return Completable.fromAction(new Action() {
+            @Override
+            public void run() throws IOException {
+                recordAcknowledged(blockIndex);
+            }
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Records that the service has acknowledged a block. The record is flushed to the device before this returns, so
+     * that it survives the machine going down. If a force which started after the record was written has already
+     * covered it, no further force is made.
+     */
+    void recordAcknowledged(int blockIndex) throws IOException {
+        long recordEnd;
+        synchronized (this) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            record.putInt(blockIndex).flip();
+            writeFully(this.channel, record, this.end);
+            this.end += RECORD_SIZE;
+            recordEnd = this.end;
+        }
+
+        synchronized (this.forceLock) {
+            if (this.forcedEnd < recordEnd) {
+                long forcing;
+                synchronized (this) {
+                    forcing = this.end;
+                }
+                this.channel.force(false);
+                this.forcedEnd = forcing;
+            }
+        }
+
+        synchronized (this) {
+            this.acknowledged.set(blockIndex);
+        }
+    }
+
+    /**
+     * Closes and deletes the journal once the upload has been committed.
+     */
+    synchronized void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("The upload journal ended unexpectedly.");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsPutHeaders;
+import com.microsoft.azure.storage.models.BlockBlobsPutBlockListHeaders;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+
+/**
+ * Transfers many files to or from block blobs as a single job. Block-level work from every file is scheduled onto one
+ * shared limit of requests in flight, so that connections stay busy whatever the mix of file sizes: while a large
+ * file waits for its blocks to be admitted, small files fill the gaps. Files up to a threshold are uploaded with a
+ * single PutBlob and larger ones in blocks; a download takes a single GET for a blob no larger than a block and ranged
+ * GETs for the rest.
+ * <p>
+ * The limit is shared by every job run through the same {@link BulkTransfer}, so concurrent jobs divide the
+ * connections between them rather than each taking a full share. A job reports an event as each item finishes. An
+ * item which fails does not stop the job; its error is reported in its event.
+ */
+public final class BulkTransfer {
+
+    private final BulkTransferOptions options;
+
+    /**
+     * Admits every request which carries data, one unit per request.
+     */
+    private final TransferMemoryBudget requestGate;
+
+    /**
+     * Creates a {@link BulkTransfer}.
+     *
+     * @param options
+     *      A {@link BulkTransferOptions} object that specifies how many requests and items to work on at once, which
+     *      files are uploaded with a single request and the block size.
+     */
+    public BulkTransfer(BulkTransferOptions options) {
+        this.options = options == null ? BulkTransferOptions.getDefault() : options;
+        this.requestGate = new TransferMemoryBudget(this.options.getMaxConcurrentRequests());
+    }
+
+    /**
+     * The size and outcome of an item, before the job's running totals are added.
+     */
+    private static final class Outcome {
+
+        final BulkTransferItem item;
+
+        final long bytes;
+
+        final Throwable error;
+
+        Outcome(BulkTransferItem item, long bytes, Throwable error) {
+            this.item = item;
+            this.bytes = bytes;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Uploads each file to its blob, replacing any existing content.
+     *
+     * @param items
+     *      The {@link BulkTransferItem}s to upload. They are read lazily as the job makes progress, so a large tree
+     *      can be walked as it is uploaded.
+     * @return
+     *      A {@link Flowable} which emits a {@link BulkTransferEvent} as each item finishes and completes once every
+     *      item has finished.
+     */
+    public Flowable<BulkTransferEvent> uploadAsync(Iterable<BulkTransferItem> items) {
+        Utility.assertNotNull("items", items);
+        return this.runAsync(items, new Function<BulkTransferItem, Single<Long>>() {
+            @Override
+            public Single<Long> apply(BulkTransferItem item) {
+                return uploadItemAsync(item);
+            }
+        });
+    }
+
+    /**
+     * Downloads each blob to its file, creating any missing parent directories and replacing any existing file.
+     *
+     * @param items
+     *      The {@link BulkTransferItem}s to download. They are read lazily as the job makes progress.
+     * @return
+     *      A {@link Flowable} which emits a {@link BulkTransferEvent} as each item finishes and completes once every
+     *      item has finished.
+     */
+    public Flowable<BulkTransferEvent> downloadAsync(Iterable<BulkTransferItem> items) {
+        Utility.assertNotNull("items", items);
+        return this.runAsync(items, new Function<BulkTransferItem, Single<Long>>() {
+            @Override
+            public Single<Long> apply(BulkTransferItem item) {
+                return downloadItemAsync(item);
+            }
+        });
+    }
+
+    private Flowable<BulkTransferEvent> runAsync(final Iterable<BulkTransferItem> items,
+                                                 final Function<BulkTransferItem, Single<Long>> transfer) {
+        return Flowable.defer(new Callable<Publisher<BulkTransferEvent>>() {
+            @Override
+            public Publisher<BulkTransferEvent> call() {
+                // The running totals belong to this subscription; events are emitted one at a time.
+                final long[] totals = new long[3];
+                return Flowable.fromIterable(items)
+                        .flatMap(new Function<BulkTransferItem, Publisher<Outcome>>() {
+                            @Override
+                            public Publisher<Outcome> apply(final BulkTransferItem item) {
+                                return Single.defer(new Callable<Single<Long>>() {
+                                            @Override
+                                            public Single<Long> call() throws Exception {
+                                                return transfer.apply(item);
+                                            }
+                                        })
+                                        .map(new Function<Long, Outcome>() {
+                                            @Override
+                                            public Outcome apply(Long bytes) {
+                                                return new Outcome(item, bytes, null);
+                                            }
+                                        })
+                                        .onErrorReturn(new Function<Throwable, Outcome>() {
+                                            @Override
+                                            public Outcome apply(Throwable t) {
+                                                return new Outcome(item, 0, t);
+                                            }
+                                        })
+                                        .toFlowable();
+                            }
+                        }, options.getMaxConcurrentItems())
+                        .map(new Function<Outcome, BulkTransferEvent>() {
+                            @Override
+                            public BulkTransferEvent apply(Outcome outcome) {
+                                if (outcome.error == null) {
+                                    totals[0]++;
+                                    totals[2] += outcome.bytes;
+                                }
+                                else {
+                                    totals[1]++;
+                                }
+                                return new BulkTransferEvent(outcome.item, outcome.bytes, outcome.error, totals[0],
+                                        totals[1], totals[2]);
+                            }
+                        });
+            }
+        });
+    }
+
+    private Single<Long> uploadItemAsync(final BulkTransferItem item) {
+        return Single.using(
+                new Callable<AsynchronousFileChannel>() {
+                    @Override
+                    public AsynchronousFileChannel call() throws IOException {
+                        return AsynchronousFileChannel.open(item.getLocalPath(), StandardOpenOption.READ);
+                    }
+                },
+                new Function<AsynchronousFileChannel, Single<Long>>() {
+                    @Override
+                    public Single<Long> apply(AsynchronousFileChannel file) throws IOException {
+                        final long fileSize = file.size();
+                        if (fileSize <= options.getSingleShotThreshold()) {
+                            return putBlobAsync(item.getBlobURL(), file, (int) fileSize);
+                        }
+                        UploadToBlockBlobOptions uploadOptions = new UploadToBlockBlobOptions(options.getBlockSize(),
+                                options.getMaxConcurrentRequests(), null, null, null, null, null, null, null);
+                        return new BlockBlobFileUploader(item.getBlobURL(), file, uploadOptions, requestGate)
+                                .uploadAsync()
+                                .map(new Function<RestResponse<BlockBlobsPutBlockListHeaders, Void>, Long>() {
+                                    @Override
+                                    public Long apply(RestResponse<BlockBlobsPutBlockListHeaders, Void> response) {
+                                        return fileSize;
+                                    }
+                                });
+                    }
+                },
+                new Consumer<AsynchronousFileChannel>() {
+                    @Override
+                    public void accept(AsynchronousFileChannel file) throws IOException {
+                        file.close();
+                    }
+                });
+    }
+
+    /**
+     * Uploads a small file with a single PutBlob, through a pooled buffer whose memory is reserved from the
+     * process-wide {@link TransferMemoryBudget} once the request has been admitted.
+     */
+    private Single<Long> putBlobAsync(final BlockBlobURL blobURL, final AsynchronousFileChannel file,
+                                      final int fileSize) {
+        final TransferBufferPool pool = TransferBufferPool.getDefault();
+        return this.requestGate.reserveAsync(1, new Callable<Single<Long>>() {
+            @Override
+            public Single<Long> call() {
+                return TransferMemoryBudget.getDefault().reserveAsync(fileSize, new Callable<Single<Long>>() {
+                    @Override
+                    public Single<Long> call() {
+                        return Single.using(
+                                new Callable<ByteBuffer>() {
+                                    @Override
+                                    public ByteBuffer call() {
+                                        return pool.acquire(fileSize);
+                                    }
+                                },
+                                new Function<ByteBuffer, Single<Long>>() {
+                                    @Override
+                                    public Single<Long> apply(ByteBuffer buffer) {
+                                        return readAndPutBlobAsync(blobURL, file, buffer);
+                                    }
+                                },
+                                new Consumer<ByteBuffer>() {
+                                    @Override
+                                    public void accept(ByteBuffer buffer) {
+                                        pool.release(buffer);
+                                    }
+                                });
+                    }
+                });
+            }
+        });
+    }
+
+    private static Single<Long> readAndPutBlobAsync(final BlockBlobURL blobURL, AsynchronousFileChannel file,
+                                                    final ByteBuffer buffer) {
+        return Utility.readAsync(file, buffer, 0)
+                .flatMap(new Function<ByteBuffer, Single<RestResponse<BlobsPutHeaders, Void>>>() {
+                    @Override
+                    public Single<RestResponse<BlobsPutHeaders, Void>> apply(ByteBuffer data) throws IOException {
+                        if (data.remaining() != data.capacity()) {
+                            throw new IOException("The file changed size while it was being uploaded.");
+                        }
+                        return blobURL.putBlobAsync(AsyncInputStream.create(data.array()), null, null, null);
+                    }
+                })
+                .map(new Function<RestResponse<BlobsPutHeaders, Void>, Long>() {
+                    @Override
+                    public Long apply(RestResponse<BlobsPutHeaders, Void> response) {
+                        return (long) buffer.capacity();
+                    }
+                });
+    }
+
+    private Single<Long> downloadItemAsync(final BulkTransferItem item) {
+        return Single.using(
+                new Callable<AsynchronousFileChannel>() {
+                    @Override
+                    public AsynchronousFileChannel call() throws IOException {
+                        Path parent = item.getLocalPath().toAbsolutePath().getParent();
+                        if (parent != null) {
+                            Files.createDirectories(parent);
+                        }
+                        return AsynchronousFileChannel.open(item.getLocalPath(), StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    }
+                },
+                new Function<AsynchronousFileChannel, Single<Long>>() {
+                    @Override
+                    public Single<Long> apply(AsynchronousFileChannel file) {
+                        DownloadFromBlobOptions downloadOptions = new DownloadFromBlobOptions(
+                                options.getBlockSize() == null ? null : (long) options.getBlockSize(),
+                                options.getMaxConcurrentRequests(), null, null, null, null);
+                        return new BlobFileDownloader(item.getBlobURL(), file, downloadOptions)
+                                .downloadThroughGateAsync(requestGate);
+                    }
+                },
+                new Consumer<AsynchronousFileChannel>() {
+                    @Override
+                    public void accept(AsynchronousFileChannel file) throws IOException {
+                        file.close();
+                    }
+                });
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Reports that one item of a {@link BulkTransfer} has finished, successfully or not, together with the progress of
+ * the whole job up to that point.
+ */
+public final class BulkTransferEvent {
+
+    private final BulkTransferItem item;
+
+    private final long bytes;
+
+    private final Throwable error;
+
+    private final long succeededItems;
+
+    private final long failedItems;
+
+    private final long bytesTransferred;
+
+    BulkTransferEvent(BulkTransferItem item, long bytes, Throwable error, long succeededItems, long failedItems,
+                      long bytesTransferred) {
+        this.item = item;
+        this.bytes = bytes;
+        this.error = error;
+        this.succeededItems = succeededItems;
+        this.failedItems = failedItems;
+        this.bytesTransferred = bytesTransferred;
+    }
+
+    /**
+     * @return
+     *      The {@link BulkTransferItem} which finished.
+     */
+    public BulkTransferItem getItem() {
+        return item;
+    }
+
+    /**
+     * @return
+     *      The size of the item in bytes, or 0 if it failed.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return
+     *      The error the item failed with, or {@code null} if it succeeded.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return
+     *      Whether the item was transferred.
+     */
+    public boolean isSucceeded() {
+        return error == null;
+    }
+
+    /**
+     * @return
+     *      The number of items of the job transferred so far, including this one.
+     */
+    public long getSucceededItems() {
+        return succeededItems;
+    }
+
+    /**
+     * @return
+     *      The number of items of the job which have failed so far, including this one.
+     */
+    public long getFailedItems() {
+        return failedItems;
+    }
+
+    /**
+     * @return
+     *      The total size, in bytes, of the items of the job transferred so far.
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.nio.file.Path;
+
+/**
+ * A local file and the block blob it is transferred to or from by a {@link BulkTransfer}.
+ */
+public final class BulkTransferItem {
+
+    private final Path localPath;
+
+    private final BlockBlobURL blobURL;
+
+    /**
+     * Creates a {@link BulkTransferItem}.
+     *
+     * @param localPath
+     *      The {@code java.nio.file.Path} of the local file.
+     * @param blobURL
+     *      The {@link BlockBlobURL} of the blob, for example from {@link ContainerURL#createBlockBlobURL}.
+     */
+    public BulkTransferItem(Path localPath, BlockBlobURL blobURL) {
+        Utility.assertNotNull("localPath", localPath);
+        Utility.assertNotNull("blobURL", blobURL);
+        this.localPath = localPath;
+        this.blobURL = blobURL;
+    }
+
+    /**
+     * @return
+     *      The {@code java.nio.file.Path} of the local file.
+     */
+    public Path getLocalPath() {
+        return localPath;
+    }
+
+    /**
+     * @return
+     *      The {@link BlockBlobURL} of the blob.
+     */
+    public BlockBlobURL getBlobURL() {
+        return blobURL;
+    }
+}
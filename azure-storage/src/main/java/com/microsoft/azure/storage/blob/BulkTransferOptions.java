@@ -0,0 +1,125 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when creating a {@link BulkTransfer}.
+ */
+public final class BulkTransferOptions {
+
+    private static BulkTransferOptions defaultBulkTransferOptions;
+
+    /**
+     * The default number of requests that are in flight at the same time across all items.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 32;
+
+    /**
+     * The default number of items whose files are open at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_ITEMS = 128;
+
+    /**
+     * The default size up to which a file is uploaded with a single PutBlob.
+     */
+    public static final long DEFAULT_SINGLE_SHOT_THRESHOLD = 4 * Constants.MB;
+
+    private final int maxConcurrentRequests;
+
+    private final int maxConcurrentItems;
+
+    private final long singleShotThreshold;
+
+    private final Integer blockSize;
+
+    /**
+     * A {@link BulkTransferOptions} object.
+     *
+     * @param maxConcurrentRequests
+     *      An {@code Integer} specifying the most requests carrying data to have in flight at once, across every item
+     *      of every job of the {@link BulkTransfer}. If {@code null}, {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} is
+     *      used.
+     * @param maxConcurrentItems
+     *      An {@code Integer} specifying the most items to work on at once. It should be well above the number of
+     *      concurrent requests, so that small files keep every connection busy. If {@code null},
+     *      {@link #DEFAULT_MAX_CONCURRENT_ITEMS} is used.
+     * @param singleShotThreshold
+     *      A {@code Long} specifying the size up to which a file is uploaded with a single PutBlob rather than in
+     *      blocks. It must be at most 100MB. If {@code null}, {@link #DEFAULT_SINGLE_SHOT_THRESHOLD} is used.
+     * @param blockSize
+     *      An {@code Integer} specifying the size of each block uploaded and each range downloaded. It must be between
+     *      1 byte and 100MB. If {@code null}, uploads choose a block size of at least 4MB which keeps the blob under
+     *      the service's block count limit, and downloads use {@link DownloadFromBlobOptions#DEFAULT_CHUNK_SIZE}.
+     */
+    public BulkTransferOptions(Integer maxConcurrentRequests, Integer maxConcurrentItems, Long singleShotThreshold,
+                               Integer blockSize) {
+        if (maxConcurrentRequests != null) {
+            Utility.assertInBounds("maxConcurrentRequests", maxConcurrentRequests, 1, Integer.MAX_VALUE);
+        }
+        if (maxConcurrentItems != null) {
+            Utility.assertInBounds("maxConcurrentItems", maxConcurrentItems, 1, Integer.MAX_VALUE);
+        }
+        if (singleShotThreshold != null) {
+            Utility.assertInBounds("singleShotThreshold", singleShotThreshold, 0, Constants.MAX_BLOCK_SIZE);
+        }
+        if (blockSize != null) {
+            Utility.assertInBounds("blockSize", blockSize, 1, Constants.MAX_BLOCK_SIZE);
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests == null
+                ? DEFAULT_MAX_CONCURRENT_REQUESTS : maxConcurrentRequests;
+        this.maxConcurrentItems = maxConcurrentItems == null ? DEFAULT_MAX_CONCURRENT_ITEMS : maxConcurrentItems;
+        this.singleShotThreshold = singleShotThreshold == null ? DEFAULT_SINGLE_SHOT_THRESHOLD : singleShotThreshold;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return
+     *      The most requests carrying data to have in flight at once.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return
+     *      The most items to work on at once.
+     */
+    public int getMaxConcurrentItems() {
+        return maxConcurrentItems;
+    }
+
+    /**
+     * @return
+     *      The size up to which a file is uploaded with a single PutBlob.
+     */
+    public long getSingleShotThreshold() {
+        return singleShotThreshold;
+    }
+
+    /**
+     * @return
+     *      The size of each block uploaded and each range downloaded, or {@code null} if it is chosen by default.
+     */
+    public Integer getBlockSize() {
+        return blockSize;
+    }
+
+    public static BulkTransferOptions getDefault() {
+        if (defaultBulkTransferOptions == null) {
+            defaultBulkTransferOptions = new BulkTransferOptions(null, null, null, null);
+        }
+        return defaultBulkTransferOptions;
+    }
+}
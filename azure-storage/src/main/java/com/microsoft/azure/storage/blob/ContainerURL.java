@@ -14,20 +14,32 @@
  */
 package com.microsoft.azure.storage.blob;
 
+import com.microsoft.azure.storage.implementation.ListBlobsSegment;
+import com.microsoft.azure.storage.implementation.StreamingContainersImpl;
 import com.microsoft.azure.storage.models.*;
 import com.microsoft.rest.v2.RestResponse;
 import com.microsoft.rest.v2.http.HttpPipeline;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.functions.BooleanSupplier;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Represents a URL to the Azure Storage container allowing you to manipulate its blobs.
  */
 public final class ContainerURL extends StorageURL {
 
+    private volatile StreamingContainersImpl streamingContainers;
+
     public ContainerURL(URL url, HttpPipeline pipeline) {
         super(url, pipeline);
     }
@@ -42,7 +54,7 @@ public final class ContainerURL extends StorageURL {
      */
     public ContainerURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new ContainerURL(new URL(this.storageClient.url()), pipeline);
+            return new ContainerURL(new URL(this.url), pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -63,8 +75,7 @@ public final class ContainerURL extends StorageURL {
      */
     public BlockBlobURL createBlockBlobURL(String blobName) {
         try {
-            return new BlockBlobURL(super.appendToURLPath(new URL(this.storageClient.url()), blobName),
-                    this.storageClient.httpPipeline());
+            return new BlockBlobURL(super.appendToURLPath(this.url, blobName), this.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -85,8 +96,7 @@ public final class ContainerURL extends StorageURL {
      */
     public PageBlobURL createPageBlobURL(String blobName) {
         try {
-            return new PageBlobURL(super.appendToURLPath(new URL(this.storageClient.url()), blobName),
-                    this.storageClient.httpPipeline());
+            return new PageBlobURL(super.appendToURLPath(this.url, blobName), this.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -107,8 +117,7 @@ public final class ContainerURL extends StorageURL {
      */
     public AppendBlobURL createAppendBlobURL(String blobName) {
         try {
-            return new AppendBlobURL(super.appendToURLPath(new URL(this.storageClient.url()), blobName),
-                    this.storageClient.httpPipeline());
+            return new AppendBlobURL(super.appendToURLPath(this.url, blobName), this.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -132,7 +141,7 @@ public final class ContainerURL extends StorageURL {
         if (metadata == null) {
             metadata = Metadata.getDefault();
         }
-        return this.storageClient.containers().createWithRestResponseAsync(
+        return this.storageClient().containers().createWithRestResponseAsync(
                 null, metadata.toString(), accessType, null);
     }
 
@@ -157,7 +166,7 @@ public final class ContainerURL extends StorageURL {
             return Single.error(new IllegalArgumentException("ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().deleteWithRestResponseAsync(null,
+        return this.storageClient().containers().deleteWithRestResponseAsync(null,
                 accessConditions.getLeaseID().toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -179,7 +188,7 @@ public final class ContainerURL extends StorageURL {
             leaseAccessConditions = LeaseAccessConditions.getDefault();
         }
 
-        return this.storageClient.containers().getPropertiesWithRestResponseAsync(null,
+        return this.storageClient().containers().getPropertiesWithRestResponseAsync(null,
                 leaseAccessConditions.toString(), null);
     }
 
@@ -210,7 +219,7 @@ public final class ContainerURL extends StorageURL {
             metadata = Metadata.getDefault();
         }
 
-        return this.storageClient.containers().setMetadataWithRestResponseAsync(null,
+        return this.storageClient().containers().setMetadataWithRestResponseAsync(null,
                 accessConditions.getLeaseID().toString(), metadata.toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),null);
     }
@@ -232,7 +241,7 @@ public final class ContainerURL extends StorageURL {
             leaseAccessConditions = LeaseAccessConditions.getDefault();
         }
 
-        return this.storageClient.containers().getAclWithRestResponseAsync(
+        return this.storageClient().containers().getAclWithRestResponseAsync(
                 null, leaseAccessConditions.toString(), null);
     }
 
@@ -257,7 +266,7 @@ public final class ContainerURL extends StorageURL {
         if(accessConditions == null) {
             accessConditions = ContainerAccessConditions.getDefault();
         }
-        return this.storageClient.containers().setAclWithRestResponseAsync(identifiers, null,
+        return this.storageClient().containers().setAclWithRestResponseAsync(identifiers, null,
                 accessConditions.getLeaseID().toString(), accessType,
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -297,7 +306,7 @@ public final class ContainerURL extends StorageURL {
                     "ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().leaseWithRestResponseAsync(LeaseActionType.ACQUIRE,
+        return this.storageClient().containers().leaseWithRestResponseAsync(LeaseActionType.ACQUIRE,
                 null,null, null, duration, proposedID,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -325,7 +334,7 @@ public final class ContainerURL extends StorageURL {
                     "ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
+        return this.storageClient().containers().leaseWithRestResponseAsync(LeaseActionType.RENEW, null,
                 leaseID, null, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -353,7 +362,7 @@ public final class ContainerURL extends StorageURL {
                     "ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().leaseWithRestResponseAsync(LeaseActionType.RELEASE,
+        return this.storageClient().containers().leaseWithRestResponseAsync(LeaseActionType.RELEASE,
                 null, leaseID, null, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -381,7 +390,7 @@ public final class ContainerURL extends StorageURL {
                     "ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().leaseWithRestResponseAsync(LeaseActionType.BREAK,
+        return this.storageClient().containers().leaseWithRestResponseAsync(LeaseActionType.BREAK,
                 null, leaseID, null, null, null,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -411,7 +420,7 @@ public final class ContainerURL extends StorageURL {
                     "ETag access conditions are not supported for this API."));
         }
 
-        return this.storageClient.containers().leaseWithRestResponseAsync(LeaseActionType.RELEASE,
+        return this.storageClient().containers().leaseWithRestResponseAsync(LeaseActionType.RELEASE,
                 null, leaseID, null, null, proposedID,
                 httpAccessConditions.getIfModifiedSince(),
                 httpAccessConditions.getIfUnmodifiedSince(),
@@ -435,8 +444,220 @@ public final class ContainerURL extends StorageURL {
      */
     public Single<RestResponse<ContainerListBlobsHeaders, ListBlobsResponse>> listBlobsAsync(
             String marker, ListBlobsOptions listBlobsOptions) {
-        return this.storageClient.containers().listBlobsWithRestResponseAsync(listBlobsOptions.getPrefix(),
+        return this.storageClient().containers().listBlobsWithRestResponseAsync(listBlobsOptions.getPrefix(),
                 listBlobsOptions.getDelimiter(), marker, listBlobsOptions.getMaxResults(),
                 listBlobsOptions.getDetails().toList(), null, null);
     }
+
+    /**
+     * The default number of pages which {@link #listBlobsFlowable} fetches ahead of the consumer.
+     */
+    public static final int DEFAULT_LIST_PREFETCH_PAGES = 2;
+
+    /**
+     * ListBlobsFlowable enumerates every blob in the container, following the marker from one segment to the next.
+     * Blobs are emitted in lexicographic order and the Flowable honors backpressure. The next segment is requested as
+     * soon as the previous one arrives, as long as fewer than {@code prefetchPages} segments are waiting to be
+     * consumed, so the round trip for a segment overlaps with the processing of the one before it.
+     * For more information, see https://docs.microsoft.com/rest/api/storageservices/list-blobs.
+     *
+     * @param listBlobsOptions
+     *      A {@link ListBlobsOptions} object which one or more datasets to include in the response.
+     * @param prefetchPages
+     *      An {@code Integer} specifying how many segments may be fetched ahead of the consumer. If {@code null},
+     *      {@link #DEFAULT_LIST_PREFETCH_PAGES} is used.
+     * @return
+     *      A {@link Flowable&lt;Blob&gt;} which emits every blob in the container.
+     */
+    public Flowable<Blob> listBlobsFlowable(ListBlobsOptions listBlobsOptions, Integer prefetchPages) {
+        if (listBlobsOptions == null) {
+            listBlobsOptions = ListBlobsOptions.getDefualt();
+        }
+        if (prefetchPages == null) {
+            prefetchPages = DEFAULT_LIST_PREFETCH_PAGES;
+        }
+        Utility.assertInBounds("prefetchPages", prefetchPages, 1, Integer.MAX_VALUE);
+
+        // Segments are read with a pull parser, so a segment's blobs are built one at a time as they are consumed.
+        final ListBlobsOptions options = listBlobsOptions;
+        return listSegments(null,
+                new Function<String, Single<ListBlobsSegment>>() {
+                    @Override
+                    public Single<ListBlobsSegment> apply(String marker) {
+                        return streamingContainers().listBlobsSegmentAsync(options.getPrefix(),
+                                options.getDelimiter(), marker, options.getMaxResults(),
+                                options.getDetails().toList(), null, null);
+                    }
+                },
+                new Function<ListBlobsSegment, String>() {
+                    @Override
+                    public String apply(ListBlobsSegment segment) {
+                        return segment.nextMarker();
+                    }
+                })
+                .concatMap(new Function<ListBlobsSegment, Publisher<Blob>>() {
+                    @Override
+                    public Publisher<Blob> apply(ListBlobsSegment segment) {
+                        return segment.blobs();
+                    }
+                }, prefetchPages);
+    }
+
+    /**
+     * ListBlobsParallelFlowable enumerates the container as several listings, each covering part of the key space,
+     * which run at the same time and are merged into a single Flowable. The key space is split by the given prefixes,
+     * or, if none are given, by the prefixes found with a "/" delimited listing under the prefix of
+     * {@code listBlobsOptions}. When that finds fewer prefixes than {@code parallelism}, they are split again one level
+     * down, at most three levels deep. Discovery only helps for names which use "/" as a separator.
+     * For more information, see https://docs.microsoft.com/rest/api/storageservices/list-blobs.
+     *
+     * @param listBlobsOptions
+     *      A {@link ListBlobsOptions} object which one or more datasets to include in the response. Its delimiter must
+     *      be {@code null}; its prefix is ignored when {@code prefixes} is given.
+     * @param prefixes
+     *      A {@code java.util.List} of prefixes, none of which may be a prefix of another, which together cover the
+     *      blobs to list. If {@code null}, the prefixes are discovered. Prefixes must be given when snapshots are
+     *      listed, since the service does not allow a delimiter with snapshots.
+     * @param parallelism
+     *      An {@code Integer} specifying how many listings may run at the same time. If {@code null}, 8 is used.
+     * @param ordered
+     *      Whether blobs are emitted in lexicographic order. Ordered output holds back the results of later
+     *      partitions until the earlier ones are done; unordered output emits blobs as soon as they arrive.
+     * @return
+     *      A {@link Flowable&lt;Blob&gt;} which emits every blob under the prefixes.
+     */
+    public Flowable<Blob> listBlobsParallelFlowable(ListBlobsOptions listBlobsOptions, List<String> prefixes,
+                                                    Integer parallelism, boolean ordered) {
+        if (listBlobsOptions == null) {
+            listBlobsOptions = ListBlobsOptions.getDefualt();
+        }
+        if (listBlobsOptions.getDelimiter() != null) {
+            throw new IllegalArgumentException("A delimiter cannot be used with a parallel listing.");
+        }
+        if (parallelism == null) {
+            parallelism = ParallelBlobLister.DEFAULT_PARALLELISM;
+        }
+        Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+
+        return new ParallelBlobLister(this, listBlobsOptions, parallelism, ordered).listAsync(prefixes);
+    }
+
+    /**
+     * ResolveBlobsAsync looks up the properties of many blobs at once. Names which share a virtual directory, or a
+     * parent of one, are answered from a listing of their longest common prefix, which stops once it passes the last
+     * of them, so that one segment answers up to 5,000 names. Names too sparse to be worth a listing are looked up
+     * one blob at a time.
+     * For more information, see https://docs.microsoft.com/rest/api/storageservices/list-blobs.
+     *
+     * @param blobNames
+     *      A {@code java.util.Collection} of the names of the blobs to look up.
+     * @param details
+     *      A {@link BlobListingDetails} object indicating what additional information to return with each blob. It
+     *      must not ask for snapshots. If {@code null}, no additional information is returned.
+     * @param parallelism
+     *      An {@code Integer} specifying how many listings and lookups may run at the same time. If {@code null}, 8
+     *      is used.
+     * @return
+     *      A {@link Single} which emits a {@code java.util.Map} from name to {@link Blob} for each blob which exists.
+     *      Names of blobs which do not exist are left out.
+     */
+    public Single<Map<String, Blob>> resolveBlobsAsync(Collection<String> blobNames, BlobListingDetails details,
+                                                      Integer parallelism) {
+        Utility.assertNotNull("blobNames", blobNames);
+        if (details == null) {
+            details = ListBlobsOptions.getDefualt().getDetails();
+        }
+        if (details.getSnapshots()) {
+            throw new IllegalArgumentException("Snapshots cannot be resolved by name.");
+        }
+        if (parallelism == null) {
+            parallelism = BlobStatusResolver.DEFAULT_PARALLELISM;
+        }
+        Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+
+        return new BlobStatusResolver(this, details, parallelism).resolveAsync(blobNames);
+    }
+
+    /**
+     * Returns a Flowable of the segments of a listing, starting at the given marker. Each subscription re-lists from
+     * that marker. A segment is only requested when the subscriber asks for it.
+     */
+    Flowable<ListBlobsResponse> listBlobsPages(String marker, final ListBlobsOptions listBlobsOptions) {
+        return listSegments(marker,
+                new Function<String, Single<ListBlobsResponse>>() {
+                    @Override
+                    public Single<ListBlobsResponse> apply(String marker) {
+                        return listBlobsAsync(marker, listBlobsOptions).map(
+                                new Function<RestResponse<ContainerListBlobsHeaders, ListBlobsResponse>,
+                                        ListBlobsResponse>() {
+                                    @Override
+                                    public ListBlobsResponse apply(
+                                            RestResponse<ContainerListBlobsHeaders, ListBlobsResponse> response) {
+                                        return response.body();
+                                    }
+                                });
+                    }
+                },
+                new Function<ListBlobsResponse, String>() {
+                    @Override
+                    public String apply(ListBlobsResponse response) {
+                        return response.nextMarker();
+                    }
+                });
+    }
+
+    /**
+     * Gets the hand-written container operations which decode listings incrementally, creating them on first use
+     * like the generated operations behind {@link #storageClient()}.
+     */
+    private StreamingContainersImpl streamingContainers() {
+        StreamingContainersImpl streamingContainers = this.streamingContainers;
+        if (streamingContainers == null) {
+            streamingContainers = this.pipelineClients().newStreamingContainers(this.storageClient());
+            this.streamingContainers = streamingContainers;
+        }
+        return streamingContainers;
+    }
+
+    /**
+     * Follows the markers of a listing from one segment to the next.
+     *
+     * @param marker
+     *      The marker of the first segment, or {@code null} to start from the beginning.
+     * @param listSegment
+     *      Requests the segment at a marker.
+     * @param nextMarker
+     *      Returns the marker following a segment, or {@code null} or an empty string after the last one.
+     * @return
+     *      A {@link Flowable} which emits each segment as it is requested.
+     */
+    private static <T> Flowable<T> listSegments(final String marker, final Function<String, Single<T>> listSegment,
+                                                final Function<T, String> nextMarker) {
+        return Flowable.defer(new Callable<Publisher<T>>() {
+            @Override
+            public Publisher<T> call() {
+                // The marker is per subscription. repeatUntil resubscribes in a loop rather than by recursion, so
+                // listings of any length run in constant stack depth.
+                final String[] currentMarker = { marker };
+                return Flowable.defer(new Callable<Publisher<T>>() {
+                            @Override
+                            public Publisher<T> call() throws Exception {
+                                return listSegment.apply(currentMarker[0]).toFlowable();
+                            }
+                        })
+                        .doOnNext(new Consumer<T>() {
+                            @Override
+                            public void accept(T segment) throws Exception {
+                                currentMarker[0] = nextMarker.apply(segment);
+                            }
+                        })
+                        .repeatUntil(new BooleanSupplier() {
+                            @Override
+                            public boolean getAsBoolean() {
+                                return Utility.isNullOrEmpty(currentMarker[0]);
+                            }
+                        });
+            }
+        });
+    }
 }
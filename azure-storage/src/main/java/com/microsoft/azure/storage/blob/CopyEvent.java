@@ -0,0 +1,124 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.CopyStatusType;
+
+/**
+ * Reports that one copy of a {@link CopyOrchestrator} has finished, whether it succeeded, failed, was aborted or
+ * could not be tracked.
+ */
+public final class CopyEvent {
+
+    private final CopyItem item;
+
+    private final String copyId;
+
+    private final CopyStatusType status;
+
+    private final String statusDescription;
+
+    private final long bytesCopied;
+
+    private final int polls;
+
+    private final boolean stalled;
+
+    private final Throwable error;
+
+    CopyEvent(CopyItem item, String copyId, CopyStatusType status, String statusDescription, long bytesCopied,
+              int polls, boolean stalled, Throwable error) {
+        this.item = item;
+        this.copyId = copyId;
+        this.status = status;
+        this.statusDescription = statusDescription;
+        this.bytesCopied = bytesCopied;
+        this.polls = polls;
+        this.stalled = stalled;
+        this.error = error;
+    }
+
+    /**
+     * @return
+     *      The {@link CopyItem} which finished.
+     */
+    public CopyItem getItem() {
+        return item;
+    }
+
+    /**
+     * @return
+     *      The identifier the service gave the copy, or {@code null} if it could not be started.
+     */
+    public String getCopyId() {
+        return copyId;
+    }
+
+    /**
+     * @return
+     *      The last {@link CopyStatusType} seen for the copy, or {@code null} if it could not be started.
+     */
+    public CopyStatusType getStatus() {
+        return status;
+    }
+
+    /**
+     * @return
+     *      The description the service gave of a failed copy, or {@code null}.
+     */
+    public String getStatusDescription() {
+        return statusDescription;
+    }
+
+    /**
+     * @return
+     *      The number of bytes copied when the copy was last seen.
+     */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * @return
+     *      The number of times the copy's status was requested after it was started.
+     */
+    public int getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return
+     *      Whether the copy was aborted because it made no progress for longer than the stall timeout.
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * @return
+     *      The error which stopped the copy from being started or tracked, or {@code null}.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return
+     *      Whether the copy completed successfully.
+     */
+    public boolean isSucceeded() {
+        return error == null && status == CopyStatusType.SUCCESS;
+    }
+}
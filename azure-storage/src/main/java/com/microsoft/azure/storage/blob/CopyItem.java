@@ -0,0 +1,72 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.net.URL;
+
+/**
+ * A source and the blob it is copied to by a {@link CopyOrchestrator}.
+ */
+public final class CopyItem {
+
+    private final URL sourceURL;
+
+    private final BlobURL destinationURL;
+
+    private final Metadata metadata;
+
+    /**
+     * Creates a {@link CopyItem}.
+     *
+     * @param sourceURL
+     *      The {@code java.net.URL} to copy from. URLs outside of Azure may only be copied to block blobs.
+     * @param destinationURL
+     *      The {@link BlobURL} of the blob to copy to.
+     * @param metadata
+     *      A {@link Metadata} object that specifies key value pairs to set on the destination, or {@code null} to
+     *      copy the metadata of the source.
+     */
+    public CopyItem(URL sourceURL, BlobURL destinationURL, Metadata metadata) {
+        Utility.assertNotNull("sourceURL", sourceURL);
+        Utility.assertNotNull("destinationURL", destinationURL);
+        this.sourceURL = sourceURL;
+        this.destinationURL = destinationURL;
+        this.metadata = metadata;
+    }
+
+    /**
+     * @return
+     *      The {@code java.net.URL} to copy from.
+     */
+    public URL getSourceURL() {
+        return sourceURL;
+    }
+
+    /**
+     * @return
+     *      The {@link BlobURL} of the blob to copy to.
+     */
+    public BlobURL getDestinationURL() {
+        return destinationURL;
+    }
+
+    /**
+     * @return
+     *      The {@link Metadata} to set on the destination, or {@code null} if that of the source is copied.
+     */
+    public Metadata getMetadata() {
+        return metadata;
+    }
+}
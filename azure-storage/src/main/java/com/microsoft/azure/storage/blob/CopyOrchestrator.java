@@ -0,0 +1,241 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsAbortCopyHeaders;
+import com.microsoft.azure.storage.models.BlobsCopyHeaders;
+import com.microsoft.azure.storage.models.BlobsGetPropertiesHeaders;
+import com.microsoft.azure.storage.models.CopyStatusType;
+import com.microsoft.rest.v2.RestResponse;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts many server-side copies and tracks them until each one finishes. At most a fixed number of copies are
+ * pending at once; as each one finishes, the next is started.
+ * <p>
+ * Each pending copy is polled at an interval adapted to how fast it is progressing: after a poll which shows
+ * progress, the next poll is scheduled for half of the time the copy is expected to take to finish at its observed
+ * rate, and after a poll which shows none the interval is doubled. The interval always stays between the configured
+ * bounds, so a large copy is polled a handful of times rather than once a second. A copy which makes no progress for
+ * longer than the stall timeout, if one is set, is aborted.
+ * <p>
+ * A copy which fails, is aborted or cannot be tracked does not stop the others; its outcome is reported in its event.
+ */
+public final class CopyOrchestrator {
+
+    private final CopyOrchestratorOptions options;
+
+    private final AtomicInteger pendingCopies = new AtomicInteger();
+
+    /**
+     * Creates a {@link CopyOrchestrator}.
+     *
+     * @param options
+     *      A {@link CopyOrchestratorOptions} object that specifies how many copies to have pending at once, how often
+     *      to poll them and when to abort them.
+     */
+    public CopyOrchestrator(CopyOrchestratorOptions options) {
+        this.options = options == null ? CopyOrchestratorOptions.getDefault() : options;
+    }
+
+    /**
+     * @return
+     *      The number of copies, across every job of this {@link CopyOrchestrator}, which have been started and are
+     *      still being tracked.
+     */
+    public int getPendingCopies() {
+        return this.pendingCopies.get();
+    }
+
+    /**
+     * What is known about one pending copy, and when to poll it next.
+     */
+    private final class Tracker {
+
+        final CopyItem item;
+
+        final String copyId;
+
+        CopyStatusType status = CopyStatusType.PENDING;
+
+        long bytesCopied;
+
+        int polls;
+
+        long intervalInMs = options.getMinPollIntervalInMs();
+
+        long lastPollNanos = System.nanoTime();
+
+        long lastProgressNanos = this.lastPollNanos;
+
+        Tracker(CopyItem item, String copyId) {
+            this.item = item;
+            this.copyId = copyId;
+        }
+
+        /**
+         * Records the copy's progress at a poll and chooses the interval before the next one.
+         */
+        void update(String copyProgress, long now) {
+            long bytesCopied = this.bytesCopied;
+            long totalBytes = -1;
+            if (copyProgress != null) {
+                int slash = copyProgress.indexOf('/');
+                if (slash > 0) {
+                    bytesCopied = Long.parseLong(copyProgress.substring(0, slash).trim());
+                    totalBytes = Long.parseLong(copyProgress.substring(slash + 1).trim());
+                }
+            }
+
+            long elapsedInMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(now - this.lastPollNanos));
+            if (bytesCopied > this.bytesCopied && totalBytes >= bytesCopied) {
+                double bytesPerMs = (double) (bytesCopied - this.bytesCopied) / elapsedInMs;
+                this.intervalInMs = (long) ((totalBytes - bytesCopied) / bytesPerMs / 2);
+                this.lastProgressNanos = now;
+            }
+            else {
+                this.intervalInMs = this.intervalInMs > options.getMaxPollIntervalInMs() / 2
+                        ? options.getMaxPollIntervalInMs() : this.intervalInMs * 2;
+            }
+            this.intervalInMs = Math.min(options.getMaxPollIntervalInMs(),
+                    Math.max(options.getMinPollIntervalInMs(), this.intervalInMs));
+            this.bytesCopied = bytesCopied;
+            this.lastPollNanos = now;
+            this.polls++;
+        }
+
+        boolean isStalled(long now) {
+            Long stallTimeoutInMs = options.getStallTimeoutInMs();
+            return stallTimeoutInMs != null
+                    && TimeUnit.NANOSECONDS.toMillis(now - this.lastProgressNanos) >= stallTimeoutInMs;
+        }
+
+        CopyEvent event(String statusDescription, boolean stalled, Throwable error) {
+            return new CopyEvent(this.item, this.copyId, this.status, statusDescription, this.bytesCopied, this.polls,
+                    stalled, error);
+        }
+    }
+
+    /**
+     * Starts a copy for each item and tracks it until it finishes.
+     *
+     * @param items
+     *      The {@link CopyItem}s to copy. They are read lazily as copies finish, so a large listing can be copied as
+     *      it is enumerated.
+     * @return
+     *      A {@link Flowable} which emits a {@link CopyEvent} as each copy finishes and completes once every copy has
+     *      finished.
+     */
+    public Flowable<CopyEvent> copyAsync(Iterable<CopyItem> items) {
+        Utility.assertNotNull("items", items);
+        return Flowable.fromIterable(items)
+                .flatMap(new Function<CopyItem, Publisher<CopyEvent>>() {
+                    @Override
+                    public Publisher<CopyEvent> apply(CopyItem item) {
+                        return copyOneAsync(item).toFlowable();
+                    }
+                }, this.options.getMaxConcurrentCopies());
+    }
+
+    private Single<CopyEvent> copyOneAsync(final CopyItem item) {
+        return item.getDestinationURL().startCopyAsync(item.getSourceURL(), item.getMetadata(), null, null)
+                .flatMap(new Function<RestResponse<BlobsCopyHeaders, Void>, Single<CopyEvent>>() {
+                    @Override
+                    public Single<CopyEvent> apply(RestResponse<BlobsCopyHeaders, Void> response) {
+                        final Tracker tracker = new Tracker(item, response.headers().copyId());
+                        // A copy within an account often completes before the response is sent.
+                        if (response.headers().copyStatus() != CopyStatusType.PENDING) {
+                            tracker.status = response.headers().copyStatus();
+                            return Single.just(tracker.event(null, false, null));
+                        }
+
+                        pendingCopies.incrementAndGet();
+                        return pollAsync(tracker)
+                                .onErrorReturn(new Function<Throwable, CopyEvent>() {
+                                    @Override
+                                    public CopyEvent apply(Throwable t) {
+                                        return tracker.event(null, false, t);
+                                    }
+                                })
+                                .doFinally(new Action() {
+                                    @Override
+                                    public void run() {
+                                        pendingCopies.decrementAndGet();
+                                    }
+                                });
+                    }
+                })
+                .onErrorReturn(new Function<Throwable, CopyEvent>() {
+                    @Override
+                    public CopyEvent apply(Throwable t) {
+                        return new CopyEvent(item, null, null, null, 0, 0, false, t);
+                    }
+                });
+    }
+
+    private Single<CopyEvent> pollAsync(final Tracker tracker) {
+        final BlobURL destinationURL = tracker.item.getDestinationURL();
+        return Completable.timer(tracker.intervalInMs, TimeUnit.MILLISECONDS)
+                .andThen(Single.defer(new Callable<Single<RestResponse<BlobsGetPropertiesHeaders, Void>>>() {
+                    @Override
+                    public Single<RestResponse<BlobsGetPropertiesHeaders, Void>> call() {
+                        return destinationURL.getPropertiesAndMetadataAsync(null);
+                    }
+                }))
+                .flatMap(new Function<RestResponse<BlobsGetPropertiesHeaders, Void>, Single<CopyEvent>>() {
+                    @Override
+                    public Single<CopyEvent> apply(RestResponse<BlobsGetPropertiesHeaders, Void> response) {
+                        BlobsGetPropertiesHeaders headers = response.headers();
+                        if (!tracker.copyId.equals(headers.copyId())) {
+                            return Single.error(new IllegalStateException(String.format(Utility.LOCALE_US,
+                                    "Copy %s was replaced by copy %s to the same blob.", tracker.copyId,
+                                    headers.copyId())));
+                        }
+
+                        long now = System.nanoTime();
+                        tracker.update(headers.copyProgress(), now);
+                        tracker.status = headers.copyStatus();
+                        if (tracker.status != CopyStatusType.PENDING) {
+                            return Single.just(tracker.event(headers.copyStatusDescription(), false, null));
+                        }
+                        if (tracker.isStalled(now)) {
+                            return abortAsync(tracker);
+                        }
+                        return pollAsync(tracker);
+                    }
+                });
+    }
+
+    private Single<CopyEvent> abortAsync(final Tracker tracker) {
+        return tracker.item.getDestinationURL().abortCopyAsync(tracker.copyId, null)
+                .map(new Function<RestResponse<BlobsAbortCopyHeaders, Void>, CopyEvent>() {
+                    @Override
+                    public CopyEvent apply(RestResponse<BlobsAbortCopyHeaders, Void> response) {
+                        tracker.status = CopyStatusType.ABORTED;
+                        return tracker.event(String.format(Utility.LOCALE_US,
+                                "No bytes were copied for %d ms.", options.getStallTimeoutInMs()), true, null);
+                    }
+                });
+    }
+}
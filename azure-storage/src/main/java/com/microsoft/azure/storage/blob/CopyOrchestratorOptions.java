@@ -0,0 +1,124 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when creating a {@link CopyOrchestrator}.
+ */
+public final class CopyOrchestratorOptions {
+
+    private static CopyOrchestratorOptions defaultCopyOrchestratorOptions;
+
+    /**
+     * The default number of copies that are pending at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_COPIES = 256;
+
+    /**
+     * The default shortest time, in milliseconds, between two polls of the same copy.
+     */
+    public static final long DEFAULT_MIN_POLL_INTERVAL_IN_MS = 1000;
+
+    /**
+     * The default longest time, in milliseconds, between two polls of the same copy.
+     */
+    public static final long DEFAULT_MAX_POLL_INTERVAL_IN_MS = 60 * 1000;
+
+    private final int maxConcurrentCopies;
+
+    private final long minPollIntervalInMs;
+
+    private final long maxPollIntervalInMs;
+
+    private final Long stallTimeoutInMs;
+
+    /**
+     * A {@link CopyOrchestratorOptions} object.
+     *
+     * @param maxConcurrentCopies
+     *      An {@code Integer} specifying the most copies to have started and not yet finished at once. If
+     *      {@code null}, {@link #DEFAULT_MAX_CONCURRENT_COPIES} is used.
+     * @param minPollIntervalInMs
+     *      A {@code Long} specifying the shortest time, in milliseconds, to wait between two polls of the same copy.
+     *      If {@code null}, {@link #DEFAULT_MIN_POLL_INTERVAL_IN_MS} is used.
+     * @param maxPollIntervalInMs
+     *      A {@code Long} specifying the longest time, in milliseconds, to wait between two polls of the same copy.
+     *      It must not be less than the shortest. If {@code null}, {@link #DEFAULT_MAX_POLL_INTERVAL_IN_MS} is used.
+     * @param stallTimeoutInMs
+     *      A {@code Long} specifying how long, in milliseconds, a pending copy may go without copying any bytes before
+     *      it is aborted. If {@code null}, stalled copies are left pending and polled at the longest interval.
+     */
+    public CopyOrchestratorOptions(Integer maxConcurrentCopies, Long minPollIntervalInMs, Long maxPollIntervalInMs,
+                                   Long stallTimeoutInMs) {
+        if (maxConcurrentCopies != null) {
+            Utility.assertInBounds("maxConcurrentCopies", maxConcurrentCopies, 1, Integer.MAX_VALUE);
+        }
+        if (minPollIntervalInMs != null) {
+            Utility.assertInBounds("minPollIntervalInMs", minPollIntervalInMs, 1, Long.MAX_VALUE);
+        }
+        this.minPollIntervalInMs = minPollIntervalInMs == null ? DEFAULT_MIN_POLL_INTERVAL_IN_MS : minPollIntervalInMs;
+        if (maxPollIntervalInMs != null) {
+            Utility.assertInBounds("maxPollIntervalInMs", maxPollIntervalInMs, this.minPollIntervalInMs,
+                    Long.MAX_VALUE);
+        }
+        if (stallTimeoutInMs != null) {
+            Utility.assertInBounds("stallTimeoutInMs", stallTimeoutInMs, 1, Long.MAX_VALUE);
+        }
+        this.maxConcurrentCopies = maxConcurrentCopies == null ? DEFAULT_MAX_CONCURRENT_COPIES : maxConcurrentCopies;
+        this.maxPollIntervalInMs = maxPollIntervalInMs == null
+                ? Math.max(DEFAULT_MAX_POLL_INTERVAL_IN_MS, this.minPollIntervalInMs) : maxPollIntervalInMs;
+        this.stallTimeoutInMs = stallTimeoutInMs;
+    }
+
+    /**
+     * @return
+     *      The most copies to have started and not yet finished at once.
+     */
+    public int getMaxConcurrentCopies() {
+        return maxConcurrentCopies;
+    }
+
+    /**
+     * @return
+     *      The shortest time, in milliseconds, between two polls of the same copy.
+     */
+    public long getMinPollIntervalInMs() {
+        return minPollIntervalInMs;
+    }
+
+    /**
+     * @return
+     *      The longest time, in milliseconds, between two polls of the same copy.
+     */
+    public long getMaxPollIntervalInMs() {
+        return maxPollIntervalInMs;
+    }
+
+    /**
+     * @return
+     *      How long, in milliseconds, a pending copy may go without progress before it is aborted, or {@code null} if
+     *      stalled copies are never aborted.
+     */
+    public Long getStallTimeoutInMs() {
+        return stallTimeoutInMs;
+    }
+
+    public static CopyOrchestratorOptions getDefault() {
+        if (defaultCopyOrchestratorOptions == null) {
+            defaultCopyOrchestratorOptions = new CopyOrchestratorOptions(null, null, null, null);
+        }
+        return defaultCopyOrchestratorOptions;
+    }
+}
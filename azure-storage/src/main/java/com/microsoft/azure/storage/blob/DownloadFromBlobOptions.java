@@ -0,0 +1,150 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.nio.file.Path;
+
+/**
+ * Defines options available when calling {@link BlobURL#downloadToFileAsync}.
+ */
+public final class DownloadFromBlobOptions {
+
+    private static DownloadFromBlobOptions defaultDownloadFromBlobOptions;
+
+    /**
+     * The default size of each ranged GET.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 4 * Constants.MB;
+
+    /**
+     * The default number of ranged GETs that are in flight at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 5;
+
+    private final long chunkSize;
+
+    private final int parallelism;
+
+    private final BlobAccessConditions accessConditions;
+
+    private final Path checkpointPath;
+
+    private final TransferTuner tuner;
+
+    private final boolean validateRangeMD5;
+
+    /**
+     * A {@link DownloadFromBlobOptions} object.
+     *
+     * @param chunkSize
+     *      A {@code Long} specifying the number of bytes requested by each ranged GET. If {@code null},
+     *      {@link #DEFAULT_CHUNK_SIZE} is used.
+     * @param parallelism
+     *      An {@code Integer} specifying the maximum number of ranged GETs in flight at the same time. If
+     *      {@code null}, {@link #DEFAULT_PARALLELISM} is used.
+     * @param accessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the download may start. Every
+     *      request after the first is additionally bound to the ETag returned by the first request.
+     * @param checkpointPath
+     *      A {@code java.nio.file.Path} at which to keep a record of the chunks that have been written, typically next
+     *      to the destination file, so that an interrupted download can be resumed by downloading again to the same
+     *      file with the same path. Only the chunks which are missing are downloaded again, unless the blob's ETag,
+     *      its size or the chunk size has changed, in which case the download starts over. The checkpoint is deleted
+     *      once the download is complete. If {@code null}, no checkpoint is kept.
+     * @param tuner
+     *      A {@link TransferTuner} which adapts the chunk size and the number of ranged GETs in flight to the measured
+     *      throughput as the download runs, starting from the given chunk size and parallelism, and reports what it
+     *      measured. It is not used when a checkpoint is kept, since a resumed download needs the same chunks as
+     *      before. If {@code null}, the chunk size and parallelism stay fixed.
+     * @param validateRangeMD5
+     *      A {@code Boolean} specifying whether to ask the service for the MD5 hash of each range and check the bytes
+     *      written against it. A range which does not match is downloaded again on its own. The service only hashes
+     *      ranges of up to 4MB, so the chunk size must not be larger, and a tuner keeps chunks within that size. If
+     *      {@code null}, ranges are not checked.
+     */
+    public DownloadFromBlobOptions(Long chunkSize, Integer parallelism, BlobAccessConditions accessConditions,
+                                   Path checkpointPath, TransferTuner tuner, Boolean validateRangeMD5) {
+        if (chunkSize != null) {
+            Utility.assertInBounds("chunkSize", chunkSize, 1, Long.MAX_VALUE);
+        }
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+        }
+        this.chunkSize = chunkSize == null ? DEFAULT_CHUNK_SIZE : chunkSize;
+        this.parallelism = parallelism == null ? DEFAULT_PARALLELISM : parallelism;
+        this.accessConditions = accessConditions == null ? BlobAccessConditions.getDefault() : accessConditions;
+        this.checkpointPath = checkpointPath;
+        this.tuner = tuner;
+        this.validateRangeMD5 = validateRangeMD5 != null && validateRangeMD5;
+        if (this.validateRangeMD5) {
+            Utility.assertInBounds("chunkSize", this.chunkSize, 1, Constants.MAX_RANGE_CONTENT_MD5);
+        }
+    }
+
+    /**
+     * @return
+     *      The number of bytes requested by each ranged GET.
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return
+     *      The maximum number of ranged GETs in flight at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the download may start.
+     */
+    public BlobAccessConditions getAccessConditions() {
+        return accessConditions;
+    }
+
+    /**
+     * @return
+     *      The {@code java.nio.file.Path} of the download checkpoint, or {@code null} if no checkpoint is kept.
+     */
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    /**
+     * @return
+     *      The {@link TransferTuner} which adapts the download, or {@code null} if the download is not tuned.
+     */
+    public TransferTuner getTuner() {
+        return tuner;
+    }
+
+    /**
+     * @return
+     *      Whether each range is checked against the MD5 hash the service returns for it.
+     */
+    public boolean isValidateRangeMD5() {
+        return validateRangeMD5;
+    }
+
+    public static DownloadFromBlobOptions getDefault() {
+        if (defaultDownloadFromBlobOptions == null) {
+            defaultDownloadFromBlobOptions = new DownloadFromBlobOptions(null, null, null, null, null, null);
+        }
+        return defaultDownloadFromBlobOptions;
+    }
+}
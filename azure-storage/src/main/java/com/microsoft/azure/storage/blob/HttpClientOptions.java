@@ -0,0 +1,216 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.rest.v2.http.HttpClient;
+import com.microsoft.rest.v2.http.NettyClient;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options for the {@link HttpClient} created by {@link StorageURL#CreatePipeline} when
+ * {@link PipelineOptions#client} is not set. The client is created once per {@link HttpClientOptions} object and
+ * shared by every pipeline created with it, so those pipelines share one set of event loop threads and one
+ * connection pool. Reuse the same options, rather than equal ones, for pipelines which should share connections.
+ */
+public final class HttpClientOptions {
+
+    private static HttpClientOptions defaultHttpClientOptions;
+
+    private final Proxy proxy;
+
+    private int connectionPoolSize = 64;
+
+    private int eventLoopThreads = 0;
+
+    private boolean keepAlive = true;
+
+    private Integer sendBufferSize;
+
+    private Integer receiveBufferSize;
+
+    private long connectTimeoutInMs = TimeUnit.SECONDS.toMillis(10);
+
+    private Long readTimeoutInMs;
+
+    private HttpClient httpClient;
+
+    /**
+     * Configures the {@link HttpClient} used by the pipeline.
+     *
+     * @param proxy
+     *      A {@code java.net.Proxy} to send requests through. A value of {@code null} connects directly.
+     * @param connectionPoolSize
+     *      The maximum number of pooled connections, across every pipeline created with these options. This bounds
+     *      how many requests, and so how many blocks or ranges of parallel transfers, can be in flight at once. A
+     *      value of {@code null} means 64.
+     * @param eventLoopThreads
+     *      The number of threads handling network IO. A value of {@code null} lets Netty choose, which is twice the
+     *      number of processors.
+     * @param keepAlive
+     *      Whether TCP keep-alive is enabled on connections, so that idle pooled connections are kept open and dead
+     *      peers are detected. A value of {@code null} means {@code true}.
+     * @param sendBufferSize
+     *      The TCP send buffer size (SO_SNDBUF) in bytes. A value of {@code null} uses the operating system default.
+     *      Larger buffers help uploads over links with a high bandwidth-delay product.
+     * @param receiveBufferSize
+     *      The TCP receive buffer size (SO_RCVBUF) in bytes. A value of {@code null} uses the operating system
+     *      default. Larger buffers help downloads over links with a high bandwidth-delay product.
+     * @param connectTimeoutInMs
+     *      The maximum time allowed to establish a connection. A value of {@code null} means 10 seconds.
+     * @param readTimeoutInMs
+     *      The maximum time allowed between sending a request and receiving the response headers. A value of
+     *      {@code null} means no limit beyond the retry policy's per-try timeout.
+     */
+    public HttpClientOptions(Proxy proxy, Integer connectionPoolSize, Integer eventLoopThreads, Boolean keepAlive,
+                             Integer sendBufferSize, Integer receiveBufferSize, Long connectTimeoutInMs,
+                             Long readTimeoutInMs) {
+        this.proxy = proxy;
+        if (connectionPoolSize != null) {
+            Utility.assertInBounds("connectionPoolSize", connectionPoolSize, 1, Integer.MAX_VALUE);
+            this.connectionPoolSize = connectionPoolSize;
+        }
+        if (eventLoopThreads != null) {
+            Utility.assertInBounds("eventLoopThreads", eventLoopThreads, 1, Integer.MAX_VALUE);
+            this.eventLoopThreads = eventLoopThreads;
+        }
+        if (keepAlive != null) {
+            this.keepAlive = keepAlive;
+        }
+        if (sendBufferSize != null) {
+            Utility.assertInBounds("sendBufferSize", sendBufferSize, 1, Integer.MAX_VALUE);
+            this.sendBufferSize = sendBufferSize;
+        }
+        if (receiveBufferSize != null) {
+            Utility.assertInBounds("receiveBufferSize", receiveBufferSize, 1, Integer.MAX_VALUE);
+            this.receiveBufferSize = receiveBufferSize;
+        }
+        if (connectTimeoutInMs != null) {
+            Utility.assertInBounds("connectTimeoutInMs", connectTimeoutInMs, 1, Integer.MAX_VALUE);
+            this.connectTimeoutInMs = connectTimeoutInMs;
+        }
+        if (readTimeoutInMs != null) {
+            Utility.assertInBounds("readTimeoutInMs", readTimeoutInMs, 1, Long.MAX_VALUE);
+            this.readTimeoutInMs = readTimeoutInMs;
+        }
+    }
+
+    /**
+     * @return
+     *      The {@code java.net.Proxy} requests are sent through, or {@code null} for direct connections.
+     */
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+    /**
+     * @return
+     *      The maximum number of pooled connections.
+     */
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * @return
+     *      The number of threads handling network IO, or 0 if Netty chooses.
+     */
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * @return
+     *      Whether TCP keep-alive is enabled on connections.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @return
+     *      The TCP send buffer size in bytes, or {@code null} for the operating system default.
+     */
+    public Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * @return
+     *      The TCP receive buffer size in bytes, or {@code null} for the operating system default.
+     */
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * @return
+     *      The maximum time allowed to establish a connection.
+     */
+    public long getConnectTimeoutInMs() {
+        return connectTimeoutInMs;
+    }
+
+    /**
+     * @return
+     *      The maximum time allowed to receive the response headers, or {@code null} for no limit.
+     */
+    public Long getReadTimeoutInMs() {
+        return readTimeoutInMs;
+    }
+
+    /**
+     * Returns the {@link HttpClient} configured with these options, creating it on first use.
+     *
+     * @return
+     *      The {@link HttpClient} shared by every pipeline created with these options.
+     */
+    synchronized HttpClient getHttpClient() {
+        if (this.httpClient == null) {
+            this.httpClient = this.createHttpClient();
+        }
+        return this.httpClient;
+    }
+
+    private HttpClient createHttpClient() {
+        Bootstrap bootstrap = new Bootstrap()
+                .option(ChannelOption.SO_KEEPALIVE, this.keepAlive)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) this.connectTimeoutInMs);
+        if (this.sendBufferSize != null) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, this.sendBufferSize);
+        }
+        if (this.receiveBufferSize != null) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, this.receiveBufferSize);
+        }
+
+        return new NettyClient.Factory(bootstrap, this.eventLoopThreads, this.connectionPoolSize)
+                .create(new HttpClient.Configuration(this.proxy));
+    }
+
+    /**
+     * Synchronized, unlike other defaults, since every pipeline using the default options must share its client.
+     */
+    public static synchronized HttpClientOptions getDefault() {
+        if (defaultHttpClientOptions == null) {
+            defaultHttpClientOptions = new HttpClientOptions(null, null, null, null,
+                    null, null, null, null);
+        }
+        return defaultHttpClientOptions;
+    }
+}
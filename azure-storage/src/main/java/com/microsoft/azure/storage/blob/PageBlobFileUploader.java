@@ -0,0 +1,347 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsPutHeaders;
+import com.microsoft.azure.storage.models.BlobsSetPropertiesHeaders;
+import com.microsoft.azure.storage.models.PageBlobsGetPageRangesHeaders;
+import com.microsoft.azure.storage.models.PageList;
+import com.microsoft.azure.storage.models.PageRange;
+import com.microsoft.rest.v2.RestException;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * RESERVED FOR INTERNAL USE. Uploads a file to a page blob without sending the pages which are all zeros. The file is
+ * read in 4MB segments, scanned in parallel, and each run of non-zero pages is written with a single PutPages. Pages
+ * of a new blob are already zero, so zero runs cost nothing; when an existing blob is overwritten in place, only the
+ * zero runs which overlap pages holding data are cleared.
+ */
+final class PageBlobFileUploader {
+
+    static final int PAGE_SIZE = 512;
+
+    /**
+     * The size of each segment of the file, which is also the largest PutPages the service accepts.
+     */
+    static final int SEGMENT_SIZE = Constants.MAX_PAGE_WRITE_SIZE;
+
+    private static final Comparator<PageRange> PAGE_RANGE_ORDER = new Comparator<PageRange>() {
+        @Override
+        public int compare(PageRange a, PageRange b) {
+            return Long.compare(a.start(), b.start());
+        }
+    };
+
+    private final PageBlobURL pageBlobURL;
+
+    private final AsynchronousFileChannel file;
+
+    private final UploadToPageBlobOptions options;
+
+    /**
+     * Pages are written under the lease and sequence number conditions only; the ETag changes with every write.
+     */
+    private final BlobAccessConditions pageAccessConditions;
+
+    PageBlobFileUploader(PageBlobURL pageBlobURL, AsynchronousFileChannel file, UploadToPageBlobOptions options) {
+        this.pageBlobURL = pageBlobURL;
+        this.file = file;
+        this.options = options;
+        this.pageAccessConditions = new BlobAccessConditions(null,
+                options.getAccessConditions().getLeaseAccessConditions(), null,
+                options.getAccessConditions().getPageBlobAccessConditions());
+    }
+
+    /**
+     * A run of consecutive pages within a segment which are either all zero or all non-zero.
+     */
+    static final class Run {
+
+        final int offset;
+
+        final int length;
+
+        final boolean zero;
+
+        Run(int offset, int length, boolean zero) {
+            this.offset = offset;
+            this.length = length;
+            this.zero = zero;
+        }
+    }
+
+    /**
+     * Splits a segment into alternating runs of zero and non-zero pages.
+     *
+     * @param segment
+     *      A {@code ByteBuffer} holding the segment, from index 0 to its limit, which must be a multiple of the page
+     *      size.
+     * @return
+     *      The runs, in order, which together cover the segment.
+     */
+    static List<Run> scan(ByteBuffer segment) {
+        List<Run> runs = new ArrayList<Run>();
+        int runStart = 0;
+        boolean runZero = true;
+        for (int page = 0; page < segment.limit(); page += PAGE_SIZE) {
+            boolean zero = isZeroPage(segment, page);
+            if (page == 0) {
+                runZero = zero;
+            }
+            else if (zero != runZero) {
+                runs.add(new Run(runStart, page - runStart, runZero));
+                runStart = page;
+                runZero = zero;
+            }
+        }
+        if (segment.limit() > 0) {
+            runs.add(new Run(runStart, segment.limit() - runStart, runZero));
+        }
+        return runs;
+    }
+
+    private static boolean isZeroPage(ByteBuffer segment, int pageStart) {
+        for (int i = pageStart; i < pageStart + PAGE_SIZE; i += 8) {
+            if (segment.getLong(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param validRanges
+     *      The page ranges holding data, sorted and disjoint.
+     * @return
+     *      The parts of the given range which overlap the valid ranges.
+     */
+    static List<PageRange> intersect(List<PageRange> validRanges, long start, long end) {
+        // Find the first valid range which ends at or after the start; the ranges are disjoint, so their ends are
+        // sorted too.
+        int low = 0;
+        int high = validRanges.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (validRanges.get(mid).end() < start) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+
+        List<PageRange> overlaps = new ArrayList<PageRange>();
+        for (int i = low; i < validRanges.size() && validRanges.get(i).start() <= end; i++) {
+            overlaps.add(new PageRange()
+                    .withStart(Math.max(start, validRanges.get(i).start()))
+                    .withEnd(Math.min(end, validRanges.get(i).end())));
+        }
+        return overlaps;
+    }
+
+    Completable uploadAsync() {
+        final long fileSize;
+        try {
+            fileSize = this.file.size();
+        }
+        catch (IOException e) {
+            return Completable.error(e);
+        }
+        // A final partial page is padded with zeros.
+        final long blobSize = (fileSize + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+        final int segmentCount = (int) ((blobSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+
+        return this.prepareBlobAsync(blobSize)
+                .flatMapCompletable(new Function<List<PageRange>, CompletableSource>() {
+                    @Override
+                    public CompletableSource apply(final List<PageRange> validRanges) {
+                        return Flowable.range(0, segmentCount)
+                                .flatMap(new Function<Integer, Publisher<Object>>() {
+                                    @Override
+                                    public Publisher<Object> apply(Integer segmentIndex) {
+                                        long offset = (long) segmentIndex * SEGMENT_SIZE;
+                                        int length = (int) Math.min(SEGMENT_SIZE, blobSize - offset);
+                                        return uploadSegmentAsync(offset, length, fileSize, validRanges).toFlowable();
+                                    }
+                                }, options.getParallelism())
+                                .ignoreElements();
+                    }
+                });
+    }
+
+    /**
+     * Creates the blob, or resizes it when overwriting in place.
+     *
+     * @return
+     *      A {@link Single} which emits the sorted page ranges of the blob which hold data, which is none for a new
+     *      blob.
+     */
+    private Single<List<PageRange>> prepareBlobAsync(final long blobSize) {
+        if (!this.options.isOverwriteInPlace()) {
+            return this.createBlobAsync(blobSize);
+        }
+        return this.pageBlobURL.resizeAsync(blobSize, this.options.getAccessConditions())
+                .flatMap(new Function<RestResponse<BlobsSetPropertiesHeaders, Void>,
+                        Single<RestResponse<PageBlobsGetPageRangesHeaders, PageList>>>() {
+                    @Override
+                    public Single<RestResponse<PageBlobsGetPageRangesHeaders, PageList>> apply(
+                            RestResponse<BlobsSetPropertiesHeaders, Void> response) {
+                        return pageBlobURL.getPageRangesAsync(null, pageAccessConditions);
+                    }
+                })
+                .map(new Function<RestResponse<PageBlobsGetPageRangesHeaders, PageList>, List<PageRange>>() {
+                    @Override
+                    public List<PageRange> apply(RestResponse<PageBlobsGetPageRangesHeaders, PageList> response) {
+                        List<PageRange> validRanges = response.body().pageRange() == null
+                                ? new ArrayList<PageRange>()
+                                : new ArrayList<PageRange>(response.body().pageRange());
+                        Collections.sort(validRanges, PAGE_RANGE_ORDER);
+                        return validRanges;
+                    }
+                })
+                .onErrorResumeNext(new Function<Throwable, Single<List<PageRange>>>() {
+                    @Override
+                    public Single<List<PageRange>> apply(Throwable t) {
+                        if (t instanceof RestException && ((RestException) t).response().statusCode() == 404) {
+                            return createBlobAsync(blobSize);
+                        }
+                        return Single.error(t);
+                    }
+                });
+    }
+
+    private Single<List<PageRange>> createBlobAsync(long blobSize) {
+        return this.pageBlobURL.putBlobAsync(blobSize, 0L, this.options.getMetadata(), this.options.getHttpHeaders(),
+                this.options.getAccessConditions())
+                .map(new Function<RestResponse<BlobsPutHeaders, Void>, List<PageRange>>() {
+                    @Override
+                    public List<PageRange> apply(RestResponse<BlobsPutHeaders, Void> response) {
+                        return Collections.emptyList();
+                    }
+                });
+    }
+
+    private Completable uploadSegmentAsync(final long offset, final int length, final long fileSize,
+                                           final List<PageRange> validRanges) {
+        final TransferBufferPool pool = TransferBufferPool.getDefault();
+        return TransferMemoryBudget.getDefault().reserveAsync(length,
+                new Callable<Single<Boolean>>() {
+                    @Override
+                    public Single<Boolean> call() {
+                        return Single.using(
+                                new Callable<ByteBuffer>() {
+                                    @Override
+                                    public ByteBuffer call() {
+                                        return pool.acquire(length);
+                                    }
+                                },
+                                new Function<ByteBuffer, Single<Boolean>>() {
+                                    @Override
+                                    public Single<Boolean> apply(ByteBuffer buffer) {
+                                        return readSegmentAsync(buffer, offset, fileSize)
+                                                .flatMapCompletable(new Function<ByteBuffer, CompletableSource>() {
+                                                    @Override
+                                                    public CompletableSource apply(ByteBuffer segment) {
+                                                        return writeRunsAsync(segment, offset, validRanges);
+                                                    }
+                                                })
+                                                .toSingleDefault(Boolean.TRUE);
+                                    }
+                                },
+                                new Consumer<ByteBuffer>() {
+                                    @Override
+                                    public void accept(ByteBuffer buffer) {
+                                        pool.release(buffer);
+                                    }
+                                });
+                    }
+                })
+                .toCompletable();
+    }
+
+    /**
+     * Reads a segment into the buffer. Past the end of the file, the rest of the buffer is filled with zeros; only the
+     * final partial page is padded, so a read which stops anywhere else fails.
+     */
+    private Single<ByteBuffer> readSegmentAsync(final ByteBuffer buffer, final long offset, final long fileSize) {
+        return Utility.readAsync(this.file, buffer, offset)
+                .map(new Function<ByteBuffer, ByteBuffer>() {
+                    @Override
+                    public ByteBuffer apply(ByteBuffer segment) throws IOException {
+                        int read = segment.limit();
+                        // Zeros only stand in for the bytes past the end of the file; anywhere else they would
+                        // replace data the file no longer has.
+                        if (read != Math.min(segment.capacity(), fileSize - offset)) {
+                            throw new IOException("The file changed size while it was being uploaded.");
+                        }
+                        segment.limit(segment.capacity());
+                        Arrays.fill(segment.array(), read, segment.capacity(), (byte) 0);
+                        return segment;
+                    }
+                });
+    }
+
+    private Completable writeRunsAsync(final ByteBuffer segment, final long segmentOffset,
+                                       final List<PageRange> validRanges) {
+        return Flowable.fromIterable(scan(segment))
+                .concatMap(new Function<Run, Publisher<Object>>() {
+                    @Override
+                    public Publisher<Object> apply(Run run) {
+                        long start = segmentOffset + run.offset;
+                        long end = start + run.length - 1;
+                        if (!run.zero) {
+                            byte[] pages = run.length == segment.capacity()
+                                    ? segment.array()
+                                    : Arrays.copyOfRange(segment.array(), run.offset, run.offset + run.length);
+                            return pageBlobURL.putPagesAsync(new PageRange().withStart(start).withEnd(end),
+                                    AsyncInputStream.create(pages), pageAccessConditions)
+                                    .toCompletable()
+                                    .toFlowable();
+                        }
+                        return clearRangesAsync(intersect(validRanges, start, end)).toFlowable();
+                    }
+                })
+                .ignoreElements();
+    }
+
+    private Completable clearRangesAsync(List<PageRange> ranges) {
+        return Flowable.fromIterable(ranges)
+                .concatMap(new Function<PageRange, Publisher<Object>>() {
+                    @Override
+                    public Publisher<Object> apply(PageRange range) {
+                        return pageBlobURL.clearPagesAsync(range, pageAccessConditions).toCompletable().toFlowable();
+                    }
+                })
+                .ignoreElements();
+    }
+}
@@ -0,0 +1,364 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.BlobsGetHeaders;
+import com.microsoft.azure.storage.models.BlobsTakeSnapshotHeaders;
+import com.microsoft.azure.storage.models.ClearRange;
+import com.microsoft.azure.storage.models.PageBlobsGetPageRangesHeaders;
+import com.microsoft.azure.storage.models.PageList;
+import com.microsoft.azure.storage.models.PageRange;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * RESERVED FOR INTERNAL USE. Backs up a page blob by taking a snapshot and transferring only the pages which changed
+ * since a previous snapshot, either to another page blob or to a delta file. Without a previous snapshot, every page
+ * which holds data is transferred.
+ * <p>
+ * A delta file holds an index of the changes followed by the data of the changed ranges, in index order:
+ * <pre>
+ *     int magic, int version, long blobSize, short snapshotLength, snapshot bytes,
+ *     short previousSnapshotLength, previous snapshot bytes, int changeCount,
+ *     then for each change: byte kind (0 cleared, 1 changed), long start, long end (inclusive),
+ *     then the bytes of each changed range
+ * </pre>
+ */
+final class PageBlobIncrementalBackup {
+
+    static final int DELTA_MAGIC = 0x50424444;
+
+    static final int DELTA_VERSION = 1;
+
+    private static final int CHANGE_RECORD_SIZE = 17;
+
+    /**
+     * The largest range transferred at once, which is also the largest PutPages the service accepts.
+     */
+    static final int CHUNK_SIZE = Constants.MAX_PAGE_WRITE_SIZE;
+
+    private static final Comparator<Change> CHANGE_ORDER = new Comparator<Change>() {
+        @Override
+        public int compare(Change a, Change b) {
+            return Long.compare(a.start, b.start);
+        }
+    };
+
+    private final PageBlobURL pageBlobURL;
+
+    private final String previousSnapshot;
+
+    private final BackupPageBlobOptions options;
+
+    PageBlobIncrementalBackup(PageBlobURL pageBlobURL, String previousSnapshot, BackupPageBlobOptions options) {
+        this.pageBlobURL = pageBlobURL;
+        this.previousSnapshot = previousSnapshot;
+        this.options = options;
+    }
+
+    /**
+     * A range of pages, with an inclusive end, which either holds new data or was cleared.
+     */
+    static final class Change {
+
+        final long start;
+
+        final long end;
+
+        final boolean cleared;
+
+        Change(long start, long end, boolean cleared) {
+            this.start = start;
+            this.end = end;
+            this.cleared = cleared;
+        }
+
+        long length() {
+            return this.end - this.start + 1;
+        }
+    }
+
+    /**
+     * The snapshot taken for a backup and what changed in it.
+     */
+    static final class Delta {
+
+        final String snapshot;
+
+        final PageBlobURL snapshotURL;
+
+        final long blobSize;
+
+        final List<Change> changes;
+
+        Delta(String snapshot, PageBlobURL snapshotURL, long blobSize, List<Change> changes) {
+            this.snapshot = snapshot;
+            this.snapshotURL = snapshotURL;
+            this.blobSize = blobSize;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Turns a page list into changes sorted by offset. Changed ranges are split into chunks of at most the chunk
+     * size; a cleared range is kept whole, since clearing pages carries no data.
+     *
+     * @param pageList
+     *      The {@link PageList} returned for the snapshot.
+     * @param chunkSize
+     *      The largest changed range to transfer at once.
+     * @return
+     *      The changes.
+     */
+    static List<Change> changes(PageList pageList, long chunkSize) {
+        List<Change> changes = new ArrayList<Change>();
+        if (pageList.pageRange() != null) {
+            for (PageRange range : pageList.pageRange()) {
+                for (long start = range.start(); start <= range.end(); start += chunkSize) {
+                    changes.add(new Change(start, Math.min(range.end(), start + chunkSize - 1), false));
+                }
+            }
+        }
+        if (pageList.clearRange() != null) {
+            for (ClearRange range : pageList.clearRange()) {
+                changes.add(new Change(range.start(), range.end(), true));
+            }
+        }
+        Collections.sort(changes, CHANGE_ORDER);
+        return changes;
+    }
+
+    /**
+     * Writes the header and index of a delta file.
+     *
+     * @return
+     *      A {@code ByteBuffer} holding the header and index, ready to be written at the start of the file.
+     */
+    static ByteBuffer deltaIndex(Delta delta, String previousSnapshot) {
+        Charset utf8 = Charset.forName(Constants.UTF8_CHARSET);
+        byte[] snapshot = delta.snapshot.getBytes(utf8);
+        byte[] previous = previousSnapshot == null ? new byte[0] : previousSnapshot.getBytes(utf8);
+
+        ByteBuffer index = ByteBuffer.allocate(4 + 4 + 8 + 2 + snapshot.length + 2 + previous.length + 4
+                + CHANGE_RECORD_SIZE * delta.changes.size());
+        index.putInt(DELTA_MAGIC).putInt(DELTA_VERSION).putLong(delta.blobSize)
+                .putShort((short) snapshot.length).put(snapshot)
+                .putShort((short) previous.length).put(previous)
+                .putInt(delta.changes.size());
+        for (Change change : delta.changes) {
+            index.put(change.cleared ? (byte) 0 : (byte) 1).putLong(change.start).putLong(change.end);
+        }
+        index.flip();
+        return index;
+    }
+
+    Single<String> backupAsync(final PageBlobURL target) {
+        final BlobAccessConditions targetConditions = this.options.getTargetAccessConditions();
+        // Pages are written under the lease and sequence number conditions only; the ETag changes with every write.
+        final BlobAccessConditions pageConditions = new BlobAccessConditions(null,
+                targetConditions.getLeaseAccessConditions(), null, targetConditions.getPageBlobAccessConditions());
+
+        return this.deltaAsync()
+                .flatMap(new Function<Delta, Single<String>>() {
+                    @Override
+                    public Single<String> apply(final Delta delta) {
+                        // A full backup replaces the target; an incremental one resizes it to match the source.
+                        Completable prepare = previousSnapshot == null
+                                ? target.putBlobAsync(delta.blobSize, 0L, null, null, targetConditions)
+                                        .toCompletable()
+                                : target.resizeAsync(delta.blobSize, targetConditions).toCompletable();
+
+                        Completable transfer = Flowable.fromIterable(delta.changes)
+                                .flatMap(new Function<Change, Publisher<Object>>() {
+                                    @Override
+                                    public Publisher<Object> apply(Change change) {
+                                        PageRange range = new PageRange().withStart(change.start)
+                                                .withEnd(change.end);
+                                        if (change.cleared) {
+                                            return target.clearPagesAsync(range, pageConditions)
+                                                    .toCompletable().toFlowable();
+                                        }
+                                        return copyRangeAsync(delta.snapshotURL, target, change, pageConditions)
+                                                .toFlowable();
+                                    }
+                                }, options.getParallelism())
+                                .ignoreElements();
+
+                        return prepare.andThen(transfer).andThen(Single.just(delta.snapshot));
+                    }
+                });
+    }
+
+    Single<String> backupToFileAsync(final AsynchronousFileChannel file) {
+        return this.deltaAsync()
+                .flatMap(new Function<Delta, Single<String>>() {
+                    @Override
+                    public Single<String> apply(final Delta delta) throws IOException {
+                        ByteBuffer index = deltaIndex(delta, previousSnapshot);
+                        final BlobFileDownloader downloader = new BlobFileDownloader(delta.snapshotURL, file,
+                                new DownloadFromBlobOptions(null, options.getParallelism(), null, null, null, null));
+
+                        // Lay out the data of each changed range after the index, in index order, so that the ranges
+                        // can be written in parallel.
+                        final List<Change> changed = new ArrayList<Change>();
+                        final List<Long> positions = new ArrayList<Long>();
+                        long position = index.remaining();
+                        for (Change change : delta.changes) {
+                            if (!change.cleared) {
+                                changed.add(change);
+                                positions.add(position);
+                                position += change.length();
+                            }
+                        }
+
+                        file.truncate(0);
+                        // A snapshot never changes, so its ranges need no access conditions.
+                        Completable data = Flowable.range(0, changed.size())
+                                .flatMap(new Function<Integer, Publisher<Object>>() {
+                                    @Override
+                                    public Publisher<Object> apply(Integer i) {
+                                        Change change = changed.get(i);
+                                        return downloader.downloadRangeAsync(
+                                                new BlobRange(change.start, change.length()),
+                                                BlobAccessConditions.getDefault(), positions.get(i))
+                                                .toFlowable();
+                                    }
+                                }, options.getParallelism())
+                                .ignoreElements();
+
+                        return Utility.writeAsync(file, index, 0).andThen(data).andThen(Single.just(delta.snapshot));
+                    }
+                });
+    }
+
+    /**
+     * Takes the snapshot and lists the pages which changed since the previous snapshot, or all the pages which hold
+     * data if there is none.
+     */
+    private Single<Delta> deltaAsync() {
+        return this.pageBlobURL.createSnapshotAsync(this.options.getSnapshotMetadata(),
+                this.options.getSourceAccessConditions())
+                .flatMap(new Function<RestResponse<BlobsTakeSnapshotHeaders, Void>, Single<Delta>>() {
+                    @Override
+                    public Single<Delta> apply(RestResponse<BlobsTakeSnapshotHeaders, Void> response)
+                            throws Exception {
+                        final String snapshot = response.headers().snapshot();
+                        final PageBlobURL snapshotURL = pageBlobURL.withSnapshot(snapshot);
+                        Single<RestResponse<PageBlobsGetPageRangesHeaders, PageList>> pageList =
+                                previousSnapshot == null
+                                        ? snapshotURL.getPageRangesAsync(null, null)
+                                        : snapshotURL.getPageRangesDiffAsync(null, previousSnapshot, null);
+                        return pageList.map(
+                                new Function<RestResponse<PageBlobsGetPageRangesHeaders, PageList>, Delta>() {
+                                    @Override
+                                    public Delta apply(
+                                            RestResponse<PageBlobsGetPageRangesHeaders, PageList> response) {
+                                        return new Delta(snapshot, snapshotURL,
+                                                response.headers().blobContentLength(),
+                                                changes(response.body(), CHUNK_SIZE));
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Copies one changed range from the snapshot to the target through a pooled buffer of the range's size, whose
+     * memory is reserved from the process-wide {@link TransferMemoryBudget} first.
+     */
+    private Completable copyRangeAsync(final PageBlobURL snapshotURL, final PageBlobURL target, final Change change,
+                                       final BlobAccessConditions pageConditions) {
+        final int length = (int) change.length();
+        final TransferBufferPool pool = TransferBufferPool.getDefault();
+        return TransferMemoryBudget.getDefault().reserveAsync(length,
+                new Callable<Single<Boolean>>() {
+                    @Override
+                    public Single<Boolean> call() {
+                        return Single.using(
+                                new Callable<ByteBuffer>() {
+                                    @Override
+                                    public ByteBuffer call() {
+                                        return pool.acquire(length);
+                                    }
+                                },
+                                new Function<ByteBuffer, Single<Boolean>>() {
+                                    @Override
+                                    public Single<Boolean> apply(ByteBuffer buffer) {
+                                        return copyRangeAsync(snapshotURL, target, change, pageConditions, buffer)
+                                                .toSingleDefault(Boolean.TRUE);
+                                    }
+                                },
+                                new Consumer<ByteBuffer>() {
+                                    @Override
+                                    public void accept(ByteBuffer buffer) {
+                                        pool.release(buffer);
+                                    }
+                                });
+                    }
+                })
+                .toCompletable();
+    }
+
+    private Completable copyRangeAsync(PageBlobURL snapshotURL, final PageBlobURL target, final Change change,
+                                       final BlobAccessConditions pageConditions, final ByteBuffer buffer) {
+        return snapshotURL.getBlobAsync(new BlobRange(change.start, change.length()), null, false)
+                .flatMapCompletable(
+                        new Function<RestResponse<BlobsGetHeaders, AsyncInputStream>, CompletableSource>() {
+                            @Override
+                            public CompletableSource apply(RestResponse<BlobsGetHeaders, AsyncInputStream> response) {
+                                return response.body().content()
+                                        .doOnNext(new Consumer<byte[]>() {
+                                            @Override
+                                            public void accept(byte[] data) throws IOException {
+                                                if (data.length > buffer.remaining()) {
+                                                    throw new IOException("The snapshot returned more bytes than "
+                                                            + "the range requested.");
+                                                }
+                                                buffer.put(data);
+                                            }
+                                        })
+                                        .ignoreElements();
+                            }
+                        })
+                .andThen(Completable.defer(new Callable<CompletableSource>() {
+                    @Override
+                    public CompletableSource call() {
+                        if (buffer.hasRemaining()) {
+                            return Completable.error(new IOException("The snapshot returned fewer bytes than the "
+                                    + "range requested."));
+                        }
+                        return target.putPagesAsync(new PageRange().withStart(change.start).withEnd(change.end),
+                                AsyncInputStream.create(buffer.array()), pageConditions).toCompletable();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.PageBlobsGetPageRangesHeaders;
+import com.microsoft.azure.storage.models.PageList;
+import com.microsoft.azure.storage.models.PageRange;
+import com.microsoft.rest.v2.RestResponse;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RESERVED FOR INTERNAL USE. Downloads a page blob into a sparse file. Only the page ranges which hold data are
+ * fetched and written; the file is emptied first, so that the regions which are never written are left as holes
+ * which read as zeros and take no space on file systems which support sparse files.
+ */
+final class PageBlobSparseDownloader {
+
+    private final PageBlobURL pageBlobURL;
+
+    private final AsynchronousFileChannel file;
+
+    private final DownloadFromBlobOptions options;
+
+    PageBlobSparseDownloader(PageBlobURL pageBlobURL, AsynchronousFileChannel file, DownloadFromBlobOptions options) {
+        this.pageBlobURL = pageBlobURL;
+        this.file = file;
+        this.options = options;
+    }
+
+    /**
+     * Splits the valid page ranges of a blob into ranged GETs of at most the chunk size.
+     *
+     * @param pageRanges
+     *      The page ranges which hold data, with inclusive ends.
+     * @param chunkSize
+     *      The largest number of bytes to request at once.
+     * @return
+     *      The ranges to download.
+     */
+    static List<BlobRange> chunkRanges(List<PageRange> pageRanges, long chunkSize) {
+        List<BlobRange> chunks = new ArrayList<BlobRange>();
+        if (pageRanges != null) {
+            for (PageRange pageRange : pageRanges) {
+                for (long offset = pageRange.start(); offset <= pageRange.end(); offset += chunkSize) {
+                    chunks.add(new BlobRange(offset, Math.min(chunkSize, pageRange.end() + 1 - offset)));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    Single<PageBlobsGetPageRangesHeaders> downloadAsync() {
+        return this.pageBlobURL.getPageRangesAsync(null, this.options.getAccessConditions())
+                .flatMap(new Function<RestResponse<PageBlobsGetPageRangesHeaders, PageList>,
+                        Single<PageBlobsGetPageRangesHeaders>>() {
+                    @Override
+                    public Single<PageBlobsGetPageRangesHeaders> apply(
+                            RestResponse<PageBlobsGetPageRangesHeaders, PageList> response) throws IOException {
+                        final PageBlobsGetPageRangesHeaders headers = response.headers();
+                        final long blobSize = headers.blobContentLength();
+                        final BlobFileDownloader downloader = new BlobFileDownloader(pageBlobURL, file, options);
+                        final BlobAccessConditions pinned = BlobFileDownloader.pinnedAccessConditions(
+                                headers.eTag(), options.getAccessConditions().getLeaseAccessConditions());
+                        final List<PageRange> pageRanges = response.body().pageRange();
+
+                        // Empty the file so that no old content survives in the regions which are not written.
+                        file.truncate(0);
+
+                        Completable ranges = Flowable.fromIterable(chunkRanges(pageRanges, options.getChunkSize()))
+                                .flatMap(new Function<BlobRange, Publisher<Object>>() {
+                                    @Override
+                                    public Publisher<Object> apply(BlobRange range) {
+                                        return downloader.downloadRangeAsync(range, pinned, range.offset)
+                                                .toFlowable();
+                                    }
+                                }, options.getParallelism())
+                                .ignoreElements();
+
+                        return ranges.andThen(extendAsync(pageRanges, blobSize)).andThen(Single.just(headers));
+                    }
+                });
+    }
+
+    /**
+     * Gives the file the size of the blob when the end of the blob holds no data. Writing the last byte leaves
+     * everything before it that was never written as a hole.
+     */
+    Completable extendAsync(List<PageRange> pageRanges, long blobSize) {
+        boolean lastPageWritten = pageRanges != null && !pageRanges.isEmpty()
+                && pageRanges.get(pageRanges.size() - 1).end() == blobSize - 1;
+        if (blobSize == 0 || lastPageWritten) {
+            return Completable.complete();
+        }
+        return Utility.writeAsync(this.file, ByteBuffer.wrap(new byte[1]), blobSize - 1);
+    }
+}
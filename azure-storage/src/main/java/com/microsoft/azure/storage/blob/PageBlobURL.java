@@ -19,6 +19,7 @@ import com.microsoft.rest.v2.RestResponse;
 import com.microsoft.rest.v2.http.AsyncInputStream;
 import com.microsoft.rest.v2.http.HttpPipeline;
 import com.microsoft.rest.v2.http.UrlBuilder;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 import org.joda.time.DateTime;
 
@@ -27,6 +28,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.AsynchronousFileChannel;
 
 /**
  * Represents a URL to a page blob.
@@ -55,7 +57,7 @@ public final class PageBlobURL extends BlobURL {
      */
     public PageBlobURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new PageBlobURL(new URL(this.storageClient.url()), pipeline);
+            return new PageBlobURL(new URL(this.url), pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -71,9 +73,9 @@ public final class PageBlobURL extends BlobURL {
      *      A {@link PageBlobURL} object with the given pipeline.
      */
     public PageBlobURL withSnapshot(String snapshot) throws MalformedURLException, UnsupportedEncodingException {
-        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.storageClient.url()));
+        BlobURLParts blobURLParts = URLParser.ParseURL(new URL(this.url));
         blobURLParts.setSnapshot(snapshot);
-        return new PageBlobURL(blobURLParts.toURL(), super.storageClient.httpPipeline());
+        return new PageBlobURL(blobURLParts.toURL(), super.pipeline);
     }
 
     /**
@@ -112,7 +114,7 @@ public final class PageBlobURL extends BlobURL {
             accessConditions = BlobAccessConditions.getDefault();
         }
 
-        return this.storageClient.blobs().putWithRestResponseAsync(BlobType.PAGE_BLOB, null,
+        return this.storageClient().blobs().putWithRestResponseAsync(BlobType.PAGE_BLOB, null,
                 null, null, headers.getContentType(), headers.getContentEncoding(),
                 headers.getContentLanguage(), headers.getContentMD5(), headers.getCacheControl(),
                 metadata.toString(), accessConditions.getLeaseAccessConditions().toString(),
@@ -150,7 +152,7 @@ public final class PageBlobURL extends BlobURL {
         catch (IllegalArgumentException e) {
             return Single.error(e);
         }
-        return this.storageClient.pageBlobs().putPageWithRestResponseAsync(PageWriteType.UPDATE, body,
+        return this.storageClient().pageBlobs().putPageWithRestResponseAsync(PageWriteType.UPDATE, body,
                 null, pageRangeStr, accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getPageBlobAccessConditions().getIfSequenceNumberLessThanOrEqual(),
                 accessConditions.getPageBlobAccessConditions().getIfSequenceNumberLessThan(),
@@ -161,6 +163,111 @@ public final class PageBlobURL extends BlobURL {
                 accessConditions.getHttpAccessConditions().getIfNoneMatch().toString(), null);
     }
 
+    /**
+     * UploadFile uploads the contents of a file to this page blob, skipping the pages which are all zeros. The file is
+     * scanned in 4MB segments in parallel, and each run of non-zero pages is written with a single PutPages. The blob
+     * is sized to the file, rounded up to a whole page, and a final partial page is padded with zeros.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to upload. The file is read but not closed.
+     * @param options
+     *      An {@link UploadToPageBlobOptions} object that specifies how many segments to upload at once, whether an
+     *      existing blob is replaced or updated in place, and the properties, metadata and access conditions to apply.
+     * @return
+     *      A {@link Completable} which completes once every non-zero page has been written.
+     */
+    public Completable uploadFileAsync(AsynchronousFileChannel file, UploadToPageBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        if(options == null) {
+            options = UploadToPageBlobOptions.getDefault();
+        }
+        return new PageBlobFileUploader(this, file, options).uploadAsync();
+    }
+
+    /**
+     * DownloadSparseToFile downloads only the valid pages of this page blob into a file. The valid page ranges are
+     * listed first, and only they are fetched, with parallel ranged GETs. The file is emptied and every region which
+     * holds no data is skipped rather than written with zeros, so on file systems which support sparse files the
+     * download takes only as much disk as the blob holds data. Every ranged GET is pinned to the ETag returned with
+     * the page ranges, so the download fails rather than mixing versions if the blob changes.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to write to. It must be open for writing, is
+     *      overwritten and is not closed.
+     * @param options
+     *      A {@link DownloadFromBlobOptions} object that specifies the chunk size, the number of chunks to download at
+     *      once and the access conditions to apply. The checkpoint is not used by sparse downloads.
+     * @return
+     *      A {@link Single} that emits the headers from listing the page ranges.
+     */
+    public Single<PageBlobsGetPageRangesHeaders> downloadSparseToFileAsync(AsynchronousFileChannel file,
+            DownloadFromBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        if (options == null) {
+            options = DownloadFromBlobOptions.getDefault();
+        }
+        return new PageBlobSparseDownloader(this, file, options).downloadAsync();
+    }
+
+    /**
+     * Backup takes a snapshot of this page blob and brings a target page blob up to date with it. Only the ranges
+     * which changed since the previous snapshot are transferred: changed pages are copied from the new snapshot in
+     * parallel and cleared pages are cleared on the target. Without a previous snapshot, the target is replaced and
+     * every page which holds data is copied.
+     * <p>
+     * The target must hold the contents of the previous snapshot for the result to be a copy of the new one. The
+     * previous snapshot is not deleted; keep the returned snapshot for the next backup and delete the older one.
+     *
+     * @param target
+     *      The {@link PageBlobURL} of the backup.
+     * @param previousSnapshot
+     *      The snapshot returned by the last backup to this target, or {@code null} for a full backup.
+     * @param options
+     *      A {@link BackupPageBlobOptions} object that specifies how many ranges to transfer at once, the metadata of
+     *      the snapshot and the access conditions to apply to this blob and to the target.
+     * @return
+     *      A {@link Single} which emits the snapshot of this blob that the target now holds.
+     */
+    public Single<String> backupAsync(PageBlobURL target, String previousSnapshot, BackupPageBlobOptions options) {
+        Utility.assertNotNull("target", target);
+        if (options == null) {
+            options = BackupPageBlobOptions.getDefault();
+        }
+        return new PageBlobIncrementalBackup(this, previousSnapshot, options).backupAsync(target);
+    }
+
+    /**
+     * BackupToFile takes a snapshot of this page blob and writes the ranges which changed since the previous snapshot
+     * to a delta file. The file begins with an index of the changed and cleared ranges, followed by the data of the
+     * changed ranges in index order; the layout is described by the header's magic number 0x50424444 and version 1:
+     * <pre>
+     *     int magic, int version, long blobSize, short snapshotLength, snapshot (UTF-8),
+     *     short previousSnapshotLength, previous snapshot (UTF-8), int changeCount,
+     *     then for each change: byte kind (0 cleared, 1 changed), long start, long end (inclusive),
+     *     then the bytes of each changed range
+     * </pre>
+     * Without a previous snapshot, every page which holds data is written. The previous snapshot is not deleted.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to write to. It must be open for writing, is
+     *      overwritten and is not closed.
+     * @param previousSnapshot
+     *      The snapshot returned by the last backup, or {@code null} for a full backup.
+     * @param options
+     *      A {@link BackupPageBlobOptions} object that specifies how many ranges to transfer at once, the metadata of
+     *      the snapshot and the access conditions to apply to this blob. The target access conditions are not used.
+     * @return
+     *      A {@link Single} which emits the snapshot of this blob that the delta file brings a copy up to.
+     */
+    public Single<String> backupToFileAsync(AsynchronousFileChannel file, String previousSnapshot,
+                                            BackupPageBlobOptions options) {
+        Utility.assertNotNull("file", file);
+        if (options == null) {
+            options = BackupPageBlobOptions.getDefault();
+        }
+        return new PageBlobIncrementalBackup(this, previousSnapshot, options).backupToFileAsync(file);
+    }
+
     /**
      * ClearPages frees the specified pages from the page blob.
      * For more information, see https://docs.microsoft.com/rest/api/storageservices/put-page.
@@ -185,7 +292,7 @@ public final class PageBlobURL extends BlobURL {
      catch (IllegalArgumentException e) {
          return Single.error(e);
      }
-     return this.storageClient.pageBlobs().putPageWithRestResponseAsync(PageWriteType.CLEAR, null,
+     return this.storageClient().pageBlobs().putPageWithRestResponseAsync(PageWriteType.CLEAR, null,
              null, pageRangeStr, accessConditions.getLeaseAccessConditions().toString(),
              accessConditions.getPageBlobAccessConditions().getIfSequenceNumberLessThanOrEqual(),
              accessConditions.getPageBlobAccessConditions().getIfSequenceNumberLessThan(),
@@ -215,9 +322,9 @@ public final class PageBlobURL extends BlobURL {
          accessConditions = BlobAccessConditions.getDefault();
      }
      if(blobRange == null) {
-         blobRange.getDefault();
+         blobRange = BlobRange.getDefault();
      }
-     return this.storageClient.pageBlobs().getPageRangesWithRestResponseAsync(null,
+     return this.storageClient().pageBlobs().getPageRangesWithRestResponseAsync(null,
              null, null,
              blobRange.toString(), accessConditions.getLeaseAccessConditions().toString(),
              accessConditions.getHttpAccessConditions().getIfModifiedSince(),
@@ -252,7 +359,7 @@ public final class PageBlobURL extends BlobURL {
         if(accessConditions == null) {
             accessConditions = BlobAccessConditions.getDefault();
         }
-        return this.storageClient.pageBlobs().getPageRangesWithRestResponseAsync(null,
+        return this.storageClient().pageBlobs().getPageRangesWithRestResponseAsync(null,
                 null, prevSnapshot,
                 blobRange.toString(), accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
@@ -283,7 +390,7 @@ public final class PageBlobURL extends BlobURL {
         if(accessConditions == null) {
             accessConditions = BlobAccessConditions.getDefault();
         }
-        return this.storageClient.blobs().setPropertiesWithRestResponseAsync(null,
+        return this.storageClient().blobs().setPropertiesWithRestResponseAsync(null,
                 null, null, null, null,
                 null, accessConditions.getLeaseAccessConditions().toString(),
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
@@ -324,7 +431,7 @@ public final class PageBlobURL extends BlobURL {
         if(action == SequenceNumberActionType.INCREMENT) {
            sequenceNumber = null;
         }
-        return this.storageClient.blobs().setPropertiesWithRestResponseAsync(null,
+        return this.storageClient().blobs().setPropertiesWithRestResponseAsync(null,
                 headers.getCacheControl(), headers.getContentType(), headers.getContentMD5(),
                 headers.getContentEncoding(), headers.getContentLanguage(),
                 accessConditions.getLeaseAccessConditions().toString(),
@@ -376,7 +483,7 @@ public final class PageBlobURL extends BlobURL {
             return Single.error(e);
          }
 
-        return this.storageClient.pageBlobs().incrementalCopyWithRestResponseAsync(source.toString(),
+        return this.storageClient().pageBlobs().incrementalCopyWithRestResponseAsync(source.toString(),
                 null, null,
                 accessConditions.getHttpAccessConditions().getIfModifiedSince(),
                 accessConditions.getHttpAccessConditions().getIfUnmodifiedSince(),
@@ -392,7 +499,7 @@ public final class PageBlobURL extends BlobURL {
         if (pageRange.start()%512 != 0 ) {
             throw new IllegalArgumentException("PageRange's start value must be a multiple of 512.");
         }
-        if (pageRange.end()%512 != 0) {
+        if ((pageRange.end() + 1)%512 != 0) {
             throw new IllegalArgumentException("PageRange's end value must be 1 less than a multiple of 512.");
         }
         if (pageRange.end() <= pageRange.start()) {
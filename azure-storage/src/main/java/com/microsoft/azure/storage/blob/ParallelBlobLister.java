@@ -0,0 +1,248 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.Blob;
+import com.microsoft.azure.storage.models.BlobPrefix;
+import com.microsoft.azure.storage.models.ContainerListBlobsHeaders;
+import com.microsoft.azure.storage.models.ListBlobsResponse;
+import com.microsoft.rest.v2.RestResponse;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * RESERVED FOR INTERNAL USE. Lists a container as several independent listings, one per partition of the key space,
+ * which run concurrently and are merged into a single Flowable.
+ */
+final class ParallelBlobLister {
+
+    /**
+     * The default number of partitions listed at the same time.
+     */
+    static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * How many levels below the requested prefix discovery may split a prefix which holds too few partitions.
+     */
+    static final int MAX_DISCOVERY_DEPTH = 3;
+
+    private static final String PARTITION_DELIMITER = "/";
+
+    private final ContainerURL containerURL;
+
+    private final ListBlobsOptions options;
+
+    private final int parallelism;
+
+    private final boolean ordered;
+
+    ParallelBlobLister(ContainerURL containerURL, ListBlobsOptions options, int parallelism, boolean ordered) {
+        this.containerURL = containerURL;
+        this.options = options;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+
+    /**
+     * A piece of the key space. It is either every blob under a prefix, or a single blob which was found while
+     * discovering the prefixes.
+     */
+    private static final class Partition {
+
+        private final String prefix;
+
+        private final Blob blob;
+
+        private Partition(String prefix, Blob blob) {
+            this.prefix = prefix;
+            this.blob = blob;
+        }
+
+        /**
+         * Names below a prefix sort after the prefix and before anything that sorts after it, so ordering partitions
+         * by this key orders their contents too.
+         */
+        private String sortKey() {
+            return this.prefix != null ? this.prefix : this.blob.name();
+        }
+    }
+
+    private static final Comparator<Partition> PARTITION_ORDER = new Comparator<Partition>() {
+        @Override
+        public int compare(Partition a, Partition b) {
+            return a.sortKey().compareTo(b.sortKey());
+        }
+    };
+
+    /**
+     * Checks that no prefix is a prefix of another, which would list the same blobs twice.
+     *
+     * @param prefixes
+     *      The prefixes given by the caller.
+     * @return
+     *      The prefixes in lexicographic order.
+     */
+    static List<String> sortDisjointPrefixes(List<String> prefixes) {
+        List<String> sorted = new ArrayList<String>(prefixes);
+        Collections.sort(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            Utility.assertNotNull("prefixes", sorted.get(i));
+            if (i > 0 && sorted.get(i).startsWith(sorted.get(i - 1))) {
+                throw new IllegalArgumentException(String.format(Utility.LOCALE_US,
+                        "The prefixes '%s' and '%s' overlap.", sorted.get(i - 1), sorted.get(i)));
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * @param prefixes
+     *      The prefixes to list, or {@code null} to discover them from the names in the container.
+     * @return
+     *      A {@link Flowable} which emits every blob under the prefixes.
+     */
+    Flowable<Blob> listAsync(List<String> prefixes) {
+        Flowable<Partition> partitions;
+        if (prefixes != null) {
+            List<Partition> partitionList = new ArrayList<Partition>();
+            for (String prefix : sortDisjointPrefixes(prefixes)) {
+                partitionList.add(new Partition(prefix, null));
+            }
+            partitions = Flowable.fromIterable(partitionList);
+        }
+        else {
+            partitions = this.discoverPartitions();
+        }
+
+        Function<Partition, Publisher<Blob>> listPartition = new Function<Partition, Publisher<Blob>>() {
+            @Override
+            public Publisher<Blob> apply(Partition partition) {
+                if (partition.blob != null) {
+                    return Flowable.just(partition.blob);
+                }
+                return containerURL.listBlobsFlowable(new ListBlobsOptions(options.getDetails(), partition.prefix,
+                        null, options.getMaxResults()), null);
+            }
+        };
+
+        if (this.ordered) {
+            // Later partitions are listed eagerly but held back until every earlier partition has been emitted.
+            return partitions.concatMapEager(listPartition, this.parallelism, Flowable.bufferSize());
+        }
+        return partitions.flatMap(listPartition, this.parallelism);
+    }
+
+    /**
+     * Discovers partitions with delimited listings, starting with the requested prefix. Each BlobPrefix becomes a
+     * partition, and each blob directly under a listed prefix becomes a partition of its own. The partitions are
+     * emitted in lexicographic order.
+     */
+    private Flowable<Partition> discoverPartitions() {
+        if (this.options.getDetails().getSnapshots()) {
+            throw new IllegalArgumentException(
+                    "Snapshots cannot be listed with a delimiter; specify the prefixes to list instead.");
+        }
+        return this.discoverPartitions(this.options.getPrefix(), this.parallelism, 0);
+    }
+
+    /**
+     * Discovers the partitions under a prefix. Names often share a single top-level directory, such as a tenant or a
+     * year, which would leave one partition to be listed on its own. So when the whole level fits in one page and
+     * holds fewer than {@code wanted} partitions, each of its prefixes is split again one level down, up to
+     * {@link #MAX_DISCOVERY_DEPTH} levels below the requested prefix.
+     *
+     * @param prefix
+     *      The prefix to discover partitions under.
+     * @param wanted
+     *      The number of partitions this prefix should be split into.
+     * @param depth
+     *      The number of levels already split below the requested prefix.
+     */
+    private Flowable<Partition> discoverPartitions(final String prefix, final int wanted, final int depth) {
+        final ListBlobsOptions discoveryOptions = new ListBlobsOptions(this.options.getDetails(), prefix,
+                PARTITION_DELIMITER, this.options.getMaxResults());
+        return this.containerURL.listBlobsAsync(null, discoveryOptions)
+                .flatMapPublisher(new Function<RestResponse<ContainerListBlobsHeaders, ListBlobsResponse>,
+                        Publisher<Partition>>() {
+                    @Override
+                    public Publisher<Partition> apply(
+                            RestResponse<ContainerListBlobsHeaders, ListBlobsResponse> firstPage) {
+                        List<Partition> partitions = partitions(firstPage.body());
+                        String marker = firstPage.body().nextMarker();
+                        if (marker != null && !marker.isEmpty()) {
+                            // A level spanning several pages holds plenty of partitions.
+                            return Flowable.fromIterable(partitions).concatWith(containerURL
+                                    .listBlobsPages(marker, discoveryOptions)
+                                    .concatMapIterable(new Function<ListBlobsResponse, Iterable<Partition>>() {
+                                        @Override
+                                        public Iterable<Partition> apply(ListBlobsResponse response) {
+                                            return partitions(response);
+                                        }
+                                    }));
+                        }
+
+                        int prefixCount = 0;
+                        for (Partition partition : partitions) {
+                            if (partition.prefix != null) {
+                                prefixCount++;
+                            }
+                        }
+                        if (partitions.size() >= wanted || prefixCount == 0 || depth >= MAX_DISCOVERY_DEPTH) {
+                            return Flowable.fromIterable(partitions);
+                        }
+
+                        // The levels below are discovered at the same time but emitted in order.
+                        final int wantedPerPrefix = (wanted + prefixCount - 1) / prefixCount;
+                        return Flowable.fromIterable(partitions).concatMapEager(
+                                new Function<Partition, Publisher<Partition>>() {
+                                    @Override
+                                    public Publisher<Partition> apply(Partition partition) {
+                                        if (partition.prefix == null) {
+                                            return Flowable.just(partition);
+                                        }
+                                        return discoverPartitions(partition.prefix, wantedPerPrefix, depth + 1);
+                                    }
+                                }, parallelism, Flowable.bufferSize());
+                    }
+                });
+    }
+
+    /**
+     * Gets the partitions of one page of a delimited listing, in lexicographic order.
+     */
+    private static List<Partition> partitions(ListBlobsResponse response) {
+        List<Partition> partitions = new ArrayList<Partition>();
+        if (response.blobs() != null) {
+            if (response.blobs().blobPrefix() != null) {
+                for (BlobPrefix blobPrefix : response.blobs().blobPrefix()) {
+                    partitions.add(new Partition(blobPrefix.name(), null));
+                }
+            }
+            if (response.blobs().blob() != null) {
+                for (Blob blob : response.blobs().blob()) {
+                    partitions.add(new Partition(null, blob));
+                }
+            }
+        }
+        Collections.sort(partitions, PARTITION_ORDER);
+        return partitions;
+    }
+}
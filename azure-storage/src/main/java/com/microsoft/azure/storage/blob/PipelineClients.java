@@ -0,0 +1,127 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.implementation.StorageClientImpl;
+import com.microsoft.azure.storage.implementation.StreamingContainersImpl;
+import com.microsoft.rest.v2.http.HttpPipeline;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RESERVED FOR INTERNAL USE. The service proxies built for one {@link HttpPipeline}, from which the client of each URL
+ * using the pipeline is made. The generated operations take the URL from their client on every call, so a proxy does
+ * not depend on the URL and building the proxies, which parses every operation of an interface, is done once per
+ * pipeline rather than once per URL.
+ * <p>
+ * The proxies are cached without a lock. The cache only holds weak references: each URL keeps its pipeline's proxies
+ * alive, and once no URL does, they and the pipeline can be collected.
+ */
+final class PipelineClients {
+
+    private static final String VERSION = "2016-05-31";
+
+    private static final ConcurrentMap<PipelineKey, WeakReference<PipelineClients>> CACHE =
+            new ConcurrentHashMap<PipelineKey, WeakReference<PipelineClients>>();
+
+    private static final ReferenceQueue<HttpPipeline> COLLECTED = new ReferenceQueue<HttpPipeline>();
+
+    private final StorageClientImpl proxies;
+
+    private final StreamingContainersImpl streamingContainersProxy;
+
+    private PipelineClients(HttpPipeline pipeline) {
+        this.proxies = new StorageClientImpl(pipeline).withVersion(VERSION);
+        this.streamingContainersProxy = new StreamingContainersImpl(this.proxies);
+    }
+
+    /**
+     * Gets the proxies of a pipeline, building them if no URL holds them. Two threads may both build them; either
+     * can be used.
+     *
+     * @param pipeline
+     *      The {@link HttpPipeline} the proxies send requests through.
+     * @return
+     *      The {@link PipelineClients} of the pipeline.
+     */
+    static PipelineClients forPipeline(HttpPipeline pipeline) {
+        removeCollected();
+        WeakReference<PipelineClients> cached = CACHE.get(new PipelineKey(pipeline, null));
+        PipelineClients clients = cached == null ? null : cached.get();
+        if (clients == null) {
+            clients = new PipelineClients(pipeline);
+            CACHE.put(new PipelineKey(pipeline, COLLECTED), new WeakReference<PipelineClients>(clients));
+        }
+        return clients;
+    }
+
+    /**
+     * Creates the client of one URL. It shares the proxies, so only the small objects which hold the URL are new.
+     */
+    StorageClientImpl newStorageClient(String url) {
+        return new StorageClientImpl(this.proxies).withVersion(VERSION).withUrl(url);
+    }
+
+    /**
+     * Creates the hand-written container operations for a client made by {@link #newStorageClient(String)}.
+     */
+    StreamingContainersImpl newStreamingContainers(StorageClientImpl client) {
+        return new StreamingContainersImpl(client, this.streamingContainersProxy);
+    }
+
+    /**
+     * Drops the entries of pipelines which have been collected.
+     */
+    private static void removeCollected() {
+        Reference<? extends HttpPipeline> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            CACHE.remove(collected);
+        }
+    }
+
+    /**
+     * Identifies a pipeline by identity without keeping it alive. A key without a queue is only used for lookups.
+     */
+    private static final class PipelineKey extends WeakReference<HttpPipeline> {
+
+        private final int hash;
+
+        PipelineKey(HttpPipeline pipeline, ReferenceQueue<HttpPipeline> queue) {
+            super(pipeline, queue);
+            this.hash = System.identityHashCode(pipeline);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PipelineKey)) {
+                return false;
+            }
+            HttpPipeline pipeline = this.get();
+            return pipeline != null && pipeline == ((PipelineKey) other).get();
+        }
+    }
+}
@@ -4,16 +4,19 @@ import com.microsoft.rest.v2.http.HttpClient;
 import com.microsoft.rest.v2.http.HttpPipelineLogLevel;
 import com.microsoft.rest.v2.http.HttpPipelineLogger;
 
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public final class PipelineOptions {
 
     // Log configures the pipeline's logging infrastructure indicating what information is logged and where.
+    // Client is the HttpClient used to send requests. When null, the client shared by every pipeline created with
+    // httpClientOptions is used.
     public HttpClient client;
 
+    // HttpClientOptions configures the connections of the HttpClient created when client is not set.
+    public HttpClientOptions httpClientOptions;
+
     public HttpPipelineLogger logger;
 
     // Retry configures the built-in retry policy behavior.
@@ -28,9 +31,8 @@ public final class PipelineOptions {
     // TODO:
     public PipelineOptions() {
         this.telemetryOptions = new TelemetryOptions();
-        HttpClient.Configuration configuration = new HttpClient.Configuration(
-                new Proxy(Proxy.Type.HTTP, new InetSocketAddress("localhost", 8888)));
-        this.client = HttpClient.createDefault(configuration); // Pass in configuration for Fiddler support.
+        this.requestRetryOptions = new RequestRetryOptions();
+        this.httpClientOptions = HttpClientOptions.getDefault();
         this.logger = new HttpPipelineLogger() {
             @Override
             public HttpPipelineLogLevel minimumLogLevel() {
@@ -18,10 +18,15 @@ import com.microsoft.rest.v2.http.*;
 import com.microsoft.rest.v2.policy.RequestPolicy;
 import com.microsoft.rest.v2.policy.RequestPolicyFactory;
 import com.microsoft.rest.v2.policy.RequestPolicyOptions;
+import io.reactivex.Completable;
 import io.reactivex.Single;
-import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Factory for retrying requests
@@ -37,7 +42,7 @@ public final class RequestRetryFactory implements RequestPolicyFactory {
      *      A {@link RequestRetryOptions} object configuring this factory and all its resultant policies.
      */
     public RequestRetryFactory(RequestRetryOptions requestRetryOptions) {
-        this.requestRetryOptions = requestRetryOptions;
+        this.requestRetryOptions = requestRetryOptions == null ? new RequestRetryOptions() : requestRetryOptions;
     }
 
     private final class RequestRetryPolicy implements RequestPolicy {
@@ -48,12 +53,6 @@ public final class RequestRetryFactory implements RequestPolicyFactory {
 
         final private RequestPolicyOptions options;
 
-        private int tryCount;
-
-        private long operationStartTime;
-
-        private HttpRequest httpRequest;
-
         RequestRetryPolicy(RequestPolicy requestPolicy, RequestPolicyOptions options,
                            RequestRetryOptions requestRetryOptions) {
             this.requestPolicy = requestPolicy;
@@ -63,32 +62,159 @@ public final class RequestRetryFactory implements RequestPolicyFactory {
 
         @Override
         public Single<HttpResponse> sendAsync(HttpRequest httpRequest) {
+            // The body is buffered once so that it can be sent again on every try.
+            final HttpRequest bufferedRequest;
             try {
-                this.httpRequest = httpRequest.buffer();
+                bufferedRequest = httpRequest.buffer();
             } catch (IOException e) {
                 return Single.error(e);
             }
 
-            this.httpRequest = new HttpRequest(httpRequest.callerMethod(), httpRequest.httpMethod(), httpRequest.url(),
-                    httpRequest.headers(), httpRequest.body());
-            return this.requestPolicy.sendAsync(httpRequest)
-                .doOnError(new Consumer<Throwable>() {
-                    @Override
-                    public void accept(Throwable throwable) throws Exception {
-
-                    }
-                })
-                .doOnSuccess(new Consumer<HttpResponse>() {
-                    @Override
-                    public void accept(HttpResponse httpResponse) throws Exception {
-                        long requestEndTime = System.currentTimeMillis();
-                        //long requestCompletionTime = requestEndTime - requestStartTime;
-                        long operationDuration = requestEndTime - operationStartTime;
-                    }
-                });
+            // Only reads may be served by the secondary; it is read-only and may lag behind the primary.
+            boolean considerSecondary = this.requestRetryOptions.secondaryHost() != null
+                    && (bufferedRequest.httpMethod().equalsIgnoreCase("GET")
+                    || bufferedRequest.httpMethod().equalsIgnoreCase("HEAD"));
+            return this.attemptAsync(bufferedRequest, 1, 1, considerSecondary);
+        }
+
+        /**
+         * Sends a single try of the request. The decision on whether to retry is made on the outcome of this try
+         * alone, so that a failure of a later try is never handled twice.
+         *
+         * @param httpRequest
+         *      The buffered {@link HttpRequest} of the operation.
+         * @param tryCount
+         *      The number of this try, starting at 1.
+         * @param primaryTry
+         *      The number of tries sent to the primary host so far, including this one if it goes to the primary.
+         * @param considerSecondary
+         *      Whether tries of this operation alternate between the primary and the secondary host.
+         * @return
+         *      A {@link Single} representing the {@link HttpResponse} of the final try.
+         */
+        private Single<HttpResponse> attemptAsync(final HttpRequest httpRequest, final int tryCount,
+                                                  final int primaryTry, final boolean considerSecondary) {
+            final boolean tryingPrimary = isPrimaryTry(tryCount, considerSecondary);
+            String url = httpRequest.url();
+            if (!tryingPrimary) {
+                url = UrlBuilder.parse(url).withHost(this.requestRetryOptions.secondaryHost()).toString();
+            }
+            final HttpRequest tryRequest = new HttpRequest(httpRequest.callerMethod(), httpRequest.httpMethod(),
+                    url, httpRequest.headers(), httpRequest.body());
+
+            // The timeout is scheduled on the RxJava computation scheduler, so no thread waits on the try.
+            return this.requestPolicy.sendAsync(tryRequest)
+                    .timeout(this.requestRetryOptions.tryTimeoutInMs(), TimeUnit.MILLISECONDS)
+                    .map(new Function<HttpResponse, Single<HttpResponse>>() {
+                        @Override
+                        public Single<HttpResponse> apply(HttpResponse response) {
+                            if (!canRetry(tryCount)) {
+                                return Single.just(response);
+                            }
+                            // The secondary may not have replicated the resource yet. Stop asking it for the rest
+                            // of the operation and go back to the primary.
+                            if (!tryingPrimary && response.statusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                                logRetry(tryCount, "status code 404 from the secondary host");
+                                return drainAsync(response).andThen(
+                                        retryAsync(httpRequest, tryCount, primaryTry, false));
+                            }
+                            if (isRetryableStatusCode(response.statusCode())) {
+                                logRetry(tryCount, "status code " + response.statusCode());
+                                return drainAsync(response).andThen(
+                                        retryAsync(httpRequest, tryCount, primaryTry, considerSecondary));
+                            }
+                            return Single.just(response);
+                        }
+                    })
+                    .onErrorReturn(new Function<Throwable, Single<HttpResponse>>() {
+                        @Override
+                        public Single<HttpResponse> apply(Throwable throwable) {
+                            if ((throwable instanceof IOException || throwable instanceof TimeoutException)
+                                    && canRetry(tryCount)) {
+                                logRetry(tryCount, throwable.toString());
+                                return retryAsync(httpRequest, tryCount, primaryTry, considerSecondary);
+                            }
+                            return Single.error(throwable);
+                        }
+                    })
+                    .flatMap(new Function<Single<HttpResponse>, Single<HttpResponse>>() {
+                        @Override
+                        public Single<HttpResponse> apply(Single<HttpResponse> outcome) {
+                            return outcome;
+                        }
+                    });
+        }
+
+        private Single<HttpResponse> retryAsync(final HttpRequest httpRequest, int tryCount, int primaryTry,
+                                                final boolean considerSecondary) {
+            final int nextTry = tryCount + 1;
+            final int nextPrimaryTry;
+            long delay;
+            if (isPrimaryTry(nextTry, considerSecondary)) {
+                nextPrimaryTry = primaryTry + 1;
+                delay = delayInMs(this.requestRetryOptions, nextPrimaryTry);
+            }
+            else {
+                // The secondary has not been throttling us, so only back off briefly before trying it.
+                nextPrimaryTry = primaryTry;
+                delay = (long) (TimeUnit.SECONDS.toMillis(1) * jitter());
+            }
+
+            return Single.timer(delay, TimeUnit.MILLISECONDS)
+                    .flatMap(new Function<Long, Single<HttpResponse>>() {
+                        @Override
+                        public Single<HttpResponse> apply(Long ignored) {
+                            return attemptAsync(httpRequest, nextTry, nextPrimaryTry, considerSecondary);
+                        }
+                    });
+        }
+
+        private boolean canRetry(int tryCount) {
+            return tryCount < this.requestRetryOptions.maxTries();
+        }
+
+        private void logRetry(int tryCount, String reason) {
+            if (this.options.shouldLog(HttpPipelineLogLevel.WARNING)) {
+                this.options.log(HttpPipelineLogLevel.WARNING, "Try number '%d' failed with %s. Retrying.",
+                        tryCount, reason);
+            }
         }
     }
 
+    /**
+     * Reads and discards the body of a response which is about to be retried, so that its connection goes back to the
+     * pool rather than staying busy until it times out. The response is being thrown away, so a failure to read it
+     * does not stop the retry.
+     */
+    private static Completable drainAsync(HttpResponse response) {
+        return response.streamBodyAsync().ignoreElements().onErrorComplete();
+    }
+
+    /**
+     * Tries alternate between the primary and the secondary host, starting with the primary.
+     */
+    private static boolean isPrimaryTry(int tryCount, boolean considerSecondary) {
+        return !considerSecondary || tryCount % 2 == 1;
+    }
+
+    /**
+     * Spreads the delay by 80% to 120% so that many clients throttled at the same moment do not all retry at the
+     * same moment too.
+     */
+    static long delayInMs(RequestRetryOptions requestRetryOptions, int primaryTry) {
+        long delay = requestRetryOptions.calculatedDelayInMs(primaryTry);
+        return Math.min((long) (delay * jitter()), requestRetryOptions.maxRetryDelayInMs());
+    }
+
+    private static double jitter() {
+        return 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+    }
+
+    private static boolean isRetryableStatusCode(int statusCode) {
+        return statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
     @Override
     public RequestPolicy create(RequestPolicy next, RequestPolicyOptions options) {
         return new RequestRetryPolicy(next, options, this.requestRetryOptions);
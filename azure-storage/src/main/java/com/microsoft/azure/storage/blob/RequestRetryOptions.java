@@ -70,7 +70,9 @@ public final class RequestRetryOptions {
      */
     public RequestRetryOptions(RetryPolicyType retryPolicyType, Integer maxTries, Long tryTimeoutInMs,
                                Long retryDelayInMs, Long maxRetryDelayInMs, String secondaryHost) {
-        this.retryPolicyType = retryPolicyType;
+        if (retryPolicyType != null) {
+            this.retryPolicyType = retryPolicyType;
+        }
         if (maxTries != null) {
             Utility.assertInBounds("maxRetries", maxTries, 1, Integer.MAX_VALUE);
             this.maxRetries = maxTries;
@@ -94,10 +96,29 @@ public final class RequestRetryOptions {
                 this.maxRetryDelayInMs = retryDelayInMs;
             }
         }
-        else {
+        else if (maxRetryDelayInMs != null) {
+            Utility.assertInBounds("maxRetryDelayInMs", maxRetryDelayInMs, 1, Long.MAX_VALUE);
             this.maxRetryDelayInMs = maxRetryDelayInMs;
             this.retryDelayInMs = Math.min(this.retryDelayInMs, this.maxRetryDelayInMs);
         }
+
+        this.secondaryHost = secondaryHost;
+    }
+
+    String secondaryHost() {
+        return this.secondaryHost;
+    }
+
+    int maxTries() {
+        return this.maxRetries;
+    }
+
+    long tryTimeoutInMs() {
+        return this.tryTimeoutInMs;
+    }
+
+    long maxRetryDelayInMs() {
+        return this.maxRetryDelayInMs;
     }
 
     /**
@@ -106,12 +127,16 @@ public final class RequestRetryOptions {
      * @param tryCount
      *      An {@code int} indicating which try we are on.
      * @return
+     *      The delay in milliseconds, never more than the maximum retry delay.
      */
     public long calculatedDelayInMs(int tryCount) {
         long delay = 0;
         switch (this.retryPolicyType) {
             case EXPONENTIAL:
-                delay = (pow(2L, tryCount - 1) - 1L) * this.retryDelayInMs;
+                // Guard against overflow for large try counts; the result is capped below anyway.
+                long multiplier = pow(2L, Math.min(tryCount - 1, 62)) - 1L;
+                delay = multiplier > this.maxRetryDelayInMs / this.retryDelayInMs
+                        ? this.maxRetryDelayInMs : multiplier * this.retryDelayInMs;
                 break;
 
             case FIXED:
@@ -119,7 +144,7 @@ public final class RequestRetryOptions {
                 break;
         }
 
-        return delay;
+        return Math.min(delay, this.maxRetryDelayInMs);
     }
 
     private long pow(long number, int exponent) {
@@ -35,8 +35,7 @@ public final class ServiceURL extends StorageURL {
 
     public ContainerURL createContainerURL(String containerName) {
         try {
-            return new ContainerURL(super.appendToURLPath(new URL(super.storageClient.url()), containerName),
-                    super.storageClient.httpPipeline());
+            return new ContainerURL(super.appendToURLPath(super.url, containerName), super.pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -69,7 +68,7 @@ public final class ServiceURL extends StorageURL {
         if (maxresults != null && maxresults < 0) {
             return Single.error(new IllegalArgumentException("MaxResults must be >= 0."));
         }
-        return this.storageClient.services().listContainersWithRestResponseAsync(prefix, marker,
+        return this.storageClient().services().listContainersWithRestResponseAsync(prefix, marker,
                 maxresults, include, null, null);
     }
 
@@ -83,7 +82,7 @@ public final class ServiceURL extends StorageURL {
      */
     public ServiceURL withPipeline(HttpPipeline pipeline) {
         try {
-            return new ServiceURL(new URL(super.storageClient.url()), pipeline);
+            return new ServiceURL(new URL(super.url), pipeline);
         } catch (MalformedURLException e) {
             // TODO: remove
         }
@@ -18,19 +18,22 @@ import com.microsoft.rest.v2.http.*;
 import com.microsoft.rest.v2.policy.RequestPolicy;
 import com.microsoft.rest.v2.policy.RequestPolicyOptions;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.reactivex.functions.Consumer;
 import io.reactivex.Single;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.microsoft.azure.storage.blob.Utility.getGMTTime;
 
@@ -38,9 +41,24 @@ public final class SharedKeyCredentials implements ICredentials {
 
     private final String accountName;
 
-    private final byte[] key;
+    private final SecretKeySpec key;
 
-    private final Mac hmacSha256;
+    /**
+     * A {@link Mac} is not thread-safe, so every thread signs with its own, along with the buffers it reuses for
+     * building and encoding the string to sign.
+     */
+    private final ThreadLocal<SigningContext> signingContext = new ThreadLocal<SigningContext>() {
+        @Override
+        protected SigningContext initialValue() {
+            try {
+                return new SigningContext(createMac(key));
+            }
+            catch (InvalidKeyException e) {
+                // The key was validated by the constructor.
+                throw new IllegalStateException(e);
+            }
+        }
+    };
 
     /**
      * Initialized a new instance of SharedKeyCredentials contains an account's name and its primary or secondary key.
@@ -51,16 +69,10 @@ public final class SharedKeyCredentials implements ICredentials {
      */
     public SharedKeyCredentials(String accountName, String key) throws UnsupportedEncodingException, InvalidKeyException {
         this.accountName = accountName;
-        this.key = Base64.decode(key);
+        this.key = new SecretKeySpec(Base64.decode(key), "HmacSHA256");
 
-        try {
-            this.hmacSha256 = Mac.getInstance("HmacSHA256");
-        }
-        catch (final NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException();
-        }
-
-        this.hmacSha256.init(new SecretKeySpec(this.key, "HmacSHA256"));
+        // Fail fast on a bad key rather than on the first request.
+        this.signingContext.set(new SigningContext(createMac(this.key)));
     }
 
     /**
@@ -72,6 +84,65 @@ public final class SharedKeyCredentials implements ICredentials {
         return accountName;
     }
 
+    private static Mac createMac(SecretKeySpec key) throws InvalidKeyException {
+        final Mac hmacSha256;
+        try {
+            hmacSha256 = Mac.getInstance("HmacSHA256");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException();
+        }
+        hmacSha256.init(key);
+        return hmacSha256;
+    }
+
+    /**
+     * The per thread state used to sign requests. Everything in here is reused from one request to the next.
+     */
+    private static final class SigningContext {
+
+        private final Mac hmacSha256;
+
+        private final StringBuilder stringToSign = new StringBuilder(512);
+
+        private final ArrayList<String> xmsHeaderNames = new ArrayList<String>();
+
+        private final ArrayList<String> queryParams = new ArrayList<String>();
+
+        private final CharsetEncoder utf8Encoder = Charset.forName(Constants.UTF8_CHARSET).newEncoder();
+
+        private ByteBuffer utf8Bytes = ByteBuffer.allocate(1024);
+
+        SigningContext(Mac hmacSha256) {
+            this.hmacSha256 = hmacSha256;
+        }
+
+        /**
+         * Computes the HMAC-SHA256 of the UTF-8 encoding of the given characters.
+         */
+        String sign(CharSequence stringToSign) throws CharacterCodingException {
+            CharBuffer chars = CharBuffer.wrap(stringToSign);
+            this.utf8Encoder.reset();
+            while (true) {
+                this.utf8Bytes.clear();
+                CoderResult result = this.utf8Encoder.encode(chars, this.utf8Bytes, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                this.utf8Bytes.flip();
+                this.hmacSha256.update(this.utf8Bytes);
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            this.utf8Bytes.clear();
+            this.utf8Encoder.flush(this.utf8Bytes);
+            this.utf8Bytes.flip();
+            this.hmacSha256.update(this.utf8Bytes);
+            return Base64.encode(this.hmacSha256.doFinal());
+        }
+    }
+
     private final class SharedKeyCredentialsPolicy implements RequestPolicy {
 
         private final RequestPolicy requestPolicy;
@@ -99,23 +170,27 @@ public final class SharedKeyCredentials implements ICredentials {
                 request.headers().set(Constants.HeaderConstants.DATE, getGMTTime(new Date()));
             }
 
-            final AtomicReference<String> stringToSign = new AtomicReference<>();
+            final String stringToSign;
             try {
-                stringToSign.set(this.factory.buildStringToSign(request));
-                final String computedBase64Signature = this.factory.computeHmac256(stringToSign.get());//.computeHmac256(stringToSign.get());
+                final String computedBase64Signature = this.factory.computeSignature(request);
                 request.headers().set(Constants.HeaderConstants.AUTHORIZATION, "SharedKey " + this.factory.accountName + ":"  + computedBase64Signature);
+
+                // The string to sign is only kept as a String when it could be logged.
+                stringToSign = this.options.shouldLog(HttpPipelineLogLevel.ERROR)
+                        ? this.factory.signingContext.get().stringToSign.toString() : null;
             } catch (Exception e) {
                 return Single.error(e);
             }
 
             Single<HttpResponse> response = requestPolicy.sendAsync(request);
+            if (stringToSign == null) {
+                return response;
+            }
             return response.doOnSuccess(new Consumer<HttpResponse>() {
                 @Override
                 public void accept(HttpResponse response) {
                     if (response.statusCode() == HttpResponseStatus.FORBIDDEN.code()) {
-                        if (options.shouldLog(HttpPipelineLogLevel.ERROR)) {
-                            options.log(HttpPipelineLogLevel.ERROR, "===== HTTP Forbidden status, String-to-Sign:%n'%s'%n===============================%n", stringToSign.get());
-                        }
+                        options.log(HttpPipelineLogLevel.ERROR, "===== HTTP Forbidden status, String-to-Sign:%n'%s'%n===============================%n", stringToSign);
                     }
                 }
             });
@@ -128,119 +203,200 @@ public final class SharedKeyCredentials implements ICredentials {
     }
 
     /**
-     * Constructs a canonicalized string for signing a request.
+     * Constructs a canonicalized string for signing a request into the context's reusable buffer.
      *
      * @param request
      *  the request to canonicalize
-     * @return a canonicalized string.
+     * @param context
+     *  the {@link SigningContext} of the current thread
      */
-    private String buildStringToSign(final HttpRequest request) throws Exception {
+    private void buildStringToSign(final HttpRequest request, final SigningContext context)
+            throws UnsupportedEncodingException {
         final HttpHeaders httpHeaders = request.headers();
+        final StringBuilder stringToSign = context.stringToSign;
+        stringToSign.setLength(0);
+
         String contentLength = getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.CONTENT_LENGTH);
         contentLength = contentLength.equals("0") ? Constants.EMPTY_STRING : contentLength;
 
-        String stringToSign = Utility.join(new String[]{
-                        request.httpMethod(),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.CONTENT_ENCODING),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.CONTENT_LANGUAGE),
-                        contentLength,
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.CONTENT_MD5),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.CONTENT_TYPE),
-                        // x-ms-date header exists, so don't sign date header
-                        Constants.EMPTY_STRING,
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.IF_MODIFIED_SINCE),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.IF_MATCH),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.IF_NONE_MATCH),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.IF_UNMODIFIED_SINCE),
-                        getStandardHeaderValue(httpHeaders, Constants.HeaderConstants.RANGE),
-                        getAdditionalXmsHeaders(httpHeaders),
-                        getCanonicalizedResource(new URL(request.url())) // TODO: remove when request returns URL.
-                }, '\n');
-         return stringToSign;
+        stringToSign.append(request.httpMethod()).append('\n');
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.CONTENT_ENCODING);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.CONTENT_LANGUAGE);
+        stringToSign.append(contentLength).append('\n');
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.CONTENT_MD5);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.CONTENT_TYPE);
+        // x-ms-date header exists, so don't sign date header
+        stringToSign.append('\n');
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.IF_MODIFIED_SINCE);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.IF_MATCH);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.IF_NONE_MATCH);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.IF_UNMODIFIED_SINCE);
+        appendStandardHeaderValue(stringToSign, httpHeaders, Constants.HeaderConstants.RANGE);
+        appendAdditionalXmsHeaders(stringToSign, httpHeaders, context.xmsHeaderNames);
+        stringToSign.append('\n');
+        appendCanonicalizedResource(stringToSign, request.url(), context.queryParams);
+    }
+
+    /**
+     * Signs a request with the current thread's {@link SigningContext}, which keeps the string to sign afterwards.
+     *
+     * @param request
+     *  the request to sign
+     * @return
+     *  the Base64 encoded signature
+     */
+    String computeSignature(final HttpRequest request)
+            throws UnsupportedEncodingException, CharacterCodingException {
+        final SigningContext context = this.signingContext.get();
+        this.buildStringToSign(request, context);
+        return context.sign(context.stringToSign);
+    }
+
+    /**
+     * Constructs the canonicalized string for signing a request.
+     *
+     * @param request
+     *  the request to canonicalize
+     * @return
+     *  the string to sign
+     */
+    String buildStringToSign(final HttpRequest request) throws UnsupportedEncodingException {
+        final SigningContext context = this.signingContext.get();
+        this.buildStringToSign(request, context);
+        return context.stringToSign.toString();
     }
 
-    private void appendCanonicalizedElement(final StringBuilder builder, final String element) {
-        builder.append("\n");
-        builder.append(element);
+    private void appendStandardHeaderValue(final StringBuilder builder, final HttpHeaders httpHeaders,
+                                           final String headerName) {
+        final String headerValue = httpHeaders.value(headerName);
+        if (headerValue != null) {
+            builder.append(headerValue);
+        }
+        builder.append('\n');
     }
 
-    private String getAdditionalXmsHeaders(final HttpHeaders headers) {
+    private void appendAdditionalXmsHeaders(final StringBuilder builder, final HttpHeaders headers,
+                                            final ArrayList<String> xmsHeaderNames) {
         // Add only headers that begin with 'x-ms-'
-        final ArrayList<String> xmsHeaderNameArray = new ArrayList<String>();
+        xmsHeaderNames.clear();
         for (HttpHeader header : headers) {
             String lowerCaseHeader = header.name().toLowerCase(Utility.LOCALE_US);
             if (lowerCaseHeader.startsWith(Constants.PREFIX_FOR_STORAGE_HEADER)) {
-                xmsHeaderNameArray.add(lowerCaseHeader);
+                xmsHeaderNames.add(lowerCaseHeader);
             }
         }
 
-        if (xmsHeaderNameArray.isEmpty()) {
-            return Constants.EMPTY_STRING;
-        }
+        Collections.sort(xmsHeaderNames);
 
-        Collections.sort(xmsHeaderNameArray);
-
-        final StringBuilder canonicalizedHeaders = new StringBuilder();
-        for (final String key : xmsHeaderNameArray) {
-            if (canonicalizedHeaders.length() > 0) {
-                canonicalizedHeaders.append('\n');
+        for (int i = 0; i < xmsHeaderNames.size(); i++) {
+            if (i > 0) {
+                builder.append('\n');
             }
 
-            canonicalizedHeaders.append(key);
-            canonicalizedHeaders.append(':');
-            canonicalizedHeaders.append(headers.value(key));
+            final String key = xmsHeaderNames.get(i);
+            builder.append(key);
+            builder.append(':');
+            builder.append(headers.value(key));
         }
-
-        return canonicalizedHeaders.toString();
     }
 
     /**
-     * Canonicalized the resource to sign.
+     * Appends the canonicalized resource to sign. The path and query are found by scanning the URL string rather
+     * than parsing it into a {@code java.net.URL}.
      *
+     * @param builder
+     *      The {@code StringBuilder} to append to.
      * @param requestURL
-     *      A {@code java.net.URL} of the request.
-     * @return
-     *      The canonicalized resource to sign.
-     * @throws MalformedURLException
+     *      A {@code String} with the absolute URL of the request.
+     * @param queryParams
+     *      A reusable {@code ArrayList} for sorting the query parameters.
      * @throws UnsupportedEncodingException
      */
-    private String getCanonicalizedResource(URL requestURL)
-            throws MalformedURLException, UnsupportedEncodingException {
+    private void appendCanonicalizedResource(final StringBuilder builder, final String requestURL,
+                                             final ArrayList<String> queryParams)
+            throws UnsupportedEncodingException {
+        final int authorityStart = requestURL.indexOf("://") + 3;
+        int queryStart = requestURL.indexOf('?', authorityStart);
+        int end = requestURL.indexOf('#', authorityStart);
+        if (end < 0) {
+            end = requestURL.length();
+        }
+        if (queryStart < 0 || queryStart > end) {
+            queryStart = end;
+        }
+        int pathStart = requestURL.indexOf('/', authorityStart);
+        if (pathStart < 0 || pathStart > queryStart) {
+            pathStart = queryStart;
+        }
 
         // Resource path
-        final StringBuilder canonicalizedResource = new StringBuilder("/");
-        canonicalizedResource.append(this.accountName);
+        builder.append('/');
+        builder.append(this.accountName);
 
-        // Note that AbsolutePath starts with a '/'.
-        if(requestURL.getPath().length() > 0) {
-            canonicalizedResource.append(requestURL.getPath());
+        // Note that the path starts with a '/'.
+        if (pathStart < queryStart) {
+            builder.append(requestURL, pathStart, queryStart);
         }
         else {
-            canonicalizedResource.append('/');
+            builder.append('/');
         }
 
         // check for no query params and return
-        if(requestURL.getQuery() == null) {
-            return canonicalizedResource.toString();
+        if (queryStart + 1 >= end) {
+            return;
         }
 
-        // The URL object's query field doesn't include the '?'. The QueryStringDecoder expects it.
-        QueryStringDecoder queryDecoder = new QueryStringDecoder("?" + requestURL.getQuery());
-        Map<String, List<String>> queryParams = queryDecoder.parameters();
+        // Each parameter is kept as its decoded name and value separated by a NUL, which sorts before any other
+        // character, so sorting the entries orders them by name and then by value.
+        queryParams.clear();
+        int paramStart = queryStart + 1;
+        while (paramStart < end) {
+            int paramEnd = requestURL.indexOf('&', paramStart);
+            if (paramEnd < 0 || paramEnd > end) {
+                paramEnd = end;
+            }
+            if (paramEnd > paramStart) {
+                int equals = requestURL.indexOf('=', paramStart);
+                String name;
+                String value;
+                if (equals < 0 || equals > paramEnd) {
+                    name = decodeQueryComponent(requestURL.substring(paramStart, paramEnd));
+                    value = Constants.EMPTY_STRING;
+                }
+                else {
+                    name = decodeQueryComponent(requestURL.substring(paramStart, equals));
+                    value = decodeQueryComponent(requestURL.substring(equals + 1, paramEnd));
+                }
+                queryParams.add(name + '\0' + value);
+            }
+            paramStart = paramEnd + 1;
+        }
 
-        ArrayList<String> queryParamNames = new ArrayList<String>(queryParams.keySet());
-        Collections.sort(queryParamNames);
+        Collections.sort(queryParams);
 
-        for (int i = 0; i < queryParamNames.size(); i++) {
-            final String queryParamName = queryParamNames.get(i);
-            final List<String> queryParamValues = queryParams.get(queryParamName);
-            Collections.sort(queryParamValues);
-            String queryParamValuesStr = Utility.join(queryParamValues.toArray(new String[]{}), ',');
-            canonicalizedResource.append("\n" + queryParamName.toLowerCase(Locale.US) + ":" + queryParamValuesStr);
+        String previousName = null;
+        for (int i = 0; i < queryParams.size(); i++) {
+            final String param = queryParams.get(i);
+            final int separator = param.indexOf('\0');
+            final String name = param.substring(0, separator);
+            if (name.equals(previousName)) {
+                builder.append(',');
+            }
+            else {
+                builder.append('\n');
+                builder.append(name.toLowerCase(Locale.US));
+                builder.append(':');
+                previousName = name;
+            }
+            builder.append(param, separator + 1, param.length());
         }
+    }
 
-        // append to main string builder the join of completed params with new line
-        return canonicalizedResource.toString();
+    private static String decodeQueryComponent(final String component) throws UnsupportedEncodingException {
+        if (component.indexOf('%') < 0 && component.indexOf('+') < 0) {
+            return component;
+        }
+        return URLDecoder.decode(component, Constants.UTF8_CHARSET);
     }
 
     /**
@@ -271,14 +427,11 @@ public final class SharedKeyCredentials implements ICredentials {
      *      If the key is not a valid Base64-encoded string.
      */
     String computeHmac256(final String stringToSign) throws InvalidKeyException {
-        byte[] utf8Bytes = null;
         try {
-            utf8Bytes = stringToSign.getBytes(Constants.UTF8_CHARSET);
+            return this.signingContext.get().sign(stringToSign);
         }
-        catch (final UnsupportedEncodingException e) {
+        catch (final CharacterCodingException e) {
             throw new IllegalArgumentException(e);
         }
-        return Base64.encode(this.hmacSha256.doFinal(utf8Bytes));
     }
 }
-
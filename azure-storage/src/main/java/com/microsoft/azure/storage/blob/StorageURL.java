@@ -15,10 +15,10 @@
 package com.microsoft.azure.storage.blob;
 
 import com.microsoft.azure.storage.implementation.StorageClientImpl;
+import com.microsoft.rest.v2.http.HttpClient;
 import com.microsoft.rest.v2.http.HttpPipeline;
 import com.microsoft.rest.v2.http.HttpRequest;
 import com.microsoft.rest.v2.http.HttpResponse;
-import com.microsoft.rest.v2.http.UrlBuilder;
 import com.microsoft.rest.v2.policy.RequestPolicy;
 import com.microsoft.rest.v2.policy.RequestPolicyFactory;
 import com.microsoft.rest.v2.policy.RequestPolicyOptions;
@@ -30,12 +30,22 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.azure.storage.blob.Utility.getGMTTime;
 
 public abstract class StorageURL {
 
-    protected final StorageClientImpl storageClient;
+    /**
+     * The URL as a string, from which the URLs of child resources are composed.
+     */
+    protected final String url;
+
+    protected final HttpPipeline pipeline;
+
+    private final PipelineClients pipelineClients;
+
+    private volatile StorageClientImpl storageClient;
 
     protected StorageURL(URL url, HttpPipeline pipeline) {
         if (url == null) {
@@ -45,29 +55,66 @@ public abstract class StorageURL {
             throw new IllegalArgumentException("pipeline cannot be null.");
         }
 
-        this.storageClient = new StorageClientImpl(pipeline).withVersion("2016-05-31");
-        this.storageClient.withUrl(url.toString());
+        this.url = url.toString();
+        this.pipeline = pipeline;
+        this.pipelineClients = PipelineClients.forPipeline(pipeline);
+    }
+
+    /**
+     * Gets the client which sends this URL's requests, creating it on first use. The service proxies behind it are
+     * shared by every URL on the same pipeline, so the client itself is cheap. Two threads may both create the client;
+     * either can be used.
+     *
+     * @return
+     *      The {@link StorageClientImpl} for this URL.
+     */
+    protected StorageClientImpl storageClient() {
+        StorageClientImpl storageClient = this.storageClient;
+        if (storageClient == null) {
+            storageClient = this.pipelineClients.newStorageClient(this.url);
+            this.storageClient = storageClient;
+        }
+        return storageClient;
+    }
+
+    /**
+     * @return
+     *      The service proxies shared by every URL on this URL's pipeline.
+     */
+    PipelineClients pipelineClients() {
+        return this.pipelineClients;
     }
 
-    // TODO: ADD RETRY Factory
     public static HttpPipeline CreatePipeline(ICredentials credentials, PipelineOptions pipelineOptions) {
         LoggingFactory loggingFactory = new LoggingFactory(pipelineOptions.loggingOptions);
         RequestIDFactory requestIDFactory = new RequestIDFactory();
-        //RequestRetryFactory requestRetryFactory = new RequestRetryFactory();
+        RequestRetryFactory requestRetryFactory = new RequestRetryFactory(pipelineOptions.requestRetryOptions);
         TelemetryFactory telemetryFactory = new TelemetryFactory(pipelineOptions.telemetryOptions);
         AddDatePolicy addDate = new AddDatePolicy();
-        return HttpPipeline.build(
-                pipelineOptions.client, requestIDFactory, telemetryFactory, addDate, credentials, loggingFactory);
+
+        HttpClientOptions httpClientOptions = pipelineOptions.httpClientOptions == null
+                ? HttpClientOptions.getDefault() : pipelineOptions.httpClientOptions;
+        HttpClient client = pipelineOptions.client == null
+                ? httpClientOptions.getHttpClient() : pipelineOptions.client;
+
+        // The retry policy sits before the date and credentials policies so that every try is dated and signed anew.
+        if (httpClientOptions.getReadTimeoutInMs() == null) {
+            return HttpPipeline.build(client, requestIDFactory, telemetryFactory, requestRetryFactory,
+                    addDate, credentials, loggingFactory);
+        }
+        return HttpPipeline.build(client, requestIDFactory, telemetryFactory, requestRetryFactory,
+                addDate, credentials, loggingFactory,
+                new ReadTimeoutPolicy(httpClientOptions.getReadTimeoutInMs()));
     }
 
     @Override
     public String toString() {
-        return this.storageClient.url();
+        return this.url;
     }
 
     public URL toURL() {
         try {
-            return new URL(this.storageClient.url());
+            return new URL(this.url);
         } catch (MalformedURLException e) {
             // TODO: remove and update toString.
         }
@@ -75,24 +122,26 @@ public abstract class StorageURL {
     }
 
     /**
-     * Appends a string to the end of a URL's path (prefixing the string with a '/' if required).
+     * Appends a string to the end of a URL's path (prefixing the string with a '/' if required). The URL is composed
+     * as a string, so it is only parsed once, by the {@code java.net.URL} constructor.
      * @param baseURL
-     *      A {@code java.net.URL} to which the name should be appended.
+     *      A {@code String} with the URL to which the name should be appended.
      * @param name
      *      A {@code String} with the name to be appended.
      * @return
-     *      A {@code String} with the name appended to the URL.
+     *      A {@code java.net.URL} with the name appended to the path, followed by the query of the base URL, if any.
      */
-    protected URL appendToURLPath(URL baseURL, String name) throws MalformedURLException {
-        UrlBuilder url = UrlBuilder.parse(baseURL.toString());
-        if(url.path() == null) {
-            url.withPath("/"); // .path() will return null if it is empty, so we have to process separately from below.
-        }
-        else if (url.path().charAt(url.path().length() - 1) != '/') {
-            url.withPath(url.path() + '/');
+    protected URL appendToURLPath(String baseURL, String name) throws MalformedURLException {
+        int queryStart = baseURL.indexOf('?');
+        int pathEnd = queryStart < 0 ? baseURL.length() : queryStart;
+
+        StringBuilder url = new StringBuilder(baseURL.length() + name.length() + 1);
+        url.append(baseURL, 0, pathEnd);
+        if (url.charAt(url.length() - 1) != '/') {
+            url.append('/');
         }
-        url.withPath(url.path() + name);
-        return new URL(url.toString()); // TODO: modify when toURL is released.
+        url.append(name).append(baseURL, pathEnd, baseURL.length());
+        return new URL(url.toString());
     }
 
     static class AddDatePolicy implements RequestPolicyFactory {
@@ -120,4 +169,35 @@ public abstract class StorageURL {
             }
         }
     }
+
+    /**
+     * Fails a try which has not received its response headers within the read timeout. It is the last policy in the
+     * pipeline, so the timeout covers only the time spent on the wire; the resulting
+     * {@code java.util.concurrent.TimeoutException} is retried by the retry policy.
+     */
+    static class ReadTimeoutPolicy implements RequestPolicyFactory {
+
+        private final long readTimeoutInMs;
+
+        ReadTimeoutPolicy(long readTimeoutInMs) {
+            this.readTimeoutInMs = readTimeoutInMs;
+        }
+
+        @Override
+        public RequestPolicy create(RequestPolicy next, RequestPolicyOptions options) {
+            return new ReadTimeout(next);
+        }
+
+        public final class ReadTimeout implements RequestPolicy {
+            private final RequestPolicy next;
+            public ReadTimeout(RequestPolicy next) {
+                this.next = next;
+            }
+
+            @Override
+            public Single<HttpResponse> sendAsync(HttpRequest request) {
+                return this.next.sendAsync(request).timeout(readTimeoutInMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 }
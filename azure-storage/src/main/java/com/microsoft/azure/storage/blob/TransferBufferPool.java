@@ -0,0 +1,187 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of the buffers used to stage blocks, pages and ranges during transfers. Buffers are returned to the pool
+ * when a transfer is done with them and handed out again to later transfers, instead of each block allocating a new
+ * buffer of up to {@link Constants#MAX_BLOCK_SIZE} bytes for the garbage collector to reclaim.
+ * <p>
+ * Buffers are kept in size classes by exact capacity, since request bodies are sent from the whole backing array.
+ * Buffers are heap buffers for the same reason. Many sizes are asked for only once, such as the last block of a file
+ * or a small file uploaded whole, so idle buffers are kept only up to a limit: a buffer returned beyond the limit
+ * makes room by evicting the idle buffers of the sizes least recently used, and is only left to the garbage collector
+ * if it is larger than the limit itself. Sizes in steady use therefore stay pooled however many others pass through.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TransferBufferPool {
+
+    private static final TransferBufferPool DEFAULT_POOL =
+            new TransferBufferPool(Math.min(256L * Constants.MB, Runtime.getRuntime().maxMemory() / 4));
+
+    private final long maxRetainedBytes;
+
+    /**
+     * The idle buffers of each size, from the size least recently used to the most. Guarded by {@code this}; only
+     * taking and returning buffers is done under the lock, never allocating them.
+     */
+    private final LinkedHashMap<Integer, Deque<ByteBuffer>> sizeClasses =
+            new LinkedHashMap<Integer, Deque<ByteBuffer>>(16, 0.75f, true);
+
+    private long retainedBytes;
+
+    private final AtomicLong bytesInUse = new AtomicLong();
+
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxRetainedBytes
+     *      The most memory, in bytes, the pool keeps in idle buffers.
+     */
+    public TransferBufferPool(long maxRetainedBytes) {
+        Utility.assertInBounds("maxRetainedBytes", maxRetainedBytes, 0, Long.MAX_VALUE);
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating one if the pool has no idle buffer of that size.
+     *
+     * @param size
+     *      The size of the buffer in bytes.
+     * @return
+     *      A cleared {@code ByteBuffer} whose capacity, limit and backing array length are all {@code size}.
+     */
+    public ByteBuffer acquire(int size) {
+        Utility.assertInBounds("size", size, 0, Integer.MAX_VALUE);
+        ByteBuffer buffer = null;
+        synchronized (this) {
+            Deque<ByteBuffer> sizeClass = this.sizeClasses.get(size);
+            if (sizeClass != null) {
+                buffer = sizeClass.pollLast();
+                if (sizeClass.isEmpty()) {
+                    this.sizeClasses.remove(size);
+                }
+                this.retainedBytes -= size;
+            }
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(size);
+        }
+        else {
+            buffer.clear();
+        }
+
+        long inUse = this.bytesInUse.addAndGet(size);
+        long mark = this.highWaterMark.get();
+        while (inUse > mark && !this.highWaterMark.compareAndSet(mark, inUse)) {
+            mark = this.highWaterMark.get();
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use the buffer afterwards.
+     *
+     * @param buffer
+     *      A {@code ByteBuffer} which was returned by {@link #acquire(int)} on this pool, or {@code null}.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        int size = buffer.capacity();
+        this.bytesInUse.addAndGet(-size);
+        if (size > this.maxRetainedBytes) {
+            return;
+        }
+
+        synchronized (this) {
+            // Room is made from the sizes least recently used, which are the first in the map.
+            Iterator<Map.Entry<Integer, Deque<ByteBuffer>>> leastRecentlyUsed =
+                    this.sizeClasses.entrySet().iterator();
+            while (this.retainedBytes + size > this.maxRetainedBytes && leastRecentlyUsed.hasNext()) {
+                Map.Entry<Integer, Deque<ByteBuffer>> sizeClass = leastRecentlyUsed.next();
+                while (this.retainedBytes + size > this.maxRetainedBytes && sizeClass.getValue().pollFirst() != null) {
+                    this.retainedBytes -= sizeClass.getKey();
+                }
+                if (sizeClass.getValue().isEmpty()) {
+                    leastRecentlyUsed.remove();
+                }
+            }
+
+            Deque<ByteBuffer> sizeClass = this.sizeClasses.get(size);
+            if (sizeClass == null) {
+                sizeClass = new ArrayDeque<ByteBuffer>();
+                this.sizeClasses.put(size, sizeClass);
+            }
+            sizeClass.offerLast(buffer);
+            this.retainedBytes += size;
+        }
+    }
+
+    /**
+     * @return
+     *      The most memory, in bytes, the pool keeps in idle buffers.
+     */
+    public long getMaxRetainedBytes() {
+        return this.maxRetainedBytes;
+    }
+
+    /**
+     * @return
+     *      The total size, in bytes, of the idle buffers held by the pool.
+     */
+    public synchronized long getRetainedBytes() {
+        return this.retainedBytes;
+    }
+
+    /**
+     * @return
+     *      The total size, in bytes, of the buffers which have been acquired and not yet released.
+     */
+    public long getBytesInUse() {
+        return this.bytesInUse.get();
+    }
+
+    /**
+     * @return
+     *      The largest value {@link #getBytesInUse()} has reached.
+     */
+    public long getHighWaterMark() {
+        return this.highWaterMark.get();
+    }
+
+    /**
+     * Gets the pool shared by every transfer in the library. It retains up to a quarter of the maximum heap size, and
+     * no more than 256MB.
+     *
+     * @return
+     *      The shared {@link TransferBufferPool}.
+     */
+    public static TransferBufferPool getDefault() {
+        return DEFAULT_POOL;
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.functions.Action;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+
+/**
+ * Bounds the memory held by transfers in flight. Each block or range reserves its size from the budget before its
+ * buffer is filled and gives it back once it is done. When the budget is exhausted, further blocks wait, without
+ * blocking a thread, until enough memory has been given back. Waiting reservations are granted in the order they were
+ * made, so a large block is never starved by a stream of smaller ones.
+ * <p>
+ * Every transfer in the library reserves from {@link #getDefault()}, so the limit holds across all of the uploads and
+ * downloads running in the process, however many are started at once.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TransferMemoryBudget {
+
+    private static final TransferMemoryBudget DEFAULT_BUDGET =
+            new TransferMemoryBudget(Runtime.getRuntime().maxMemory() / 2);
+
+    private final Object lock = new Object();
+
+    private final Queue<Reservation> waiting = new ArrayDeque<Reservation>();
+
+    private long maxBytes;
+
+    private long availableBytes;
+
+    /**
+     * Creates a budget with all of its memory available.
+     *
+     * @param maxBytes
+     *      The most memory, in bytes, that may be reserved at once.
+     */
+    public TransferMemoryBudget(long maxBytes) {
+        Utility.assertInBounds("maxBytes", maxBytes, 1, Long.MAX_VALUE);
+        this.maxBytes = maxBytes;
+        this.availableBytes = maxBytes;
+    }
+
+    /**
+     * Reserves memory for an operation and runs the operation once the reservation is granted. The memory is given
+     * back when the operation succeeds, fails or is disposed. A reservation larger than the whole budget waits for
+     * every other reservation to finish and then runs alone, rather than waiting forever.
+     *
+     * @param bytes
+     *      The memory, in bytes, the operation needs.
+     * @param operation
+     *      A {@code Callable} which creates the operation. It is called once the memory has been reserved.
+     * @param <T>
+     *      The type of the result of the operation.
+     * @return
+     *      A {@link Single} which emits the result of the operation.
+     */
+    public <T> Single<T> reserveAsync(final long bytes, final Callable<? extends SingleSource<? extends T>> operation) {
+        Utility.assertInBounds("bytes", bytes, 0, Long.MAX_VALUE);
+        return Single.defer(new Callable<SingleSource<T>>() {
+            @Override
+            public SingleSource<T> call() {
+                final Reservation reservation = new Reservation(bytes);
+                return reservation.grantedAsync()
+                        .andThen(Single.defer(operation))
+                        .doFinally(new Action() {
+                            @Override
+                            public void run() {
+                                reservation.close();
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Changes the size of the budget. Reservations already granted are not affected; if the budget shrinks below the
+     * memory already reserved, new reservations wait until enough of it has been given back.
+     *
+     * @param maxBytes
+     *      The most memory, in bytes, that may be reserved at once.
+     */
+    public void setMaxBytes(long maxBytes) {
+        Utility.assertInBounds("maxBytes", maxBytes, 1, Long.MAX_VALUE);
+        List<Reservation> granted;
+        synchronized (this.lock) {
+            this.availableBytes += maxBytes - this.maxBytes;
+            this.maxBytes = maxBytes;
+            granted = this.grantWaiting();
+        }
+        complete(granted);
+    }
+
+    /**
+     * @return
+     *      The most memory, in bytes, that may be reserved at once.
+     */
+    public long getMaxBytes() {
+        synchronized (this.lock) {
+            return this.maxBytes;
+        }
+    }
+
+    /**
+     * @return
+     *      The memory, in bytes, that is currently reserved.
+     */
+    public long getReservedBytes() {
+        synchronized (this.lock) {
+            return this.maxBytes - this.availableBytes;
+        }
+    }
+
+    /**
+     * @return
+     *      The number of reservations waiting for memory.
+     */
+    public int getWaitingCount() {
+        synchronized (this.lock) {
+            return this.waiting.size();
+        }
+    }
+
+    /**
+     * Gets the budget shared by every transfer in the library. It starts at half of the maximum heap size, and may be
+     * changed with {@link #setMaxBytes(long)}.
+     *
+     * @return
+     *      The shared {@link TransferMemoryBudget}.
+     */
+    public static TransferMemoryBudget getDefault() {
+        return DEFAULT_BUDGET;
+    }
+
+    /**
+     * Grants waiting reservations in order for as long as there is memory for the one at the head of the queue. Must
+     * be called while holding the lock; the granted reservations are completed after the lock is released, since
+     * completing one may start its operation on this thread.
+     */
+    private List<Reservation> grantWaiting() {
+        List<Reservation> granted = null;
+        while (!this.waiting.isEmpty() && this.canGrant(this.waiting.peek().bytes)) {
+            Reservation reservation = this.waiting.poll();
+            this.availableBytes -= reservation.bytes;
+            reservation.state = Reservation.GRANTED;
+            if (granted == null) {
+                granted = new ArrayList<Reservation>();
+            }
+            granted.add(reservation);
+        }
+        return granted;
+    }
+
+    /**
+     * A reservation larger than the whole budget is granted once nothing else is reserved, rather than never.
+     */
+    private boolean canGrant(long bytes) {
+        return bytes <= this.availableBytes || this.availableBytes >= this.maxBytes;
+    }
+
+    private static void complete(List<Reservation> granted) {
+        if (granted != null) {
+            for (Reservation reservation : granted) {
+                reservation.emitter.onComplete();
+            }
+        }
+    }
+
+    /**
+     * The memory reserved for one operation. It moves from NEW to either GRANTED or WAITING when it is requested, from
+     * WAITING to GRANTED when memory is given back, and to CLOSED when the operation is done.
+     */
+    private final class Reservation {
+
+        private static final int NEW = 0;
+
+        private static final int WAITING = 1;
+
+        private static final int GRANTED = 2;
+
+        private static final int CLOSED = 3;
+
+        private final long bytes;
+
+        private int state = NEW;
+
+        private CompletableEmitter emitter;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        private Completable grantedAsync() {
+            return Completable.create(new CompletableOnSubscribe() {
+                @Override
+                public void subscribe(CompletableEmitter emitter) {
+                    boolean granted;
+                    synchronized (lock) {
+                        Reservation.this.emitter = emitter;
+                        granted = waiting.isEmpty() && canGrant(Reservation.this.bytes);
+                        if (granted) {
+                            availableBytes -= Reservation.this.bytes;
+                            state = GRANTED;
+                        }
+                        else {
+                            state = WAITING;
+                            waiting.add(Reservation.this);
+                        }
+                    }
+                    if (granted) {
+                        emitter.onComplete();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Gives back the memory if it was granted, or withdraws the reservation if it is still waiting.
+         */
+        private void close() {
+            List<Reservation> granted = null;
+            synchronized (lock) {
+                if (this.state == WAITING) {
+                    waiting.remove(this);
+                    // The head of the queue may have been waiting behind this reservation.
+                    granted = grantWaiting();
+                }
+                else if (this.state == GRANTED) {
+                    availableBytes += this.bytes;
+                    granted = grantWaiting();
+                }
+                this.state = CLOSED;
+            }
+            complete(granted);
+        }
+    }
+}
@@ -0,0 +1,431 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.functions.Consumer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the block size and the number of requests in flight of a chunked transfer while it runs, and reports what it
+ * measured once the transfer is done. Pass a tuner in {@link UploadToBlockBlobOptions} or
+ * {@link DownloadFromBlobOptions} to let the transfer adapt; the block size and parallelism given in the options are
+ * then only the starting point.
+ * <p>
+ * The tuner measures the aggregate throughput of the transfer over epochs of several requests each, and climbs
+ * towards the best throughput by trying one change at a time: more or fewer requests in flight, or larger or smaller
+ * blocks. A change which improves throughput by at least 5% is kept and tried again; any other change is undone and
+ * the next kind of change is tried after an epoch at the previous settings. Probing continues for the whole transfer,
+ * so the settings follow changes in the network.
+ * <p>
+ * A tuner drives one transfer at a time. Its statistics describe the most recent transfer, and are complete once that
+ * transfer has finished.
+ */
+public final class TransferTuner {
+
+    /**
+     * The default most requests the tuner lets a transfer have in flight.
+     */
+    public static final int DEFAULT_MAX_PARALLELISM = 64;
+
+    /**
+     * The smallest block size the tuner chooses.
+     */
+    static final long MIN_BLOCK_SIZE = 256 * 1024;
+
+    private static final double IMPROVEMENT_THRESHOLD = 1.05;
+
+    private static final int MIN_EPOCH_REQUESTS = 4;
+
+    private enum Move {
+        MORE_PARALLELISM, LESS_PARALLELISM, LARGER_BLOCKS, SMALLER_BLOCKS
+    }
+
+    private final int maxParallelism;
+
+    /**
+     * Admits requests; each one reserves a single unit, so the budget's size is the number of requests in flight.
+     */
+    private TransferMemoryBudget gate;
+
+    private int parallelism;
+
+    private long blockSize;
+
+    private long minBlockSize;
+
+    private long maxBlockSize;
+
+    private Move move;
+
+    /**
+     * The settings to return to if the change being tried does not pay off, or -1 when no change is being tried.
+     */
+    private int baselineParallelism = -1;
+
+    private long baselineBlockSize;
+
+    private double baselineThroughput;
+
+    private long epochStartNanos;
+
+    private long epochBytes;
+
+    private int epochRequests;
+
+    private long startNanos;
+
+    private long endNanos;
+
+    private long requestCount;
+
+    private long bytesTransferred;
+
+    private long totalLatencyNanos;
+
+    private double bestThroughput;
+
+    private int adjustmentCount;
+
+    /**
+     * A piece of a transfer: a block of an upload or a range of a download.
+     */
+    static final class Chunk {
+
+        final int index;
+
+        final long offset;
+
+        final int length;
+
+        Chunk(int index, long offset, int length) {
+            this.index = index;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Hands out consecutive chunks of a range, each of the size asked for at the time it is taken, so that the chunk
+     * size can change as the transfer runs. Chunks are numbered in order from 0.
+     */
+    static final class ChunkPlanner {
+
+        private final long end;
+
+        private long offset;
+
+        private int chunkCount;
+
+        ChunkPlanner(long start, long end) {
+            this.offset = start;
+            this.end = end;
+        }
+
+        synchronized boolean hasRemaining() {
+            return this.offset < this.end;
+        }
+
+        /**
+         * @return
+         *      The next chunk, or {@code null} if the whole range has been handed out.
+         */
+        synchronized Chunk next(long chunkSize) {
+            if (this.offset >= this.end) {
+                return null;
+            }
+            Chunk chunk = new Chunk(this.chunkCount++, this.offset, (int) Math.min(chunkSize, this.end - this.offset));
+            this.offset += chunk.length;
+            return chunk;
+        }
+
+        synchronized int chunkCount() {
+            return this.chunkCount;
+        }
+    }
+
+    /**
+     * Creates a {@link TransferTuner}.
+     *
+     * @param maxParallelism
+     *      An {@code Integer} specifying the most requests the tuner may let a transfer have in flight. If
+     *      {@code null}, {@link #DEFAULT_MAX_PARALLELISM} is used.
+     */
+    public TransferTuner(Integer maxParallelism) {
+        if (maxParallelism != null) {
+            Utility.assertInBounds("maxParallelism", maxParallelism, 1, Integer.MAX_VALUE);
+        }
+        this.maxParallelism = maxParallelism == null ? DEFAULT_MAX_PARALLELISM : maxParallelism;
+    }
+
+    /**
+     * Resets the tuner for a new transfer.
+     *
+     * @param initialParallelism
+     *      The number of requests in flight to start with.
+     * @param initialBlockSize
+     *      The block size to start with.
+     * @param minBlockSize
+     *      The smallest block size the transfer allows.
+     * @param maxBlockSize
+     *      The largest block size the transfer allows.
+     */
+    synchronized void start(int initialParallelism, long initialBlockSize, long minBlockSize, long maxBlockSize) {
+        this.parallelism = Math.min(initialParallelism, this.maxParallelism);
+        this.minBlockSize = Math.min(minBlockSize, maxBlockSize);
+        this.maxBlockSize = maxBlockSize;
+        this.blockSize = Math.max(this.minBlockSize, Math.min(initialBlockSize, maxBlockSize));
+        this.gate = new TransferMemoryBudget(this.parallelism);
+        this.move = Move.MORE_PARALLELISM;
+        this.baselineParallelism = -1;
+        this.baselineThroughput = 0;
+        this.startNanos = System.nanoTime();
+        this.endNanos = 0;
+        this.epochStartNanos = this.startNanos;
+        this.epochBytes = 0;
+        this.epochRequests = 0;
+        this.requestCount = 0;
+        this.bytesTransferred = 0;
+        this.totalLatencyNanos = 0;
+        this.bestThroughput = 0;
+        this.adjustmentCount = 0;
+    }
+
+    /**
+     * Marks the end of the transfer, so that the statistics stop accruing time.
+     */
+    synchronized void finish() {
+        this.endNanos = System.nanoTime();
+    }
+
+    /**
+     * Runs a request once the number of requests in flight is below the tuned parallelism, and measures it.
+     *
+     * @param request
+     *      A {@code Callable} which creates the request once it is admitted. The request emits the number of bytes it
+     *      transferred.
+     * @return
+     *      A {@link Single} which emits the number of bytes the request transferred.
+     */
+    Single<Long> runAsync(final Callable<? extends SingleSource<Long>> request) {
+        final TransferMemoryBudget gate;
+        synchronized (this) {
+            gate = this.gate;
+        }
+        return gate.reserveAsync(1, new Callable<Single<Long>>() {
+            @Override
+            public Single<Long> call() {
+                final long requestStartNanos = System.nanoTime();
+                return Single.defer(request)
+                        .doOnSuccess(new Consumer<Long>() {
+                            @Override
+                            public void accept(Long bytes) {
+                                record(bytes, System.nanoTime() - requestStartNanos);
+                            }
+                        });
+            }
+        });
+    }
+
+    private void record(long bytes, long latencyNanos) {
+        TransferMemoryBudget gate;
+        int newParallelism;
+        synchronized (this) {
+            if (bytes == 0) {
+                return;
+            }
+            this.requestCount++;
+            this.bytesTransferred += bytes;
+            this.totalLatencyNanos += latencyNanos;
+            this.epochBytes += bytes;
+            this.epochRequests++;
+
+            long now = System.nanoTime();
+            if (this.epochRequests < Math.max(MIN_EPOCH_REQUESTS, 2 * this.parallelism)
+                    || now == this.epochStartNanos) {
+                return;
+            }
+            double throughput = this.epochBytes * (double) TimeUnit.SECONDS.toNanos(1)
+                    / (now - this.epochStartNanos);
+            this.bestThroughput = Math.max(this.bestThroughput, throughput);
+            this.endEpoch(throughput);
+            this.epochStartNanos = now;
+            this.epochBytes = 0;
+            this.epochRequests = 0;
+            gate = this.gate;
+            newParallelism = this.parallelism;
+        }
+        gate.setMaxBytes(newParallelism);
+    }
+
+    /**
+     * Judges the epoch just ended and picks the settings for the next one. Must be called while holding the lock.
+     */
+    void endEpoch(double throughput) {
+        if (this.baselineParallelism < 0) {
+            // The epoch measured the current settings; try a change against it.
+            this.baselineThroughput = throughput;
+            this.tryMove();
+            return;
+        }
+
+        if (throughput >= this.baselineThroughput * IMPROVEMENT_THRESHOLD) {
+            // Keep the change and push further the same way.
+            this.adjustmentCount++;
+            this.baselineThroughput = throughput;
+            this.tryMove();
+            return;
+        }
+
+        // Undo the change, measure the old settings again and then try the next kind of change.
+        this.parallelism = this.baselineParallelism;
+        this.blockSize = this.baselineBlockSize;
+        this.baselineParallelism = -1;
+        this.move = Move.values()[(this.move.ordinal() + 1) % Move.values().length];
+    }
+
+    /**
+     * Applies the current move, or the next one that is possible, remembering the settings to return to.
+     */
+    private void tryMove() {
+        for (int i = 0; i < Move.values().length; i++) {
+            int newParallelism = this.parallelism;
+            long newBlockSize = this.blockSize;
+            switch (this.move) {
+                case MORE_PARALLELISM:
+                    newParallelism = Math.min(this.maxParallelism,
+                            this.parallelism + Math.max(1, this.parallelism / 2));
+                    break;
+                case LESS_PARALLELISM:
+                    newParallelism = Math.max(1, this.parallelism - Math.max(1, this.parallelism / 4));
+                    break;
+                case LARGER_BLOCKS:
+                    newBlockSize = Math.min(this.maxBlockSize, this.blockSize * 2);
+                    break;
+                default:
+                    newBlockSize = Math.max(this.minBlockSize, this.blockSize / 2);
+                    break;
+            }
+            if (newParallelism != this.parallelism || newBlockSize != this.blockSize) {
+                this.baselineParallelism = this.parallelism;
+                this.baselineBlockSize = this.blockSize;
+                this.parallelism = newParallelism;
+                this.blockSize = newBlockSize;
+                return;
+            }
+            this.move = Move.values()[(this.move.ordinal() + 1) % Move.values().length];
+        }
+        this.baselineParallelism = -1;
+    }
+
+    /**
+     * @return
+     *      The most requests the tuner may let a transfer have in flight.
+     */
+    public int getMaxParallelism() {
+        return this.maxParallelism;
+    }
+
+    /**
+     * @return
+     *      The number of requests in flight the tuner currently allows, or settled on once the transfer is done.
+     */
+    public synchronized int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @return
+     *      The block size, in bytes, the tuner currently chooses, or settled on once the transfer is done.
+     */
+    public synchronized long getBlockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * @return
+     *      The number of requests the transfer has completed.
+     */
+    public synchronized long getRequestCount() {
+        return this.requestCount;
+    }
+
+    /**
+     * @return
+     *      The number of bytes transferred by the requests the tuner measured.
+     */
+    public synchronized long getBytesTransferred() {
+        return this.bytesTransferred;
+    }
+
+    /**
+     * @return
+     *      The time, in milliseconds, from the start of the transfer until it finished or until now.
+     */
+    public synchronized long getElapsedInMs() {
+        long end = this.endNanos == 0 ? System.nanoTime() : this.endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - this.startNanos);
+    }
+
+    /**
+     * @return
+     *      The average throughput of the whole transfer, in bytes per second.
+     */
+    public synchronized double getAverageThroughput() {
+        long end = this.endNanos == 0 ? System.nanoTime() : this.endNanos;
+        return end == this.startNanos
+                ? 0
+                : this.bytesTransferred * (double) TimeUnit.SECONDS.toNanos(1) / (end - this.startNanos);
+    }
+
+    /**
+     * @return
+     *      The highest throughput measured over an epoch, in bytes per second.
+     */
+    public synchronized double getBestThroughput() {
+        return this.bestThroughput;
+    }
+
+    /**
+     * @return
+     *      The average time, in milliseconds, from a request being admitted to it completing.
+     */
+    public synchronized double getAverageLatencyInMs() {
+        return this.requestCount == 0
+                ? 0
+                : this.totalLatencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1) / this.requestCount;
+    }
+
+    /**
+     * @return
+     *      The number of changes to the settings that improved throughput and were kept.
+     */
+    public synchronized int getAdjustmentCount() {
+        return this.adjustmentCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Utility.LOCALE_US,
+                "%d requests, %d bytes in %d ms (%.1f MB/s average, %.1f MB/s best), %.1f ms average latency, "
+                        + "settled on %d in flight with %d byte blocks after %d adjustments",
+                this.requestCount, this.bytesTransferred, this.getElapsedInMs(),
+                this.getAverageThroughput() / Constants.MB, this.bestThroughput / Constants.MB,
+                this.getAverageLatencyInMs(), this.parallelism, this.blockSize, this.adjustmentCount);
+    }
+}
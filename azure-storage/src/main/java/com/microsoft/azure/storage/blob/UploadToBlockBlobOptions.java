@@ -0,0 +1,192 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+import java.nio.file.Path;
+
+/**
+ * Defines options available when calling {@link BlockBlobURL#uploadFileAsync}.
+ */
+public final class UploadToBlockBlobOptions {
+
+    private static UploadToBlockBlobOptions defaultUploadToBlockBlobOptions;
+
+    /**
+     * The default number of blocks that are uploaded at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 5;
+
+    private final Integer blockSize;
+
+    private final int parallelism;
+
+    private final BlobHttpHeaders httpHeaders;
+
+    private final Metadata metadata;
+
+    private final BlobAccessConditions accessConditions;
+
+    private final Path journalPath;
+
+    private final TransferTuner tuner;
+
+    private final boolean computeBlockMD5;
+
+    private final boolean computeBlobMD5;
+
+    /**
+     * A {@link UploadToBlockBlobOptions} object.
+     *
+     * @param blockSize
+     *      An {@code Integer} specifying the size of each block in bytes. It must be between 1 byte and 100MB. If
+     *      {@code null}, the smallest block size of at least 4MB which keeps the blob under the service's block
+     *      count limit is used.
+     * @param parallelism
+     *      An {@code Integer} specifying the maximum number of blocks to upload at the same time. If {@code null},
+     *      {@link #DEFAULT_PARALLELISM} is used.
+     * @param httpHeaders
+     *      A {@link BlobHttpHeaders} object that specifies which properties to set on the blob when the block list is
+     *      committed.
+     * @param metadata
+     *      A {@link Metadata} object that specifies key value pairs to set on the blob when the block list is
+     *      committed.
+     * @param accessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the blocks should be staged
+     *      and the block list committed.
+     * @param journalPath
+     *      A {@code java.nio.file.Path} at which to keep a journal of the blocks that have been staged, so that an
+     *      interrupted upload of the same file can be resumed by uploading again with the same path. Only the blocks
+     *      which are not still staged on the service are uploaded again. The journal is deleted once the block list
+     *      has been committed. The file must not change between attempts. If {@code null}, no journal is kept and
+     *      every upload starts from the beginning.
+     * @param tuner
+     *      A {@link TransferTuner} which adapts the block size and the number of blocks in flight to the measured
+     *      throughput as the upload runs, starting from the given block size and parallelism, and reports what it
+     *      measured. It is not used when a journal is kept, since a resumed upload needs the same blocks as before. If
+     *      {@code null}, the block size and parallelism stay fixed.
+     * @param computeBlockMD5
+     *      A {@code Boolean} specifying whether to send the MD5 hash of each block with it, so that the service
+     *      rejects a block which was corrupted on the way. The hash is computed from the block's buffer as it is sent,
+     *      so the file is still read only once. If {@code null}, no hash is sent.
+     * @param computeBlobMD5
+     *      A {@code Boolean} specifying whether to compute the MD5 hash of the whole file as its blocks are read and
+     *      store it as the blob's Content-MD5 when the block list is committed. It cannot be combined with a
+     *      Content-MD5 in {@code httpHeaders}. A resumed upload which skips blocks staged by an earlier attempt does
+     *      not read them, and so commits without it. If {@code null}, no hash is stored.
+     */
+    public UploadToBlockBlobOptions(Integer blockSize, Integer parallelism, BlobHttpHeaders httpHeaders,
+                                    Metadata metadata, BlobAccessConditions accessConditions, Path journalPath,
+                                    TransferTuner tuner, Boolean computeBlockMD5, Boolean computeBlobMD5) {
+        if (blockSize != null) {
+            Utility.assertInBounds("blockSize", blockSize, 1, Constants.MAX_BLOCK_SIZE);
+        }
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+        }
+        this.blockSize = blockSize;
+        this.parallelism = parallelism == null ? DEFAULT_PARALLELISM : parallelism;
+        this.httpHeaders = httpHeaders == null ? BlobHttpHeaders.getDefault() : httpHeaders;
+        this.metadata = metadata == null ? Metadata.getDefault() : metadata;
+        this.accessConditions = accessConditions == null ? BlobAccessConditions.getDefault() : accessConditions;
+        this.journalPath = journalPath;
+        this.tuner = tuner;
+        this.computeBlockMD5 = computeBlockMD5 != null && computeBlockMD5;
+        this.computeBlobMD5 = computeBlobMD5 != null && computeBlobMD5;
+        if (this.computeBlobMD5 && this.httpHeaders.getContentMD5() != null) {
+            throw new IllegalArgumentException("The blob's Content-MD5 cannot be both given and computed.");
+        }
+    }
+
+    /**
+     * @return
+     *      An {@code Integer} specifying the size of each block in bytes, or {@code null} if the block size is
+     *      chosen based on the size of the file.
+     */
+    public Integer getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return
+     *      The maximum number of blocks to upload at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobHttpHeaders} object that specifies which properties to set on the blob.
+     */
+    public BlobHttpHeaders getHttpHeaders() {
+        return httpHeaders;
+    }
+
+    /**
+     * @return
+     *      A {@link Metadata} object that specifies key value pairs to set on the blob.
+     */
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the upload should complete.
+     */
+    public BlobAccessConditions getAccessConditions() {
+        return accessConditions;
+    }
+
+    /**
+     * @return
+     *      The {@code java.nio.file.Path} of the upload journal, or {@code null} if no journal is kept.
+     */
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * @return
+     *      The {@link TransferTuner} which adapts the upload, or {@code null} if the upload is not tuned.
+     */
+    public TransferTuner getTuner() {
+        return tuner;
+    }
+
+    /**
+     * @return
+     *      Whether the MD5 hash of each block is sent with it.
+     */
+    public boolean isComputeBlockMD5() {
+        return computeBlockMD5;
+    }
+
+    /**
+     * @return
+     *      Whether the MD5 hash of the whole file is computed and stored as the blob's Content-MD5.
+     */
+    public boolean isComputeBlobMD5() {
+        return computeBlobMD5;
+    }
+
+    public static UploadToBlockBlobOptions getDefault() {
+        if (defaultUploadToBlockBlobOptions == null) {
+            defaultUploadToBlockBlobOptions = new UploadToBlockBlobOptions(null, null, null,
+                    null, null, null, null, null, null);
+        }
+        return defaultUploadToBlockBlobOptions;
+    }
+}
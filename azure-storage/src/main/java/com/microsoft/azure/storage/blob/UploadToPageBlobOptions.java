@@ -0,0 +1,116 @@
+/**
+ * Copyright Microsoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.azure.storage.blob;
+
+/**
+ * Defines options available when calling {@link PageBlobURL#uploadFileAsync}.
+ */
+public final class UploadToPageBlobOptions {
+
+    private static UploadToPageBlobOptions defaultUploadToPageBlobOptions;
+
+    /**
+     * The default number of segments of the file that are scanned and uploaded at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 5;
+
+    private final int parallelism;
+
+    private final BlobHttpHeaders httpHeaders;
+
+    private final Metadata metadata;
+
+    private final BlobAccessConditions accessConditions;
+
+    private final boolean overwriteInPlace;
+
+    /**
+     * A {@link UploadToPageBlobOptions} object.
+     *
+     * @param parallelism
+     *      An {@code Integer} specifying the maximum number of 4MB segments of the file to scan and upload at the
+     *      same time. If {@code null}, {@link #DEFAULT_PARALLELISM} is used.
+     * @param httpHeaders
+     *      A {@link BlobHttpHeaders} object that specifies which properties to set on the blob when it is created.
+     * @param metadata
+     *      A {@link Metadata} object that specifies key value pairs to set on the blob when it is created.
+     * @param accessConditions
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the blob may be created or
+     *      resized. The lease and page blob conditions also apply to every page written.
+     * @param overwriteInPlace
+     *      A {@code Boolean} specifying whether an existing blob is updated in place instead of being replaced. In
+     *      place, the blob keeps its properties, metadata and snapshots; it is resized to the file and the pages
+     *      which are zero in the file are cleared. A blob which does not exist is created either way. If
+     *      {@code null}, the blob is replaced.
+     */
+    public UploadToPageBlobOptions(Integer parallelism, BlobHttpHeaders httpHeaders, Metadata metadata,
+                                   BlobAccessConditions accessConditions, Boolean overwriteInPlace) {
+        if (parallelism != null) {
+            Utility.assertInBounds("parallelism", parallelism, 1, Integer.MAX_VALUE);
+        }
+        this.parallelism = parallelism == null ? DEFAULT_PARALLELISM : parallelism;
+        this.httpHeaders = httpHeaders == null ? BlobHttpHeaders.getDefault() : httpHeaders;
+        this.metadata = metadata == null ? Metadata.getDefault() : metadata;
+        this.accessConditions = accessConditions == null ? BlobAccessConditions.getDefault() : accessConditions;
+        this.overwriteInPlace = overwriteInPlace != null && overwriteInPlace;
+    }
+
+    /**
+     * @return
+     *      The maximum number of segments of the file to scan and upload at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobHttpHeaders} object that specifies which properties to set on the blob.
+     */
+    public BlobHttpHeaders getHttpHeaders() {
+        return httpHeaders;
+    }
+
+    /**
+     * @return
+     *      A {@link Metadata} object that specifies key value pairs to set on the blob.
+     */
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return
+     *      A {@link BlobAccessConditions} object that specifies under which conditions the upload should proceed.
+     */
+    public BlobAccessConditions getAccessConditions() {
+        return accessConditions;
+    }
+
+    /**
+     * @return
+     *      Whether an existing blob is updated in place instead of being replaced.
+     */
+    public boolean isOverwriteInPlace() {
+        return overwriteInPlace;
+    }
+
+    public static UploadToPageBlobOptions getDefault() {
+        if (defaultUploadToPageBlobOptions == null) {
+            defaultUploadToPageBlobOptions = new UploadToPageBlobOptions(null, null, null, null, null);
+        }
+        return defaultUploadToPageBlobOptions;
+    }
+}
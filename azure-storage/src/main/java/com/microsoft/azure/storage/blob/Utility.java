@@ -14,8 +14,18 @@
  */
 package com.microsoft.azure.storage.blob;
 
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -301,4 +311,88 @@ final class Utility {
         result.deleteCharAt(result.length() - 1); // Delete the extra delimiter.
         return result.toString();
     }
+
+    /**
+     * Reads from a file into a buffer, starting at the given position, until either the buffer is full or the end of
+     * the file is reached. Nothing is read until the returned {@link Single} is subscribed to.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to read from.
+     * @param buffer
+     *      The {@code java.nio.ByteBuffer} to fill. The buffer is flipped before it is emitted so that it is ready to
+     *      be read from.
+     * @param position
+     *      The position in the file at which to start reading.
+     * @return
+     *      A {@link Single} which emits the buffer once it has been filled.
+     */
+    static Single<ByteBuffer> readAsync(final AsynchronousFileChannel file, final ByteBuffer buffer,
+                                        final long position) {
+        return Single.create(new SingleOnSubscribe<ByteBuffer>() {
+            @Override
+            public void subscribe(final SingleEmitter<ByteBuffer> emitter) throws Exception {
+                file.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+                    private long nextPosition = position;
+
+                    @Override
+                    public void completed(Integer bytesRead, Void attachment) {
+                        if (bytesRead < 0 || !buffer.hasRemaining()) {
+                            buffer.flip();
+                            emitter.onSuccess(buffer);
+                            return;
+                        }
+                        // A single read may return fewer bytes than requested, so keep reading until the buffer is
+                        // full.
+                        nextPosition += bytesRead;
+                        file.read(buffer, nextPosition, null, this);
+                    }
+
+                    @Override
+                    public void failed(Throwable exc, Void attachment) {
+                        emitter.onError(exc);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Writes the remaining contents of a buffer to a file, starting at the given position. Nothing is written until
+     * the returned {@link Completable} is subscribed to.
+     *
+     * @param file
+     *      The {@code java.nio.channels.AsynchronousFileChannel} to write to.
+     * @param buffer
+     *      The {@code java.nio.ByteBuffer} whose remaining bytes are written.
+     * @param position
+     *      The position in the file at which to start writing.
+     * @return
+     *      A {@link Completable} which completes once every remaining byte of the buffer has been written.
+     */
+    static Completable writeAsync(final AsynchronousFileChannel file, final ByteBuffer buffer,
+                                  final long position) {
+        return Completable.create(new CompletableOnSubscribe() {
+            @Override
+            public void subscribe(final CompletableEmitter emitter) throws Exception {
+                file.write(buffer, position, null, new CompletionHandler<Integer, Void>() {
+                    private long nextPosition = position;
+
+                    @Override
+                    public void completed(Integer bytesWritten, Void attachment) {
+                        if (!buffer.hasRemaining()) {
+                            emitter.onComplete();
+                            return;
+                        }
+                        nextPosition += bytesWritten;
+                        file.write(buffer, nextPosition, null, this);
+                    }
+
+                    @Override
+                    public void failed(Throwable exc, Void attachment) {
+                        emitter.onError(exc);
+                    }
+                });
+            }
+        });
+    }
 }
@@ -70,6 +70,18 @@ public class BlockBlobsImpl implements BlockBlobs {
         this.client = client;
     }
 
+    /**
+     * Initializes an instance of BlockBlobsImpl which shares the proxy service of another instance created for
+     * the same HTTP pipeline, so that only the service client, which holds the URL, is new.
+     *
+     * @param client the instance of the service client containing this operation class.
+     * @param proxySource an instance created for a service client with the same HTTP pipeline.
+     */
+    public BlockBlobsImpl(StorageClientImpl client, BlockBlobsImpl proxySource) {
+        this.service = proxySource.service;
+        this.client = client;
+    }
+
     /**
      * The interface defining all the services for BlockBlobs to be used by the
      * proxy service to perform REST calls.
@@ -78,7 +90,7 @@ public class BlockBlobsImpl implements BlockBlobs {
     interface BlockBlobsService {
         @PUT("{containerName}/{blob}")
         @ExpectedResponses({201})
-        Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlock(@HostParam("url") String url, @QueryParam("blockid") String blockId, @BodyParam("application/xml; charset=utf-8") AsyncInputStream body, @QueryParam("timeout") Integer timeout, @HeaderParam("x-ms-lease-id") String leaseId, @HeaderParam("x-ms-version") String version, @HeaderParam("x-ms-client-request-id") String requestId, @QueryParam("comp") String comp);
+        Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlock(@HostParam("url") String url, @QueryParam("blockid") String blockId, @BodyParam("application/xml; charset=utf-8") AsyncInputStream body, @HeaderParam("Content-MD5") String transactionalContentMD5, @QueryParam("timeout") Integer timeout, @HeaderParam("x-ms-lease-id") String leaseId, @HeaderParam("x-ms-version") String version, @HeaderParam("x-ms-client-request-id") String requestId, @QueryParam("comp") String comp);
 
         @PUT("{containerName}/{blob}")
         @ExpectedResponses({201})
@@ -137,10 +149,11 @@ public class BlockBlobsImpl implements BlockBlobs {
             throw new IllegalArgumentException("Parameter this.client.version() is required and cannot be null.");
         }
         final String comp = "block";
+        final String transactionalContentMD5 = null;
         final Integer timeout = null;
         final String leaseId = null;
         final String requestId = null;
-        return service.putBlock(this.client.url(), blockId, body, timeout, leaseId, this.client.version(), requestId, comp);
+        return service.putBlock(this.client.url(), blockId, body, transactionalContentMD5, timeout, leaseId, this.client.version(), requestId, comp);
     }
 
     /**
@@ -161,6 +174,7 @@ public class BlockBlobsImpl implements BlockBlobs {
      *
      * @param blockId A valid Base64 string value that identifies the block. Prior to encoding, the string must be less than or equal to 64 bytes in size. For a given blob, the length of the value specified for the blockid parameter must be the same size for each block.
      * @param body Initial data
+     * @param transactionalContentMD5 Optional. An MD5 hash of the content of this request. The service checks the content it receives against the hash and fails the request if they do not match.
      * @param timeout The timeout parameter is expressed in seconds. For more information, see &lt;a href="https://docs.microsoft.com/en-us/rest/api/storageservices/fileservices/setting-timeouts-for-blob-service-operations"&gt;Setting Timeouts for Blob Service Operations.&lt;/a&gt;
      * @param leaseId If specified, the operation only succeeds if the container's lease is active and matches this ID.
      * @param requestId Provides a client-generated, opaque value with a 1 KB character limit that is recorded in the analytics logs when storage analytics logging is enabled.
@@ -168,8 +182,8 @@ public class BlockBlobsImpl implements BlockBlobs {
      * @throws RestException thrown if the request is rejected by server
      * @throws RuntimeException all other wrapped checked exceptions if the request fails to be sent
      */
-    public void putBlock(String blockId, AsyncInputStream body, Integer timeout, String leaseId, String requestId) {
-        putBlockAsync(blockId, body, timeout, leaseId, requestId).blockingAwait();
+    public void putBlock(String blockId, AsyncInputStream body, String transactionalContentMD5, Integer timeout, String leaseId, String requestId) {
+        putBlockAsync(blockId, body, transactionalContentMD5, timeout, leaseId, requestId).blockingAwait();
     }
 
     /**
@@ -177,6 +191,7 @@ public class BlockBlobsImpl implements BlockBlobs {
      *
      * @param blockId A valid Base64 string value that identifies the block. Prior to encoding, the string must be less than or equal to 64 bytes in size. For a given blob, the length of the value specified for the blockid parameter must be the same size for each block.
      * @param body Initial data
+     * @param transactionalContentMD5 Optional. An MD5 hash of the content of this request. The service checks the content it receives against the hash and fails the request if they do not match.
      * @param timeout The timeout parameter is expressed in seconds. For more information, see &lt;a href="https://docs.microsoft.com/en-us/rest/api/storageservices/fileservices/setting-timeouts-for-blob-service-operations"&gt;Setting Timeouts for Blob Service Operations.&lt;/a&gt;
      * @param leaseId If specified, the operation only succeeds if the container's lease is active and matches this ID.
      * @param requestId Provides a client-generated, opaque value with a 1 KB character limit that is recorded in the analytics logs when storage analytics logging is enabled.
@@ -184,8 +199,8 @@ public class BlockBlobsImpl implements BlockBlobs {
      * @throws IllegalArgumentException thrown if parameters fail the validation
      * @return the {@link ServiceFuture} object
      */
-    public ServiceFuture<Void> putBlockAsync(String blockId, AsyncInputStream body, Integer timeout, String leaseId, String requestId, final ServiceCallback<Void> serviceCallback) {
-        return ServiceFuture.fromBody(putBlockAsync(blockId, body, timeout, leaseId, requestId), serviceCallback);
+    public ServiceFuture<Void> putBlockAsync(String blockId, AsyncInputStream body, String transactionalContentMD5, Integer timeout, String leaseId, String requestId, final ServiceCallback<Void> serviceCallback) {
+        return ServiceFuture.fromBody(putBlockAsync(blockId, body, transactionalContentMD5, timeout, leaseId, requestId), serviceCallback);
     }
 
     /**
@@ -193,13 +208,14 @@ public class BlockBlobsImpl implements BlockBlobs {
      *
      * @param blockId A valid Base64 string value that identifies the block. Prior to encoding, the string must be less than or equal to 64 bytes in size. For a given blob, the length of the value specified for the blockid parameter must be the same size for each block.
      * @param body Initial data
+     * @param transactionalContentMD5 Optional. An MD5 hash of the content of this request. The service checks the content it receives against the hash and fails the request if they do not match.
      * @param timeout The timeout parameter is expressed in seconds. For more information, see &lt;a href="https://docs.microsoft.com/en-us/rest/api/storageservices/fileservices/setting-timeouts-for-blob-service-operations"&gt;Setting Timeouts for Blob Service Operations.&lt;/a&gt;
      * @param leaseId If specified, the operation only succeeds if the container's lease is active and matches this ID.
      * @param requestId Provides a client-generated, opaque value with a 1 KB character limit that is recorded in the analytics logs when storage analytics logging is enabled.
      * @throws IllegalArgumentException thrown if parameters fail the validation
      * @return the {@link Single&lt;RestResponse&lt;BlockBlobsPutBlockHeaders, Void&gt;&gt;} object if successful.
      */
-    public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlockWithRestResponseAsync(String blockId, AsyncInputStream body, Integer timeout, String leaseId, String requestId) {
+    public Single<RestResponse<BlockBlobsPutBlockHeaders, Void>> putBlockWithRestResponseAsync(String blockId, AsyncInputStream body, String transactionalContentMD5, Integer timeout, String leaseId, String requestId) {
         if (this.client.url() == null) {
             throw new IllegalArgumentException("Parameter this.client.url() is required and cannot be null.");
         }
@@ -213,7 +229,7 @@ public class BlockBlobsImpl implements BlockBlobs {
             throw new IllegalArgumentException("Parameter this.client.version() is required and cannot be null.");
         }
         final String comp = "block";
-        return service.putBlock(this.client.url(), blockId, body, timeout, leaseId, this.client.version(), requestId, comp);
+        return service.putBlock(this.client.url(), blockId, body, transactionalContentMD5, timeout, leaseId, this.client.version(), requestId, comp);
     }
 
     /**
@@ -221,14 +237,15 @@ public class BlockBlobsImpl implements BlockBlobs {
      *
      * @param blockId A valid Base64 string value that identifies the block. Prior to encoding, the string must be less than or equal to 64 bytes in size. For a given blob, the length of the value specified for the blockid parameter must be the same size for each block.
      * @param body Initial data
+     * @param transactionalContentMD5 Optional. An MD5 hash of the content of this request. The service checks the content it receives against the hash and fails the request if they do not match.
      * @param timeout The timeout parameter is expressed in seconds. For more information, see &lt;a href="https://docs.microsoft.com/en-us/rest/api/storageservices/fileservices/setting-timeouts-for-blob-service-operations"&gt;Setting Timeouts for Blob Service Operations.&lt;/a&gt;
      * @param leaseId If specified, the operation only succeeds if the container's lease is active and matches this ID.
      * @param requestId Provides a client-generated, opaque value with a 1 KB character limit that is recorded in the analytics logs when storage analytics logging is enabled.
      * @throws IllegalArgumentException thrown if parameters fail the validation
      * @return a {@link Single} emitting the RestResponse<BlockBlobsPutBlockHeaders, Void> object
      */
-    public Completable putBlockAsync(String blockId, AsyncInputStream body, Integer timeout, String leaseId, String requestId) {
-        return putBlockWithRestResponseAsync(blockId, body, timeout, leaseId, requestId)
+    public Completable putBlockAsync(String blockId, AsyncInputStream body, String transactionalContentMD5, Integer timeout, String leaseId, String requestId) {
+        return putBlockWithRestResponseAsync(blockId, body, transactionalContentMD5, timeout, leaseId, requestId)
             .toCompletable();
     }
 
@@ -80,6 +80,18 @@ public class ContainersImpl implements Containers {
         this.client = client;
     }
 
+    /**
+     * Initializes an instance of ContainersImpl which shares the proxy service of another instance created for
+     * the same HTTP pipeline, so that only the service client, which holds the URL, is new.
+     *
+     * @param client the instance of the service client containing this operation class.
+     * @param proxySource an instance created for a service client with the same HTTP pipeline.
+     */
+    public ContainersImpl(StorageClientImpl client, ContainersImpl proxySource) {
+        this.service = proxySource.service;
+        this.client = client;
+    }
+
     /**
      * The interface defining all the services for Containers to be used by the
      * proxy service to perform REST calls.
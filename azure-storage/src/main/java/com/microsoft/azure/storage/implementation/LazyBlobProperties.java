@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.storage.implementation;
+
+import com.microsoft.azure.storage.models.BlobProperties;
+import com.microsoft.rest.v2.DateTimeRfc1123;
+import org.joda.time.DateTime;
+
+/**
+ * BlobProperties read by {@link ListBlobsSegment}. The dates are kept as the strings from the response and only
+ * parsed when they are asked for, since most listings never look at them.
+ */
+final class LazyBlobProperties extends BlobProperties {
+    /**
+     * The unparsed Last-Modified value, or null once it has been parsed or replaced.
+     */
+    private String rawLastModified;
+
+    /**
+     * The unparsed CopyCompletionTime value, or null once it has been parsed or replaced.
+     */
+    private String rawCopyCompletionTime;
+
+    void setRawLastModified(String rawLastModified) {
+        this.rawLastModified = rawLastModified;
+    }
+
+    void setRawCopyCompletionTime(String rawCopyCompletionTime) {
+        this.rawCopyCompletionTime = rawCopyCompletionTime;
+    }
+
+    @Override
+    public DateTime lastModified() {
+        if (this.rawLastModified != null) {
+            super.withLastModified(new DateTimeRfc1123(this.rawLastModified).dateTime());
+            this.rawLastModified = null;
+        }
+        return super.lastModified();
+    }
+
+    @Override
+    public BlobProperties withLastModified(DateTime lastModified) {
+        this.rawLastModified = null;
+        return super.withLastModified(lastModified);
+    }
+
+    @Override
+    public DateTime copyCompletionTime() {
+        if (this.rawCopyCompletionTime != null) {
+            super.withCopyCompletionTime(new DateTimeRfc1123(this.rawCopyCompletionTime).dateTime());
+            this.rawCopyCompletionTime = null;
+        }
+        return super.copyCompletionTime();
+    }
+
+    @Override
+    public BlobProperties withCopyCompletionTime(DateTime copyCompletionTime) {
+        this.rawCopyCompletionTime = null;
+        return super.withCopyCompletionTime(copyCompletionTime);
+    }
+}
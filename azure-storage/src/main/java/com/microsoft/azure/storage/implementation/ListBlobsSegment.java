@@ -0,0 +1,361 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.storage.implementation;
+
+import com.microsoft.azure.storage.models.Blob;
+import com.microsoft.azure.storage.models.BlobType;
+import com.microsoft.azure.storage.models.CopyStatusType;
+import com.microsoft.azure.storage.models.LeaseDurationType;
+import com.microsoft.azure.storage.models.LeaseStateType;
+import com.microsoft.azure.storage.models.LeaseStatusType;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * One segment of a List Blobs response, kept as the raw XML body. Blobs are read from it one at a time with a pull
+ * parser rather than deserialized into a complete ListBlobsResponse, so only the blobs that are still being used
+ * are alive at any time.
+ */
+public final class ListBlobsSegment {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * NextMarker is the last element of the response, so it is found by searching this many bytes from the end.
+     */
+    private static final int NEXT_MARKER_TAIL_BYTES = 8 * 1024;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
+    private final byte[] xml;
+
+    private final String nextMarker;
+
+    /**
+     * Creates a {@link ListBlobsSegment} from the body of a List Blobs response.
+     *
+     * @param xml the UTF-8 encoded body of the response.
+     * @throws XMLStreamException if the NextMarker element cannot be read.
+     */
+    public ListBlobsSegment(byte[] xml) throws XMLStreamException {
+        this.xml = xml;
+        this.nextMarker = findNextMarker(xml);
+    }
+
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Gets the marker of the next segment.
+     *
+     * @return the marker, or null if this is the last segment.
+     */
+    public String nextMarker() {
+        return this.nextMarker;
+    }
+
+    /**
+     * Reads the blobs of this segment. Each subscription parses the body again from the start, emitting each blob
+     * as it is read and only as fast as it is requested.
+     *
+     * @return a {@link Flowable} emitting the blobs of the segment in the order of the response.
+     */
+    public Flowable<Blob> blobs() {
+        return Flowable.generate(
+                new Callable<BlobReader>() {
+                    @Override
+                    public BlobReader call() throws XMLStreamException {
+                        return new BlobReader(XML_INPUT_FACTORY.createXMLStreamReader(
+                                new ByteArrayInputStream(xml), "UTF-8"));
+                    }
+                },
+                new BiFunction<BlobReader, Emitter<Blob>, BlobReader>() {
+                    @Override
+                    public BlobReader apply(BlobReader reader, Emitter<Blob> emitter) throws XMLStreamException {
+                        Blob blob = reader.nextBlob();
+                        if (blob == null) {
+                            emitter.onComplete();
+                        } else {
+                            emitter.onNext(blob);
+                        }
+                        return reader;
+                    }
+                },
+                new Consumer<BlobReader>() {
+                    @Override
+                    public void accept(BlobReader reader) throws XMLStreamException {
+                        reader.close();
+                    }
+                });
+    }
+
+    /**
+     * Finds NextMarker without parsing the whole body, so that the next segment can be requested before the blobs
+     * of this one are read.
+     */
+    private static String findNextMarker(byte[] xml) throws XMLStreamException {
+        int tailStart = Math.max(0, xml.length - NEXT_MARKER_TAIL_BYTES);
+        String tail = new String(xml, tailStart, xml.length - tailStart, UTF8);
+        int elementStart = tail.lastIndexOf("<NextMarker");
+        if (elementStart < 0) {
+            return tailStart == 0 ? null : scanForNextMarker(xml);
+        }
+        if (tail.startsWith("/>", elementStart + "<NextMarker".length())
+                || tail.startsWith(" />", elementStart + "<NextMarker".length())) {
+            return null;
+        }
+        int elementEnd = tail.indexOf("</NextMarker>", elementStart);
+        if (elementEnd < 0) {
+            return scanForNextMarker(xml);
+        }
+
+        // The element is parsed on its own so that escaped characters in the marker are decoded.
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(
+                tail.substring(elementStart, elementEnd + "</NextMarker>".length())));
+        try {
+            reader.nextTag();
+            return emptyToNull(reader.getElementText());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String scanForNextMarker(byte[] xml) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xml), "UTF-8");
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && reader.getLocalName().equals("NextMarker")) {
+                    return emptyToNull(reader.getElementText());
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The model holds the sequence number as an Integer, but a page blob's may be any 63 bit value. One which does
+     * not fit is left out rather than failing the whole listing. Also used for the sequence number header returned
+     * by Get Blob Properties.
+     *
+     * @param value the sequence number as the service returns it, or {@code null}.
+     * @return the sequence number, or {@code null} if there is none or it does not fit in an Integer.
+     */
+    public static Integer parseSequenceNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        long sequenceNumber = Long.parseLong(value);
+        return sequenceNumber > Integer.MAX_VALUE ? null : (int) sequenceNumber;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * The state of one pass over the segment.
+     */
+    private static final class BlobReader {
+
+        private final XMLStreamReader reader;
+
+        /**
+         * Property values and metadata names repeat from blob to blob, so every blob of the segment shares a single
+         * instance of each.
+         */
+        private final Map<String, String> internedStrings = new HashMap<String, String>();
+
+        BlobReader(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        void close() throws XMLStreamException {
+            this.reader.close();
+        }
+
+        /**
+         * Advances to the next Blob element and reads it.
+         *
+         * @return the blob, or null once there are no more.
+         */
+        Blob nextBlob() throws XMLStreamException {
+            while (this.reader.hasNext()) {
+                if (this.reader.next() == XMLStreamConstants.START_ELEMENT
+                        && this.reader.getLocalName().equals("Blob")) {
+                    return this.readBlob();
+                }
+            }
+            return null;
+        }
+
+        private Blob readBlob() throws XMLStreamException {
+            Blob blob = new Blob();
+            while (this.reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (this.reader.getLocalName()) {
+                    case "Name":
+                        blob.withName(this.reader.getElementText());
+                        break;
+                    case "Snapshot":
+                        blob.withSnapshot(emptyToNull(this.reader.getElementText()));
+                        break;
+                    case "Properties":
+                        blob.withProperties(this.readProperties());
+                        break;
+                    case "Metadata":
+                        blob.withMetadata(this.readMetadata());
+                        break;
+                    default:
+                        this.skipElement();
+                        break;
+                }
+            }
+            return blob;
+        }
+
+        private LazyBlobProperties readProperties() throws XMLStreamException {
+            LazyBlobProperties properties = new LazyBlobProperties();
+            while (this.reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = this.reader.getLocalName();
+                switch (name) {
+                    case "Last-Modified":
+                        properties.setRawLastModified(emptyToNull(this.reader.getElementText()));
+                        break;
+                    case "Etag":
+                        properties.withEtag(this.reader.getElementText());
+                        break;
+                    case "Content-Length":
+                        String contentLength = emptyToNull(this.reader.getElementText());
+                        properties.withContentLength(contentLength == null ? null : Long.valueOf(contentLength));
+                        break;
+                    case "Content-Type":
+                        properties.withContentType(this.readInternedText());
+                        break;
+                    case "Content-Encoding":
+                        properties.withContentEncoding(this.readInternedText());
+                        break;
+                    case "Content-Language":
+                        properties.withContentLanguage(this.readInternedText());
+                        break;
+                    case "Content-MD5":
+                        properties.withContentMD5(this.reader.getElementText());
+                        break;
+                    case "Content-Disposition":
+                        properties.withContentDisposition(this.readInternedText());
+                        break;
+                    case "Cache-Control":
+                        properties.withCacheControl(this.readInternedText());
+                        break;
+                    case "x-ms-blob-sequence-number":
+                        properties.withBlobSequenceNumber(
+                                parseSequenceNumber(emptyToNull(this.reader.getElementText())));
+                        break;
+                    case "BlobType":
+                        properties.withBlobType(BlobType.fromString(this.reader.getElementText()));
+                        break;
+                    case "LeaseStatus":
+                        properties.withLeaseStatus(LeaseStatusType.fromString(this.reader.getElementText()));
+                        break;
+                    case "LeaseState":
+                        properties.withLeaseState(LeaseStateType.fromString(this.reader.getElementText()));
+                        break;
+                    case "LeaseDuration":
+                        properties.withLeaseDuration(LeaseDurationType.fromString(this.reader.getElementText()));
+                        break;
+                    case "CopyId":
+                        properties.withCopyId(this.reader.getElementText());
+                        break;
+                    case "CopyStatus":
+                        properties.withCopyStatus(CopyStatusType.fromString(this.reader.getElementText()));
+                        break;
+                    case "CopySource":
+                        properties.withCopySource(this.reader.getElementText());
+                        break;
+                    case "CopyProgress":
+                        properties.withCopyProgress(this.reader.getElementText());
+                        break;
+                    case "CopyCompletionTime":
+                        properties.setRawCopyCompletionTime(emptyToNull(this.reader.getElementText()));
+                        break;
+                    case "CopyStatusDescription":
+                        properties.withCopyStatusDescription(this.reader.getElementText());
+                        break;
+                    case "ServerEncrypted":
+                        properties.withServerEncrypted(Boolean.valueOf(this.reader.getElementText()));
+                        break;
+                    case "IncrementalCopy":
+                        properties.withIncrementalCopy(Boolean.valueOf(this.reader.getElementText()));
+                        break;
+                    case "DestinationSnapshot":
+                        properties.withDestinationSnapshot(this.reader.getElementText());
+                        break;
+                    default:
+                        this.skipElement();
+                        break;
+                }
+            }
+            return properties;
+        }
+
+        private Map<String, String> readMetadata() throws XMLStreamException {
+            Map<String, String> metadata = new HashMap<String, String>();
+            while (this.reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String key = this.intern(this.reader.getLocalName());
+                metadata.put(key, this.reader.getElementText());
+            }
+            return metadata;
+        }
+
+        private String readInternedText() throws XMLStreamException {
+            return this.intern(this.reader.getElementText());
+        }
+
+        private String intern(String value) {
+            String interned = this.internedStrings.get(value);
+            if (interned == null) {
+                this.internedStrings.put(value, value);
+                interned = value;
+            }
+            return interned;
+        }
+
+        /**
+         * Skips the current element and everything inside it, leaving the reader on its end tag.
+         */
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = this.reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+}
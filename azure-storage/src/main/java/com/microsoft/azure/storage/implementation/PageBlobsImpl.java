@@ -68,6 +68,18 @@ public class PageBlobsImpl implements PageBlobs {
         this.client = client;
     }
 
+    /**
+     * Initializes an instance of PageBlobsImpl which shares the proxy service of another instance created for
+     * the same HTTP pipeline, so that only the service client, which holds the URL, is new.
+     *
+     * @param client the instance of the service client containing this operation class.
+     * @param proxySource an instance created for a service client with the same HTTP pipeline.
+     */
+    public PageBlobsImpl(StorageClientImpl client, PageBlobsImpl proxySource) {
+        this.service = proxySource.service;
+        this.client = client;
+    }
+
     /**
      * The interface defining all the services for PageBlobs to be used by the
      * proxy service to perform REST calls.
@@ -180,4 +180,20 @@ public class StorageClientImpl extends ServiceClient implements StorageClient {
         this.pageBlobs = new PageBlobsImpl(this);
         this.appendBlobs = new AppendBlobsImpl(this);
     }
+
+    /**
+     * Initializes an instance of StorageClient client which shares the proxy services of another client, so that
+     * a client for a new URL does not build them again.
+     *
+     * @param proxySource a client created with the HTTP pipeline to send requests through.
+     */
+    public StorageClientImpl(StorageClientImpl proxySource) {
+        super(proxySource.httpPipeline());
+        this.services = new ServicesImpl(this, (ServicesImpl) proxySource.services);
+        this.containers = new ContainersImpl(this, (ContainersImpl) proxySource.containers);
+        this.blobs = new BlobsImpl(this, (BlobsImpl) proxySource.blobs);
+        this.blockBlobs = new BlockBlobsImpl(this, (BlockBlobsImpl) proxySource.blockBlobs);
+        this.pageBlobs = new PageBlobsImpl(this, (PageBlobsImpl) proxySource.pageBlobs);
+        this.appendBlobs = new AppendBlobsImpl(this, (AppendBlobsImpl) proxySource.appendBlobs);
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+
+package com.microsoft.azure.storage.implementation;
+
+import com.microsoft.azure.storage.models.ContainerListBlobsHeaders;
+import com.microsoft.azure.storage.models.ListBlobsIncludeItem;
+import com.microsoft.rest.v2.CollectionFormat;
+import com.microsoft.rest.v2.RestProxy;
+import com.microsoft.rest.v2.RestResponse;
+import com.microsoft.rest.v2.annotations.ExpectedResponses;
+import com.microsoft.rest.v2.annotations.GET;
+import com.microsoft.rest.v2.annotations.HeaderParam;
+import com.microsoft.rest.v2.annotations.Host;
+import com.microsoft.rest.v2.annotations.HostParam;
+import com.microsoft.rest.v2.annotations.QueryParam;
+import com.microsoft.rest.v2.http.AsyncInputStream;
+import com.microsoft.rest.v2.util.FlowableUtil;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import java.util.List;
+
+/**
+ * Container operations whose responses are decoded incrementally instead of into a complete object graph. This
+ * class is written by hand alongside the generated {@link ContainersImpl}.
+ */
+public class StreamingContainersImpl {
+    /**
+     * The proxy service used to perform REST calls.
+     */
+    private StreamingContainersService service;
+
+    /**
+     * The service client containing this operation class.
+     */
+    private StorageClientImpl client;
+
+    /**
+     * Initializes an instance of StreamingContainersImpl.
+     *
+     * @param client the instance of the service client containing this operation class.
+     */
+    public StreamingContainersImpl(StorageClientImpl client) {
+        this.service = RestProxy.create(StreamingContainersService.class, client);
+        this.client = client;
+    }
+
+    /**
+     * Initializes an instance of StreamingContainersImpl which shares the proxy service of another instance created for
+     * the same HTTP pipeline, so that only the service client, which holds the URL, is new.
+     *
+     * @param client the instance of the service client containing this operation class.
+     * @param proxySource an instance created for a service client with the same HTTP pipeline.
+     */
+    public StreamingContainersImpl(StorageClientImpl client, StreamingContainersImpl proxySource) {
+        this.service = proxySource.service;
+        this.client = client;
+    }
+
+    /**
+     * The same operations as ContainersService, but returning the raw response body.
+     */
+    @Host("{url}")
+    interface StreamingContainersService {
+        @GET("{containerName}")
+        @ExpectedResponses({200})
+        Single<RestResponse<ContainerListBlobsHeaders, AsyncInputStream>> listBlobs(@HostParam("url") String url, @QueryParam("prefix") String prefix, @QueryParam("delimiter") String delimiter, @QueryParam("marker") String marker, @QueryParam("maxresults") Integer maxresults, @QueryParam("include") String include, @QueryParam("timeout") Integer timeout, @HeaderParam("x-ms-version") String version, @HeaderParam("x-ms-client-request-id") String requestId, @QueryParam("restype") String restype, @QueryParam("comp") String comp);
+    }
+
+    /**
+     * The List Blobs operation returns a list of the blobs under the specified container. The body is returned as a
+     * {@link ListBlobsSegment}, from which blobs are read one at a time.
+     *
+     * @param prefix Filters the results to return only blobs whose name begins with the specified prefix.
+     * @param delimiter When the request includes this parameter, the operation returns a BlobPrefix element in the response body that acts as a placeholder for all blobs whose names begin with the same substring up to the appearance of the delimiter character.
+     * @param marker A string value that identifies the portion of the list to be returned with the next listing operation.
+     * @param maxresults Specifies the maximum number of blobs to return.
+     * @param include Include this parameter to specify one or more datasets to include in the response.
+     * @param timeout The timeout parameter is expressed in seconds.
+     * @param requestId Provides a client-generated, opaque value with a 1 KB character limit that is recorded in the analytics logs when storage analytics logging is enabled.
+     * @throws IllegalArgumentException thrown if parameters fail the validation
+     * @return a {@link Single} emitting the segment.
+     */
+    public Single<ListBlobsSegment> listBlobsSegmentAsync(String prefix, String delimiter, String marker, Integer maxresults, List<ListBlobsIncludeItem> include, Integer timeout, String requestId) {
+        if (this.client.url() == null) {
+            throw new IllegalArgumentException("Parameter this.client.url() is required and cannot be null.");
+        }
+        if (this.client.version() == null) {
+            throw new IllegalArgumentException("Parameter this.client.version() is required and cannot be null.");
+        }
+        final String restype = "container";
+        final String comp = "list";
+        String includeConverted = this.client.serializerAdapter().serializeList(include, CollectionFormat.CSV);
+        return service.listBlobs(this.client.url(), prefix, delimiter, marker, maxresults, includeConverted, timeout, this.client.version(), requestId, restype, comp)
+            .flatMap(new Function<RestResponse<ContainerListBlobsHeaders, AsyncInputStream>, Single<byte[]>>() {
+                public Single<byte[]> apply(RestResponse<ContainerListBlobsHeaders, AsyncInputStream> restResponse) {
+                    return FlowableUtil.collectBytes(restResponse.body().content());
+                }
+            })
+            .map(new Function<byte[], ListBlobsSegment>() {
+                public ListBlobsSegment apply(byte[] body) throws Exception {
+                    return new ListBlobsSegment(body);
+                }
+            });
+    }
+}
@@ -0,0 +1,229 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.rest.v2.http.HttpHeaders;
+import com.microsoft.rest.v2.http.HttpRequest;
+import com.microsoft.rest.v2.http.HttpResponse;
+import com.microsoft.rest.v2.policy.RequestPolicy;
+import com.microsoft.rest.v2.policy.RequestPolicyOptions;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class AppendBlobWriterTests {
+
+    private static final long NO_DELAY_IN_MS = 60000;
+
+    /**
+     * A response with the given status code and headers, and an empty body.
+     */
+    private static final class StubResponse extends HttpResponse {
+
+        private final int statusCode;
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        StubResponse(int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int statusCode() {
+            return this.statusCode;
+        }
+
+        @Override
+        public String headerValue(String headerName) {
+            return this.headers.value(headerName);
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return this.headers;
+        }
+
+        @Override
+        public Flowable<byte[]> streamBodyAsync() {
+            return Flowable.just(new byte[0]);
+        }
+
+        @Override
+        public Single<byte[]> bodyAsByteArrayAsync() {
+            return Single.just(new byte[0]);
+        }
+
+        @Override
+        public Single<String> bodyAsStringAsync() {
+            return Single.just("");
+        }
+    }
+
+    /**
+     * Stands in for the service, in place of the credentials policy: it answers GetProperties with the blob's length
+     * and records the length and append position of each AppendBlock. Appends are answered once the gate completes,
+     * with the given status code.
+     */
+    private static final class FakeAppendBlob implements ICredentials {
+
+        private final List<Long> blockSizes = Collections.synchronizedList(new ArrayList<Long>());
+
+        private final List<Long> appendPositions = Collections.synchronizedList(new ArrayList<Long>());
+
+        private final PublishSubject<Object> gate = PublishSubject.create();
+
+        private final long initialLength;
+
+        private final int appendStatusCode;
+
+        FakeAppendBlob(long initialLength, int appendStatusCode, boolean held) {
+            this.initialLength = initialLength;
+            this.appendStatusCode = appendStatusCode;
+            if (!held) {
+                this.gate.onComplete();
+            }
+        }
+
+        void release() {
+            this.gate.onComplete();
+        }
+
+        @Override
+        public RequestPolicy create(RequestPolicy next, RequestPolicyOptions options) {
+            return new RequestPolicy() {
+                @Override
+                public Single<HttpResponse> sendAsync(HttpRequest request) {
+                    if (request.httpMethod().equals("HEAD")) {
+                        StubResponse response = new StubResponse(200);
+                        response.headers.set("Content-Length", String.valueOf(initialLength));
+                        return Single.<HttpResponse>just(response);
+                    }
+                    blockSizes.add(Long.valueOf(request.headers().value("Content-Length")));
+                    appendPositions.add(Long.valueOf(request.headers().value("x-ms-blob-condition-appendpos")));
+                    return gate.ignoreElements().andThen(Single.<HttpResponse>just(
+                            new StubResponse(appendStatusCode)));
+                }
+            };
+        }
+    }
+
+    private static AppendBlobWriter writer(FakeAppendBlob blob, int maxBlockSize, long maxDelayInMs,
+                                           Long maxPendingBytes) throws Exception {
+        AppendBlobURL url = new AppendBlobURL(new URL("https://myaccount.blob.core.windows.net/mycontainer/log"),
+                StorageURL.CreatePipeline(blob, new PipelineOptions()));
+        return new AppendBlobWriter(url, new AppendBlobWriterOptions(maxBlockSize, maxDelayInMs, maxPendingBytes,
+                null));
+    }
+
+    private static void await(TestObserver<Void> observer) {
+        Assert.assertTrue(observer.awaitTerminalEvent(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void TestWriteLargerThanABlockIsSplit() throws Exception {
+        FakeAppendBlob blob = new FakeAppendBlob(10, 201, false);
+        AppendBlobWriter writer = writer(blob, 4, NO_DELAY_IN_MS, null);
+
+        TestObserver<Void> write = writer.writeAsync(new byte[10]).test();
+        // The full blocks are appended at once, but the write's last bytes wait for a flush or the delay.
+        write.assertNotTerminated();
+
+        TestObserver<Void> flush = writer.flushAsync().test();
+        await(flush);
+        await(write);
+
+        flush.assertComplete();
+        write.assertComplete();
+        Assert.assertEquals(Arrays.asList(4L, 4L, 2L), blob.blockSizes);
+        // Each block is appended where the previous one ended.
+        Assert.assertEquals(Arrays.asList(10L, 14L, 18L), blob.appendPositions);
+        Assert.assertEquals(0, writer.getPendingBytes());
+    }
+
+    @Test
+    public void TestFlushWithNothingWrittenCompletes() throws Exception {
+        FakeAppendBlob blob = new FakeAppendBlob(0, 201, false);
+        AppendBlobWriter writer = writer(blob, 4, NO_DELAY_IN_MS, null);
+
+        TestObserver<Void> flush = writer.flushAsync().test();
+        await(flush);
+
+        flush.assertComplete();
+        // An empty block is never sent.
+        Assert.assertTrue(blob.blockSizes.isEmpty());
+    }
+
+    @Test
+    public void TestWritesAreAppendedOnceTheDelayPasses() throws Exception {
+        FakeAppendBlob blob = new FakeAppendBlob(0, 201, false);
+        AppendBlobWriter writer = writer(blob, Constants.MB, 200, null);
+
+        TestObserver<Void> first = writer.writeAsync(new byte[3]).test();
+        TestObserver<Void> second = writer.writeAsync(new byte[5]).test();
+        await(first);
+        await(second);
+
+        first.assertComplete();
+        second.assertComplete();
+        // Both writes were made within the delay, so they share a block.
+        Assert.assertEquals(Collections.singletonList(8L), blob.blockSizes);
+    }
+
+    @Test
+    public void TestFailedAppendFailsPendingAndLaterWrites() throws Exception {
+        FakeAppendBlob blob = new FakeAppendBlob(0, 409, true);
+        AppendBlobWriter writer = writer(blob, 4, NO_DELAY_IN_MS, null);
+
+        TestObserver<Void> inFlight = writer.writeAsync(new byte[4]).test();
+        TestObserver<Void> pending = writer.writeAsync(new byte[2]).test();
+        TestObserver<Void> flush = writer.flushAsync().test();
+        blob.release();
+        await(inFlight);
+        await(pending);
+        await(flush);
+
+        Throwable error = inFlight.errors().get(0);
+        pending.assertError(error);
+        flush.assertError(error);
+        writer.writeAsync(new byte[1]).test().assertError(error);
+        Assert.assertEquals(0, writer.getPendingBytes());
+    }
+
+    @Test
+    public void TestWritesWaitWhileTooManyBytesArePending() throws Exception {
+        FakeAppendBlob blob = new FakeAppendBlob(0, 201, true);
+        AppendBlobWriter writer = writer(blob, 4, NO_DELAY_IN_MS, 8L);
+
+        TestObserver<Void> inFlight = writer.writeAsync(new byte[4]).test();
+        TestObserver<Void> queued = writer.writeAsync(new byte[4]).test();
+        TestObserver<Void> waiting = writer.writeAsync(new byte[1]).test();
+
+        // The write over the maximum is not queued until the block in flight is committed.
+        Assert.assertEquals(4, writer.getPendingBytes());
+        waiting.assertNotTerminated();
+
+        blob.release();
+        TestObserver<Void> flush = writer.flushAsync().test();
+        await(flush);
+        await(inFlight);
+        await(queued);
+        await(waiting);
+
+        flush.assertComplete();
+        waiting.assertComplete();
+        Assert.assertEquals(Arrays.asList(4L, 4L, 1L), blob.blockSizes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void TestMaxPendingBytesMustBePositive() {
+        new AppendBlobWriterOptions(null, null, 0L, null);
+    }
+}
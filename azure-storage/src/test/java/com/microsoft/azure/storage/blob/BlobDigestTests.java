@@ -0,0 +1,133 @@
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.observers.TestObserver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BlobDigestTests {
+
+    private static ByteBuffer block(int index, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (index * 31 + i);
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    private static String md5Of(List<ByteBuffer> blocks) throws NoSuchAlgorithmException {
+        int length = 0;
+        for (ByteBuffer block : blocks) {
+            length += block.remaining();
+        }
+        ByteBuffer whole = ByteBuffer.allocate(length);
+        for (ByteBuffer block : blocks) {
+            whole.put(block.duplicate());
+        }
+        whole.flip();
+        return BlockBlobFileUploader.md5(whole);
+    }
+
+    @Test
+    public void TestHashesBlocksInOrderWhicheverArrivesFirst() throws NoSuchAlgorithmException {
+        List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 4; i++) {
+            blocks.add(block(i, 100 + i));
+        }
+        BlockBlobFileUploader.BlobDigest digest = new BlockBlobFileUploader.BlobDigest();
+
+        digest.offer(2, blocks.get(2));
+        digest.offer(3, blocks.get(3));
+        digest.offer(0, blocks.get(0));
+        digest.offer(1, blocks.get(1));
+
+        Assert.assertEquals(md5Of(blocks), digest.finish());
+    }
+
+    @Test
+    public void TestHashedAsyncWaitsForEarlierBlocks() throws NoSuchAlgorithmException {
+        BlockBlobFileUploader.BlobDigest digest = new BlockBlobFileUploader.BlobDigest();
+
+        digest.offer(1, block(1, 10));
+        TestObserver<Void> second = digest.hashedAsync(1).test();
+        TestObserver<Void> third = digest.hashedAsync(2).test();
+        second.assertNotComplete();
+        third.assertNotComplete();
+
+        // The first block lets the held second one through, but the third has not been read yet.
+        digest.offer(0, block(0, 10));
+        second.assertComplete();
+        third.assertNotComplete();
+
+        digest.offer(2, block(2, 10));
+        third.assertComplete();
+    }
+
+    @Test
+    public void TestHashedAsyncOfAHashedBlockCompletesAtOnce() throws NoSuchAlgorithmException {
+        BlockBlobFileUploader.BlobDigest digest = new BlockBlobFileUploader.BlobDigest();
+
+        digest.offer(0, block(0, 10));
+
+        digest.hashedAsync(0).test().assertComplete();
+    }
+
+    @Test
+    public void TestOfferedBufferIsNotMoved() throws NoSuchAlgorithmException {
+        BlockBlobFileUploader.BlobDigest digest = new BlockBlobFileUploader.BlobDigest();
+        ByteBuffer block = block(0, 10);
+
+        digest.offer(0, block);
+
+        // The same buffer is sent as the block's body, so hashing it must leave its position alone.
+        Assert.assertEquals(0, block.position());
+        Assert.assertEquals(10, block.remaining());
+    }
+
+    @Test
+    public void TestConcurrentOffersInAnyOrder() throws Exception {
+        final int blockCount = 200;
+        final List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(block(i, 64 + i % 7));
+            order.add(i);
+        }
+        Collections.shuffle(order);
+        final BlockBlobFileUploader.BlobDigest digest = new BlockBlobFileUploader.BlobDigest();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final int index : order) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        digest.offer(index, blocks.get(index));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            for (int i = 0; i < blockCount; i++) {
+                digest.hashedAsync(i).test().assertComplete();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(md5Of(blocks), digest.finish());
+    }
+}
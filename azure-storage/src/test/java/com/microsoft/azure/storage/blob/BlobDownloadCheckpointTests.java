@@ -0,0 +1,148 @@
+package com.microsoft.azure.storage.blob;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class BlobDownloadCheckpointTests {
+
+    private static final String ETAG = "\"0x8D5A1B2C3D4E5F6\"";
+
+    private static final long CHUNK_SIZE = 4 * Constants.MB;
+
+    private static final long BLOB_SIZE = 100 * CHUNK_SIZE + 1;
+
+    private Path path;
+
+    private Path filePath;
+
+    private AsynchronousFileChannel file;
+
+    @Before
+    public void setup() throws IOException {
+        this.path = Files.createTempFile("download", ".checkpoint");
+        Files.delete(this.path);
+        this.filePath = Files.createTempFile("download", ".data");
+        this.file = AsynchronousFileChannel.open(this.filePath, StandardOpenOption.WRITE);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        this.file.close();
+        Files.deleteIfExists(this.path);
+        Files.deleteIfExists(this.filePath);
+    }
+
+    @Test
+    public void TestFlushedChunksSurviveReopening() throws IOException {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        checkpoint.recordComplete(0);
+        checkpoint.recordComplete(7);
+        checkpoint.recordComplete(8);
+        checkpoint.recordComplete(100);
+        checkpoint.flush(this.file);
+        checkpoint.close();
+
+        checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        try {
+            for (int i = 0; i <= 100; i++) {
+                Assert.assertEquals(i == 0 || i == 7 || i == 8 || i == 100, checkpoint.isComplete(i));
+            }
+        }
+        finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void TestUnflushedChunksAreNotOnDisk() throws IOException {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        checkpoint.recordComplete(1);
+        checkpoint.flush(this.file);
+        checkpoint.recordComplete(2);
+        // Still answered from memory before the flush.
+        Assert.assertTrue(checkpoint.isComplete(2));
+        checkpoint.close();
+
+        checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        try {
+            Assert.assertTrue(checkpoint.isComplete(1));
+            Assert.assertFalse(checkpoint.isComplete(2));
+        }
+        finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void TestFlushIsDueEveryFlushChunks() throws IOException {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        try {
+            for (int i = 0; i < BlobDownloadCheckpoint.FLUSH_CHUNKS - 1; i++) {
+                Assert.assertFalse(checkpoint.recordComplete(i));
+            }
+            Assert.assertTrue(checkpoint.recordComplete(BlobDownloadCheckpoint.FLUSH_CHUNKS - 1));
+            // The count starts over once a flush has been claimed.
+            Assert.assertFalse(checkpoint.recordComplete(BlobDownloadCheckpoint.FLUSH_CHUNKS));
+        }
+        finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void TestFlushIsDueAfterInterval() throws Exception {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        try {
+            Thread.sleep(BlobDownloadCheckpoint.FLUSH_INTERVAL_MS + 50);
+            Assert.assertTrue(checkpoint.recordComplete(0));
+        }
+        finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void TestStartsOverForAnotherVersionOfTheBlob() throws IOException {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        checkpoint.recordComplete(3);
+        checkpoint.flush(this.file);
+        checkpoint.close();
+
+        checkpoint = BlobDownloadCheckpoint.open(this.path, "\"0x8D5A1B2C3D4E5F7\"", BLOB_SIZE, CHUNK_SIZE);
+        Assert.assertFalse(checkpoint.isComplete(3));
+        checkpoint.recordComplete(3);
+        checkpoint.flush(this.file);
+        checkpoint.close();
+
+        checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE - 1, CHUNK_SIZE);
+        Assert.assertFalse(checkpoint.isComplete(3));
+        checkpoint.recordComplete(3);
+        checkpoint.flush(this.file);
+        checkpoint.close();
+
+        checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE - 1, CHUNK_SIZE / 2);
+        try {
+            Assert.assertFalse(checkpoint.isComplete(3));
+        }
+        finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void TestDelete() throws IOException {
+        BlobDownloadCheckpoint checkpoint = BlobDownloadCheckpoint.open(this.path, ETAG, BLOB_SIZE, CHUNK_SIZE);
+        checkpoint.recordComplete(0);
+        checkpoint.delete();
+
+        Assert.assertFalse(Files.exists(this.path));
+    }
+}
@@ -0,0 +1,90 @@
+package com.microsoft.azure.storage.blob;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BlobStatusResolverTests {
+
+    private static final int MIN_NAMES = 4;
+
+    private static List<String> names(String directory, int count) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            names.add(directory + "blob" + i);
+        }
+        return names;
+    }
+
+    private static void assertGroup(BlobStatusResolver.Group group, String prefix, List<String> names) {
+        Assert.assertEquals(prefix, group.prefix);
+        List<String> sorted = new ArrayList<String>(names);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, group.names);
+    }
+
+    @Test
+    public void TestDenseDirectoryIsListed() {
+        List<String> names = names("a/b/", MIN_NAMES);
+
+        List<BlobStatusResolver.Group> groups = BlobStatusResolver.groups(names, MIN_NAMES);
+
+        Assert.assertEquals(1, groups.size());
+        assertGroup(groups.get(0), "a/b/blob", names);
+    }
+
+    @Test
+    public void TestSparseDirectoriesJoinTheirParent() {
+        List<String> names = new ArrayList<String>(names("a/x/", MIN_NAMES / 2));
+        names.addAll(names("a/y/", MIN_NAMES / 2));
+
+        List<BlobStatusResolver.Group> groups = BlobStatusResolver.groups(names, MIN_NAMES);
+
+        Assert.assertEquals(1, groups.size());
+        assertGroup(groups.get(0), "a/", names);
+    }
+
+    @Test
+    public void TestSparseDirectoriesAreLookedUpPastMaxFoldLevels() {
+        // These would only meet at "a/", three levels above their directories.
+        List<String> names = new ArrayList<String>(names("a/b/c/d/", MIN_NAMES / 2));
+        names.addAll(names("a/e/f/g/", MIN_NAMES / 2));
+
+        List<BlobStatusResolver.Group> groups = BlobStatusResolver.groups(names, MIN_NAMES);
+
+        Assert.assertEquals(1, groups.size());
+        assertGroup(groups.get(0), null, names);
+    }
+
+    @Test
+    public void TestSparseRootNamesAreLookedUp() {
+        List<String> dense = names("dense/", MIN_NAMES);
+        List<String> names = new ArrayList<String>(dense);
+        names.addAll(Arrays.asList("top", "other/one"));
+
+        List<BlobStatusResolver.Group> groups = BlobStatusResolver.groups(names, MIN_NAMES);
+
+        Assert.assertEquals(2, groups.size());
+        assertGroup(groups.get(0), "dense/blob", dense);
+        assertGroup(groups.get(1), null, Arrays.asList("top", "other/one"));
+    }
+
+    @Test
+    public void TestNamesAreSortedAndDistinct() {
+        List<String> names = Arrays.asList("d/blob3", "d/blob1", "d/blob0", "d/blob1", "d/blob2");
+
+        List<BlobStatusResolver.Group> groups = BlobStatusResolver.groups(names, MIN_NAMES);
+
+        Assert.assertEquals(1, groups.size());
+        assertGroup(groups.get(0), "d/blob", Arrays.asList("d/blob0", "d/blob1", "d/blob2", "d/blob3"));
+    }
+
+    @Test
+    public void TestNoNames() {
+        Assert.assertTrue(BlobStatusResolver.groups(Collections.<String>emptyList(), MIN_NAMES).isEmpty());
+    }
+}
@@ -0,0 +1,199 @@
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Completable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BlockBlobUploadJournalTests {
+
+    private static final long FILE_SIZE = 10 * Constants.MB;
+
+    private static final int BLOCK_SIZE = Constants.MB;
+
+    private Path path;
+
+    @Before
+    public void setup() throws IOException {
+        this.path = Files.createTempFile("upload", ".journal");
+        Files.delete(this.path);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+
+    @Test
+    public void TestRecordsSurviveReopening() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        long uploadID = journal.uploadID();
+        journal.recordAcknowledged(0);
+        journal.recordAcknowledged(3);
+        journal.recordAcknowledged(9);
+        journal.close();
+
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        try {
+            Assert.assertEquals(uploadID, journal.uploadID());
+            Assert.assertEquals(FILE_SIZE, journal.fileSize());
+            Assert.assertEquals(BLOCK_SIZE, journal.blockSize());
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(i == 0 || i == 3 || i == 9, journal.isAcknowledged(i));
+            }
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestResumeKeepsBlockSizeWhenNoneRequested() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        long uploadID = journal.uploadID();
+        journal.close();
+
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, null);
+        try {
+            Assert.assertEquals(uploadID, journal.uploadID());
+            Assert.assertEquals(BLOCK_SIZE, journal.blockSize());
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestStartsOverForADifferentUpload() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        long uploadID = journal.uploadID();
+        journal.recordAcknowledged(1);
+        journal.close();
+
+        // Another file size.
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE + 1, BLOCK_SIZE);
+        Assert.assertNotEquals(uploadID, journal.uploadID());
+        Assert.assertFalse(journal.isAcknowledged(1));
+        uploadID = journal.uploadID();
+        journal.recordAcknowledged(1);
+        journal.close();
+
+        // Another block size.
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE + 1, 2 * BLOCK_SIZE);
+        try {
+            Assert.assertNotEquals(uploadID, journal.uploadID());
+            Assert.assertEquals(2 * BLOCK_SIZE, journal.blockSize());
+            Assert.assertFalse(journal.isAcknowledged(1));
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestStartsOverFromAnUnknownFile() throws IOException {
+        Files.write(this.path, "not a journal, but long enough to hold a header".getBytes());
+
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        try {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertFalse(journal.isAcknowledged(i));
+            }
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestIgnoresRecordCutShort() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        journal.recordAcknowledged(2);
+        journal.close();
+        appendBytes(new byte[] { 0, 0 });
+
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        Assert.assertTrue(journal.isAcknowledged(2));
+        Assert.assertFalse(journal.isAcknowledged(0));
+        // The next record overwrites the partial one.
+        journal.recordAcknowledged(5);
+        journal.close();
+
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        try {
+            Assert.assertTrue(journal.isAcknowledged(2));
+            Assert.assertTrue(journal.isAcknowledged(5));
+            Assert.assertFalse(journal.isAcknowledged(0));
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestIgnoresRecordsOutOfRange() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        journal.recordAcknowledged(4);
+        journal.close();
+        appendBytes(ByteBuffer.allocate(8).putInt(10).putInt(-1).array());
+
+        journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        try {
+            Assert.assertTrue(journal.isAcknowledged(4));
+            Assert.assertFalse(journal.isAcknowledged(10));
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestConcurrentRecordsAreAllKept() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, 1000L * BLOCK_SIZE, BLOCK_SIZE);
+        List<Completable> records = new ArrayList<Completable>();
+        for (int i = 0; i < 1000; i += 2) {
+            records.add(journal.recordAcknowledgedAsync(i));
+        }
+        Completable.merge(records).blockingAwait();
+        journal.close();
+
+        journal = BlockBlobUploadJournal.open(this.path, 1000L * BLOCK_SIZE, BLOCK_SIZE);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(i % 2 == 0, journal.isAcknowledged(i));
+            }
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void TestDelete() throws IOException {
+        BlockBlobUploadJournal journal = BlockBlobUploadJournal.open(this.path, FILE_SIZE, BLOCK_SIZE);
+        journal.recordAcknowledged(0);
+        journal.delete();
+
+        Assert.assertFalse(Files.exists(this.path));
+    }
+
+    private void appendBytes(byte[] bytes) throws IOException {
+        FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            channel.write(ByteBuffer.wrap(bytes));
+        }
+        finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.implementation.StorageClientImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many blob URLs a {@link ContainerURL} makes per second, both on their own and together with the client
+ * which the first request from each of them creates. Run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.storage.blob.ContainerURLBenchmark
+ * </pre>
+ * Adding {@code -prof gc} to the runner options reports the bytes allocated per URL.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContainerURLBenchmark {
+
+    private ContainerURL containerURL;
+
+    @Setup
+    public void setup() throws Exception {
+        this.containerURL = new ContainerURL(new URL("https://myaccount.blob.core.windows.net/mycontainer"),
+                StorageURL.CreatePipeline(new AnonymousCredentials(), new PipelineOptions()));
+    }
+
+    @Benchmark
+    public BlockBlobURL createBlockBlobURL() {
+        return this.containerURL.createBlockBlobURL("dir/blob.txt");
+    }
+
+    @Benchmark
+    public StorageClientImpl createBlockBlobURLAndClient() {
+        return this.containerURL.createBlockBlobURL("dir/blob.txt").storageClient();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ContainerURLBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.PageRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.microsoft.azure.storage.blob.PageBlobFileUploader.PAGE_SIZE;
+
+public class PageBlobFileUploaderTests {
+
+    /**
+     * Builds a segment of the given number of pages, in which the listed pages hold a byte which is not zero.
+     */
+    private static ByteBuffer segment(int pages, int... dataPages) {
+        ByteBuffer segment = ByteBuffer.allocate(pages * PAGE_SIZE);
+        for (int page : dataPages) {
+            // The last byte of the page, so that a scan which stops early would miss it.
+            segment.put((page + 1) * PAGE_SIZE - 1, (byte) 1);
+        }
+        return segment;
+    }
+
+    private static void assertRun(PageBlobFileUploader.Run run, int firstPage, int pages, boolean zero) {
+        Assert.assertEquals(firstPage * PAGE_SIZE, run.offset);
+        Assert.assertEquals(pages * PAGE_SIZE, run.length);
+        Assert.assertEquals(zero, run.zero);
+    }
+
+    private static PageRange range(long start, long end) {
+        return new PageRange().withStart(start).withEnd(end);
+    }
+
+    private static void assertRange(PageRange range, long start, long end) {
+        Assert.assertEquals(start, range.start());
+        Assert.assertEquals(end, range.end());
+    }
+
+    @Test
+    public void TestScanAllZero() {
+        List<PageBlobFileUploader.Run> runs = PageBlobFileUploader.scan(segment(8));
+
+        Assert.assertEquals(1, runs.size());
+        assertRun(runs.get(0), 0, 8, true);
+    }
+
+    @Test
+    public void TestScanAllData() {
+        List<PageBlobFileUploader.Run> runs = PageBlobFileUploader.scan(segment(4, 0, 1, 2, 3));
+
+        Assert.assertEquals(1, runs.size());
+        assertRun(runs.get(0), 0, 4, false);
+    }
+
+    @Test
+    public void TestScanCoalescesConsecutivePages() {
+        List<PageBlobFileUploader.Run> runs = PageBlobFileUploader.scan(segment(10, 2, 3, 4, 7, 9));
+
+        Assert.assertEquals(5, runs.size());
+        assertRun(runs.get(0), 0, 2, true);
+        assertRun(runs.get(1), 2, 3, false);
+        assertRun(runs.get(2), 5, 2, true);
+        assertRun(runs.get(3), 7, 1, false);
+        assertRun(runs.get(4), 8, 1, true);
+    }
+
+    @Test
+    public void TestScanStartsWithData() {
+        List<PageBlobFileUploader.Run> runs = PageBlobFileUploader.scan(segment(3, 0));
+
+        Assert.assertEquals(2, runs.size());
+        assertRun(runs.get(0), 0, 1, false);
+        assertRun(runs.get(1), 1, 2, true);
+    }
+
+    @Test
+    public void TestScanOnlyReadsUpToLimit() {
+        ByteBuffer segment = segment(4, 3);
+        segment.limit(3 * PAGE_SIZE);
+        List<PageBlobFileUploader.Run> runs = PageBlobFileUploader.scan(segment);
+
+        Assert.assertEquals(1, runs.size());
+        assertRun(runs.get(0), 0, 3, true);
+    }
+
+    @Test
+    public void TestScanEmptySegment() {
+        Assert.assertTrue(PageBlobFileUploader.scan(ByteBuffer.allocate(0)).isEmpty());
+    }
+
+    @Test
+    public void TestIntersectClipsOverlappingRanges() {
+        List<PageRange> valid = Arrays.asList(range(0, 511), range(1024, 4095), range(8192, 8703));
+
+        List<PageRange> overlaps = PageBlobFileUploader.intersect(valid, 512, 2047);
+        Assert.assertEquals(1, overlaps.size());
+        assertRange(overlaps.get(0), 1024, 2047);
+
+        overlaps = PageBlobFileUploader.intersect(valid, 0, 8703);
+        Assert.assertEquals(3, overlaps.size());
+        assertRange(overlaps.get(0), 0, 511);
+        assertRange(overlaps.get(1), 1024, 4095);
+        assertRange(overlaps.get(2), 8192, 8703);
+
+        overlaps = PageBlobFileUploader.intersect(valid, 3584, 8191);
+        Assert.assertEquals(1, overlaps.size());
+        assertRange(overlaps.get(0), 3584, 4095);
+    }
+
+    @Test
+    public void TestIntersectWithoutOverlap() {
+        List<PageRange> valid = Arrays.asList(range(0, 511), range(8192, 8703));
+
+        Assert.assertTrue(PageBlobFileUploader.intersect(valid, 512, 8191).isEmpty());
+        Assert.assertTrue(PageBlobFileUploader.intersect(valid, 8704, 9215).isEmpty());
+        Assert.assertTrue(PageBlobFileUploader.intersect(Collections.<PageRange>emptyList(), 0, 511).isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.ClearRange;
+import com.microsoft.azure.storage.models.PageList;
+import com.microsoft.azure.storage.models.PageRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PageBlobIncrementalBackupTests {
+
+    private static final String SNAPSHOT = "2018-01-02T03:04:05.0000006Z";
+
+    private static final String PREVIOUS_SNAPSHOT = "2018-01-01T03:04:05.0000006Z";
+
+    private static void assertChange(PageBlobIncrementalBackup.Change change, long start, long end, boolean cleared) {
+        Assert.assertEquals(start, change.start);
+        Assert.assertEquals(end, change.end);
+        Assert.assertEquals(cleared, change.cleared);
+    }
+
+    @Test
+    public void TestChangesSplitsDataRangesIntoChunks() {
+        PageList pageList = new PageList().withPageRange(Arrays.asList(
+                new PageRange().withStart(0).withEnd(2559)));
+
+        List<PageBlobIncrementalBackup.Change> changes = PageBlobIncrementalBackup.changes(pageList, 1024);
+
+        Assert.assertEquals(3, changes.size());
+        assertChange(changes.get(0), 0, 1023, false);
+        assertChange(changes.get(1), 1024, 2047, false);
+        assertChange(changes.get(2), 2048, 2559, false);
+        Assert.assertEquals(512, changes.get(2).length());
+    }
+
+    @Test
+    public void TestChangesKeepsClearedRangesWhole() {
+        PageList pageList = new PageList().withClearRange(Arrays.asList(
+                new ClearRange().withStart(4096).withEnd(1024 * 1024 - 1)));
+
+        List<PageBlobIncrementalBackup.Change> changes = PageBlobIncrementalBackup.changes(pageList, 1024);
+
+        Assert.assertEquals(1, changes.size());
+        assertChange(changes.get(0), 4096, 1024 * 1024 - 1, true);
+    }
+
+    @Test
+    public void TestChangesAreSortedByOffset() {
+        PageList pageList = new PageList()
+                .withPageRange(Arrays.asList(
+                        new PageRange().withStart(8192).withEnd(8703),
+                        new PageRange().withStart(0).withEnd(1535)))
+                .withClearRange(Arrays.asList(
+                        new ClearRange().withStart(2048).withEnd(4095),
+                        new ClearRange().withStart(16384).withEnd(16895)));
+
+        List<PageBlobIncrementalBackup.Change> changes = PageBlobIncrementalBackup.changes(pageList, 1024);
+
+        Assert.assertEquals(5, changes.size());
+        assertChange(changes.get(0), 0, 1023, false);
+        assertChange(changes.get(1), 1024, 1535, false);
+        assertChange(changes.get(2), 2048, 4095, true);
+        assertChange(changes.get(3), 8192, 8703, false);
+        assertChange(changes.get(4), 16384, 16895, true);
+    }
+
+    @Test
+    public void TestChangesOfAnEmptyPageList() {
+        Assert.assertTrue(PageBlobIncrementalBackup.changes(new PageList(), 1024).isEmpty());
+    }
+
+    @Test
+    public void TestDeltaIndexLayout() {
+        List<PageBlobIncrementalBackup.Change> changes = Arrays.asList(
+                new PageBlobIncrementalBackup.Change(0, 511, false),
+                new PageBlobIncrementalBackup.Change(1024, 4095, true));
+        PageBlobIncrementalBackup.Delta delta = new PageBlobIncrementalBackup.Delta(SNAPSHOT, null, 8192, changes);
+
+        ByteBuffer index = PageBlobIncrementalBackup.deltaIndex(delta, PREVIOUS_SNAPSHOT);
+
+        Assert.assertEquals(PageBlobIncrementalBackup.DELTA_MAGIC, index.getInt());
+        Assert.assertEquals(PageBlobIncrementalBackup.DELTA_VERSION, index.getInt());
+        Assert.assertEquals(8192, index.getLong());
+        Assert.assertEquals(SNAPSHOT, readString(index));
+        Assert.assertEquals(PREVIOUS_SNAPSHOT, readString(index));
+        Assert.assertEquals(2, index.getInt());
+
+        Assert.assertEquals(1, index.get());
+        Assert.assertEquals(0, index.getLong());
+        Assert.assertEquals(511, index.getLong());
+        Assert.assertEquals(0, index.get());
+        Assert.assertEquals(1024, index.getLong());
+        Assert.assertEquals(4095, index.getLong());
+        Assert.assertFalse(index.hasRemaining());
+    }
+
+    @Test
+    public void TestDeltaIndexOfAFullBackup() {
+        PageBlobIncrementalBackup.Delta delta = new PageBlobIncrementalBackup.Delta(SNAPSHOT, null, 0,
+                Collections.<PageBlobIncrementalBackup.Change>emptyList());
+
+        ByteBuffer index = PageBlobIncrementalBackup.deltaIndex(delta, null);
+
+        index.position(16);
+        Assert.assertEquals(SNAPSHOT, readString(index));
+        Assert.assertEquals("", readString(index));
+        Assert.assertEquals(0, index.getInt());
+        Assert.assertFalse(index.hasRemaining());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, Charset.forName(Constants.UTF8_CHARSET));
+    }
+}
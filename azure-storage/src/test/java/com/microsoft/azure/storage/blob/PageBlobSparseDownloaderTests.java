@@ -0,0 +1,111 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.models.PageRange;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PageBlobSparseDownloaderTests {
+
+    private static final long PAGE = 512;
+
+    private Path filePath;
+
+    private AsynchronousFileChannel file;
+
+    @Before
+    public void setup() throws IOException {
+        this.filePath = Files.createTempFile("download", ".data");
+        this.file = AsynchronousFileChannel.open(this.filePath, StandardOpenOption.WRITE);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        this.file.close();
+        Files.deleteIfExists(this.filePath);
+    }
+
+    private static PageRange range(long start, long end) {
+        return new PageRange().withStart(start).withEnd(end);
+    }
+
+    private static void assertChunk(BlobRange chunk, long offset, long count) {
+        Assert.assertEquals(Long.valueOf(offset), chunk.offset);
+        Assert.assertEquals(Long.valueOf(count), chunk.count);
+    }
+
+    private PageBlobSparseDownloader downloader() {
+        return new PageBlobSparseDownloader(null, this.file, DownloadFromBlobOptions.getDefault());
+    }
+
+    @Test
+    public void TestRangeLongerThanTheChunkSizeIsSplit() {
+        List<BlobRange> chunks = PageBlobSparseDownloader.chunkRanges(
+                Arrays.asList(range(0, 5 * PAGE - 1), range(8 * PAGE, 9 * PAGE - 1)), 2 * PAGE);
+
+        Assert.assertEquals(4, chunks.size());
+        assertChunk(chunks.get(0), 0, 2 * PAGE);
+        assertChunk(chunks.get(1), 2 * PAGE, 2 * PAGE);
+        // The last piece of a range is only as long as what is left of it.
+        assertChunk(chunks.get(2), 4 * PAGE, PAGE);
+        assertChunk(chunks.get(3), 8 * PAGE, PAGE);
+    }
+
+    @Test
+    public void TestRangeOfExactlyTheChunkSizeIsNotSplit() {
+        List<BlobRange> chunks = PageBlobSparseDownloader.chunkRanges(
+                Collections.singletonList(range(2 * PAGE, 4 * PAGE - 1)), 2 * PAGE);
+
+        Assert.assertEquals(1, chunks.size());
+        assertChunk(chunks.get(0), 2 * PAGE, 2 * PAGE);
+    }
+
+    @Test
+    public void TestEmptyPageListHasNoChunks() {
+        Assert.assertTrue(PageBlobSparseDownloader.chunkRanges(
+                Collections.<PageRange>emptyList(), 2 * PAGE).isEmpty());
+        // The service leaves the list out of a blob with no data.
+        Assert.assertTrue(PageBlobSparseDownloader.chunkRanges(null, 2 * PAGE).isEmpty());
+    }
+
+    @Test
+    public void TestFileIsExtendedWhenTheLastPageHoldsNoData() throws IOException {
+        downloader().extendAsync(Collections.singletonList(range(0, PAGE - 1)), 4 * PAGE).blockingAwait();
+
+        Assert.assertEquals(4 * PAGE, this.file.size());
+        Assert.assertEquals(0, Files.readAllBytes(this.filePath)[(int) (4 * PAGE - 1)]);
+    }
+
+    @Test
+    public void TestFileIsExtendedWhenNoPageHoldsData() throws IOException {
+        downloader().extendAsync(null, 4 * PAGE).blockingAwait();
+
+        Assert.assertEquals(4 * PAGE, this.file.size());
+    }
+
+    @Test
+    public void TestFileIsNotExtendedWhenTheLastPageHoldsData() throws IOException {
+        // Downloading the last range already gave the file its size, so nothing more is written.
+        downloader().extendAsync(Arrays.asList(range(0, PAGE - 1), range(3 * PAGE, 4 * PAGE - 1)), 4 * PAGE)
+                .blockingAwait();
+
+        Assert.assertEquals(0, this.file.size());
+    }
+
+    @Test
+    public void TestEmptyBlobIsNotExtended() throws IOException {
+        downloader().extendAsync(Collections.<PageRange>emptyList(), 0).blockingAwait();
+
+        Assert.assertEquals(0, this.file.size());
+    }
+}
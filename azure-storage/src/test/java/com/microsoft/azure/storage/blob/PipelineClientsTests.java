@@ -0,0 +1,51 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.azure.storage.implementation.StorageClientImpl;
+import com.microsoft.rest.v2.http.HttpPipeline;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+
+public class PipelineClientsTests {
+
+    private static HttpPipeline pipeline() {
+        return StorageURL.CreatePipeline(new AnonymousCredentials(), new PipelineOptions());
+    }
+
+    @Test
+    public void TestURLsOnOnePipelineShareProxies() throws Exception {
+        HttpPipeline pipeline = pipeline();
+        ContainerURL containerURL = new ContainerURL(new URL("https://myaccount.blob.core.windows.net/mycontainer"),
+                pipeline);
+        BlockBlobURL first = containerURL.createBlockBlobURL("first");
+        BlockBlobURL second = new BlockBlobURL(new URL("https://myaccount.blob.core.windows.net/mycontainer/second"),
+                pipeline);
+
+        Assert.assertSame(containerURL.pipelineClients(), first.pipelineClients());
+        Assert.assertSame(containerURL.pipelineClients(), second.pipelineClients());
+        Assert.assertSame(containerURL.pipelineClients(), PipelineClients.forPipeline(pipeline));
+    }
+
+    @Test
+    public void TestPipelinesHaveTheirOwnProxies() {
+        Assert.assertNotSame(PipelineClients.forPipeline(pipeline()), PipelineClients.forPipeline(pipeline()));
+    }
+
+    @Test
+    public void TestEachURLHasItsOwnClient() throws Exception {
+        HttpPipeline pipeline = pipeline();
+        ContainerURL containerURL = new ContainerURL(new URL("https://myaccount.blob.core.windows.net/mycontainer"),
+                pipeline);
+        BlockBlobURL blobURL = containerURL.createBlockBlobURL("dir/blob");
+
+        StorageClientImpl containerClient = containerURL.storageClient();
+        StorageClientImpl blobClient = blobURL.storageClient();
+
+        Assert.assertEquals("https://myaccount.blob.core.windows.net/mycontainer", containerClient.url());
+        Assert.assertEquals("https://myaccount.blob.core.windows.net/mycontainer/dir/blob", blobClient.url());
+        Assert.assertSame(pipeline, blobClient.httpPipeline());
+        // The client is created once per URL.
+        Assert.assertSame(blobClient, blobURL.storageClient());
+    }
+}
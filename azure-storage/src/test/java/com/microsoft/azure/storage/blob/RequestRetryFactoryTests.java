@@ -0,0 +1,237 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.rest.v2.http.HttpHeaders;
+import com.microsoft.rest.v2.http.HttpPipelineLogLevel;
+import com.microsoft.rest.v2.http.HttpPipelineLogger;
+import com.microsoft.rest.v2.http.HttpRequest;
+import com.microsoft.rest.v2.http.HttpResponse;
+import com.microsoft.rest.v2.policy.RequestPolicy;
+import com.microsoft.rest.v2.policy.RequestPolicyOptions;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RequestRetryFactoryTests {
+
+    private static final String PRIMARY_HOST = "myaccount.blob.core.windows.net";
+
+    private static final String SECONDARY_HOST = "myaccount-secondary.blob.core.windows.net";
+
+    private static final String URL = "https://" + PRIMARY_HOST + "/mycontainer/myblob";
+
+    private static final RequestPolicyOptions POLICY_OPTIONS = new RequestPolicyOptions(new HttpPipelineLogger() {
+        @Override
+        public HttpPipelineLogLevel minimumLogLevel() {
+            return HttpPipelineLogLevel.ERROR;
+        }
+
+        @Override
+        public void log(HttpPipelineLogLevel logLevel, String message, Object... formattedArguments) {
+        }
+    });
+
+    /**
+     * A response with the given status code, which remembers whether its body was read.
+     */
+    private static final class StubResponse extends HttpResponse {
+
+        private final int statusCode;
+
+        private boolean drained;
+
+        StubResponse(int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int statusCode() {
+            return this.statusCode;
+        }
+
+        @Override
+        public String headerValue(String headerName) {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return new HttpHeaders();
+        }
+
+        @Override
+        public Flowable<byte[]> streamBodyAsync() {
+            return Flowable.just(new byte[0]).doOnComplete(new Action() {
+                @Override
+                public void run() {
+                    drained = true;
+                }
+            });
+        }
+
+        @Override
+        public Single<byte[]> bodyAsByteArrayAsync() {
+            return streamBodyAsync().lastOrError();
+        }
+
+        @Override
+        public Single<String> bodyAsStringAsync() {
+            return Single.just("");
+        }
+    }
+
+    /**
+     * Answers each try with the next of a scripted list of responses and records the host each try was sent to.
+     */
+    private static final class ScriptedPolicy implements RequestPolicy {
+
+        private final List<StubResponse> responses = new ArrayList<StubResponse>();
+
+        private final List<String> hosts = new ArrayList<String>();
+
+        ScriptedPolicy(int... statusCodes) {
+            for (int statusCode : statusCodes) {
+                this.responses.add(new StubResponse(statusCode));
+            }
+        }
+
+        @Override
+        public Single<HttpResponse> sendAsync(HttpRequest request) {
+            try {
+                this.hosts.add(new URL(request.url()).getHost());
+            }
+            catch (MalformedURLException e) {
+                return Single.error(e);
+            }
+            return Single.<HttpResponse>just(this.responses.get(this.hosts.size() - 1));
+        }
+    }
+
+    private static HttpResponse send(ScriptedPolicy policy, String httpMethod, int maxTries, String secondaryHost) {
+        RequestRetryOptions options = new RequestRetryOptions(RetryPolicyType.FIXED, maxTries, null, 1L, 1L,
+                secondaryHost);
+        return new RequestRetryFactory(options).create(policy, POLICY_OPTIONS)
+                .sendAsync(new HttpRequest("test", httpMethod, URL))
+                .blockingGet();
+    }
+
+    private static final long RETRY_DELAY_IN_MS = 4000;
+
+    private static final long MAX_RETRY_DELAY_IN_MS = 120000;
+
+    @Test
+    public void TestExponentialDelay() {
+        RequestRetryOptions options = new RequestRetryOptions(RetryPolicyType.EXPONENTIAL, null, null,
+                RETRY_DELAY_IN_MS, MAX_RETRY_DELAY_IN_MS, null);
+
+        Assert.assertEquals(0, options.calculatedDelayInMs(1));
+        Assert.assertEquals(4000, options.calculatedDelayInMs(2));
+        Assert.assertEquals(12000, options.calculatedDelayInMs(3));
+        Assert.assertEquals(28000, options.calculatedDelayInMs(4));
+        Assert.assertEquals(MAX_RETRY_DELAY_IN_MS, options.calculatedDelayInMs(10));
+        // Large try counts must not overflow into a negative or tiny delay.
+        Assert.assertEquals(MAX_RETRY_DELAY_IN_MS, options.calculatedDelayInMs(100));
+    }
+
+    @Test
+    public void TestFixedDelay() {
+        RequestRetryOptions options = new RequestRetryOptions(RetryPolicyType.FIXED, null, null,
+                RETRY_DELAY_IN_MS, MAX_RETRY_DELAY_IN_MS, null);
+
+        for (int tryCount = 1; tryCount < 10; tryCount++) {
+            Assert.assertEquals(RETRY_DELAY_IN_MS, options.calculatedDelayInMs(tryCount));
+        }
+    }
+
+    @Test
+    public void TestJitterStaysWithinBounds() {
+        RequestRetryOptions options = new RequestRetryOptions(RetryPolicyType.EXPONENTIAL, null, null,
+                RETRY_DELAY_IN_MS, MAX_RETRY_DELAY_IN_MS, null);
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = RequestRetryFactory.delayInMs(options, 3);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        Assert.assertTrue(min >= 9600);
+        Assert.assertTrue(max <= 14400);
+        // The delays are actually spread rather than all equal.
+        Assert.assertTrue(max > min);
+    }
+
+    @Test
+    public void TestJitterNeverExceedsMaxDelay() {
+        RequestRetryOptions options = new RequestRetryOptions(RetryPolicyType.EXPONENTIAL, null, null,
+                RETRY_DELAY_IN_MS, MAX_RETRY_DELAY_IN_MS, null);
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = RequestRetryFactory.delayInMs(options, 10);
+            Assert.assertTrue(delay >= MAX_RETRY_DELAY_IN_MS * 8 / 10);
+            Assert.assertTrue(delay <= MAX_RETRY_DELAY_IN_MS);
+        }
+    }
+
+    @Test
+    public void TestReadsAlternateBetweenPrimaryAndSecondary() {
+        ScriptedPolicy policy = new ScriptedPolicy(503, 503, 500, 200);
+
+        HttpResponse response = send(policy, "GET", 4, SECONDARY_HOST);
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(Arrays.asList(PRIMARY_HOST, SECONDARY_HOST, PRIMARY_HOST, SECONDARY_HOST), policy.hosts);
+    }
+
+    @Test
+    public void TestNotFoundOnSecondaryLeavesItOut() {
+        ScriptedPolicy policy = new ScriptedPolicy(503, 404, 503, 200);
+
+        HttpResponse response = send(policy, "HEAD", 4, SECONDARY_HOST);
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(Arrays.asList(PRIMARY_HOST, SECONDARY_HOST, PRIMARY_HOST, PRIMARY_HOST), policy.hosts);
+    }
+
+    @Test
+    public void TestWritesNeverGoToSecondary() {
+        for (String httpMethod : Arrays.asList("PUT", "DELETE")) {
+            ScriptedPolicy policy = new ScriptedPolicy(503, 500, 201);
+
+            HttpResponse response = send(policy, httpMethod, 4, SECONDARY_HOST);
+
+            Assert.assertEquals(201, response.statusCode());
+            Assert.assertEquals(Arrays.asList(PRIMARY_HOST, PRIMARY_HOST, PRIMARY_HOST), policy.hosts);
+        }
+    }
+
+    @Test
+    public void TestStopsAfterMaxTries() {
+        ScriptedPolicy policy = new ScriptedPolicy(503, 503, 503, 200);
+
+        HttpResponse response = send(policy, "GET", 3, null);
+
+        // The last try's response is returned as it is.
+        Assert.assertEquals(503, response.statusCode());
+        Assert.assertEquals(3, policy.hosts.size());
+    }
+
+    @Test
+    public void TestRetriedResponsesAreDrained() {
+        ScriptedPolicy policy = new ScriptedPolicy(503, 500, 404);
+
+        send(policy, "GET", 4, null);
+
+        Assert.assertTrue(policy.responses.get(0).drained);
+        Assert.assertTrue(policy.responses.get(1).drained);
+        // The final response is left for the caller to read.
+        Assert.assertFalse(policy.responses.get(2).drained);
+    }
+}
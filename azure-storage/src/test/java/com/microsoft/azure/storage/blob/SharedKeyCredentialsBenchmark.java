@@ -0,0 +1,77 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.rest.v2.http.HttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many requests one {@link SharedKeyCredentials} signs per second when shared by 1, 8 and 32 threads.
+ * Run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.microsoft.azure.storage.blob.SharedKeyCredentialsBenchmark
+ * </pre>
+ * Adding {@code -prof gc} to the runner options reports the bytes allocated per signature.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedKeyCredentialsBenchmark {
+
+    private SharedKeyCredentials credentials;
+
+    private HttpRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        this.credentials = new SharedKeyCredentials("myaccount", "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+        this.request = new HttpRequest("benchmark", "GET",
+                "https://myaccount.blob.core.windows.net/mycontainer/dir/blob.txt?comp=block"
+                        + "&blockid=MDAwMDAwMDAwMDAwMDAwMS0wMDAwMDAwMQ%3D%3D&timeout=30");
+        this.request.headers().set("x-ms-date", "Mon, 01 Jan 2018 00:00:00 GMT");
+        this.request.headers().set("x-ms-version", "2016-05-31");
+        this.request.headers().set("x-ms-client-request-id", "a4c3b0a2-43a1-4f52-9a4d-9a8e0d4c3f1b");
+        this.request.headers().set("x-ms-lease-id", "6f1b4f9c-3a7e-4b1a-8f0e-2d9c1e7b5a3d");
+        this.request.headers().set("Content-Length", "4194304");
+        this.request.headers().set("Content-MD5", "Q2hlY2sgSW50ZWdyaXR5IQ==");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sign1Thread() throws Exception {
+        return this.credentials.computeSignature(this.request);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String sign8Threads() throws Exception {
+        return this.credentials.computeSignature(this.request);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String sign32Threads() throws Exception {
+        return this.credentials.computeSignature(this.request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SharedKeyCredentialsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+package com.microsoft.azure.storage.blob;
+
+import com.microsoft.rest.v2.http.HttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class SharedKeyCredentialsTests {
+
+    private static final String ACCOUNT_NAME = "myaccount";
+
+    // The Base64 encoding of "0123456789abcdef0123456789abcdef".
+    private static final String ACCOUNT_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+    private static final String DATE = "Mon, 01 Jan 2018 00:00:00 GMT";
+
+    private static final String VERSION = "2016-05-31";
+
+    private static final String NO_STANDARD_HEADERS = "\n\n\n\n\n\n\n\n\n\n\n\n";
+
+    private static final String XMS_HEADERS = "x-ms-date:" + DATE + "\nx-ms-version:" + VERSION + "\n";
+
+    private static HttpRequest request(String httpMethod, String url) {
+        HttpRequest request = new HttpRequest("test", httpMethod, url);
+        request.headers().set("x-ms-date", DATE);
+        request.headers().set("x-ms-version", VERSION);
+        return request;
+    }
+
+    private static void assertSigned(String url, HttpRequest request, String expectedStringToSign,
+                                     String expectedSignature) throws Exception {
+        SharedKeyCredentials credentials = new SharedKeyCredentials(ACCOUNT_NAME, ACCOUNT_KEY);
+        String stringToSign = credentials.buildStringToSign(request);
+        Assert.assertEquals(expectedStringToSign, stringToSign);
+        Assert.assertEquals(expectedSignature, credentials.computeHmac256(stringToSign));
+        // The canonicalized resource matches the one built by parsing the URL with java.net.URL and Netty's
+        // QueryStringDecoder, as the credentials used to.
+        Assert.assertTrue(stringToSign.endsWith("\n" + parsedCanonicalizedResource(url)));
+    }
+
+    @Test
+    public void TestEncodedPath() throws Exception {
+        String url = "https://myaccount.blob.core.windows.net/mycontainer/my%20blob%2Bname";
+        HttpRequest request = request("GET", url);
+        // A zero length is signed as an empty string.
+        request.headers().set("Content-Length", "0");
+
+        assertSigned(url, request,
+                "GET" + NO_STANDARD_HEADERS + XMS_HEADERS + "/myaccount/mycontainer/my%20blob%2Bname",
+                "sgK1ZT/GWA2wDAteYRf6RsFpp35vfFqm/YWpfJvcmwI=");
+    }
+
+    @Test
+    public void TestRepeatedAndEmptyQueryParameters() throws Exception {
+        String url = "https://myaccount.blob.core.windows.net/mycontainer?restype=container&comp=list"
+                + "&include=snapshots&include=metadata&prefix=a%2Fb+c&marker=";
+
+        assertSigned(url, request("GET", url),
+                "GET" + NO_STANDARD_HEADERS + XMS_HEADERS + "/myaccount/mycontainer\ncomp:list"
+                        + "\ninclude:metadata,snapshots\nmarker:\nprefix:a/b c\nrestype:container",
+                "PQGxP4ExiwcjMQkOelrIUg0YoUlT1JseLD6+v4cOdlc=");
+    }
+
+    @Test
+    public void TestServiceWithoutPath() throws Exception {
+        String url = "https://myaccount.blob.core.windows.net?comp=list";
+
+        assertSigned(url, request("GET", url),
+                "GET" + NO_STANDARD_HEADERS + XMS_HEADERS + "/myaccount/\ncomp:list",
+                "aKJXUmnpWBR4GsiipDVzKmYgKTcg2kdL1nXKiw7YFhI=");
+    }
+
+    @Test
+    public void TestRootContainerWithHeaders() throws Exception {
+        String url = "https://myaccount.blob.core.windows.net/$root/myblob";
+        HttpRequest request = request("PUT", url);
+        request.headers().set("Content-Length", "1024");
+        request.headers().set("Content-MD5", "Q2hlY2sgSW50ZWdyaXR5IQ==");
+        request.headers().set("Content-Type", "application/octet-stream");
+        request.headers().set("If-Match", "\"0x8D5\"");
+        request.headers().set("Range", "bytes=0-1023");
+        request.headers().set("x-ms-meta-b", "2");
+        request.headers().set("x-ms-meta-a", "1");
+        request.headers().set("x-ms-blob-type", "BlockBlob");
+
+        assertSigned(url, request,
+                "PUT\n\n\n1024\nQ2hlY2sgSW50ZWdyaXR5IQ==\napplication/octet-stream\n\n\n\"0x8D5\"\n\n\nbytes=0-1023\n"
+                        + "x-ms-blob-type:BlockBlob\nx-ms-date:" + DATE + "\nx-ms-meta-a:1\nx-ms-meta-b:2"
+                        + "\nx-ms-version:" + VERSION + "\n/myaccount/$root/myblob",
+                "wD2oPSY7PM4goPOPoOmwt9fUrrIkPCCS/vT1ZtMIKqo=");
+    }
+
+    @Test
+    public void TestCanonicalizedResourceMatchesParsedURL() throws Exception {
+        String[] urls = {
+                "https://myaccount.blob.core.windows.net/",
+                "https://myaccount.blob.core.windows.net/?restype=service&comp=properties",
+                "https://myaccount.blob.core.windows.net/$root?restype=container",
+                "https://myaccount.blob.core.windows.net/mycontainer/a/b/c%3Fd.txt",
+                "https://myaccount.blob.core.windows.net/mycontainer/blob?comp=block&blockid=AAAA%2B%2F%3D%3D",
+                "https://myaccount.blob.core.windows.net/mycontainer/blob?snapshot=2018-01-01T00%3A00%3A00.0000000Z",
+                "https://myaccount.blob.core.windows.net/mycontainer?comp=list&Include=copy&include=metadata"
+                        + "&include=snapshots&restype=container",
+                "https://myaccount.blob.core.windows.net/mycontainer?restype=container&comp=list&comp=list",
+                "https://myaccount.blob.core.windows.net/mycontainer?comp&restype=container&prefix=",
+                "https://myaccount.blob.core.windows.net/mycontainer?comp=list&prefix=%E6%97%A5%E6%9C%AC",
+                "https://myaccount.blob.core.windows.net:10000/mycontainer/blob?sv=2016-05-31&se=x#fragment",
+        };
+
+        SharedKeyCredentials credentials = new SharedKeyCredentials(ACCOUNT_NAME, ACCOUNT_KEY);
+        for (String url : urls) {
+            String stringToSign = credentials.buildStringToSign(request("GET", url));
+            Assert.assertEquals(url, "GET" + NO_STANDARD_HEADERS + XMS_HEADERS + parsedCanonicalizedResource(url),
+                    stringToSign);
+        }
+    }
+
+    /**
+     * The canonicalized resource as it was built before the URL was scanned by hand.
+     */
+    private static String parsedCanonicalizedResource(String url) throws Exception {
+        URL requestURL = new URL(url);
+        StringBuilder canonicalizedResource = new StringBuilder("/");
+        canonicalizedResource.append(ACCOUNT_NAME);
+        if (requestURL.getPath().length() > 0) {
+            canonicalizedResource.append(requestURL.getPath());
+        }
+        else {
+            canonicalizedResource.append('/');
+        }
+        if (requestURL.getQuery() == null) {
+            return canonicalizedResource.toString();
+        }
+
+        Map<String, List<String>> queryParams = new QueryStringDecoder("?" + requestURL.getQuery()).parameters();
+        List<String> queryParamNames = new ArrayList<String>(queryParams.keySet());
+        Collections.sort(queryParamNames);
+        for (String queryParamName : queryParamNames) {
+            List<String> queryParamValues = new ArrayList<String>(queryParams.get(queryParamName));
+            Collections.sort(queryParamValues);
+            canonicalizedResource.append('\n').append(queryParamName.toLowerCase(Locale.US)).append(':')
+                    .append(Utility.join(queryParamValues.toArray(new String[queryParamValues.size()]), ','));
+        }
+        return canonicalizedResource.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.microsoft.azure.storage.blob;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class TransferBufferPoolTests {
+
+    private static final int KB = 1024;
+
+    @Test
+    public void TestReleasedBufferIsReused() {
+        TransferBufferPool pool = new TransferBufferPool(64 * KB);
+        ByteBuffer buffer = pool.acquire(4 * KB);
+        buffer.position(100).limit(200);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(4 * KB);
+
+        Assert.assertSame(buffer, reused);
+        // It comes back cleared.
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(4 * KB, reused.limit());
+        Assert.assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void TestBuffersMatchTheRequestedSize() {
+        TransferBufferPool pool = new TransferBufferPool(64 * KB);
+        pool.release(pool.acquire(4 * KB));
+
+        ByteBuffer buffer = pool.acquire(3 * KB);
+
+        Assert.assertEquals(3 * KB, buffer.capacity());
+        Assert.assertEquals(3 * KB, buffer.array().length);
+        // The idle buffer of another size is left in the pool.
+        Assert.assertEquals(4 * KB, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void TestRetainedBytesStayWithinTheCap() {
+        TransferBufferPool pool = new TransferBufferPool(10 * KB);
+        ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(4 * KB);
+        }
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+            Assert.assertTrue(pool.getRetainedBytes() <= pool.getMaxRetainedBytes());
+        }
+
+        Assert.assertEquals(8 * KB, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void TestSizesUsedOnceDoNotCrowdOutOthers() {
+        TransferBufferPool pool = new TransferBufferPool(16 * KB);
+        ByteBuffer block = pool.acquire(4 * KB);
+        pool.release(block);
+
+        // Each of these sizes is asked for once, like the last block of many files.
+        for (int size = 5 * KB; size < 12 * KB; size += 100) {
+            pool.release(pool.acquire(size));
+            Assert.assertTrue(pool.getRetainedBytes() <= pool.getMaxRetainedBytes());
+        }
+        // Buffers of a size in use are still pooled after the pool has been filled.
+        ByteBuffer reused = pool.acquire(4 * KB);
+        pool.release(reused);
+        Assert.assertSame(reused, pool.acquire(4 * KB));
+    }
+
+    @Test
+    public void TestLeastRecentlyUsedSizeIsEvictedFirst() {
+        TransferBufferPool pool = new TransferBufferPool(8 * KB);
+        ByteBuffer first = pool.acquire(4 * KB);
+        ByteBuffer second = pool.acquire(3 * KB);
+        pool.release(first);
+        pool.release(second);
+        // The 4KB size is used again, so the 3KB one is now the least recently used.
+        ByteBuffer reused = pool.acquire(4 * KB);
+        pool.release(reused);
+
+        pool.release(pool.acquire(2 * KB));
+
+        Assert.assertEquals(6 * KB, pool.getRetainedBytes());
+        Assert.assertSame(reused, pool.acquire(4 * KB));
+    }
+
+    @Test
+    public void TestBufferLargerThanTheCapIsDropped() {
+        TransferBufferPool pool = new TransferBufferPool(4 * KB);
+        pool.release(pool.acquire(2 * KB));
+
+        pool.release(pool.acquire(8 * KB));
+
+        Assert.assertEquals(2 * KB, pool.getRetainedBytes());
+        Assert.assertEquals(0, pool.getBytesInUse());
+    }
+
+    @Test
+    public void TestBytesInUseAndHighWaterMark() {
+        TransferBufferPool pool = new TransferBufferPool(64 * KB);
+        ByteBuffer first = pool.acquire(4 * KB);
+        ByteBuffer second = pool.acquire(2 * KB);
+        Assert.assertEquals(6 * KB, pool.getBytesInUse());
+        Assert.assertEquals(6 * KB, pool.getHighWaterMark());
+
+        pool.release(first);
+        Assert.assertEquals(2 * KB, pool.getBytesInUse());
+        Assert.assertEquals(6 * KB, pool.getHighWaterMark());
+
+        // Reusing a pooled buffer counts as in use too.
+        ByteBuffer third = pool.acquire(4 * KB);
+        pool.release(second);
+        pool.release(third);
+        Assert.assertEquals(0, pool.getBytesInUse());
+        Assert.assertEquals(6 * KB, pool.getHighWaterMark());
+
+        pool.release(null);
+        Assert.assertEquals(0, pool.getBytesInUse());
+    }
+}
@@ -0,0 +1,145 @@
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class TransferMemoryBudgetTests {
+
+    /**
+     * Reserves memory for an operation which records that it started and then runs until it is disposed.
+     */
+    private static TestObserver<Object> hold(TransferMemoryBudget budget, long bytes, final List<String> started,
+                                             final String name) {
+        return budget.reserveAsync(bytes, new Callable<Single<Object>>() {
+            @Override
+            public Single<Object> call() {
+                started.add(name);
+                return Single.never();
+            }
+        }).test();
+    }
+
+    @Test
+    public void TestWaitingReservationsAreGrantedInOrder() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+        List<String> started = new ArrayList<String>();
+        TestObserver<Object> first = hold(budget, 6, started, "first");
+        TestObserver<Object> large = hold(budget, 8, started, "large");
+        // There is memory for this one, but it may not pass the larger reservation ahead of it.
+        hold(budget, 2, started, "small");
+
+        Assert.assertEquals(Arrays.asList("first"), started);
+        Assert.assertEquals(2, budget.getWaitingCount());
+        Assert.assertEquals(6, budget.getReservedBytes());
+
+        first.dispose();
+
+        Assert.assertEquals(Arrays.asList("first", "large", "small"), started);
+        Assert.assertEquals(0, budget.getWaitingCount());
+        Assert.assertEquals(10, budget.getReservedBytes());
+        large.assertNotTerminated();
+    }
+
+    @Test
+    public void TestReservationLargerThanTheBudgetRunsAlone() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+        List<String> started = new ArrayList<String>();
+        TestObserver<Object> first = hold(budget, 4, started, "first");
+        TestObserver<Object> oversize = hold(budget, 25, started, "oversize");
+        Assert.assertEquals(Arrays.asList("first"), started);
+
+        first.dispose();
+        Assert.assertEquals(Arrays.asList("first", "oversize"), started);
+        Assert.assertEquals(25, budget.getReservedBytes());
+
+        // Nothing else runs alongside it.
+        hold(budget, 1, started, "after");
+        Assert.assertEquals(1, budget.getWaitingCount());
+
+        oversize.dispose();
+        Assert.assertEquals(Arrays.asList("first", "oversize", "after"), started);
+        Assert.assertEquals(1, budget.getReservedBytes());
+    }
+
+    @Test
+    public void TestReservationCompletesAndGivesBackItsMemory() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+
+        TestObserver<String> observer = budget.reserveAsync(10, new Callable<Single<String>>() {
+            @Override
+            public Single<String> call() {
+                return Single.just("done");
+            }
+        }).test();
+
+        observer.assertResult("done");
+        Assert.assertEquals(0, budget.getReservedBytes());
+    }
+
+    @Test
+    public void TestShrinkingTheBudgetHoldsNewReservations() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+        List<String> started = new ArrayList<String>();
+        TestObserver<Object> first = hold(budget, 8, started, "first");
+
+        budget.setMaxBytes(5);
+        hold(budget, 1, started, "second");
+
+        // The reservation already granted keeps its memory.
+        Assert.assertEquals(Arrays.asList("first"), started);
+        Assert.assertEquals(8, budget.getReservedBytes());
+        Assert.assertEquals(1, budget.getWaitingCount());
+
+        first.dispose();
+        Assert.assertEquals(Arrays.asList("first", "second"), started);
+        Assert.assertEquals(1, budget.getReservedBytes());
+    }
+
+    @Test
+    public void TestGrowingTheBudgetGrantsWaitingReservations() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+        List<String> started = new ArrayList<String>();
+        hold(budget, 8, started, "first");
+        hold(budget, 4, started, "second");
+        hold(budget, 4, started, "third");
+        Assert.assertEquals(2, budget.getWaitingCount());
+
+        budget.setMaxBytes(14);
+        Assert.assertEquals(Arrays.asList("first", "second"), started);
+        Assert.assertEquals(1, budget.getWaitingCount());
+
+        budget.setMaxBytes(16);
+        Assert.assertEquals(Arrays.asList("first", "second", "third"), started);
+        Assert.assertEquals(16, budget.getReservedBytes());
+        Assert.assertEquals(16, budget.getMaxBytes());
+    }
+
+    @Test
+    public void TestDisposedWaiterIsWithdrawn() {
+        TransferMemoryBudget budget = new TransferMemoryBudget(10);
+        List<String> started = new ArrayList<String>();
+        TestObserver<Object> first = hold(budget, 6, started, "first");
+        TestObserver<Object> blocked = hold(budget, 8, started, "blocked");
+        TestObserver<Object> behind = hold(budget, 4, started, "behind");
+        Assert.assertEquals(2, budget.getWaitingCount());
+
+        // The reservation behind the withdrawn one fits and no longer has to wait.
+        blocked.dispose();
+        Assert.assertEquals(Arrays.asList("first", "behind"), started);
+        Assert.assertEquals(0, budget.getWaitingCount());
+        Assert.assertEquals(10, budget.getReservedBytes());
+
+        // It never held memory, so none is given back for it.
+        first.dispose();
+        behind.dispose();
+        Assert.assertEquals(0, budget.getReservedBytes());
+        Assert.assertEquals(Arrays.asList("first", "behind"), started);
+    }
+}
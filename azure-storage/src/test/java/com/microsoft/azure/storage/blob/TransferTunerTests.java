@@ -0,0 +1,235 @@
+package com.microsoft.azure.storage.blob;
+
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TransferTunerTests {
+
+    private static final long MB = Constants.MB;
+
+    /**
+     * Ends an epoch with the given throughput, as {@link TransferTuner} does once an epoch's requests are done.
+     */
+    private static void endEpoch(TransferTuner tuner, double throughput) {
+        synchronized (tuner) {
+            tuner.endEpoch(throughput);
+        }
+    }
+
+    private static Callable<SingleSource<Long>> request(final long bytes) {
+        return new Callable<SingleSource<Long>>() {
+            @Override
+            public SingleSource<Long> call() {
+                return Single.just(bytes);
+            }
+        };
+    }
+
+    @Test
+    public void TestStartClampsSettings() {
+        TransferTuner tuner = new TransferTuner(10);
+
+        tuner.start(20, 64 * MB, MB, 8 * MB);
+        Assert.assertEquals(10, tuner.getParallelism());
+        Assert.assertEquals(8 * MB, tuner.getBlockSize());
+
+        tuner.start(2, 1024, MB, 8 * MB);
+        Assert.assertEquals(2, tuner.getParallelism());
+        Assert.assertEquals(MB, tuner.getBlockSize());
+
+        // A minimum above the maximum gives way to the maximum.
+        tuner.start(2, 1024, 16 * MB, 8 * MB);
+        Assert.assertEquals(8 * MB, tuner.getBlockSize());
+    }
+
+    @Test
+    public void TestKeepsImprovementsAndUndoesTheRest() {
+        TransferTuner tuner = new TransferTuner(null);
+        tuner.start(4, MB, TransferTuner.MIN_BLOCK_SIZE, 100 * MB);
+
+        // The first epoch measures the starting settings, then more requests in flight are tried.
+        endEpoch(tuner, 100);
+        Assert.assertEquals(6, tuner.getParallelism());
+
+        // Better by at least 5%: kept and pushed further.
+        endEpoch(tuner, 110);
+        Assert.assertEquals(9, tuner.getParallelism());
+        Assert.assertEquals(1, tuner.getAdjustmentCount());
+
+        // Not better by 5%: undone.
+        endEpoch(tuner, 114);
+        Assert.assertEquals(6, tuner.getParallelism());
+        Assert.assertEquals(MB, tuner.getBlockSize());
+
+        // The old settings are measured again, then fewer requests in flight are tried.
+        endEpoch(tuner, 110);
+        Assert.assertEquals(5, tuner.getParallelism());
+        endEpoch(tuner, 90);
+        Assert.assertEquals(6, tuner.getParallelism());
+
+        // Then larger blocks.
+        endEpoch(tuner, 110);
+        Assert.assertEquals(2 * MB, tuner.getBlockSize());
+        endEpoch(tuner, 200);
+        Assert.assertEquals(4 * MB, tuner.getBlockSize());
+        Assert.assertEquals(2, tuner.getAdjustmentCount());
+
+        // Worse: back to the last kept block size, then smaller blocks are tried.
+        endEpoch(tuner, 150);
+        Assert.assertEquals(2 * MB, tuner.getBlockSize());
+        endEpoch(tuner, 200);
+        Assert.assertEquals(MB, tuner.getBlockSize());
+        Assert.assertEquals(6, tuner.getParallelism());
+    }
+
+    @Test
+    public void TestMovesStayWithinBounds() {
+        TransferTuner tuner = new TransferTuner(4);
+        tuner.start(4, 8 * MB, 8 * MB, 8 * MB);
+
+        // There is no room for more requests in flight, so fewer are tried first.
+        endEpoch(tuner, 100);
+        Assert.assertEquals(3, tuner.getParallelism());
+        endEpoch(tuner, 200);
+        Assert.assertEquals(2, tuner.getParallelism());
+        endEpoch(tuner, 100);
+        Assert.assertEquals(3, tuner.getParallelism());
+
+        // There is only one block size, so the block moves are skipped and more requests in flight are tried.
+        endEpoch(tuner, 100);
+        Assert.assertEquals(4, tuner.getParallelism());
+        Assert.assertEquals(8 * MB, tuner.getBlockSize());
+    }
+
+    @Test
+    public void TestSingleRequestInFlightCannotShrink() {
+        TransferTuner tuner = new TransferTuner(1);
+        tuner.start(1, TransferTuner.MIN_BLOCK_SIZE, TransferTuner.MIN_BLOCK_SIZE, TransferTuner.MIN_BLOCK_SIZE);
+
+        endEpoch(tuner, 100);
+        endEpoch(tuner, 200);
+        endEpoch(tuner, 50);
+        Assert.assertEquals(1, tuner.getParallelism());
+        Assert.assertEquals(TransferTuner.MIN_BLOCK_SIZE, tuner.getBlockSize());
+        Assert.assertEquals(0, tuner.getAdjustmentCount());
+    }
+
+    @Test
+    public void TestRunAsyncMeasuresRequests() {
+        TransferTuner tuner = new TransferTuner(null);
+        tuner.start(2, MB, TransferTuner.MIN_BLOCK_SIZE, 100 * MB);
+
+        Assert.assertEquals(MB, (long) tuner.runAsync(request(MB)).blockingGet());
+        Assert.assertEquals(512, (long) tuner.runAsync(request(512)).blockingGet());
+        // Requests which found nothing left to transfer are not counted.
+        Assert.assertEquals(0, (long) tuner.runAsync(request(0)).blockingGet());
+        tuner.finish();
+
+        Assert.assertEquals(2, tuner.getRequestCount());
+        Assert.assertEquals(MB + 512, tuner.getBytesTransferred());
+        Assert.assertTrue(tuner.getAverageLatencyInMs() >= 0);
+    }
+
+    @Test
+    public void TestStartResetsStatistics() {
+        TransferTuner tuner = new TransferTuner(null);
+        tuner.start(2, MB, TransferTuner.MIN_BLOCK_SIZE, 100 * MB);
+        tuner.runAsync(request(MB)).blockingGet();
+        endEpoch(tuner, 100);
+        endEpoch(tuner, 200);
+        tuner.finish();
+
+        tuner.start(2, MB, TransferTuner.MIN_BLOCK_SIZE, 100 * MB);
+        Assert.assertEquals(0, tuner.getRequestCount());
+        Assert.assertEquals(0, tuner.getBytesTransferred());
+        Assert.assertEquals(0, tuner.getAdjustmentCount());
+        Assert.assertEquals(2, tuner.getParallelism());
+    }
+
+    @Test
+    public void TestChunkPlannerHandsOutTheRangeInOrder() {
+        TransferTuner.ChunkPlanner planner = new TransferTuner.ChunkPlanner(100, 1100);
+
+        TransferTuner.Chunk chunk = planner.next(300);
+        Assert.assertEquals(0, chunk.index);
+        Assert.assertEquals(100, chunk.offset);
+        Assert.assertEquals(300, chunk.length);
+
+        // The chunk size may change between chunks.
+        chunk = planner.next(500);
+        Assert.assertEquals(1, chunk.index);
+        Assert.assertEquals(400, chunk.offset);
+        Assert.assertEquals(500, chunk.length);
+        Assert.assertTrue(planner.hasRemaining());
+
+        // The last chunk is cut short at the end of the range.
+        chunk = planner.next(500);
+        Assert.assertEquals(2, chunk.index);
+        Assert.assertEquals(900, chunk.offset);
+        Assert.assertEquals(200, chunk.length);
+
+        Assert.assertFalse(planner.hasRemaining());
+        Assert.assertNull(planner.next(500));
+        Assert.assertEquals(3, planner.chunkCount());
+    }
+
+    @Test
+    public void TestChunkPlannerOfAnEmptyRange() {
+        TransferTuner.ChunkPlanner planner = new TransferTuner.ChunkPlanner(10, 10);
+
+        Assert.assertFalse(planner.hasRemaining());
+        Assert.assertNull(planner.next(1));
+        Assert.assertEquals(0, planner.chunkCount());
+    }
+
+    @Test
+    public void TestChunkPlannerCoversTheRangeOnceUnderContention() throws Exception {
+        final int size = 1000000;
+        final TransferTuner.ChunkPlanner planner = new TransferTuner.ChunkPlanner(0, size);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<TransferTuner.Chunk>>> futures = new ArrayList<Future<List<TransferTuner.Chunk>>>();
+            for (int t = 0; t < 8; t++) {
+                final int chunkSize = 100 + t * 37;
+                futures.add(executor.submit(new Callable<List<TransferTuner.Chunk>>() {
+                    @Override
+                    public List<TransferTuner.Chunk> call() {
+                        List<TransferTuner.Chunk> chunks = new ArrayList<TransferTuner.Chunk>();
+                        TransferTuner.Chunk chunk;
+                        while ((chunk = planner.next(chunkSize)) != null) {
+                            chunks.add(chunk);
+                        }
+                        return chunks;
+                    }
+                }));
+            }
+
+            BitSet covered = new BitSet(size);
+            BitSet indices = new BitSet();
+            for (Future<List<TransferTuner.Chunk>> future : futures) {
+                for (TransferTuner.Chunk chunk : future.get()) {
+                    Assert.assertTrue(covered.get((int) chunk.offset, (int) chunk.offset + chunk.length).isEmpty());
+                    covered.set((int) chunk.offset, (int) chunk.offset + chunk.length);
+                    Assert.assertFalse(indices.get(chunk.index));
+                    indices.set(chunk.index);
+                }
+            }
+            Assert.assertEquals(size, covered.cardinality());
+            Assert.assertEquals(planner.chunkCount(), indices.cardinality());
+            Assert.assertEquals(planner.chunkCount(), indices.length());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.microsoft.azure.storage.implementation;
+
+import com.microsoft.azure.storage.models.Blob;
+import com.microsoft.azure.storage.models.BlobType;
+import com.microsoft.azure.storage.models.LeaseStatusType;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+public class ListBlobsSegmentTests {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<EnumerationResults ServiceEndpoint=\"https://myaccount.blob.core.windows.net/\" "
+            + "ContainerName=\"mycontainer\"><Prefix>dir/</Prefix><Marker /><MaxResults>3</MaxResults><Blobs>";
+
+    private static final String BLOBS = ""
+            + "<Blob><Name>dir/a.txt</Name><Properties>"
+            + "<Last-Modified>Mon, 01 Jan 2018 00:00:00 GMT</Last-Modified><Etag>0x8D5</Etag>"
+            + "<Content-Length>1024</Content-Length><Content-Type>text/plain</Content-Type><Content-Encoding />"
+            + "<Content-MD5>Q2hlY2sgSW50ZWdyaXR5IQ==</Content-MD5><BlobType>BlockBlob</BlobType>"
+            + "<LeaseStatus>unlocked</LeaseStatus><ServerEncrypted>true</ServerEncrypted>"
+            + "<AccessTier>Hot</AccessTier></Properties>"
+            + "<Metadata><Color>blue</Color><Size>large</Size></Metadata></Blob>"
+            + "<Blob><Name>dir/b&amp;c.vhd</Name><Snapshot>2018-01-01T00:00:00.0000000Z</Snapshot>"
+            + "<Unknown><Nested>ignored</Nested></Unknown><Properties><Content-Type>text/plain</Content-Type>"
+            + "<BlobType>PageBlob</BlobType>"
+            + "<x-ms-blob-sequence-number>9223372036854775807</x-ms-blob-sequence-number></Properties></Blob>"
+            + "<Blob><Name>dir/c</Name><Properties>"
+            + "<x-ms-blob-sequence-number>7</x-ms-blob-sequence-number></Properties></Blob>";
+
+    private static final String FOOTER = "</Blobs><NextMarker>2!72!next&amp;marker</NextMarker></EnumerationResults>";
+
+    private static ListBlobsSegment segment(String xml) throws Exception {
+        return new ListBlobsSegment(xml.getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void TestReadsBlobs() throws Exception {
+        List<Blob> blobs = segment(HEADER + BLOBS + FOOTER).blobs().toList().blockingGet();
+
+        Assert.assertEquals(3, blobs.size());
+        Blob first = blobs.get(0);
+        Assert.assertEquals("dir/a.txt", first.name());
+        Assert.assertNull(first.snapshot());
+        Assert.assertEquals(new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC).getMillis(),
+                first.properties().lastModified().getMillis());
+        Assert.assertEquals("0x8D5", first.properties().etag());
+        Assert.assertEquals(Long.valueOf(1024), first.properties().contentLength());
+        Assert.assertEquals("Q2hlY2sgSW50ZWdyaXR5IQ==", first.properties().contentMD5());
+        Assert.assertEquals(BlobType.BLOCK_BLOB, first.properties().blobType());
+        Assert.assertEquals(LeaseStatusType.fromString("unlocked"), first.properties().leaseStatus());
+        Assert.assertEquals(Boolean.TRUE, first.properties().serverEncrypted());
+        Assert.assertEquals("blue", first.metadata().get("Color"));
+        Assert.assertEquals("large", first.metadata().get("Size"));
+
+        Blob second = blobs.get(1);
+        Assert.assertEquals("dir/b&c.vhd", second.name());
+        Assert.assertEquals("2018-01-01T00:00:00.0000000Z", second.snapshot());
+        Assert.assertEquals(BlobType.PAGE_BLOB, second.properties().blobType());
+        // A sequence number beyond the range of the model is left out rather than failing the listing.
+        Assert.assertNull(second.properties().blobSequenceNumber());
+        // Repeated values are shared between the blobs of a segment.
+        Assert.assertSame(first.properties().contentType(), second.properties().contentType());
+
+        Assert.assertEquals(Integer.valueOf(7), blobs.get(2).properties().blobSequenceNumber());
+    }
+
+    @Test
+    public void TestEachSubscriptionParsesAgain() throws Exception {
+        ListBlobsSegment segment = segment(HEADER + BLOBS + FOOTER);
+
+        Assert.assertEquals("dir/a.txt", segment.blobs().firstOrError().blockingGet().name());
+        Assert.assertEquals(3, segment.blobs().count().blockingGet().intValue());
+    }
+
+    @Test
+    public void TestNextMarker() throws Exception {
+        Assert.assertEquals("2!72!next&marker", segment(HEADER + BLOBS + FOOTER).nextMarker());
+    }
+
+    @Test
+    public void TestEmptyNextMarker() throws Exception {
+        Assert.assertNull(segment(HEADER + BLOBS + "</Blobs><NextMarker /></EnumerationResults>").nextMarker());
+        Assert.assertNull(segment(HEADER + BLOBS + "</Blobs><NextMarker></NextMarker></EnumerationResults>")
+                .nextMarker());
+        Assert.assertNull(segment(HEADER + BLOBS + "</Blobs></EnumerationResults>").nextMarker());
+    }
+
+    @Test
+    public void TestNextMarkerBeforeLongTail() throws Exception {
+        // The marker is out of reach of the search from the end, so the whole body is scanned for it.
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 16 * 1024; i++) {
+            padding.append(' ');
+        }
+        String xml = HEADER + BLOBS + "</Blobs><NextMarker>marker</NextMarker>" + padding + "</EnumerationResults>";
+
+        Assert.assertEquals("marker", segment(xml).nextMarker());
+    }
+
+    @Test
+    public void TestNoBlobs() throws Exception {
+        ListBlobsSegment segment = segment(HEADER + "</Blobs><NextMarker /></EnumerationResults>");
+
+        Assert.assertEquals(0, segment.blobs().count().blockingGet().intValue());
+        Assert.assertNull(segment.nextMarker());
+    }
+
+    @Test
+    public void TestParseSequenceNumber() {
+        Assert.assertNull(ListBlobsSegment.parseSequenceNumber(null));
+        Assert.assertEquals(Integer.valueOf(0), ListBlobsSegment.parseSequenceNumber("0"));
+        Assert.assertEquals(Integer.valueOf(Integer.MAX_VALUE),
+                ListBlobsSegment.parseSequenceNumber(String.valueOf(Integer.MAX_VALUE)));
+        Assert.assertNull(ListBlobsSegment.parseSequenceNumber(String.valueOf(Integer.MAX_VALUE + 1L)));
+    }
+}